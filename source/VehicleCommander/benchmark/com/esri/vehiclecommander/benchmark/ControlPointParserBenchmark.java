@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.vehiclecommander.util.ControlPointParser;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures parsing the _control_points of every message in a corpus, with
+ * ControlPointParser and with the StringTokenizer approach it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ControlPointParserBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int messageCount;
+
+    private GeomessageCorpus corpus;
+
+    @Setup
+    public void setUp() {
+        corpus = new GeomessageCorpus(messageCount);
+    }
+
+    @Benchmark
+    public void controlPointParser(Blackhole blackhole) {
+        ControlPointParser parser = ControlPointParser.forCurrentThread();
+        for (int i = 0; i < corpus.size(); i++) {
+            int pointCount = parser.parse(corpus.getControlPoints(i));
+            for (int p = 0; p < pointCount; p++) {
+                blackhole.consume(parser.getX(p));
+                blackhole.consume(parser.getY(p));
+            }
+        }
+    }
+
+    @Benchmark
+    public void stringTokenizer(Blackhole blackhole) {
+        for (int i = 0; i < corpus.size(); i++) {
+            StringTokenizer tok = new StringTokenizer(corpus.getControlPoints(i), ";");
+            while (tok.hasMoreTokens()) {
+                StringTokenizer tok2 = new StringTokenizer(tok.nextToken(), ",");
+                blackhole.consume(Double.parseDouble(tok2.nextToken()));
+                blackhole.consume(Double.parseDouble(tok2.nextToken()));
+            }
+        }
+    }
+
+}
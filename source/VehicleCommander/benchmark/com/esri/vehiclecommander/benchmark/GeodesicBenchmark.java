@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+import com.esri.vehiclecommander.util.Geodesic;
+import com.esri.vehiclecommander.util.Utilities;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares measuring distance and bearing with Geodesic against projecting both
+ * points to Web Mercator and measuring with GeometryEngine, as MgrsLayerController
+ * used to on every location change. The "short" pairs are within a few kilometers,
+ * which is the fast path; the "long" pairs are hundreds of kilometers apart, which
+ * is Vincenty's formula.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GeodesicBenchmark {
+
+    private static final int PAIR_COUNT = 1024;
+
+    @Param({ "short", "long" })
+    public String separation;
+
+    private final double[] coords = new double[4 * PAIR_COUNT];
+    private final double[] result = new double[2];
+    private SpatialReference webMercator;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(GeomessageCorpus.DEFAULT_SEED);
+        double spread = "short".equals(separation) ? 0.05 : 5.0;
+        for (int i = 0; i < coords.length; i += 4) {
+            coords[i] = 44.0 + random.nextDouble();
+            coords[i + 1] = 33.0 + random.nextDouble();
+            coords[i + 2] = coords[i] + (random.nextDouble() - 0.5) * spread;
+            coords[i + 3] = coords[i + 1] + (random.nextDouble() - 0.5) * spread;
+        }
+        webMercator = Utilities.getSpatialReference(3857);
+    }
+
+    private int nextPair() {
+        index = (index + 4) % coords.length;
+        return index;
+    }
+
+    @Benchmark
+    public double[] geodesic() {
+        int i = nextPair();
+        Geodesic.inverse(coords[i], coords[i + 1], coords[i + 2], coords[i + 3], result);
+        return result;
+    }
+
+    @Benchmark
+    public double sphericalDistance() {
+        int i = nextPair();
+        return Geodesic.sphericalDistanceMeters(coords[i], coords[i + 1], coords[i + 2], coords[i + 3]);
+    }
+
+    @Benchmark
+    public void projectThenMeasure(Blackhole blackhole) {
+        int i = nextPair();
+        Point from = new Point(coords[i], coords[i + 1]);
+        Point to = new Point(coords[i + 2], coords[i + 3]);
+        blackhole.consume(Utilities.calculateBearingDegrees(from, to));
+        blackhole.consume(GeometryEngine.distance(
+                GeometryEngine.project(from, Utilities.WGS84, webMercator),
+                GeometryEngine.project(to, Utilities.WGS84, webMercator),
+                webMercator));
+    }
+
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.vehiclecommander.model.GeomessageXmlReader;
+import com.esri.vehiclecommander.util.BinaryGeomessageCodec;
+import com.esri.vehiclecommander.util.Utilities;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares encoding and decoding datagrams of geomessages as XML, with an
+ * XMLStreamWriter and GeomessageXmlReader, and as binary, with
+ * BinaryGeomessageCodec. Each datagram holds as many corpus geomessages as
+ * ScheduledMessageController typically batches together.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GeomessageCodecBenchmark {
+
+    private static final int GEOMESSAGES_PER_DATAGRAM = 8;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    @Param({ "1000", "10000", "100000" })
+    public int messageCount;
+
+    private List<List<Map<String, String>>> datagrams;
+    private String[] xmlDatagrams;
+    private String[] binaryDatagrams;
+
+    @Setup
+    public void setUp() throws XMLStreamException {
+        GeomessageCorpus corpus = new GeomessageCorpus(messageCount);
+        datagrams = new ArrayList<List<Map<String, String>>>();
+        for (int i = 0; i < corpus.size(); i += GEOMESSAGES_PER_DATAGRAM) {
+            List<Map<String, String>> datagram = new ArrayList<Map<String, String>>(GEOMESSAGES_PER_DATAGRAM);
+            for (int j = i; j < Math.min(i + GEOMESSAGES_PER_DATAGRAM, corpus.size()); j++) {
+                datagram.add(corpus.toProperties(j));
+            }
+            datagrams.add(datagram);
+        }
+        xmlDatagrams = new String[datagrams.size()];
+        binaryDatagrams = new String[datagrams.size()];
+        for (int i = 0; i < datagrams.size(); i++) {
+            xmlDatagrams[i] = writeXml(datagrams.get(i));
+            binaryDatagrams[i] = new String(BinaryGeomessageCodec.encode(datagrams.get(i)), ASCII);
+        }
+    }
+
+    private static String writeXml(List<Map<String, String>> datagram) throws XMLStreamException {
+        StringWriter xml = new StringWriter();
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(xml);
+        writer.writeStartDocument();
+        writer.writeStartElement("geomessages");
+        for (Map<String, String> geomessage : datagram) {
+            writer.writeStartElement("geomessage");
+            writer.writeAttribute("v", Utilities.GEOMESSAGE_VERSION);
+            for (Map.Entry<String, String> property : geomessage.entrySet()) {
+                Utilities.writeTextElement(writer, property.getKey(), property.getValue());
+            }
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.close();
+        return xml.toString();
+    }
+
+    @Benchmark
+    public void encodeXml(Blackhole blackhole) throws XMLStreamException {
+        for (List<Map<String, String>> datagram : datagrams) {
+            blackhole.consume(writeXml(datagram).getBytes());
+        }
+    }
+
+    @Benchmark
+    public void encodeBinary(Blackhole blackhole) {
+        for (List<Map<String, String>> datagram : datagrams) {
+            blackhole.consume(BinaryGeomessageCodec.encode(datagram));
+        }
+    }
+
+    @Benchmark
+    public void decodeXml(Blackhole blackhole) throws XMLStreamException {
+        for (String datagram : xmlDatagrams) {
+            blackhole.consume(GeomessageXmlReader.readProperties(datagram));
+        }
+    }
+
+    @Benchmark
+    public void decodeBinary(Blackhole blackhole) throws DataFormatException {
+        for (String datagram : binaryDatagrams) {
+            blackhole.consume(BinaryGeomessageCodec.decode(datagram));
+        }
+    }
+
+}
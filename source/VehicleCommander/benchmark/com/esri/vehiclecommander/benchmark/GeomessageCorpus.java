@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.militaryapps.model.Geomessage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A synthetic, reproducible set of geomessages for benchmarks. The same size and
+ * seed always produce the same messages. Each message is held as a few parallel
+ * arrays of strings so that a corpus of a million messages fits comfortably in a
+ * benchmark JVM.
+ */
+public class GeomessageCorpus {
+
+    /**
+     * The seed used when none is specified.
+     */
+    public static final long DEFAULT_SEED = 20150101L;
+
+    /**
+     * Symbol IDs, control point counts, and message types that roughly match the
+     * traffic seen in the field: mostly single-point units and reports, with some
+     * lines and areas.
+     */
+    private static final String[][] TYPES = new String[][] {
+        //{ _type, sic, number of control points }
+        { "position_report", "SFGPUCI----K---", "1" },
+        { "position_report", "SFGPUCA----K---", "1" },
+        { "spotrep", "SHGPUCI----K---", "1" },
+        { "chemlight", "SFGPU----------", "1" },
+        { "trackrep", "SFGPEVC--------", "1" },
+        { "trackrep", "GFGPGLB----K---", "2" },
+        { "trackrep", "GFGPOLAGM------", "4" },
+        { "trackrep", "GFGPGAG----K---", "6" },
+    };
+
+    private final String[] ids;
+    private final String[] types;
+    private final String[] sics;
+    private final String[] controlPoints;
+
+    /**
+     * Creates a corpus with the default seed.
+     * @param size the number of messages.
+     */
+    public GeomessageCorpus(int size) {
+        this(size, DEFAULT_SEED);
+    }
+
+    /**
+     * Creates a corpus.
+     * @param size the number of messages.
+     * @param seed the random seed.
+     */
+    public GeomessageCorpus(int size, long seed) {
+        Random random = new Random(seed);
+        ids = new String[size];
+        types = new String[size];
+        sics = new String[size];
+        controlPoints = new String[size];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            String[] type = TYPES[random.nextInt(TYPES.length)];
+            ids[i] = "{" + new UUID(random.nextLong(), random.nextLong()) + "}";
+            types[i] = type[0];
+            sics[i] = type[1];
+            int pointCount = Integer.parseInt(type[2]);
+            //Web Mercator, around the Middle East, as in the sample data
+            double x = 4900000 + random.nextDouble() * 500000;
+            double y = 3800000 + random.nextDouble() * 500000;
+            sb.setLength(0);
+            for (int p = 0; p < pointCount; p++) {
+                if (0 < p) {
+                    sb.append(';');
+                }
+                sb.append(x + random.nextGaussian() * 2000).append(',').append(y + random.nextGaussian() * 2000);
+            }
+            controlPoints[i] = sb.toString();
+        }
+    }
+
+    /**
+     * Returns the number of messages in this corpus.
+     * @return the number of messages in this corpus.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the _control_points value of a message.
+     * @param index the message index.
+     * @return the _control_points value of the message.
+     */
+    public String getControlPoints(int index) {
+        return controlPoints[index];
+    }
+
+    /**
+     * Creates a Geomessage for a message in this corpus. The action is always UPDATE.
+     * @param index the message index.
+     * @return a new Geomessage.
+     */
+    public Geomessage toGeomessage(int index) {
+        Geomessage geomessage = new Geomessage();
+        geomessage.setId(ids[index]);
+        geomessage.setProperty(Geomessage.ID_FIELD_NAME, ids[index]);
+        geomessage.setProperty(Geomessage.TYPE_FIELD_NAME, types[index]);
+        geomessage.setProperty(Geomessage.ACTION_FIELD_NAME, "UPDATE");
+        geomessage.setProperty("_wkid", "3857");
+        geomessage.setProperty(Geomessage.SIC_FIELD_NAME, sics[index]);
+        geomessage.setProperty(Geomessage.CONTROL_POINTS_FIELD_NAME, controlPoints[index]);
+        geomessage.setProperty("uniquedesignation", "Unit " + index);
+        return geomessage;
+    }
+
+    /**
+     * Returns the properties of a message in this corpus, in the order in which
+     * writeXml writes them. The action is always UPDATE.
+     * @param index the message index.
+     * @return a new map of property names to values.
+     */
+    public Map<String, String> toProperties(int index) {
+        LinkedHashMap<String, String> properties = new LinkedHashMap<String, String>();
+        properties.put(Geomessage.ID_FIELD_NAME, ids[index]);
+        properties.put(Geomessage.TYPE_FIELD_NAME, types[index]);
+        properties.put(Geomessage.ACTION_FIELD_NAME, "UPDATE");
+        properties.put("_wkid", "3857");
+        properties.put(Geomessage.SIC_FIELD_NAME, sics[index]);
+        properties.put("uniquedesignation", "Unit " + index);
+        properties.put(Geomessage.CONTROL_POINTS_FIELD_NAME, controlPoints[index]);
+        return properties;
+    }
+
+    /**
+     * Writes this corpus to a geomessages XML file, in the format of data/coa.xml.
+     * @param file the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeXml(File file) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<geomessages>\n");
+            for (int i = 0; i < ids.length; i++) {
+                out.write("  <geomessage v=\"1.0\">\n");
+                writeElement(out, Geomessage.ID_FIELD_NAME, ids[i]);
+                writeElement(out, Geomessage.TYPE_FIELD_NAME, types[i]);
+                writeElement(out, Geomessage.ACTION_FIELD_NAME, "update");
+                writeElement(out, "_wkid", "3857");
+                writeElement(out, Geomessage.SIC_FIELD_NAME, sics[i]);
+                writeElement(out, "uniquedesignation", "Unit " + i);
+                writeElement(out, Geomessage.CONTROL_POINTS_FIELD_NAME, controlPoints[i]);
+                out.write("  </geomessage>\n");
+            }
+            out.write("</geomessages>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeElement(Writer out, String name, String value) throws IOException {
+        out.write("    <");
+        out.write(name);
+        out.write('>');
+        out.write(value);
+        out.write("</");
+        out.write(name);
+        out.write(">\n");
+    }
+
+}
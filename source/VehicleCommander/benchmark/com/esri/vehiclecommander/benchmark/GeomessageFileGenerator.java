@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Writes large geomessage XML files in the format of data/coa.xml, for testing
+ * how the application behaves with tens of thousands of tracks. The mix of
+ * friendly and hostile units, lines and areas, the spatial spread of the tracks,
+ * and how often each track is updated are configurable. Files are written as
+ * they are generated, so the number of messages is limited only by disk space.<br/>
+ * <br/>
+ * Usage: GeomessageFileGenerator -out &lt;file&gt; [-tracks n] [-updates n]
+ * [-hostile fraction] [-lines fraction] [-areas fraction] [-removes fraction]
+ * [-center x,y] [-spread meters] [-clusters n] [-move meters] [-seed n]
+ */
+public class GeomessageFileGenerator {
+
+    private static final String[] FRIENDLY_UNIT_SICS = new String[] {
+        "SFGPUCI--------", "SFGPUCIZ-------", "SFGPUCE--------", "SFGPUCRVG------", "SFGPUCA--------"
+    };
+    private static final String[] HOSTILE_UNIT_SICS = new String[] {
+        "SHGPUCI--------", "SHGPUCIZ-------", "SHGPUCA--------", "SHGPUCF--------"
+    };
+    private static final String[] LINE_SICS = new String[] {
+        "G*GPGLB--------", "G*GPGLF--------", "G*GPGLP--------"
+    };
+    private static final String[] AREA_SICS = new String[] {
+        "G*GPGAA--------", "G*GPGAG--------"
+    };
+
+    private int trackCount = 50000;
+    private int updatesPerTrack = 1;
+    private double hostileFraction = 0.5;
+    private double lineFraction = 0.05;
+    private double areaFraction = 0.02;
+    private double removeFraction = 0;
+    //Web Mercator, near the tracks in data/coa.xml
+    private double centerX = -13568000;
+    private double centerY = 4390000;
+    private double spreadMeters = 50000;
+    private int clusterCount = 20;
+    private double moveMeters = 200;
+    private long seed = GeomessageCorpus.DEFAULT_SEED;
+
+    /**
+     * One generated track. Units have one control point, lines and areas several.
+     */
+    private static class Track {
+        String id;
+        String sic;
+        String designation;
+        double[] points;
+    }
+
+    /**
+     * Generates a geomessage file.
+     * @param file the file to write.
+     * @return the number of geomessages written.
+     * @throws IOException if the file cannot be written.
+     */
+    public long generate(File file) throws IOException {
+        Random random = new Random(seed);
+        double[] clusterCenters = new double[2 * Math.max(1, clusterCount)];
+        for (int i = 0; i < clusterCenters.length; i += 2) {
+            clusterCenters[i] = centerX + (random.nextDouble() * 2 - 1) * spreadMeters;
+            clusterCenters[i + 1] = centerY + (random.nextDouble() * 2 - 1) * spreadMeters;
+        }
+        double clusterRadius = spreadMeters / Math.sqrt(clusterCenters.length / 2);
+
+        Track[] tracks = new Track[trackCount];
+        for (int i = 0; i < trackCount; i++) {
+            Track track = new Track();
+            track.id = new UUID(random.nextLong(), random.nextLong()).toString();
+            boolean hostile = random.nextDouble() < hostileFraction;
+            double kind = random.nextDouble();
+            int pointCount;
+            if (kind < lineFraction) {
+                track.sic = affiliate(LINE_SICS[random.nextInt(LINE_SICS.length)], hostile);
+                pointCount = 2 + random.nextInt(4);
+            } else if (kind < lineFraction + areaFraction) {
+                track.sic = affiliate(AREA_SICS[random.nextInt(AREA_SICS.length)], hostile);
+                pointCount = 4 + random.nextInt(6);
+            } else {
+                String[] sics = hostile ? HOSTILE_UNIT_SICS : FRIENDLY_UNIT_SICS;
+                track.sic = sics[random.nextInt(sics.length)];
+                pointCount = 1;
+            }
+            track.designation = (hostile ? "Enemy " : "Unit ") + (i + 1);
+            int cluster = random.nextInt(clusterCenters.length / 2);
+            double x = clusterCenters[2 * cluster] + random.nextGaussian() * clusterRadius / 3;
+            double y = clusterCenters[2 * cluster + 1] + random.nextGaussian() * clusterRadius / 3;
+            track.points = new double[2 * pointCount];
+            for (int p = 0; p < pointCount; p++) {
+                track.points[2 * p] = x + (1 == pointCount ? 0 : random.nextGaussian() * 1000);
+                track.points[2 * p + 1] = y + (1 == pointCount ? 0 : random.nextGaussian() * 1000);
+            }
+            tracks[i] = track;
+        }
+
+        long written = 0;
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+        try {
+            out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<geomessages>\n");
+            int[] order = new int[trackCount];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int round = 0; round < updatesPerTrack; round++) {
+                shuffle(order, random);
+                for (int index : order) {
+                    Track track = tracks[index];
+                    if (0 < round) {
+                        double dx = random.nextGaussian() * moveMeters;
+                        double dy = random.nextGaussian() * moveMeters;
+                        for (int p = 0; p < track.points.length; p += 2) {
+                            track.points[p] += dx;
+                            track.points[p + 1] += dy;
+                        }
+                    }
+                    sb.setLength(0);
+                    for (int p = 0; p < track.points.length; p += 2) {
+                        if (0 < p) {
+                            sb.append(';');
+                        }
+                        appendCoordinate(sb, track.points[p]).append(',');
+                        appendCoordinate(sb, track.points[p + 1]);
+                    }
+                    writeMessage(out, track, "update", sb.toString());
+                    written++;
+                }
+            }
+            shuffle(order, random);
+            int removeCount = (int) Math.round(trackCount * removeFraction);
+            for (int i = 0; i < removeCount; i++) {
+                writeMessage(out, tracks[order[i]], "remove", null);
+                written++;
+            }
+            out.write("</geomessages>\n");
+        } finally {
+            out.close();
+        }
+        return written;
+    }
+
+    /**
+     * Appends a coordinate with seven decimal places and no exponent, as in
+     * data/coa.xml. (Double.toString uses an exponent for Web Mercator X values.)
+     */
+    private static StringBuilder appendCoordinate(StringBuilder sb, double value) {
+        long scaled = Math.round(Math.abs(value) * 1e7);
+        if (0 > value && 0 != scaled) {
+            sb.append('-');
+        }
+        sb.append(scaled / 10000000).append('.');
+        String fraction = Long.toString(scaled % 10000000);
+        for (int i = fraction.length(); i < 7; i++) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    private static String affiliate(String sic, boolean hostile) {
+        return sic.replace('*', hostile ? 'H' : 'F');
+    }
+
+    private static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+
+    private static void writeMessage(Writer out, Track track, String action, String controlPoints) throws IOException {
+        out.write("    <geomessage>\n");
+        writeElement(out, "_id", track.id);
+        writeElement(out, "_type", "position_report");
+        writeElement(out, "_action", action);
+        writeElement(out, "_wkid", "3857");
+        writeElement(out, "sic", track.sic);
+        writeElement(out, "uniquedesignation", track.designation);
+        if (null != controlPoints) {
+            writeElement(out, "_control_points", controlPoints);
+        }
+        out.write("    </geomessage>\n");
+    }
+
+    private static void writeElement(Writer out, String name, String value) throws IOException {
+        out.write("        <");
+        out.write(name);
+        out.write('>');
+        out.write(value);
+        out.write("</");
+        out.write(name);
+        out.write(">\n");
+    }
+
+    public static void main(String[] args) throws IOException {
+        GeomessageFileGenerator generator = new GeomessageFileGenerator();
+        File outFile = null;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-out":
+                    outFile = new File(value);
+                    break;
+                case "-tracks":
+                    generator.trackCount = Integer.parseInt(value);
+                    break;
+                case "-updates":
+                    generator.updatesPerTrack = Integer.parseInt(value);
+                    break;
+                case "-hostile":
+                    generator.hostileFraction = Double.parseDouble(value);
+                    break;
+                case "-lines":
+                    generator.lineFraction = Double.parseDouble(value);
+                    break;
+                case "-areas":
+                    generator.areaFraction = Double.parseDouble(value);
+                    break;
+                case "-removes":
+                    generator.removeFraction = Double.parseDouble(value);
+                    break;
+                case "-center":
+                    String[] xy = value.split(",");
+                    generator.centerX = Double.parseDouble(xy[0]);
+                    generator.centerY = Double.parseDouble(xy[1]);
+                    break;
+                case "-spread":
+                    generator.spreadMeters = Double.parseDouble(value);
+                    break;
+                case "-clusters":
+                    generator.clusterCount = Integer.parseInt(value);
+                    break;
+                case "-move":
+                    generator.moveMeters = Double.parseDouble(value);
+                    break;
+                case "-seed":
+                    generator.seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+            }
+        }
+        if (null == outFile) {
+            System.err.println("Usage: GeomessageFileGenerator -out <file> [-tracks n] [-updates n] "
+                    + "[-hostile fraction] [-lines fraction] [-areas fraction] [-removes fraction] "
+                    + "[-center x,y] [-spread meters] [-clusters n] [-move meters] [-seed n]");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        long count = generator.generate(outFile);
+        System.out.println("Wrote " + count + " geomessages for " + generator.trackCount + " tracks to "
+                + outFile.getAbsolutePath() + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+}
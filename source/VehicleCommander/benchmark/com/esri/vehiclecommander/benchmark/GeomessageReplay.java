@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.core.symbol.advanced.Message;
+import com.esri.militaryapps.model.Geomessage;
+import com.esri.vehiclecommander.controller.AdvancedSymbolController;
+import com.esri.vehiclecommander.controller.GeomessageIngestQueue;
+import com.esri.vehiclecommander.model.Mil2525CMessageParser;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a geomessage XML file headlessly. The file is parsed with
+ * Mil2525CMessageParser, as Mil2525CMessageLayer does, and the messages are then
+ * offered to a GeomessageIngestQueue at a controlled rate, as if received from the
+ * network. Each batch goes through AdvancedSymbolController.createMessage, the
+ * part of the receive path that does not need a map. Throughput, queue behavior,
+ * and heap use are reported as the replay runs and when it finishes.<br/>
+ * <br/>
+ * Usage: GeomessageReplay -file &lt;file&gt; [-rate messagesPerSecond] [-loops n]
+ * <br/>
+ * A rate of 0 (the default) replays as fast as possible.
+ */
+public class GeomessageReplay {
+
+    private static final Runtime RUNTIME = Runtime.getRuntime();
+
+    private static long peakHeapBytes = 0;
+
+    private static long sampleHeap() {
+        long used = RUNTIME.totalMemory() - RUNTIME.freeMemory();
+        if (used > peakHeapBytes) {
+            peakHeapBytes = used;
+        }
+        return used;
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    public static void main(String[] args) throws Exception {
+        File file = null;
+        double rate = 0;
+        int loops = 1;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            if ("-file".equals(args[i])) {
+                file = new File(args[i + 1]);
+            } else if ("-rate".equals(args[i])) {
+                rate = Double.parseDouble(args[i + 1]);
+            } else if ("-loops".equals(args[i])) {
+                loops = Integer.parseInt(args[i + 1]);
+            } else {
+                System.err.println("Unknown option " + args[i]);
+            }
+        }
+        if (null == file) {
+            System.err.println("Usage: GeomessageReplay -file <file> [-rate messagesPerSecond] [-loops n]");
+            System.exit(1);
+        }
+
+        System.gc();
+        long heapBefore = sampleHeap();
+        long start = System.nanoTime();
+        Mil2525CMessageParser parser = new Mil2525CMessageParser();
+        parser.parseMessages(file);
+        List<Message> messages = parser.getMessages();
+        double parseSeconds = (System.nanoTime() - start) / 1e9;
+        long heapAfterParse = sampleHeap();
+        System.out.println(String.format("Parsed %d messages from %s in %.2f s (%.0f messages/s); heap grew by %s",
+                messages.size(), file.getName(), parseSeconds, messages.size() / parseSeconds,
+                megabytes(heapAfterParse - heapBefore)));
+
+        Geomessage[] geomessages = new Geomessage[messages.size()];
+        for (int i = 0; i < geomessages.length; i++) {
+            Message message = messages.get(i);
+            Geomessage geomessage = new Geomessage();
+            geomessage.setId(message.getID());
+            for (Map.Entry<String, Object> property : message.getProperties().entrySet()) {
+                geomessage.setProperty(property.getKey(), property.getValue());
+            }
+            geomessages[i] = geomessage;
+        }
+        parser.clearMessages();
+
+        final AtomicLong created = new AtomicLong(0);
+        final AtomicLong failed = new AtomicLong(0);
+        GeomessageIngestQueue queue = new GeomessageIngestQueue(new GeomessageIngestQueue.BatchHandler() {
+
+            @Override
+            public void processBatch(List<Geomessage> batch) {
+                for (Geomessage geomessage : batch) {
+                    try {
+                        if (null != AdvancedSymbolController.createMessage(geomessage)) {
+                            created.incrementAndGet();
+                        }
+                    } catch (RuntimeException re) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        });
+        queue.start();
+
+        long total = (long) geomessages.length * loops;
+        long nanosPerMessage = 0 < rate ? (long) (1e9 / rate) : 0;
+        start = System.nanoTime();
+        long nextReport = start + 1000000000L;
+        for (long sent = 0; sent < total; sent++) {
+            queue.offer(geomessages[(int) (sent % geomessages.length)]);
+            long now = System.nanoTime();
+            if (0 < nanosPerMessage) {
+                long due = start + (sent + 1) * nanosPerMessage;
+                if (due - now > 1000000L) {
+                    Thread.sleep((due - now) / 1000000L);
+                    now = System.nanoTime();
+                }
+            }
+            if (now >= nextReport) {
+                report((now - start) / 1e9, sent + 1, queue, created.get());
+                nextReport += 1000000000L;
+            }
+        }
+        while (0 < queue.getQueueDepth()
+                || queue.getAppliedCount() + queue.getCoalescedCount() + queue.getDroppedCount() < total) {
+            Thread.sleep(10);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        queue.stop();
+        report(seconds, total, queue, created.get());
+
+        System.out.println();
+        System.out.println(String.format("Offered:    %d messages in %.2f s (%.0f messages/s)", total, seconds, total / seconds));
+        System.out.println(String.format("Applied:    %d messages (%.0f messages/s sustained) in %d batches",
+                queue.getAppliedCount(), queue.getAppliedCount() / seconds, queue.getBatchCount()));
+        System.out.println("Coalesced:  " + queue.getCoalescedCount());
+        System.out.println("Dropped:    " + queue.getDroppedCount());
+        System.out.println("Failed:     " + failed.get());
+        System.out.println(String.format("Batch time: %.3f ms average, %.3f ms max",
+                queue.getAverageApplyMillis(), queue.getMaxApplyMillis()));
+        System.out.println("Peak heap:  " + megabytes(peakHeapBytes));
+    }
+
+    private static void report(double seconds, long sent, GeomessageIngestQueue queue, long created) {
+        System.out.println(String.format("%7.1f s  offered %d  applied %d  created %d  depth %d  dropped %d  heap %s",
+                seconds, sent, queue.getAppliedCount(), created, queue.getQueueDepth(),
+                queue.getDroppedCount(), megabytes(sampleHeap())));
+    }
+
+}
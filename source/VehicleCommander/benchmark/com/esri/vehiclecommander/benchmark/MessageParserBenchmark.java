@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.vehiclecommander.model.Mil2525CMessageParser;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.ParserConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xml.sax.SAXException;
+
+/**
+ * Measures Mil2525CMessageParser.parseMessages on a geomessages XML file, as
+ * Mil2525CMessageLayer does when it loads a message file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MessageParserBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int messageCount;
+
+    private File xmlFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        xmlFile = File.createTempFile("geomessages-" + messageCount + "-", ".xml");
+        new GeomessageCorpus(messageCount).writeXml(xmlFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!xmlFile.delete()) {
+            xmlFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public int parseMessages() throws ParserConfigurationException, SAXException, IOException {
+        Mil2525CMessageParser parser = new Mil2525CMessageParser();
+        parser.parseMessages(xmlFile);
+        return parser.getMessages().size();
+    }
+
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.vehiclecommander.util.MgrsParser;
+import com.esri.vehiclecommander.util.Utilities;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the regular expression MGRS validation that Utilities.convertToValidMgrs
+ * used to do with MgrsParser. The inputs are typed MGRS strings: complete ones,
+ * ones with spaces and lowercase letters, ones without a grid zone, and invalid ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MgrsBenchmark {
+
+    private static final int INPUT_COUNT = 1000;
+    private static final String REFERENCE_MGRS = "38SMB4484833036";
+
+    private final String[] inputs = new String[INPUT_COUNT];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(GeomessageCorpus.DEFAULT_SEED);
+        String letters = "ABCDEFGHJKLMNPQRSTUV";
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            StringBuilder sb = new StringBuilder();
+            int kind = i % 4;
+            if (2 != kind) {
+                sb.append(1 + random.nextInt(60)).append("CDEFGHJKLMNPQRSTUVWX".charAt(random.nextInt(20)));
+            }
+            if (1 == kind) {
+                sb.append(' ');
+            }
+            sb.append(letters.charAt(random.nextInt(letters.length())))
+                    .append(letters.charAt(random.nextInt(letters.length())));
+            int precision = 1 + random.nextInt(5);
+            for (int j = 0; j < 2 * precision; j++) {
+                if (1 == kind && precision == j) {
+                    sb.append(' ');
+                }
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            if (3 == kind) {
+                //Odd number of digits
+                sb.append('7');
+            }
+            inputs[i] = 1 == kind ? sb.toString().toLowerCase() : sb.toString();
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (String mgrs : inputs) {
+            blackhole.consume(convertWithRegex(mgrs, REFERENCE_MGRS));
+        }
+    }
+
+    @Benchmark
+    public void convertToValidMgrs(Blackhole blackhole) {
+        for (String mgrs : inputs) {
+            blackhole.consume(Utilities.convertToValidMgrs(mgrs, REFERENCE_MGRS));
+        }
+    }
+
+    @Benchmark
+    public void parseOnly(Blackhole blackhole) {
+        MgrsParser parser = MgrsParser.forCurrentThread();
+        for (String mgrs : inputs) {
+            blackhole.consume(parser.parse(mgrs, REFERENCE_MGRS));
+        }
+    }
+
+    /**
+     * Utilities.convertToValidMgrs as it was before MgrsParser, with the reference
+     * given as an MGRS string instead of a point to be converted.
+     */
+    private static String convertWithRegex(String mgrs, String referenceMgrs) {
+        mgrs = mgrs.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+        Matcher gzlessMatcher = Pattern.compile("[A-Z]{2}[0-9]*").matcher(mgrs);
+        if (null != referenceMgrs && gzlessMatcher.matches()) {
+            Matcher gzMatcher = Pattern.compile("[0-9]{0,2}[A-Z]").matcher(referenceMgrs);
+            if (gzMatcher.find() && 0 == gzMatcher.start()) {
+                mgrs = referenceMgrs.substring(0, gzMatcher.end()) + mgrs;
+            }
+        }
+        Matcher matcher = Pattern.compile("[A-Z]+").matcher(mgrs);
+        if (!matcher.find()) {
+            return null;
+        }
+        Matcher polarMatcher = Pattern.compile("[ABYZ][A-Z]{2}[0-9]*").matcher(mgrs);
+        if (0 == matcher.start()) {
+            if (!polarMatcher.matches()) {
+                return null;
+            }
+        } else {
+            char firstLetter = mgrs.charAt(matcher.start());
+            if ('A' == firstLetter || 'B' == firstLetter || 'Y' == firstLetter || 'Z' == firstLetter) {
+                mgrs = mgrs.substring(matcher.start());
+                if (!polarMatcher.matches()) {
+                    return null;
+                }
+            } else {
+                Matcher nonPolarMatcher = Pattern.compile("[0-9]{1,2}[C-X][A-Z]{2}[0-9]*").matcher(mgrs);
+                if (!nonPolarMatcher.matches()) {
+                    return null;
+                }
+                int gridZoneNumber = Integer.parseInt(mgrs.substring(0, matcher.start()));
+                if (0 > gridZoneNumber || 60 < gridZoneNumber) {
+                    return null;
+                }
+            }
+        }
+        Matcher threeLetters = Pattern.compile("[A-Z]{3}").matcher(mgrs);
+        threeLetters.find();
+        if (threeLetters.end() < mgrs.length()) {
+            String eastingNorthing = mgrs.substring(threeLetters.end());
+            if (1 == eastingNorthing.length() % 2) {
+                return null;
+            }
+        }
+        return mgrs;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.militaryapps.model.Geomessage;
+import com.esri.vehiclecommander.controller.AdvancedSymbolController;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures turning received geomessages into advanced symbology Messages, which
+ * is the part of AdvancedSymbolController.processMessage that does not need a map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProcessMessageBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int messageCount;
+
+    private Geomessage[] geomessages;
+
+    @Setup
+    public void setUp() {
+        GeomessageCorpus corpus = new GeomessageCorpus(messageCount);
+        geomessages = new Geomessage[corpus.size()];
+        for (int i = 0; i < geomessages.length; i++) {
+            geomessages[i] = corpus.toGeomessage(i);
+        }
+    }
+
+    @Benchmark
+    public void createMessages(Blackhole blackhole) {
+        for (Geomessage geomessage : geomessages) {
+            blackhole.consume(AdvancedSymbolController.createMessage(geomessage));
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+import com.esri.vehiclecommander.util.ProjectionService;
+import com.esri.vehiclecommander.util.Utilities;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares projecting WGS 1984 points one at a time through GeometryEngine with
+ * projecting arrays through ProjectionService, both to Web Mercator (analytic)
+ * and to UTM zone 38N (one GeometryEngine call per array).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProjectionBenchmark {
+
+    private static final int UTM_38N_WKID = 32638;
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int pointCount;
+
+    private double[] lonLats;
+    private double[] coords;
+    private SpatialReference wgs84;
+    private SpatialReference webMercator;
+    private SpatialReference utm;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(GeomessageCorpus.DEFAULT_SEED);
+        lonLats = new double[2 * pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            lonLats[2 * i] = 42.0 + random.nextDouble() * 6.0;
+            lonLats[2 * i + 1] = 30.0 + random.nextDouble() * 6.0;
+        }
+        coords = new double[lonLats.length];
+        wgs84 = Utilities.WGS84;
+        webMercator = Utilities.getSpatialReference(3857);
+        utm = Utilities.getSpatialReference(UTM_38N_WKID);
+    }
+
+    @Benchmark
+    public void geometryEngineWebMercator(Blackhole blackhole) {
+        for (int i = 0; i < pointCount; i++) {
+            blackhole.consume(GeometryEngine.project(new Point(lonLats[2 * i], lonLats[2 * i + 1]), wgs84, webMercator));
+        }
+    }
+
+    @Benchmark
+    public double[] projectionServiceWebMercator() {
+        System.arraycopy(lonLats, 0, coords, 0, lonLats.length);
+        ProjectionService.project(coords, pointCount, wgs84, webMercator);
+        return coords;
+    }
+
+    @Benchmark
+    public void geometryEngineUtm(Blackhole blackhole) {
+        for (int i = 0; i < pointCount; i++) {
+            blackhole.consume(GeometryEngine.project(new Point(lonLats[2 * i], lonLats[2 * i + 1]), wgs84, utm));
+        }
+    }
+
+    @Benchmark
+    public double[] projectionServiceUtm() {
+        System.arraycopy(lonLats, 0, coords, 0, lonLats.length);
+        ProjectionService.project(coords, pointCount, wgs84, utm);
+        return coords;
+    }
+
+}
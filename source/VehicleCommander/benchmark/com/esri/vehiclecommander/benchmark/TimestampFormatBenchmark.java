@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.vehiclecommander.util.GeomessageDateFormat;
+import com.esri.vehiclecommander.util.MilitaryDateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compares SimpleDateFormat with the cached timestamp formats for DTGs and
+ * geomessage timestamps. The "now" benchmarks format the current time, as the
+ * clock label and outbound messages do, so nearly every call hits the cache. The
+ * "distinct" benchmarks format a different second on every call, which measures
+ * the formatting itself. The "shared" benchmarks use one formatter from four
+ * threads, which SimpleDateFormat only allows when synchronized.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TimestampFormatBenchmark {
+
+    private static final long START_MILLIS = 1420070400000L;
+
+    private SimpleDateFormat simpleMilitaryFormat;
+    private SimpleDateFormat simpleGeomessageFormat;
+    private MilitaryDateFormat militaryFormat;
+    private long distinctMillis = START_MILLIS;
+
+    @Setup
+    public void setup() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        simpleMilitaryFormat = new SimpleDateFormat("ddHHmmss'Z 'MMM' 'yy");
+        simpleMilitaryFormat.setTimeZone(utc);
+        simpleGeomessageFormat = new SimpleDateFormat("yyyy-MM-dd' 'HH:mm:ss");
+        simpleGeomessageFormat.setTimeZone(utc);
+        militaryFormat = new MilitaryDateFormat(utc);
+    }
+
+    @Benchmark
+    public String simpleDateFormatMilitaryNow() {
+        return simpleMilitaryFormat.format(new Date());
+    }
+
+    @Benchmark
+    public String militaryDateFormatNow() {
+        return militaryFormat.formatNow();
+    }
+
+    @Benchmark
+    public String simpleDateFormatGeomessageNow() {
+        return simpleGeomessageFormat.format(new Date());
+    }
+
+    @Benchmark
+    public String geomessageDateFormatNow() {
+        return GeomessageDateFormat.INSTANCE.formatNow();
+    }
+
+    @Benchmark
+    public String simpleDateFormatMilitaryDistinct() {
+        distinctMillis += 1000;
+        return simpleMilitaryFormat.format(new Date(distinctMillis));
+    }
+
+    @Benchmark
+    public String militaryDateFormatDistinct() {
+        distinctMillis += 1000;
+        return militaryFormat.format(distinctMillis);
+    }
+
+    @Benchmark
+    public String simpleDateFormatGeomessageDistinct() {
+        distinctMillis += 1000;
+        return simpleGeomessageFormat.format(new Date(distinctMillis));
+    }
+
+    @Benchmark
+    public String geomessageDateFormatDistinct() {
+        distinctMillis += 1000;
+        return GeomessageDateFormat.INSTANCE.format(distinctMillis);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String simpleDateFormatGeomessageShared() {
+        synchronized (simpleGeomessageFormat) {
+            return simpleGeomessageFormat.format(new Date());
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String geomessageDateFormatShared() {
+        return GeomessageDateFormat.INSTANCE.formatNow();
+    }
+
+}
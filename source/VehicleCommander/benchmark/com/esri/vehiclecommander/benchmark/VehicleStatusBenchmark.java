@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.benchmark;
+
+import com.esri.vehiclecommander.controller.VehicleStatusController;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures generating vehicle status report XML, as VehicleStatusController does
+ * on every tick. The "create" benchmark builds a String and then encodes it, as
+ * callers of createVehicleStatusReport do. The "encode" benchmark writes the
+ * report straight into the thread's pooled buffer, as the controller does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VehicleStatusBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int messageCount;
+
+    @Benchmark
+    public void createVehicleStatusReports(Blackhole blackhole) {
+        for (int i = 0; i < messageCount; i++) {
+            blackhole.consume(VehicleStatusController.createVehicleStatusReport(
+                    44.0 + i * 1e-6, 34.0 - i * 1e-6, "Benchmark", "HMMWV", "1.1").getBytes());
+        }
+    }
+
+    @Benchmark
+    public void encodeVehicleStatusReports(Blackhole blackhole) {
+        for (int i = 0; i < messageCount; i++) {
+            blackhole.consume(VehicleStatusController.encodeVehicleStatusReport(
+                    44.0 + i * 1e-6, 34.0 - i * 1e-6, "Benchmark", "HMMWV", "1.1").remaining());
+        }
+    }
+
+}
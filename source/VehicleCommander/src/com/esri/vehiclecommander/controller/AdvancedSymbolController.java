@@ -16,7 +16,6 @@
 package com.esri.vehiclecommander.controller;
 
 import com.esri.core.geometry.Geometry;
-import com.esri.core.geometry.GeometryEngine;
 import com.esri.core.geometry.Point;
 import com.esri.core.geometry.SpatialReference;
 import com.esri.core.map.Graphic;
@@ -38,23 +37,29 @@ import com.esri.militaryapps.controller.SpotReportController;
 import com.esri.militaryapps.model.Geomessage;
 import com.esri.militaryapps.util.Utilities;
 import com.esri.runtime.ArcGISRuntime;
+import com.esri.vehiclecommander.model.GeomessageXmlReader;
 import com.esri.vehiclecommander.model.IdentifyResultList;
 import com.esri.vehiclecommander.model.Mil2525CMessageLayer;
+import com.esri.vehiclecommander.model.MessageTypeRegistry;
+import com.esri.vehiclecommander.util.BinaryGeomessageCodec;
+import com.esri.vehiclecommander.util.ControlPointParser;
+import com.esri.vehiclecommander.util.PackedGeomessageCodec;
+import com.esri.vehiclecommander.util.ProjectionService;
 
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.json.JSONObject;
+import java.util.zip.DataFormatException;
+import javax.xml.stream.XMLStreamException;
 
 
 /**
@@ -71,7 +76,31 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
     private final Symbol spotReportSymbol;
     private final MessageController messageController;
     private final File symDictDir;
+    private final MessageTypeRegistry messageTypeRegistry;
     private final AppConfigController appConfigController;
+    private final GeomessageIngestQueue ingestQueue;
+    private final GeomessageReceiveFilter receiveFilter = new GeomessageReceiveFilter();
+    
+    /**
+     * True on a thread while it is applying a batch, so that labels are toggled
+     * once per batch instead of once per message. Each thread sees only its own
+     * batch.
+     */
+    private final ThreadLocal<Boolean> applyingBatch = new ThreadLocal<Boolean>() {
+
+        @Override
+        protected Boolean initialValue() {
+            return Boolean.FALSE;
+        }
+    };
+
+    /**
+     * The spot report locations that the batch being applied on a thread has
+     * already projected to the map's spatial reference, as { x, y, projected x,
+     * projected y } by geomessage identity, so that displaySpotReport doesn't
+     * project them again. Null when no batch is being applied.
+     */
+    private final ThreadLocal<Map<Geomessage, double[]>> batchSpotReportPoints = new ThreadLocal<Map<Geomessage, double[]>>();
 
     /**
      * Creates a new AdvancedSymbolController.
@@ -100,6 +129,16 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
         
         this.messageController = messageController;
         symDictDir = new File(ArcGISRuntime.getRuntimeBinariesDir(), "../../resources/symbols/mil2525c");
+        messageTypeRegistry = new MessageTypeRegistry(new File(symDictDir, "messagetypes"));
+        messageTypeRegistry.startWatching();
+        
+        ingestQueue = new GeomessageIngestQueue(new GeomessageIngestQueue.BatchHandler() {
+
+            public void processBatch(List<Geomessage> batch) {
+                processGeomessages(batch);
+            }
+        });
+        ingestQueue.start();
     }
 
     @Override
@@ -117,9 +156,13 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
     @Override
     protected Integer displaySpotReport(double x, double y, final int wkid, Integer graphicId, Geomessage geomessage) {
         try {
-            Geometry pt = new Point(x, y);
-            if (null != mapController.getSpatialReference() && wkid != mapController.getSpatialReference().getID()) {
-                pt = GeometryEngine.project(pt, SpatialReference.create(wkid), mapController.getSpatialReference());
+            Geometry pt;
+            Map<Geomessage, double[]> projectedPoints = batchSpotReportPoints.get();
+            double[] projected = null == projectedPoints ? null : projectedPoints.get(geomessage);
+            if (null != projected && x == projected[0] && y == projected[1]) {
+                pt = new Point(projected[2], projected[3]);
+            } else {
+                pt = ProjectionService.projectPoint(x, y, wkid, mapController.getSpatialReference());
             }
             if (null != graphicId) {
                 spotReportLayer.updateGraphic(graphicId, pt);
@@ -209,10 +252,29 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
     @Override
     protected boolean processMessage(Geomessage geomessage) {
         //Filter out messages that we just sent
-        if (null != geomessage.getId() && geomessage.getId().equals(appConfigController.getUniqueId())) {
+        if (isOwnGeomessage(geomessage)) {
             return false;
         }
         
+        Message message = createMessage(geomessage);
+        try {
+            return _processMessage(message);
+        } catch (RuntimeException re) {
+            //This is probably a message type that the MessageProcessor type doesn't support
+            Logger.getLogger(getClass().getName()).log(Level.FINER, "Couldn't process message: " + re.getMessage() + "\n"
+                    + "\tIt is possible that this MessageProcessor doesn't handle messages of type "
+                    + message.getProperty(MessageHelper.MESSAGE_2525C_TYPE_PROPERTY_NAME) + ".");
+            return false;
+        }
+    }
+    
+    /**
+     * Translates a geomessage into a MessageProcessor message, according to the
+     * geomessage's action.
+     * @param geomessage the geomessage.
+     * @return a MessageProcessor message equivalent to the geomessage.
+     */
+    public static Message createMessage(Geomessage geomessage) {
         String action = (String) geomessage.getProperty(Geomessage.ACTION_FIELD_NAME);
         Message message;
         if ("select".equalsIgnoreCase(action)) {
@@ -230,18 +292,16 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
                     geomessage.getId(),
                     (String) geomessage.getProperty(Geomessage.TYPE_FIELD_NAME));
         } else {
-            ArrayList<Point> points = new ArrayList<Point>();
             String pointsString = (String) geomessage.getProperty(Geomessage.CONTROL_POINTS_FIELD_NAME);
-            if (null != pointsString) {
-                StringTokenizer tok = new StringTokenizer(pointsString, ";");
-                while (tok.hasMoreTokens()) {
-                    StringTokenizer tok2 = new StringTokenizer(tok.nextToken(), ",");
-                    try {
-                        points.add(new Point(Double.parseDouble(tok2.nextToken()), Double.parseDouble(tok2.nextToken())));
-                    } catch (Throwable t) {
-                        Logger.getLogger(getClass().getName()).warning("Couldn't parse point from '" + pointsString + "'");
-                    }
-                }
+            ControlPointParser parser = ControlPointParser.forCurrentThread();
+            int pointCount = parser.parse(pointsString);
+            if (parser.hasError()) {
+                Logger.getLogger(AdvancedSymbolController.class.getName()).warning("Couldn't parse point from '" + pointsString + "': "
+                        + parser.getErrorMessage() + " at index " + parser.getErrorIndex());
+            }
+            ArrayList<Point> points = new ArrayList<Point>(pointCount);
+            for (int i = 0; i < pointCount; i++) {
+                points.add(new Point(parser.getX(i), parser.getY(i)));
             }
             message = MessageHelper.createUpdateMessage(DictionaryType.Mil2525C,
                     geomessage.getId(),
@@ -250,20 +310,12 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
             message.setProperties(geomessage.getProperties());
             message.setID(geomessage.getId());
         }
-        
-        try {
-            return _processMessage(message);
-        } catch (RuntimeException re) {
-            //This is probably a message type that the MessageProcessor type doesn't support
-            Logger.getLogger(getClass().getName()).log(Level.FINER, "Couldn't process message: " + re.getMessage() + "\n"
-                    + "\tIt is possible that this MessageProcessor doesn't handle messages of type "
-                    + message.getProperty(MessageHelper.MESSAGE_2525C_TYPE_PROPERTY_NAME) + ".");
-            return false;
-        }
+        return message;
     }
     
     private boolean _processMessage(Message message) {
-        final int layerCount = groupLayer.getLayers().length;
+        final boolean inBatch = applyingBatch.get();
+        final int layerCount = inBatch ? 0 : groupLayer.getLayers().length;
         
         /**
          * Workaround: ArcGIS Runtime 10.2.4 requires a chem light message to have
@@ -279,12 +331,114 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
         }
         
         boolean success = groupLayer.getMessageProcessor().processMessage(message);
-        if (layerCount < groupLayer.getLayers().length) {
+        if (!inBatch && layerCount < groupLayer.getLayers().length) {
             toggleLabels();
         }
         return success;
     }
     
+    /**
+     * Processes a batch of geomessages in one pass, toggling labels at most once
+     * for the whole batch.
+     * @param geomessages the geomessages to process, in order.
+     */
+    private void processGeomessages(List<Geomessage> geomessages) {
+        final int layerCount = groupLayer.getLayers().length;
+        Map<Geomessage, double[]> projectedPoints = projectSpotReports(geomessages);
+        final Boolean wasApplyingBatch = applyingBatch.get();
+        final Map<Geomessage, double[]> previousPoints = batchSpotReportPoints.get();
+        applyingBatch.set(Boolean.TRUE);
+        batchSpotReportPoints.set(projectedPoints);
+        try {
+            for (Geomessage geomessage : geomessages) {
+                try {
+                    processGeomessage(geomessage);
+                } catch (RuntimeException re) {
+                    Logger.getLogger(getClass().getName()).log(Level.FINE, "Couldn't process geomessage " + geomessage.getId(), re);
+                }
+            }
+        } finally {
+            applyingBatch.set(wasApplyingBatch);
+            batchSpotReportPoints.set(previousPoints);
+        }
+        if (layerCount < groupLayer.getLayers().length) {
+            toggleLabels();
+        }
+    }
+
+    /**
+     * Projects the locations of the spot reports in a batch to the map's spatial
+     * reference with one projection call per source WKID.
+     * @return the projected spot report locations, or null if none needed projecting.
+     */
+    private Map<Geomessage, double[]> projectSpotReports(List<Geomessage> geomessages) {
+        SpatialReference mapSr = mapController.getSpatialReference();
+        if (null == mapSr) {
+            return null;
+        }
+        IdentityHashMap<Geomessage, double[]> points = null;
+        HashMap<Integer, ArrayList<double[]>> pointsByWkid = null;
+        ControlPointParser parser = ControlPointParser.forCurrentThread();
+        for (Geomessage geomessage : geomessages) {
+            if (!SpotReportController.REPORT_TYPE.equals(geomessage.getProperty(Geomessage.TYPE_FIELD_NAME))) {
+                continue;
+            }
+            Object wkidValue = geomessage.getProperty(MessageHelper.MESSAGE_WKID_PROPERTY_NAME);
+            Object pointsValue = geomessage.getProperty(Geomessage.CONTROL_POINTS_FIELD_NAME);
+            if (null == wkidValue || !(pointsValue instanceof CharSequence)
+                    || 1 > parser.parse((CharSequence) pointsValue)) {
+                continue;
+            }
+            int wkid;
+            try {
+                wkid = Integer.parseInt(wkidValue.toString().trim());
+            } catch (NumberFormatException nfe) {
+                continue;
+            }
+            if (wkid == mapSr.getID()) {
+                continue;
+            }
+            if (null == points) {
+                points = new IdentityHashMap<Geomessage, double[]>();
+                pointsByWkid = new HashMap<Integer, ArrayList<double[]>>();
+            }
+            double[] point = new double[] { parser.getX(0), parser.getY(0), parser.getX(0), parser.getY(0) };
+            points.put(geomessage, point);
+            ArrayList<double[]> wkidPoints = pointsByWkid.get(wkid);
+            if (null == wkidPoints) {
+                wkidPoints = new ArrayList<double[]>();
+                pointsByWkid.put(wkid, wkidPoints);
+            }
+            wkidPoints.add(point);
+        }
+        if (null == points) {
+            return null;
+        }
+        for (Map.Entry<Integer, ArrayList<double[]>> entry : pointsByWkid.entrySet()) {
+            ArrayList<double[]> wkidPoints = entry.getValue();
+            double[] coords = new double[2 * wkidPoints.size()];
+            for (int i = 0; i < wkidPoints.size(); i++) {
+                coords[2 * i] = wkidPoints.get(i)[0];
+                coords[2 * i + 1] = wkidPoints.get(i)[1];
+            }
+            try {
+                ProjectionService.project(coords, wkidPoints.size(), entry.getKey(), mapSr);
+            } catch (RuntimeException re) {
+                //Leave these points for displaySpotReport to project one at a time
+                Logger.getLogger(getClass().getName()).log(Level.FINE, "Couldn't project spot reports from " + entry.getKey(), re);
+                for (double[] point : wkidPoints) {
+                    point[0] = Double.NaN;
+                }
+                continue;
+            }
+            for (int i = 0; i < wkidPoints.size(); i++) {
+                wkidPoints.get(i)[2] = coords[2 * i];
+                wkidPoints.get(i)[3] = coords[2 * i + 1];
+            }
+        }
+        return points;
+    }
+    
     @Override
     protected boolean processHighlightMessage(String geomessageId, String messageType, boolean highlight) {
         Message message = MessageHelper.createSelectMessage(DictionaryType.Mil2525C, geomessageId, messageType, highlight);
@@ -350,11 +504,61 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
     }
 
     public void geomessageReceived(Geomessage geomessage) {
-        processGeomessage(geomessage);
+        //Our own messages, duplicates and stale updates never reach the queue
+        if (!isOwnGeomessage(geomessage) && receiveFilter.accept(geomessage)) {
+            ingestQueue.offer(geomessage);
+        }
+    }
+
+    private boolean isOwnGeomessage(Geomessage geomessage) {
+        return null != geomessage.getId() && geomessage.getId().equals(appConfigController.getUniqueId());
+    }
+
+    /**
+     * Returns the filter that drops duplicate and stale received geomessages.
+     * Its metrics include the numbers of duplicate and stale geomessages dropped.
+     * @return the filter that drops duplicate and stale received geomessages.
+     */
+    public GeomessageReceiveFilter getReceiveFilter() {
+        return receiveFilter;
+    }
+    
+    /**
+     * Returns the queue through which received geomessages are applied to the map.
+     * Its metrics include queue depth, coalesced message count, and apply latency.
+     * @return the queue through which received geomessages are applied to the map.
+     */
+    public GeomessageIngestQueue getIngestQueue() {
+        return ingestQueue;
     }
 
+    /**
+     * Applies the geomessages in a packed or binary datagram, which
+     * MessageController cannot parse itself. Binary geomessages are applied
+     * without parsing any XML. Plain XML datagrams are parsed by MessageController
+     * and arrive through geomessageReceived instead.
+     * @param contents the datagram.
+     */
     public void datagramReceived(String contents) {
-        
+        if (PackedGeomessageCodec.isPacked(contents)) {
+            try {
+                for (Geomessage geomessage : GeomessageXmlReader.read(PackedGeomessageCodec.unpack(contents))) {
+                    geomessageReceived(geomessage);
+                }
+            } catch (DataFormatException dfe) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, "Couldn't unpack datagram", dfe);
+            } catch (XMLStreamException xse) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, "Couldn't parse unpacked datagram", xse);
+            }
+        } else if (BinaryGeomessageCodec.isBinary(contents)) {
+            try {
+                for (Map<String, String> properties : BinaryGeomessageCodec.decode(contents)) {
+                    geomessageReceived(GeomessageXmlReader.createGeomessage(properties));
+                }
+            } catch (DataFormatException dfe) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, "Couldn't decode binary datagram", dfe);
+            }
+        }
     }
     
     @Override
@@ -392,41 +596,15 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
             return SPOT_REPORT_LAYER_NAME;
         }
         
-        File messageTypesDir = new File(symDictDir, "messagetypes");
-        File[] files = messageTypesDir.listFiles(new FilenameFilter() {
-            
-            @Override
-            public boolean accept(File dir, String filename) {
-                return null != filename && filename.toLowerCase().endsWith(".json");
-            }
-        });
-        for (File file : files) {
-            BufferedReader in = null;
-            try {
-                in = new BufferedReader(new FileReader(file));
-                StringBuffer sb = new StringBuffer();
-                String line = null;
-                while (null != (line = in.readLine())) {
-                    sb.append(line);
-                }
-                JSONObject obj = new JSONObject(sb.toString());
-                if (messageType.equals(obj.getString("type"))) {
-                    return obj.getString("layerName");
-                }
-            } catch (Throwable t) {
-                Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Could not read and parse " + file.getAbsolutePath(), t);
-            } finally {
-                if (null != in) {
-                    try {
-                        in.close();
-                    } catch (IOException e) {
-                        Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Could not close file", e);
-                    }
-                }
-            }
-        }
-        
-        return null;
+        return messageTypeRegistry.getLayerName(messageType);
+    }
+    
+    /**
+     * Returns the registry that maps message types to message layer names.
+     * @return the registry that maps message types to message layer names.
+     */
+    public MessageTypeRegistry getMessageTypeRegistry() {
+        return messageTypeRegistry;
     }
     
     private void loopAndRemove(int[] graphicIds, GraphicsLayer graphicsLayer, boolean sendRemoveMessageForOwnMessages, boolean removeGraphics) {
@@ -442,19 +620,16 @@ public class AdvancedSymbolController extends com.esri.militaryapps.controller.A
     }
     
     private void removeGeomessage(Graphic graphic, boolean sendRemoveMessageForOwnMessages) {
-        final String geomessageId = (String) graphic.getAttributeValue(Geomessage.ID_FIELD_NAME);
-        final String geomessageType = (String) graphic.getAttributeValue(Geomessage.TYPE_FIELD_NAME);
+        String geomessageId = (String) graphic.getAttributeValue(Geomessage.ID_FIELD_NAME);
+        String geomessageType = (String) graphic.getAttributeValue(Geomessage.TYPE_FIELD_NAME);
         String uniqueDesignation = (String) graphic.getAttributeValue("uniquedesignation");
         if (sendRemoveMessageForOwnMessages && null != uniqueDesignation && uniqueDesignation.equals(messageController.getSenderUsername())) {
-            new Thread() {
-                public void run() {
-                    try {
-                        sendRemoveMessage(messageController, geomessageId, geomessageType);
-                    } catch (Throwable t) {
-                        Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Couldn't send REMOVE message", t);
-                    }
-                }
-            }.start();
+            //The message controller queues the REMOVE and sends it on its own thread
+            try {
+                sendRemoveMessage(messageController, geomessageId, geomessageType);
+            } catch (Throwable t) {
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Couldn't send REMOVE message", t);
+            }
         } else {
             processRemoveGeomessage(geomessageId, geomessageType);
         }
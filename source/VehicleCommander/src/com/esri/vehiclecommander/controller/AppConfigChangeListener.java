@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller;
+
+/**
+ * A listener for changes to any application configuration setting.
+ */
+public interface AppConfigChangeListener {
+
+    /**
+     * Called after a setting changes, on the thread that changed it.
+     * @param key the setting's key, one of the AppConfigController KEY_ constants.
+     * @param oldValue the setting's old value, or null if it was not set.
+     * @param newValue the setting's new value, or null if it was removed.
+     */
+    public void settingChanged(String key, Object oldValue, Object newValue);
+
+}
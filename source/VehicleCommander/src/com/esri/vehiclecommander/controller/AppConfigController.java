@@ -18,15 +18,28 @@ package com.esri.vehiclecommander.controller;
 import com.esri.core.geometry.AngularUnit;
 import com.esri.militaryapps.controller.LocationController.LocationMode;
 import com.esri.militaryapps.controller.MessageController;
+import com.esri.vehiclecommander.util.BinaryGeomessageCodec;
+import com.esri.vehiclecommander.util.TimeZoneTracker;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -41,25 +54,41 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 public class AppConfigController {
 
-    private static final String KEY_USERNAME = AppConfigController.class.getSimpleName() + "username";
-    private static final String KEY_VEHICLE_TYPE = AppConfigController.class.getSimpleName() + "vehicleType";
-    private static final String KEY_UNIQUE_ID = AppConfigController.class.getSimpleName() + "uniqueId";
-    private static final String KEY_SIC = AppConfigController.class.getSimpleName() + "sic";
-    private static final String KEY_PORT = AppConfigController.class.getSimpleName() + "port";
-    private static final String KEY_POSITION_MESSAGE_INTERVAL = AppConfigController.class.getSimpleName() + "positionMessageInterval";
-    private static final String KEY_VEHICLE_STATUS_MESSAGE_INTERVAL = AppConfigController.class.getSimpleName() + "vehicleStatusMessageInterval";
-    private static final String KEY_GPS_TYPE = AppConfigController.class.getSimpleName() + "gpsType";
-    private static final String KEY_GPX = AppConfigController.class.getSimpleName() + "gpx";
-    private static final String KEY_SPEED_MULTIPLIER = AppConfigController.class.getSimpleName() + "speedMultiplier";
-    private static final String KEY_MPK_CHOOSER_DIR = AppConfigController.class.getSimpleName() + "mpkFileChooserDirectory";
-    private static final String KEY_GPX_CHOOSER_DIR = AppConfigController.class.getSimpleName() + "gpxFileChooserDirectory";
-    private static final String KEY_SHOW_MESSAGE_LABELS = AppConfigController.class.getSimpleName() + "showMessageLabels";
-    private static final String KEY_DECORATED = AppConfigController.class.getSimpleName() + "decorated";
-    private static final String KEY_SHOW_MGRS_GRID = AppConfigController.class.getSimpleName() + "showMgrsGrid";
-    private static final String KEY_SHOW_LOCAL_TIME_ZONE = AppConfigController.class.getSimpleName() + "showLocalTimeZone";
-    private static final String KEY_MGRS_COORDINATE_NOTATION = AppConfigController.class.getSimpleName() + "useMgrs";
-    private static final String KEY_HEADING_UNITS = AppConfigController.class.getSimpleName() + "headingUnits";
-    private static final String KEY_GEOMESSAGE_VERSION = AppConfigController.class.getSimpleName() + "geomessageVersion";
+    /**
+     * The time, in milliseconds, that a changed setting waits before it is written
+     * to Preferences, so that a burst of changes is written together.
+     */
+    public static final long PREFERENCES_WRITE_DELAY_MILLIS = 500;
+
+    /*
+     * The setting keys, which are also the Preferences keys. AppConfigChangeListener
+     * events name the changed setting with one of these.
+     */
+    public static final String KEY_USERNAME = AppConfigController.class.getSimpleName() + "username";
+    public static final String KEY_VEHICLE_TYPE = AppConfigController.class.getSimpleName() + "vehicleType";
+    public static final String KEY_UNIQUE_ID = AppConfigController.class.getSimpleName() + "uniqueId";
+    public static final String KEY_SIC = AppConfigController.class.getSimpleName() + "sic";
+    public static final String KEY_PORT = AppConfigController.class.getSimpleName() + "port";
+    public static final String KEY_POSITION_MESSAGE_INTERVAL = AppConfigController.class.getSimpleName() + "positionMessageInterval";
+    public static final String KEY_VEHICLE_STATUS_MESSAGE_INTERVAL = AppConfigController.class.getSimpleName() + "vehicleStatusMessageInterval";
+    public static final String KEY_GPS_TYPE = AppConfigController.class.getSimpleName() + "gpsType";
+    public static final String KEY_GPX = AppConfigController.class.getSimpleName() + "gpx";
+    public static final String KEY_SPEED_MULTIPLIER = AppConfigController.class.getSimpleName() + "speedMultiplier";
+    public static final String KEY_MPK_CHOOSER_DIR = AppConfigController.class.getSimpleName() + "mpkFileChooserDirectory";
+    public static final String KEY_GPX_CHOOSER_DIR = AppConfigController.class.getSimpleName() + "gpxFileChooserDirectory";
+    public static final String KEY_SHOW_MESSAGE_LABELS = AppConfigController.class.getSimpleName() + "showMessageLabels";
+    public static final String KEY_DECORATED = AppConfigController.class.getSimpleName() + "decorated";
+    public static final String KEY_SHOW_MGRS_GRID = AppConfigController.class.getSimpleName() + "showMgrsGrid";
+    public static final String KEY_SHOW_LOCAL_TIME_ZONE = AppConfigController.class.getSimpleName() + "showLocalTimeZone";
+    public static final String KEY_MGRS_COORDINATE_NOTATION = AppConfigController.class.getSimpleName() + "useMgrs";
+    public static final String KEY_HEADING_UNITS = AppConfigController.class.getSimpleName() + "headingUnits";
+    public static final String KEY_GEOMESSAGE_VERSION = AppConfigController.class.getSimpleName() + "geomessageVersion";
+    public static final String KEY_PACK_MESSAGES = AppConfigController.class.getSimpleName() + "packMessages";
+
+    /**
+     * Marks a removed setting in the map of writes waiting for Preferences.
+     */
+    private static final Object REMOVED = new Object();
 
     private boolean gpsTypeDirty = false;
 
@@ -181,6 +210,20 @@ public class AppConfigController {
 
     private final Preferences preferences;
     private final Set<AppConfigListener> listeners = new HashSet<AppConfigListener>();
+    private final List<AppConfigChangeListener> changeListeners = new CopyOnWriteArrayList<AppConfigChangeListener>();
+
+    /**
+     * The settings. Getters read this snapshot instead of Preferences, and setters
+     * replace it while holding pendingWrites' lock.
+     */
+    private final AtomicReference<AppConfigSnapshot> settings = new AtomicReference<AppConfigSnapshot>(AppConfigSnapshot.EMPTY);
+
+    /**
+     * Settings changed since the last write to Preferences, in the order changed.
+     */
+    private final LinkedHashMap<String, Object> pendingWrites = new LinkedHashMap<String, Object>();
+    private final ScheduledExecutorService preferencesWriter;
+    private boolean writeScheduled = false;
 
     private LocationController locationController;
     private MessageController messageController;
@@ -189,10 +232,32 @@ public class AppConfigController {
      * Creates a new AppConfigController. This constructor first reads the user's
      * settings from the system. Then, if appconfig.xml is present in the working
      * directory, any settings not present in the user profile will be read from
-     * appconfig.xml.
+     * appconfig.xml.<br/>
+     * <br/>
+     * The settings are read from Preferences only here. After that, getters read
+     * an in-memory snapshot, and setters write through to Preferences on a
+     * background thread, so changes made to Preferences by other programs are not
+     * seen until the application restarts.
      */
     public AppConfigController() {
         preferences = Preferences.userNodeForPackage(getClass());
+        preferencesWriter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Preferences writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread("Preferences flush") {
+
+            @Override
+            public void run() {
+                flush();
+            }
+        });
+        settings.set(readSettings());
         
         try {
             resetFromAppConfigFile(false);
@@ -211,6 +276,68 @@ public class AppConfigController {
         listeners.add(listener);
     }
 
+    /**
+     * Adds a listener that is called whenever any setting changes.
+     * @param listener the listener.
+     */
+    public void addChangeListener(AppConfigChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a change listener.
+     * @param listener the listener.
+     */
+    public void removeChangeListener(AppConfigChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Returns the current settings. The snapshot never changes, so code that reads
+     * several settings can read them all from one consistent snapshot.
+     * @return the current settings.
+     */
+    public AppConfigSnapshot getSnapshot() {
+        return settings.get();
+    }
+
+    private AppConfigSnapshot readSettings() {
+        AppConfigSnapshot snapshot = AppConfigSnapshot.EMPTY;
+        for (String key : new String[] { KEY_USERNAME, KEY_VEHICLE_TYPE, KEY_UNIQUE_ID, KEY_SIC, KEY_GPS_TYPE,
+                KEY_GPX, KEY_MPK_CHOOSER_DIR, KEY_GPX_CHOOSER_DIR, KEY_GEOMESSAGE_VERSION }) {
+            snapshot = snapshot.with(key, preferences.get(key, null));
+        }
+        //A value that doesn't parse is left out of the snapshot, so that its getter
+        //returns that setting's own default
+        for (String key : new String[] { KEY_PORT, KEY_POSITION_MESSAGE_INTERVAL,
+                KEY_VEHICLE_STATUS_MESSAGE_INTERVAL, KEY_HEADING_UNITS }) {
+            String value = preferences.get(key, null);
+            if (null != value) {
+                try {
+                    snapshot = snapshot.with(key, Integer.parseInt(value));
+                } catch (NumberFormatException nfe) {
+                    Logger.getLogger(AppConfigController.class.getName()).log(Level.WARNING, "Ignoring malformed setting {0}={1}", new Object[] { key, value });
+                }
+            }
+        }
+        String speedMultiplier = preferences.get(KEY_SPEED_MULTIPLIER, null);
+        if (null != speedMultiplier) {
+            try {
+                snapshot = snapshot.with(KEY_SPEED_MULTIPLIER, Double.parseDouble(speedMultiplier));
+            } catch (NumberFormatException nfe) {
+                Logger.getLogger(AppConfigController.class.getName()).log(Level.WARNING, "Ignoring malformed setting {0}={1}", new Object[] { KEY_SPEED_MULTIPLIER, speedMultiplier });
+            }
+        }
+        for (String key : new String[] { KEY_SHOW_MESSAGE_LABELS, KEY_DECORATED, KEY_SHOW_MGRS_GRID,
+                KEY_SHOW_LOCAL_TIME_ZONE, KEY_MGRS_COORDINATE_NOTATION, KEY_PACK_MESSAGES }) {
+            String value = preferences.get(key, null);
+            if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+                snapshot = snapshot.with(key, Boolean.valueOf(value));
+            }
+        }
+        return snapshot;
+    }
+
     /**
      * Returns the file that will be read when resetting application configuration
      * settings. This file may or may not actually exist.
@@ -281,24 +408,89 @@ public class AppConfigController {
 
     private void setPreference(String key, String value) {
         if (null != key) {
-            if (null == value) {
-                preferences.remove(key);
-            } else {
-                preferences.put(key, value);
-            }
+            setSetting(key, value);
         }
     }
 
     private void setPreference(String key, int value) {
-        preferences.putInt(key, value);
+        setSetting(key, value);
     }
 
     private void setPreference(String key, double value) {
-        preferences.putDouble(key, value);
+        setSetting(key, value);
     }
 
     private void setPreference(String key, boolean value) {
-        preferences.putBoolean(key, value);
+        setSetting(key, value);
+    }
+
+    /**
+     * Replaces the snapshot with one holding the new value, queues the value to be
+     * written to Preferences, and tells the change listeners if the value changed.
+     */
+    private void setSetting(String key, Object value) {
+        Object oldValue;
+        synchronized (pendingWrites) {
+            AppConfigSnapshot snapshot = settings.get();
+            oldValue = snapshot.getValue(key);
+            settings.set(snapshot.with(key, value));
+            pendingWrites.remove(key);
+            pendingWrites.put(key, null == value ? REMOVED : value);
+            if (!writeScheduled) {
+                writeScheduled = true;
+                preferencesWriter.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, PREFERENCES_WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (null == oldValue ? null != value : !oldValue.equals(value)) {
+            for (AppConfigChangeListener listener : changeListeners) {
+                listener.settingChanged(key, oldValue, value);
+            }
+        }
+    }
+
+    /**
+     * Writes any changed settings to Preferences now, instead of waiting for the
+     * background write.
+     */
+    public void flush() {
+        ArrayList<Map.Entry<String, Object>> writes;
+        synchronized (pendingWrites) {
+            writes = new ArrayList<Map.Entry<String, Object>>(pendingWrites.entrySet());
+            pendingWrites.clear();
+            writeScheduled = false;
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+        //Preferences is thread-safe, but two flushes must not write the same key out of order
+        synchronized (preferences) {
+            for (Map.Entry<String, Object> write : writes) {
+                String key = write.getKey();
+                Object value = write.getValue();
+                if (REMOVED == value) {
+                    preferences.remove(key);
+                } else if (value instanceof Integer) {
+                    preferences.putInt(key, (Integer) value);
+                } else if (value instanceof Double) {
+                    preferences.putDouble(key, (Double) value);
+                } else if (value instanceof Boolean) {
+                    preferences.putBoolean(key, (Boolean) value);
+                } else {
+                    preferences.put(key, value.toString());
+                }
+            }
+            try {
+                preferences.flush();
+            } catch (BackingStoreException ex) {
+                Logger.getLogger(AppConfigController.class.getName()).log(Level.WARNING, "Couldn't save settings", ex);
+            }
+        }
     }
 
     /**
@@ -314,7 +506,7 @@ public class AppConfigController {
      * @return the stored username, or null if no username has been set.
      */
     public final String getUsername() {
-        return preferences.get(KEY_USERNAME, null);
+        return getSnapshot().get(KEY_USERNAME, null);
     }
 
     /**
@@ -330,7 +522,7 @@ public class AppConfigController {
      * @return the stored vehicle type, or null if no vehicle type has been set.
      */
     public final String getVehicleType() {
-        return preferences.get(KEY_VEHICLE_TYPE, null);
+        return getSnapshot().get(KEY_VEHICLE_TYPE, null);
     }
 
     /**
@@ -344,7 +536,6 @@ public class AppConfigController {
             uniqueId = UUID.randomUUID().toString();
         }
         setPreference(KEY_UNIQUE_ID, uniqueId);
-
     }
 
     /**
@@ -352,7 +543,7 @@ public class AppConfigController {
      * @return the stored unique ID. If no ID has been set, a new ID will be generated.
      */
     public final String getUniqueId() {
-        String uniqueId = preferences.get(KEY_UNIQUE_ID, null);
+        String uniqueId = getSnapshot().get(KEY_UNIQUE_ID, null);
         if (null == uniqueId) {
             uniqueId = UUID.randomUUID().toString();
             setUniqueId(uniqueId);
@@ -373,7 +564,7 @@ public class AppConfigController {
      * @return the stored symbol ID code, or null if no symbol ID code has been set.
      */
     public final String getSic() {
-        return preferences.get(KEY_SIC, null);
+        return getSnapshot().get(KEY_SIC, null);
     }
 
     /**
@@ -398,7 +589,7 @@ public class AppConfigController {
      * @return the stored UDP port number for messaging, or -1 if no port number has been set.
      */
     public final int getPort() {
-        return preferences.getInt(KEY_PORT, -1);
+        return getSnapshot().getInt(KEY_PORT, -1);
     }
 
     /**
@@ -414,7 +605,7 @@ public class AppConfigController {
      * @return the stored position message interval, in milliseconds, or -1 if no messaging interval has been set.
      */
     public final int getPositionMessageInterval() {
-        return preferences.getInt(KEY_POSITION_MESSAGE_INTERVAL, -1);
+        return getSnapshot().getInt(KEY_POSITION_MESSAGE_INTERVAL, -1);
     }
 
     /**
@@ -430,7 +621,7 @@ public class AppConfigController {
      * @return the stored vehicle status message interval, in milliseconds, or -1 if no messaging interval has been set.
      */
     public final int getVehicleStatusMessageInterval() {
-        return preferences.getInt(KEY_VEHICLE_STATUS_MESSAGE_INTERVAL, -1);
+        return getSnapshot().getInt(KEY_VEHICLE_STATUS_MESSAGE_INTERVAL, -1);
     }
 
     /**
@@ -485,7 +676,7 @@ public class AppConfigController {
     }
     
     public LocationMode getLocationMode() {
-        String name = preferences.get(KEY_GPS_TYPE, null);
+        String name = getSnapshot().get(KEY_GPS_TYPE, null);
         if (null == name) {
             return null;
         } else {
@@ -526,7 +717,7 @@ public class AppConfigController {
      * @return the GPX file to be used for simulated GPS.
      */
     public String getGpx() {
-        return preferences.get(KEY_GPX, null);
+        return getSnapshot().get(KEY_GPX, null);
     }
 
     /**
@@ -545,7 +736,7 @@ public class AppConfigController {
      * @return the simulated GPS speed multiplier, or -1 if no speed multiplier has been set.
      */
     public final double getSpeedMultiplier() {
-        return preferences.getDouble(KEY_SPEED_MULTIPLIER, -1);
+        return getSnapshot().getDouble(KEY_SPEED_MULTIPLIER, -1);
     }
 
     /**
@@ -564,7 +755,7 @@ public class AppConfigController {
      *         null if no directory has been set.
      */
     public String getMPKFileChooserCurrentDirectory() {
-        return preferences.get(KEY_MPK_CHOOSER_DIR, null);
+        return getSnapshot().get(KEY_MPK_CHOOSER_DIR, null);
     }
 
     /**
@@ -583,7 +774,7 @@ public class AppConfigController {
      *         null if no directory has been set.
      */
     public String getGPXFileChooserCurrentDirectory() {
-        return preferences.get(KEY_GPX_CHOOSER_DIR, null);
+        return getSnapshot().get(KEY_GPX_CHOOSER_DIR, null);
     }
 
     /**
@@ -617,7 +808,7 @@ public class AppConfigController {
      * @return true if the application should show labels for new message features.
      */
     public boolean isShowMessageLabels() {
-        return preferences.getBoolean(KEY_SHOW_MESSAGE_LABELS, true);
+        return getSnapshot().getBoolean(KEY_SHOW_MESSAGE_LABELS, true);
     }
 
     /**
@@ -648,7 +839,7 @@ public class AppConfigController {
      * @return true if the application should be decorated (title bar, resizable, etc.).
      */
     public boolean isDecorated() {
-        return preferences.getBoolean(KEY_DECORATED, true);
+        return getSnapshot().getBoolean(KEY_DECORATED, true);
     }
 
     /**
@@ -670,7 +861,7 @@ public class AppConfigController {
      * @return true if the application should show an MGRS grid on the map.
      */
     public boolean isShowMgrsGrid() {
-        return preferences.getBoolean(KEY_SHOW_MGRS_GRID, false);
+        return getSnapshot().getBoolean(KEY_SHOW_MGRS_GRID, false);
     }
 
     /**
@@ -688,7 +879,7 @@ public class AppConfigController {
      *         time zone.
      */
     public boolean isShowLocalTimeZone() {
-        return preferences.getBoolean(KEY_SHOW_LOCAL_TIME_ZONE, false);
+        return getSnapshot().getBoolean(KEY_SHOW_LOCAL_TIME_ZONE, false);
     }
 
     /**
@@ -698,6 +889,10 @@ public class AppConfigController {
      *                          in the machine's time zone.
      */
     public void setShowLocalTimeZone(boolean showLocalTimeZone) {
+        if (showLocalTimeZone) {
+            //The OS time zone may have changed while the local time was hidden
+            TimeZoneTracker.getInstance().checkNow();
+        }
         setPreference(KEY_SHOW_LOCAL_TIME_ZONE, showLocalTimeZone);
     }
     
@@ -709,7 +904,7 @@ public class AppConfigController {
      * GPS location in longitude/latitude.
      */
     public boolean isShowMgrs() {
-        return preferences.getBoolean(KEY_MGRS_COORDINATE_NOTATION, true);
+        return getSnapshot().getBoolean(KEY_MGRS_COORDINATE_NOTATION, true);
     }
     
     /**
@@ -737,15 +932,22 @@ public class AppConfigController {
      *         the GPS heading. The default is degrees.
      */
     public int getHeadingUnits() {
-        return preferences.getInt(KEY_HEADING_UNITS, AngularUnit.Code.DEGREE);
+        return getSnapshot().getInt(KEY_HEADING_UNITS, AngularUnit.Code.DEGREE);
     }
     
     /**
      * Tells the application the Geomessage version to use for outgoing messages.
+     * BinaryGeomessageCodec.GEOMESSAGE_VERSION sends version 1.1 geomessages in
+     * binary datagrams, which this version of the application reads but older
+     * versions and other clients do not.
      * @param geomessageVersion the Geomessage version.
      */
     public void setGeomessageVersion(String geomessageVersion) {
         setPreference(KEY_GEOMESSAGE_VERSION, geomessageVersion);
+        if (messageController instanceof ScheduledMessageController) {
+            ((ScheduledMessageController) messageController).setBinary(
+                    BinaryGeomessageCodec.GEOMESSAGE_VERSION.equals(geomessageVersion));
+        }
     }
     
     /**
@@ -753,7 +955,30 @@ public class AppConfigController {
      * @return the Geomessage version that the application is using for outgoing messages.
      */
     public String getGeomessageVersion() {
-        return preferences.get(KEY_GEOMESSAGE_VERSION, "1.1");
+        return getSnapshot().get(KEY_GEOMESSAGE_VERSION, "1.1");
+    }
+
+    /**
+     * Tells the application whether to compress outgoing messages. This version of
+     * the application reads compressed messages, but older versions and other
+     * clients do not.
+     * @param packMessages true to send compressed datagrams, or false to send
+     *                     plain XML.
+     */
+    public void setPackMessages(boolean packMessages) {
+        setPreference(KEY_PACK_MESSAGES, packMessages);
+        if (messageController instanceof ScheduledMessageController) {
+            ((ScheduledMessageController) messageController).setPacked(packMessages);
+        }
+    }
+
+    /**
+     * Returns true if the application compresses outgoing messages.
+     * @return true if the application sends compressed datagrams, or false if it
+     *         sends plain XML. The default is false.
+     */
+    public boolean isPackMessages() {
+        return getSnapshot().getBoolean(KEY_PACK_MESSAGES, false);
     }
 
 }
@@ -94,6 +94,7 @@ public class AppConfigDialog extends javax.swing.JDialog {
         jCheckBox_showMessageLabels.setSelected(appConfigController.isShowMessageLabels());
         jCheckBox_decorated.setSelected(appConfigController.isDecorated());
         jCheckBox_showLocalTimeZone.setSelected(appConfigController.isShowLocalTimeZone());
+        jCheckBox_packMessages.setSelected(appConfigController.isPackMessages());
         if (appConfigController.isShowMgrs()) {
             jRadioButton_mgrs.setSelected(true);
         } else {
@@ -140,6 +141,7 @@ public class AppConfigDialog extends javax.swing.JDialog {
         jCheckBox_showMessageLabels = new javax.swing.JCheckBox();
         jCheckBox_decorated = new javax.swing.JCheckBox();
         jCheckBox_showLocalTimeZone = new javax.swing.JCheckBox();
+        jCheckBox_packMessages = new javax.swing.JCheckBox();
         jLabel_vehicleStatusMessageInterval = new javax.swing.JLabel();
         jSpinner_vehicleStatusMessageInterval = new javax.swing.JSpinner();
         jLabel1 = new javax.swing.JLabel();
@@ -245,6 +247,11 @@ public class AppConfigDialog extends javax.swing.JDialog {
         jCheckBox_showLocalTimeZone.setText("Show Local Time Zone");
         jCheckBox_showLocalTimeZone.setFocusable(false);
 
+        jCheckBox_packMessages.setFont(new java.awt.Font("Arial", 0, 18)); // NOI18N
+        jCheckBox_packMessages.setText("Pack Messages");
+        jCheckBox_packMessages.setToolTipText("Compress outgoing messages. Older clients cannot read them.");
+        jCheckBox_packMessages.setFocusable(false);
+
         jLabel_vehicleStatusMessageInterval.setFont(new java.awt.Font("Arial", 0, 18)); // NOI18N
         jLabel_vehicleStatusMessageInterval.setText("Vehicle Status Message Interval (ms)");
 
@@ -268,7 +275,7 @@ public class AppConfigDialog extends javax.swing.JDialog {
         jRadioButton_mils.setFocusable(false);
 
         jComboBox_geomessageVersion.setFont(new java.awt.Font("Arial", 0, 18)); // NOI18N
-        jComboBox_geomessageVersion.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "1.0", "1.1" }));
+        jComboBox_geomessageVersion.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "1.0", "1.1", "1.1-binary" }));
         jComboBox_geomessageVersion.setSelectedIndex(1);
 
         jLabel_geomessageVersion.setFont(new java.awt.Font("Arial", 0, 18)); // NOI18N
@@ -366,7 +373,8 @@ public class AppConfigDialog extends javax.swing.JDialog {
                         .addComponent(jRadioButton_mgrs)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
                         .addComponent(jRadioButton_lonLat)
-                        .addGap(0, 0, Short.MAX_VALUE)))
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                        .addComponent(jCheckBox_packMessages)))
                 .addContainerGap())
         );
         layout.setVerticalGroup(
@@ -417,7 +425,8 @@ public class AppConfigDialog extends javax.swing.JDialog {
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(jLabel2)
                     .addComponent(jRadioButton_mgrs)
-                    .addComponent(jRadioButton_lonLat))
+                    .addComponent(jRadioButton_lonLat)
+                    .addComponent(jCheckBox_packMessages))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(jLabel1)
@@ -472,6 +481,7 @@ public class AppConfigDialog extends javax.swing.JDialog {
         appConfigController.setShowMessageLabels(jCheckBox_showMessageLabels.isSelected());
         appConfigController.setDecorated(jCheckBox_decorated.isSelected());
         appConfigController.setShowLocalTimeZone(jCheckBox_showLocalTimeZone.isSelected());
+        appConfigController.setPackMessages(jCheckBox_packMessages.isSelected());
         appConfigController.setShowMgrs(MGRS.equals(buttonGroup_coordinateNotation.getSelection().getActionCommand()));
         try {
             appConfigController.setHeadingUnits(Integer.parseInt(buttonGroup_headingUnits.getSelection().getActionCommand()));
@@ -521,6 +531,7 @@ public class AppConfigDialog extends javax.swing.JDialog {
     private javax.swing.JButton jButton_ok;
     private javax.swing.JButton jButton_resetAll;
     private javax.swing.JCheckBox jCheckBox_decorated;
+    private javax.swing.JCheckBox jCheckBox_packMessages;
     private javax.swing.JCheckBox jCheckBox_showLocalTimeZone;
     private javax.swing.JCheckBox jCheckBox_showMessageLabels;
     private javax.swing.JComboBox jComboBox_geomessageVersion;
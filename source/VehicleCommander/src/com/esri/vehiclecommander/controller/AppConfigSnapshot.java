@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the application configuration settings, keyed like
+ * AppConfigController's Preferences. Reading a snapshot never touches the
+ * Preferences backing store, so it is cheap enough for per-message and per-fix
+ * code. AppConfigController replaces its snapshot whenever a setting changes.
+ */
+public final class AppConfigSnapshot {
+
+    /**
+     * A snapshot with no settings.
+     */
+    public static final AppConfigSnapshot EMPTY = new AppConfigSnapshot(new HashMap<String, Object>());
+
+    private final Map<String, Object> values;
+
+    private AppConfigSnapshot(HashMap<String, Object> values) {
+        this.values = values;
+    }
+
+    /**
+     * Returns a snapshot that is a copy of this one with one setting changed.
+     * @param key the setting's key.
+     * @param value the setting's value, which should be a String, Integer, Double
+     *              or Boolean, or null to remove the setting.
+     * @return a new snapshot.
+     */
+    AppConfigSnapshot with(String key, Object value) {
+        HashMap<String, Object> newValues = new HashMap<String, Object>(values);
+        if (null == value) {
+            newValues.remove(key);
+        } else {
+            newValues.put(key, value);
+        }
+        return new AppConfigSnapshot(newValues);
+    }
+
+    /**
+     * Returns a setting's value.
+     * @param key the setting's key.
+     * @return the setting's value, or null if the setting is not set.
+     */
+    public Object getValue(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Returns a string setting.
+     * @param key the setting's key.
+     * @param def the value to return if the setting is not set.
+     * @return the setting's value, or def if the setting is not set.
+     */
+    public String get(String key, String def) {
+        Object value = values.get(key);
+        return null == value ? def : value.toString();
+    }
+
+    /**
+     * Returns an int setting.
+     * @param key the setting's key.
+     * @param def the value to return if the setting is not set or is not an int.
+     * @return the setting's value, or def if the setting is not set or is not an int.
+     */
+    public int getInt(String key, int def) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : def;
+    }
+
+    /**
+     * Returns a double setting.
+     * @param key the setting's key.
+     * @param def the value to return if the setting is not set or is not a double.
+     * @return the setting's value, or def if the setting is not set or is not a double.
+     */
+    public double getDouble(String key, double def) {
+        Object value = values.get(key);
+        return value instanceof Double ? (Double) value : def;
+    }
+
+    /**
+     * Returns a boolean setting.
+     * @param key the setting's key.
+     * @param def the value to return if the setting is not set or is not a boolean.
+     * @return the setting's value, or def if the setting is not set or is not a boolean.
+     */
+    public boolean getBoolean(String key, boolean def) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : def;
+    }
+
+    /**
+     * Returns the settings in this snapshot.
+     * @return an unmodifiable map of keys to values.
+     */
+    public Map<String, Object> asMap() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+
+}
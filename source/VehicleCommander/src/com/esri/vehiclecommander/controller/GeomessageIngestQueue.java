@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller;
+
+import com.esri.militaryapps.model.Geomessage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded queue that sits between the thread that receives geomessages and the
+ * code that applies them to the map. A dedicated drain thread collects the messages
+ * that arrive during a short window, keeps only the latest UPDATE for each message
+ * type and ID, and hands the batch to a BatchHandler in one call.
+ */
+public class GeomessageIngestQueue {
+
+    /**
+     * Applies a batch of geomessages. Called on the queue's drain thread.
+     */
+    public interface BatchHandler {
+
+        /**
+         * Applies a batch of geomessages, in the order received.
+         * @param batch the geomessages to apply.
+         */
+        void processBatch(List<Geomessage> batch);
+
+    }
+
+    /**
+     * The default maximum number of geomessages waiting to be applied.
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    /**
+     * The default drain window, in milliseconds. Messages that arrive within this
+     * window after the first message of a batch are applied together.
+     */
+    public static final long DEFAULT_DRAIN_WINDOW_MILLIS = 1000 / 24;
+
+    private static final Logger logger = Logger.getLogger(GeomessageIngestQueue.class.getName());
+
+    private final BlockingQueue<Geomessage> queue;
+    private final long drainWindowMillis;
+    private final BatchHandler handler;
+    private final AtomicLong receivedCount = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong coalescedCount = new AtomicLong(0);
+    private final AtomicLong appliedCount = new AtomicLong(0);
+    private final AtomicLong batchCount = new AtomicLong(0);
+    private final AtomicLong totalApplyNanos = new AtomicLong(0);
+    private final AtomicLong maxApplyNanos = new AtomicLong(0);
+    private final Object threadLock = new Object();
+
+    private volatile long lastApplyNanos = 0;
+    private Thread drainThread = null;
+
+    /**
+     * Creates a queue with the default capacity and drain window.
+     * @param handler the handler that applies each batch.
+     */
+    public GeomessageIngestQueue(BatchHandler handler) {
+        this(DEFAULT_CAPACITY, DEFAULT_DRAIN_WINDOW_MILLIS, handler);
+    }
+
+    /**
+     * Creates a queue.
+     * @param capacity the maximum number of geomessages waiting to be applied.
+     * @param drainWindowMillis how long to collect messages before applying a batch.
+     * @param handler the handler that applies each batch.
+     */
+    public GeomessageIngestQueue(int capacity, long drainWindowMillis, BatchHandler handler) {
+        this.queue = new ArrayBlockingQueue<Geomessage>(capacity);
+        this.drainWindowMillis = drainWindowMillis;
+        this.handler = handler;
+    }
+
+    /**
+     * Queues a geomessage without blocking the caller.
+     * @param geomessage the geomessage.
+     * @return true if the geomessage was queued, or false if the queue is full
+     *         and the geomessage was dropped.
+     */
+    public boolean offer(Geomessage geomessage) {
+        receivedCount.incrementAndGet();
+        if (queue.offer(geomessage)) {
+            return true;
+        } else {
+            droppedCount.incrementAndGet();
+            logger.log(Level.FINE, "Ingest queue full; dropped geomessage {0}", geomessage.getId());
+            return false;
+        }
+    }
+
+    /**
+     * Starts the drain thread. Calling this method when the drain thread is already
+     * running has no effect.
+     */
+    public void start() {
+        synchronized (threadLock) {
+            if (null != drainThread) {
+                return;
+            }
+            drainThread = new Thread("Geomessage ingest") {
+
+                @Override
+                public void run() {
+                    ArrayList<Geomessage> received = new ArrayList<Geomessage>();
+                    try {
+                        while (!isInterrupted()) {
+                            received.add(queue.take());
+                            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainWindowMillis);
+                            long remaining;
+                            while (0 < (remaining = deadline - System.nanoTime())) {
+                                Geomessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                                if (null == next) {
+                                    break;
+                                }
+                                received.add(next);
+                                queue.drainTo(received);
+                            }
+                            apply(coalesce(received));
+                            received.clear();
+                        }
+                    } catch (InterruptedException ie) {
+                        //Stop draining
+                    }
+                }
+            };
+            drainThread.setDaemon(true);
+            drainThread.start();
+        }
+    }
+
+    /**
+     * Stops the drain thread. Messages still in the queue are not applied.
+     */
+    public void stop() {
+        synchronized (threadLock) {
+            if (null != drainThread) {
+                drainThread.interrupt();
+                drainThread = null;
+            }
+        }
+    }
+
+    /**
+     * Keeps only the latest UPDATE for each message type and ID. Any other action
+     * for a type and ID (REMOVE, SELECT, etc.) is kept in place, and an UPDATE
+     * received before it is never moved after it.
+     */
+    private List<Geomessage> coalesce(List<Geomessage> received) {
+        ArrayList<Geomessage> batch = new ArrayList<Geomessage>(received.size());
+        HashMap<String, Integer> pendingUpdateIndex = new HashMap<String, Integer>();
+        int coalesced = 0;
+        for (Geomessage geomessage : received) {
+            String id = geomessage.getId();
+            if (null != id) {
+                Object type = geomessage.getProperty(Geomessage.TYPE_FIELD_NAME);
+                String key = null == type ? id : type.toString() + '\u0000' + id;
+                if (isUpdate(geomessage)) {
+                    Integer previousIndex = pendingUpdateIndex.put(key, batch.size());
+                    if (null != previousIndex) {
+                        batch.set(previousIndex, null);
+                        coalesced++;
+                    }
+                } else {
+                    pendingUpdateIndex.remove(key);
+                }
+            }
+            batch.add(geomessage);
+        }
+        if (0 < coalesced) {
+            coalescedCount.addAndGet(coalesced);
+            ArrayList<Geomessage> compacted = new ArrayList<Geomessage>(batch.size() - coalesced);
+            for (Geomessage geomessage : batch) {
+                if (null != geomessage) {
+                    compacted.add(geomessage);
+                }
+            }
+            batch = compacted;
+        }
+        return batch;
+    }
+
+    private static boolean isUpdate(Geomessage geomessage) {
+        Object action = geomessage.getProperty(Geomessage.ACTION_FIELD_NAME);
+        return null == action || "update".equalsIgnoreCase(action.toString());
+    }
+
+    private void apply(List<Geomessage> batch) {
+        long start = System.nanoTime();
+        try {
+            handler.processBatch(batch);
+        } catch (RuntimeException re) {
+            logger.log(Level.SEVERE, "Couldn't apply geomessage batch", re);
+        }
+        long elapsed = System.nanoTime() - start;
+        lastApplyNanos = elapsed;
+        totalApplyNanos.addAndGet(elapsed);
+        long max;
+        while (elapsed > (max = maxApplyNanos.get()) && !maxApplyNanos.compareAndSet(max, elapsed)) {
+            //Retry until the maximum is recorded
+        }
+        appliedCount.addAndGet(batch.size());
+        batchCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of geomessages currently waiting in the queue.
+     * @return the number of geomessages currently waiting in the queue.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of geomessages offered to this queue.
+     * @return the number of geomessages offered to this queue.
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * Returns the number of geomessages dropped because the queue was full.
+     * @return the number of geomessages dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of UPDATE geomessages skipped because a later UPDATE for
+     * the same type and ID arrived in the same batch.
+     * @return the number of coalesced geomessages.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of geomessages passed to the batch handler.
+     * @return the number of geomessages passed to the batch handler.
+     */
+    public long getAppliedCount() {
+        return appliedCount.get();
+    }
+
+    /**
+     * Returns the number of batches applied.
+     * @return the number of batches applied.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Returns the time taken to apply the most recent batch, in milliseconds.
+     * @return the time taken to apply the most recent batch, in milliseconds.
+     */
+    public double getLastApplyMillis() {
+        return lastApplyNanos / 1000000.0;
+    }
+
+    /**
+     * Returns the mean time taken to apply a batch, in milliseconds.
+     * @return the mean time taken to apply a batch, in milliseconds.
+     */
+    public double getAverageApplyMillis() {
+        long batches = batchCount.get();
+        return 0 == batches ? 0 : totalApplyNanos.get() / 1000000.0 / batches;
+    }
+
+    /**
+     * Returns the longest time taken to apply a batch, in milliseconds.
+     * @return the longest time taken to apply a batch, in milliseconds.
+     */
+    public double getMaxApplyMillis() {
+        return maxApplyNanos.get() / 1000000.0;
+    }
+
+}
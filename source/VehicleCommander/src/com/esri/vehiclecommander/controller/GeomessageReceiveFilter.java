@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller;
+
+import com.esri.militaryapps.model.Geomessage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drops received geomessages that would only repeat or undo work already done,
+ * before they are queued for the MessageProcessor:
+ * <ul>
+ *   <li>A duplicate, one with the same type, ID and properties as the last
+ *       geomessage accepted for that type and ID within the duplicate window, is
+ *       dropped. UDP retransmissions and relays produce these.</li>
+ *   <li>A stale UPDATE, one whose datetimevalid is earlier than that of the last
+ *       UPDATE accepted for its type and ID, is dropped, so that an update that
+ *       arrives out of order does not move a symbol back. Geomessages carry no
+ *       sequence number, so the sender's timestamp orders them. Ordering is
+ *       forgotten after the maximum age, in case a sender's clock is reset. A
+ *       REMOVE also resets it, so that a new UPDATE may start the symbol over;
+ *       SELECT and UN-SELECT leave it alone.</li>
+ * </ul>
+ * The filter remembers a bounded number of type and ID pairs, least recently
+ * received first out. This class is thread-safe.
+ */
+public class GeomessageReceiveFilter {
+
+    /**
+     * The default number of type and ID pairs remembered.
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    /**
+     * The default duplicate window, in milliseconds.
+     */
+    public static final long DEFAULT_DUPLICATE_WINDOW_MILLIS = 5000;
+
+    /**
+     * The default time, in milliseconds, for which the datetimevalid of the last
+     * accepted UPDATE is remembered.
+     */
+    public static final long DEFAULT_MAX_AGE_MILLIS = 10 * 60 * 1000;
+
+    private static final String TIMESTAMP_FIELD_NAME = "datetimevalid";
+
+    /**
+     * What is remembered about the last geomessage accepted for a type and ID.
+     */
+    private static class Received {
+
+        private int contentHash;
+        private long receivedMillis;
+        private String timestamp;
+        private long timestampMillis;
+
+    }
+
+    private final long duplicateWindowMillis;
+    private final long maxAgeMillis;
+    private final LinkedHashMap<String, Received> received;
+    private final AtomicLong acceptedCount = new AtomicLong(0);
+    private final AtomicLong duplicateCount = new AtomicLong(0);
+    private final AtomicLong staleCount = new AtomicLong(0);
+
+    /**
+     * Creates a filter with the default capacity, duplicate window and maximum age.
+     */
+    public GeomessageReceiveFilter() {
+        this(DEFAULT_CAPACITY, DEFAULT_DUPLICATE_WINDOW_MILLIS, DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    /**
+     * Creates a filter.
+     * @param capacity the number of type and ID pairs remembered.
+     * @param duplicateWindowMillis how long after a geomessage is accepted that an
+     *                              identical one is treated as a duplicate.
+     * @param maxAgeMillis how long after an UPDATE is accepted that an UPDATE with
+     *                     an earlier datetimevalid is treated as stale.
+     */
+    public GeomessageReceiveFilter(final int capacity, long duplicateWindowMillis, long maxAgeMillis) {
+        this.duplicateWindowMillis = duplicateWindowMillis;
+        this.maxAgeMillis = maxAgeMillis;
+        received = new LinkedHashMap<String, Received>(Math.min(capacity, 1024) * 2, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Received> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Tells whether a received geomessage should be applied, and remembers it if
+     * so.
+     * @param geomessage the geomessage.
+     * @return true if the geomessage should be applied, or false if it is a
+     *         duplicate or a stale update.
+     */
+    public boolean accept(Geomessage geomessage) {
+        return accept(geomessage, System.currentTimeMillis());
+    }
+
+    /**
+     * Tells whether a received geomessage should be applied, and remembers it if
+     * so.
+     * @param geomessage the geomessage.
+     * @param nowMillis the time at which the geomessage was received.
+     * @return true if the geomessage should be applied, or false if it is a
+     *         duplicate or a stale update.
+     */
+    public boolean accept(Geomessage geomessage, long nowMillis) {
+        String id = geomessage.getId();
+        if (null == id) {
+            //Nothing to compare it to; the MessageProcessor rejects it anyway
+            acceptedCount.incrementAndGet();
+            return true;
+        }
+        Object type = geomessage.getProperty(Geomessage.TYPE_FIELD_NAME);
+        String key = null == type ? id : type.toString() + '\u0000' + id;
+        int contentHash = geomessage.getProperties().hashCode();
+        Object action = geomessage.getProperty(Geomessage.ACTION_FIELD_NAME);
+        boolean update = null == action || "update".equalsIgnoreCase(action.toString());
+        boolean remove = !update && "remove".equalsIgnoreCase(action.toString());
+        Object timestampValue = update ? geomessage.getProperty(TIMESTAMP_FIELD_NAME) : null;
+        String timestamp = null == timestampValue ? null : timestampValue.toString();
+
+        synchronized (received) {
+            Received last = received.get(key);
+            if (null != last) {
+                if (contentHash == last.contentHash && nowMillis - last.receivedMillis < duplicateWindowMillis) {
+                    duplicateCount.incrementAndGet();
+                    return false;
+                }
+                if (null != timestamp && null != last.timestamp
+                        && nowMillis - last.timestampMillis < maxAgeMillis
+                        && isEarlier(timestamp, last.timestamp)) {
+                    staleCount.incrementAndGet();
+                    return false;
+                }
+            } else {
+                last = new Received();
+                received.put(key, last);
+            }
+            last.contentHash = contentHash;
+            last.receivedMillis = nowMillis;
+            if (null != timestamp) {
+                last.timestamp = timestamp;
+                last.timestampMillis = nowMillis;
+            } else if (remove) {
+                //After a REMOVE, a new UPDATE may legitimately start the symbol over
+                last.timestamp = null;
+            }
+        }
+        acceptedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Compares two geomessage timestamps. Timestamps in the form yyyy-MM-dd HH:mm:ss
+     * sort as text; timestamps in any other form are never earlier.
+     */
+    private static boolean isEarlier(String timestamp, String than) {
+        return isSortableTimestamp(timestamp) && isSortableTimestamp(than) && 0 > timestamp.compareTo(than);
+    }
+
+    private static boolean isSortableTimestamp(String timestamp) {
+        if (19 != timestamp.length()) {
+            return false;
+        }
+        for (int i = 0; i < 19; i++) {
+            char c = timestamp.charAt(i);
+            char expected = 4 == i || 7 == i ? '-' : 10 == i ? ' ' : 13 == i || 16 == i ? ':' : 0;
+            if (0 == expected ? '0' > c || '9' < c : expected != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forgets everything received, so that the next geomessage for any type and
+     * ID is accepted.
+     */
+    public void clear() {
+        synchronized (received) {
+            received.clear();
+        }
+    }
+
+    /**
+     * Forgets type and ID pairs last received more than the maximum age ago.
+     * accept never needs this, since the filter is bounded, but a long-running
+     * application may call it to free memory when traffic stops.
+     * @param nowMillis the current time.
+     */
+    public void expire(long nowMillis) {
+        synchronized (received) {
+            Iterator<Received> iter = received.values().iterator();
+            while (iter.hasNext()) {
+                if (nowMillis - iter.next().receivedMillis >= maxAgeMillis) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of type and ID pairs remembered.
+     * @return the number of type and ID pairs remembered.
+     */
+    public int size() {
+        synchronized (received) {
+            return received.size();
+        }
+    }
+
+    /**
+     * Returns the number of geomessages accepted.
+     * @return the number of geomessages accepted.
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    /**
+     * Returns the number of geomessages dropped as duplicates.
+     * @return the number of geomessages dropped as duplicates.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * Returns the number of UPDATE geomessages dropped because they were older
+     * than one already accepted.
+     * @return the number of stale geomessages dropped.
+     */
+    public long getStaleCount() {
+        return staleCount.get();
+    }
+
+}
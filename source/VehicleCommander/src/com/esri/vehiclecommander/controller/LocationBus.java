@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller;
+
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+import com.esri.militaryapps.model.Location;
+import com.esri.vehiclecommander.model.LocationSnapshot;
+import com.esri.vehiclecommander.util.CachedMgrsConverter;
+import com.esri.vehiclecommander.util.ProjectionService;
+import com.esri.vehiclecommander.util.Utilities;
+import com.esri.vehiclecommander.util.WebMercator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fans location fixes out to the parts of the application that follow the vehicle.
+ * Each fix is projected to the map and converted to MGRS once, on the publishing
+ * thread, and the resulting LocationSnapshot is handed to the listeners on a single
+ * dispatch thread. The bus keeps only the latest undelivered fix, so a slow listener
+ * causes intermediate fixes to be skipped rather than queued.
+ * <p>
+ * The latest snapshot is also available at any time through getLatest(), without
+ * locking. Code that polls it, such as a UI tick on the event dispatch thread, can
+ * compare snapshot sequence numbers to skip work when no new fix has arrived.
+ */
+public class LocationBus {
+
+    private static final Logger logger = Logger.getLogger(LocationBus.class.getName());
+
+    private final MapController mapController;
+    private final CopyOnWriteArrayList<LocationSnapshotListener> listeners = new CopyOnWriteArrayList<LocationSnapshotListener>();
+    private final AtomicReference<LocationSnapshot> pending = new AtomicReference<LocationSnapshot>();
+    private final AtomicReference<LocationSnapshot> latest = new AtomicReference<LocationSnapshot>();
+    private final AtomicLong sequence = new AtomicLong(0);
+    private final AtomicLong deliveredCount = new AtomicLong(0);
+    private final AtomicLong skippedCount = new AtomicLong(0);
+    private final Object threadLock = new Object();
+
+    private volatile Thread dispatchThread = null;
+
+    /**
+     * Creates a bus. Call start() to begin delivering fixes to listeners.
+     * @param mapController the MapController whose spatial reference is used for
+     *                      the snapshots' map coordinates.
+     */
+    public LocationBus(MapController mapController) {
+        this.mapController = mapController;
+    }
+
+    /**
+     * Adds a listener.
+     * @param listener the listener.
+     */
+    public void addListener(LocationSnapshotListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener the listener.
+     */
+    public void removeListener(LocationSnapshotListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Makes a snapshot of a location fix and schedules it for delivery to the
+     * listeners. This method does not block on the listeners. If fixes are published
+     * from more than one thread, the latest snapshot is always the one with the
+     * greatest sequence number.
+     * @param location the location fix.
+     * @return the snapshot.
+     */
+    public LocationSnapshot publish(Location location) {
+        double lon = location.getLongitude();
+        double lat = location.getLatitude();
+        double mapX = Double.NaN;
+        double mapY = Double.NaN;
+        SpatialReference mapSr = null;
+        try {
+            SpatialReference sr = mapController.getSpatialReference();
+            if (null != sr) {
+                Point mapPoint = ProjectionService.projectPoint(lon, lat, WebMercator.WGS84_WKID, sr);
+                mapX = mapPoint.getX();
+                mapY = mapPoint.getY();
+                mapSr = sr;
+            }
+        } catch (RuntimeException re) {
+            //The map is probably not yet initialized
+            logger.log(Level.FINE, "Couldn't project location to the map", re);
+        }
+        String mgrs = null;
+        try {
+            //For display only, so an error of one in the last digit is acceptable
+            mgrs = CachedMgrsConverter.getApproximateInstance().pointToMgrs(lon, lat, Utilities.WGS84, CachedMgrsConverter.DEFAULT_PRECISION);
+        } catch (RuntimeException re) {
+            logger.log(Level.FINE, "Couldn't convert location to MGRS", re);
+        }
+        LocationSnapshot snapshot = new LocationSnapshot(sequence.incrementAndGet(), location, mapX, mapY, mapSr, mgrs);
+        LocationSnapshot previous;
+        do {
+            previous = latest.get();
+        } while ((null == previous || previous.getSequence() < snapshot.getSequence())
+                && !latest.compareAndSet(previous, snapshot));
+        if (null != pending.getAndSet(snapshot)) {
+            skippedCount.incrementAndGet();
+        }
+        Thread thread = dispatchThread;
+        if (null != thread) {
+            LockSupport.unpark(thread);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the most recently published snapshot, whether or not it has been
+     * delivered yet. Callers that only need the current position, such as periodic
+     * reports, can read this instead of listening.
+     * @return the latest snapshot, or null if no fix has been published.
+     */
+    public LocationSnapshot getLatest() {
+        return latest.get();
+    }
+
+    /**
+     * Starts the dispatch thread. Calling this method when the dispatch thread is
+     * already running has no effect.
+     */
+    public void start() {
+        synchronized (threadLock) {
+            if (null != dispatchThread) {
+                return;
+            }
+            Thread thread = new Thread("Location dispatch") {
+
+                @Override
+                public void run() {
+                    while (!isInterrupted()) {
+                        LocationSnapshot snapshot = pending.getAndSet(null);
+                        if (null == snapshot) {
+                            LockSupport.park(LocationBus.this);
+                        } else {
+                            dispatch(snapshot);
+                        }
+                    }
+                }
+            };
+            thread.setDaemon(true);
+            dispatchThread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the dispatch thread. A fix that has not been delivered is delivered
+     * when the bus is started again.
+     */
+    public void stop() {
+        synchronized (threadLock) {
+            if (null != dispatchThread) {
+                dispatchThread.interrupt();
+                dispatchThread = null;
+            }
+        }
+    }
+
+    private void dispatch(LocationSnapshot snapshot) {
+        for (LocationSnapshotListener listener : listeners) {
+            try {
+                listener.locationChanged(snapshot);
+            } catch (RuntimeException re) {
+                logger.log(Level.SEVERE, "Location listener failed", re);
+            }
+        }
+        deliveredCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of fixes published to this bus.
+     * @return the number of fixes published.
+     */
+    public long getPublishedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Returns the number of fixes delivered to the listeners.
+     * @return the number of fixes delivered.
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * Returns the number of fixes skipped because a later fix was published before
+     * they were delivered.
+     * @return the number of fixes skipped.
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller;
+
+import com.esri.vehiclecommander.model.LocationSnapshot;
+
+/**
+ * A listener for location fixes delivered by a LocationBus.
+ */
+public interface LocationSnapshotListener {
+
+    /**
+     * Called on the bus's dispatch thread with the latest location fix. If fixes
+     * arrive faster than the listeners handle them, intermediate fixes are skipped.
+     * @param snapshot the latest location fix.
+     */
+    void locationChanged(LocationSnapshot snapshot);
+
+}
@@ -24,8 +24,6 @@ import com.esri.client.local.LocalServiceStartCompleteEvent;
 import com.esri.client.local.LocalServiceStartCompleteListener;
 import com.esri.client.local.ServerLifetimeEvent;
 import com.esri.client.local.ServerLifetimeListener;
-import com.esri.core.geometry.CoordinateConversion;
-import com.esri.core.geometry.GeometryEngine;
 import com.esri.core.geometry.Point;
 import com.esri.core.geometry.SpatialReference;
 import com.esri.core.map.CallbackListener;
@@ -50,7 +48,10 @@ import com.esri.militaryapps.model.Location;
 import com.esri.militaryapps.model.LocationProvider;
 import com.esri.vehiclecommander.model.IdentifiedItem;
 import com.esri.vehiclecommander.model.IdentifyResultList;
+import com.esri.vehiclecommander.model.LocationSnapshot;
 import com.esri.vehiclecommander.model.Mil2525CMessageLayer;
+import com.esri.vehiclecommander.util.CachedMgrsConverter;
+import com.esri.vehiclecommander.util.ProjectionService;
 import com.esri.vehiclecommander.util.Utilities;
 import com.esri.vehiclecommander.view.ChemLightJPanel;
 import com.esri.vehiclecommander.view.MapOverlayAdapter;
@@ -65,6 +66,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JComponent;
@@ -114,17 +116,19 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
     private final Map<IdentifiedItem, Layer> resultToLayer = new HashMap<IdentifiedItem, Layer>();
     /**
      * Maps layers--probably map service layers--to corresponding feature layers,
-     * where individual feature layers are identified by their IDs.
+     * where individual feature layers are identified by their IDs. Local feature
+     * services save their feature layers from their own threads.
      */
-    private final Map<Layer, Map<Integer, ArcGISFeatureLayer>> layerToFeatureLayer = new HashMap<Layer, Map<Integer, ArcGISFeatureLayer>>();
+    private final ConcurrentHashMap<Layer, ConcurrentHashMap<Integer, ArcGISFeatureLayer>> layerToFeatureLayer =
+            new ConcurrentHashMap<Layer, ConcurrentHashMap<Integer, ArcGISFeatureLayer>>();
     private final IdentifyListener identifyListener;
-    private final Object lastLocationLock = new Object(); 
+    private final LocationBus locationBus = new LocationBus(this);
     private final ChemLightController chemLightController;
     
     private AdvancedSymbolController symbolController;
     private MapOverlay trackOverlay = null;
     private boolean autoPan = false;
-    private Point lastLocation = null;
+    private volatile boolean mapReady = false;
     private PopupDialog chemLightPopupDialog = null;
 
     /**
@@ -142,11 +146,19 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
 
             @Override
             public void mapReady(MapEvent event) {
+                mapReady = true;
                 fireMapReady();
             }
 
         });
         this.map = map;
+        locationBus.addListener(new LocationSnapshotListener() {
+
+            public void locationChanged(LocationSnapshot snapshot) {
+                followLocation(snapshot);
+            }
+
+        });
         
         setAutoPan(autoPan);
         setGridVisible(appConfig.isShowMgrsGrid());
@@ -165,6 +177,15 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
         }
     }
 
+    /**
+     * Returns true if the map has fired its mapReady event. A listener added after
+     * that does not get the event, so check this method too.
+     * @return true if the map is ready.
+     */
+    public boolean isMapReady() {
+        return mapReady;
+    }
+
     @Override
     public void zoom(double factor) {
         map.zoom(factor);
@@ -197,7 +218,7 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
      */
     public Point panTo(String newCenterMgrs) {
         newCenterMgrs = Utilities.convertToValidMgrs(newCenterMgrs,
-                pointToMgrs(map.getExtent().getCenter(), map.getSpatialReference()));
+                map.getExtent().getCenter(), map.getSpatialReference());
         if (null != newCenterMgrs) {
             Point pt = mgrsToPoint(newCenterMgrs);
             if (null != pt) {
@@ -245,10 +266,9 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
     @Override
     public void setAutoPan(boolean autoPan) {
         if (autoPan) {
-            synchronized (lastLocationLock) {
-                if (null != lastLocation) {
-                    map.panTo(lastLocation);
-                }
+            LocationSnapshot latest = locationBus.getLatest();
+            if (null != latest && latest.hasMapPoint()) {
+                map.panTo(latest.getMapPoint());
             }
         }
         this.autoPan = autoPan;
@@ -263,7 +283,7 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
     public String pointToMgrs(double x, double y, int wkid) {
         Point pt = new Point(x, y);
         try {
-            SpatialReference sr = SpatialReference.create(wkid);
+            SpatialReference sr = Utilities.getSpatialReference(wkid);
             return pointToMgrs(pt, sr);
         } catch (Throwable t) {
             Logger.getLogger(MapController.class.getName()).log(Level.SEVERE, null, t);
@@ -272,13 +292,14 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
     }
     
     /**
-     * Converts a point to an MGRS string.
+     * Converts a point to an MGRS string through CachedMgrsConverter's exact
+     * instance.
      * @param pt the point to be converted to an MGRS string.
      * @param sr the point's spatial reference.
      * @return the MGRS representation of the point.
      */
     public String pointToMgrs(Point pt, SpatialReference sr) {
-        return CoordinateConversion.pointToMgrs(pt, sr, CoordinateConversion.MGRSConversionMode.AUTO, 5, false, false);
+        return CachedMgrsConverter.getInstance().pointToMgrs(pt, sr);
     }
     
     /**
@@ -290,30 +311,37 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
         SpatialReference sr = map.getSpatialReference();
         if (null == sr) {
             //Assume Web Mercator (3857)
-            sr = SpatialReference.create(3857);
+            sr = Utilities.getSpatialReference(3857);
         }
-        return CoordinateConversion.mgrsToPoint(mgrsString, sr, CoordinateConversion.MGRSConversionMode.AUTO);
+        return CachedMgrsConverter.getInstance().mgrsToPoint(mgrsString, sr);
     }
 
     @Override
     public double[] projectPoint(double x, double y, int fromWkid, int toWkid) {
-        Point pt = (Point) GeometryEngine.project(new Point(x, y), SpatialReference.create(fromWkid), SpatialReference.create(toWkid));
-        return new double[] { pt.getX(), pt.getY() };
+        return ProjectionService.project(x, y, fromWkid, toWkid);
+    }
+
+    /**
+     * Returns the bus that delivers each location fix, already projected to the
+     * map and converted to MGRS, to the parts of the application that follow the
+     * vehicle. The bus is not started by this class; call its start() method once
+     * this MapController is constructed.
+     * @return the location bus.
+     */
+    public LocationBus getLocationBus() {
+        return locationBus;
     }
 
     public void onLocationChanged(Location location) {
         if (null != location) {
-            final Point mapPoint = GeometryEngine.project(location.getLongitude(), location.getLatitude(), getSpatialReference());
-            new Thread() {
-                public void run() {
-                    synchronized (lastLocationLock) {
-                        lastLocation = mapPoint;
-                    }
-                };
-            }.start();
-            
+            locationBus.publish(location);
+        }
+    }
+
+    private void followLocation(LocationSnapshot snapshot) {
+        if (snapshot.hasMapPoint()) {
             if (isAutoPan()) {
-                map.panTo(mapPoint);
+                map.panTo(snapshot.getMapPoint());
                 
                 switch (getLocationController().getNavigationMode()) {
                     case NORTH_UP:
@@ -321,17 +349,17 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
                         break;
 
                     case TRACK_UP:
-                        setRotation(location.getHeading());
+                        setRotation(snapshot.getHeading());
                         break;
                         
                     case WAYPOINT_UP:
                         Graphic waypoint = ((LocationController) getLocationController()).getSelectedWaypoint();
                         if (null != waypoint) {
-                            Point waypointLonLat = (Point) GeometryEngine.project(
-                                    waypoint.getGeometry(),
+                            Point waypointLonLat = ProjectionService.projectPoint(
+                                    (Point) waypoint.getGeometry(),
                                     null == waypoint.getSpatialReference() ? getSpatialReference() : waypoint.getSpatialReference(),
                                     Utilities.WGS84);
-                            setRotation(Utilities.calculateBearingDegrees(location.getLongitude(), location.getLatitude(), waypointLonLat.getX(), waypointLonLat.getY()));
+                            setRotation(Utilities.calculateBearingDegrees(snapshot.getLongitude(), snapshot.getLatitude(), waypointLonLat.getX(), waypointLonLat.getY()));
                         }
                 }
             }
@@ -489,7 +517,9 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
         }
         boolean isOverlay = overlayLayers.remove(layer);
         fireLayersChanged(isOverlay);
-        layerToFeatureLayer.remove(layer);
+        if (null != layer) {
+            layerToFeatureLayer.remove(layer);
+        }
         
         return layerIndex;
     }
@@ -802,15 +832,22 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
      * Maps a layer to a corresponding feature layer, which will enable attachments
      * to be retrieved for the layer. A layer-featureLayerId pair uniquely identifies
      * a feature layer.
-     * @param layer the layer whose attachments need to be retrieved.
+     * @param layer the layer whose attachments need to be retrieved. If null, this
+     *              method does nothing.
      * @param featureLayerId the feature layer's ID.
      * @param featureLayer the feature layer that has the attachments.
      */
     public void saveFeatureLayer(Layer layer, int featureLayerId, ArcGISFeatureLayer featureLayer) {
-        Map<Integer, ArcGISFeatureLayer> map = layerToFeatureLayer.get(layer);
+        if (null == layer || null == featureLayer) {
+            return;
+        }
+        ConcurrentHashMap<Integer, ArcGISFeatureLayer> map = layerToFeatureLayer.get(layer);
         if (null == map) {
-            map = new HashMap<Integer, ArcGISFeatureLayer>();
-            layerToFeatureLayer.put(layer, map);
+            ConcurrentHashMap<Integer, ArcGISFeatureLayer> newMap = new ConcurrentHashMap<Integer, ArcGISFeatureLayer>();
+            map = layerToFeatureLayer.putIfAbsent(layer, newMap);
+            if (null == map) {
+                map = newMap;
+            }
         }
         map.put(featureLayerId, featureLayer);
     }
@@ -821,9 +858,13 @@ public class MapController extends com.esri.militaryapps.controller.MapControlle
      * layer can be used to get attachments for identified features.
      * @param layer the layer whose associated feature layer is to be returned.
      * @para featureLayerId the ID of the feature layer to return.
-     * @return the feature layer associated with the specified layer (if any).
+     * @return the feature layer associated with the specified layer (if any), or
+     *         null if layer is null.
      */
     public ArcGISFeatureLayer getFeatureLayer(Layer layer, int featureLayerId) {
+        if (null == layer) {
+            return null;
+        }
         Map<Integer, ArcGISFeatureLayer> featureLayers = layerToFeatureLayer.get(layer);
         if (null == featureLayers) {
             return null;
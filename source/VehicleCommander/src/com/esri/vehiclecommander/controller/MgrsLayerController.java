@@ -16,28 +16,29 @@
 package com.esri.vehiclecommander.controller;
 
 import com.esri.core.geometry.AngularUnit;
-import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.LinearUnit;
 import com.esri.core.geometry.Point;
 import com.esri.core.geometry.SpatialReference;
 import com.esri.core.map.Graphic;
 import com.esri.core.symbol.SimpleMarkerSymbol;
 import com.esri.core.symbol.TextSymbol;
-import com.esri.militaryapps.controller.LocationListener;
-import com.esri.militaryapps.model.Location;
-import com.esri.militaryapps.model.LocationProvider;
+import com.esri.vehiclecommander.model.LocationSnapshot;
+import com.esri.vehiclecommander.util.Geodesic;
+import com.esri.vehiclecommander.util.ProjectionService;
 import com.esri.vehiclecommander.util.Utilities;
 import java.awt.Color;
 
 /**
  * A layer for displaying the MGRS location to which the user navigated.
  */
-public class MgrsLayerController extends GraphicsLayerController implements LocationListener {
+public class MgrsLayerController extends GraphicsLayerController implements LocationSnapshotListener {
     
+    private static final LinearUnit METERS = new LinearUnit(LinearUnit.Code.METER);
     private static final int SYMBOL_SIZE = 14;    
     private static final SimpleMarkerSymbol POINT_SYMBOL = new SimpleMarkerSymbol(
             Color.RED, SYMBOL_SIZE, SimpleMarkerSymbol.Style.CIRCLE);
     
-    private final Point currentGpsPointLatLon = new Point();
+    private final LocationBus locationBus;
     private final TextSymbol textSymbol;
     private final TextSymbol haloSymbol;
     private final Object graphicUpdateLock = new Object();
@@ -47,6 +48,7 @@ public class MgrsLayerController extends GraphicsLayerController implements Loca
     private int labelGraphicId = -1;
     private int[] labelHaloGraphicIds = new int[4];
     private Point lastPointShownLatLon = null;
+    private final double[] distanceAndBearing = new double[2];
     
     public MgrsLayerController(
             MapController mapController,
@@ -60,9 +62,8 @@ public class MgrsLayerController extends GraphicsLayerController implements Loca
         haloSymbol.setHorizontalAlignment(TextSymbol.HorizontalAlignment.CENTER);
         haloSymbol.setVerticalAlignment(TextSymbol.VerticalAlignment.MIDDLE);
         setOverlayLayer(true);
-        if (null != mapController.getLocationController()) {
-            mapController.getLocationController().addListener(this);
-        }
+        locationBus = mapController.getLocationBus();
+        locationBus.addListener(this);
     }
     
     /**
@@ -72,14 +73,14 @@ public class MgrsLayerController extends GraphicsLayerController implements Loca
      */
     public void showPoint(Point pt, SpatialReference sr) {
         synchronized (graphicUpdateLock) {
-            lastPointShownLatLon = (Point) GeometryEngine.project(pt, sr, Utilities.WGS84);
+            lastPointShownLatLon = ProjectionService.projectPoint(pt, sr, Utilities.WGS84);
             if (-1 == pointGraphicId) {
                 createPointGraphic(pt);
                 createTextGraphics(pt);
             } else {
                 updateGraphic(pointGraphicId, pt);
                 updateTextGraphics(pt);
-                updateTextGraphics(getDistanceBearingString(currentGpsPointLatLon, lastPointShownLatLon));
+                updateTextGraphics(getDistanceBearingString(locationBus.getLatest(), lastPointShownLatLon));
             }
         }
         
@@ -101,10 +102,7 @@ public class MgrsLayerController extends GraphicsLayerController implements Loca
      * @param pt 
      */
     private void createTextGraphics(Point pt) {
-        String text = "";
-        if (!currentGpsPointLatLon.isEmpty()) {
-            text = getDistanceBearingString(currentGpsPointLatLon, lastPointShownLatLon);
-        }
+        String text = getDistanceBearingString(locationBus.getLatest(), lastPointShownLatLon);
         //Loop for DIY halo
         haloSymbol.setText(text);
         int haloGraphicIndex = 0;
@@ -153,37 +151,31 @@ public class MgrsLayerController extends GraphicsLayerController implements Loca
         updateGraphic(labelGraphicId, textSymbol);
     }
 
-    private String getDistanceBearingString(Point from, Point to) {
-        double bearingDegrees = Utilities.calculateBearingDegrees(from, to);
+    private String getDistanceBearingString(LocationSnapshot from, Point to) {
+        if (null == from) {
+            return "";
+        }
+        //Called on every location change, so measure on the ellipsoid without projecting
+        Geodesic.inverse(from.getLongitude(), from.getLatitude(), to.getX(), to.getY(), distanceAndBearing);
+        double bearingDegrees = distanceAndBearing[1];
         AngularUnit destUnit = Utilities.getAngularUnit(appConfigController.getHeadingUnits());
         AngularUnit degreesUnit = Utilities.getAngularUnit(AngularUnit.Code.DEGREE);
         long bearingInDestUnit = Math.round(bearingDegrees * degreesUnit.getConversionFactor(destUnit));
         
-        long distance = Math.round(GeometryEngine.distance(
-                GeometryEngine.project(from, Utilities.WGS84, mapController.getSpatialReference()),
-                GeometryEngine.project(to, Utilities.WGS84, mapController.getSpatialReference()),
-                mapController.getSpatialReference()));
+        long distance = Math.round(distanceAndBearing[0]);
         
         String ret = bearingInDestUnit + destUnit.getAbbreviation() + "\n\n"
-                + distance + mapController.getSpatialReference().getUnit().getAbbreviation();
+                + distance + METERS.getAbbreviation();
         return ret;
         
     }
 
-    public void onLocationChanged(Location location) {
-        synchronized (currentGpsPointLatLon) {
-            currentGpsPointLatLon.setXY(location.getLongitude(), location.getLatitude());
-            
-            synchronized (graphicUpdateLock) {
-                if (-1 != pointGraphicId) {
-                    updateTextGraphics(getDistanceBearingString(currentGpsPointLatLon, lastPointShownLatLon));
-                }
+    public void locationChanged(LocationSnapshot snapshot) {
+        synchronized (graphicUpdateLock) {
+            if (-1 != pointGraphicId) {
+                updateTextGraphics(getDistanceBearingString(snapshot, lastPointShownLatLon));
             }
         }
     }
 
-    public void onStateChanged(LocationProvider.LocationProviderState state) {
-        
-    }
-    
 }
@@ -0,0 +1,672 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller;
+
+import com.esri.militaryapps.controller.ChemLightController;
+import com.esri.militaryapps.controller.MessageController;
+import com.esri.militaryapps.controller.SpotReportController;
+import com.esri.militaryapps.model.Geomessage;
+import com.esri.vehiclecommander.model.GeomessageXmlReader;
+import com.esri.vehiclecommander.util.BinaryGeomessageCodec;
+import com.esri.vehiclecommander.util.PackedGeomessageCodec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * A MessageController that sends outbound geomessages from one scheduler thread
+ * instead of on the caller's thread. Every report that the application sends goes
+ * through sendMessage, so this is the one place where outbound traffic is shaped:
+ * <ul>
+ *   <li>Each geomessage has a priority. REMOVE messages, chem lights and spot
+ *       reports go first; vehicle status reports go last.</li>
+ *   <li>Each message type can have a rate cap, a minimum time between two sends
+ *       of that type. A capped message waits rather than being dropped.</li>
+ *   <li>An UPDATE that is still waiting is replaced by a later UPDATE with the same
+ *       type and ID, and is dropped if a REMOVE for the same type and ID arrives.</li>
+ *   <li>Waiting geomessages are packed into one &lt;geomessages&gt; datagram as long
+ *       as it fits in the maximum datagram size.</li>
+ *   <li>In packed mode, each datagram is compressed with PackedGeomessageCodec.
+ *       Receivers detect packed datagrams, so packed mode can be turned on for one
+ *       vehicle at a time.</li>
+ *   <li>In binary mode, each datagram is encoded with BinaryGeomessageCodec
+ *       instead, which receivers decode without parsing XML. Binary mode takes
+ *       precedence over packed mode.</li>
+ * </ul>
+ * sendMessage never blocks on the network, so it may be called on the event
+ * dispatch thread.
+ */
+public class ScheduledMessageController extends MessageController {
+
+    /**
+     * The order in which waiting geomessages are sent.
+     */
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    /**
+     * The default maximum datagram size, in bytes, which fits an Ethernet MTU with
+     * room for the IP and UDP headers.
+     */
+    public static final int DEFAULT_MAX_DATAGRAM_BYTES = 1400;
+
+    /**
+     * The default time, in milliseconds, that a NORMAL or LOW priority geomessage
+     * waits for others to share its datagram.
+     */
+    public static final long DEFAULT_BATCH_WINDOW_MILLIS = 50;
+
+    /**
+     * The default maximum number of geomessages waiting to be sent.
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * In packed or binary mode, the XML size of a datagram may be this many times the
+     * maximum datagram size. Geomessages typically compress three to six times, and
+     * binary geomessages are typically a third the size of their XML.
+     */
+    public static final int PACKED_SIZE_FACTOR = 4;
+
+    /**
+     * The message type of the position reports sent by PositionReportController.
+     */
+    public static final String POSITION_REPORT_TYPE = "position_report";
+
+    private static final Logger logger = Logger.getLogger(ScheduledMessageController.class.getName());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] DATAGRAM_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><geomessages>".getBytes(UTF_8);
+    private static final byte[] DATAGRAM_END = "</geomessages>".getBytes(UTF_8);
+
+    /**
+     * A geomessage, or an unrecognized datagram, waiting to be sent.
+     */
+    private static class Outbound {
+
+        private final String type;
+        /**
+         * Set when the geomessage is queued, from the priorities in effect then.
+         */
+        private Priority priority = Priority.NORMAL;
+        private final boolean remove;
+        private final String coalesceKey;
+        private final long queuedMillis;
+        /**
+         * The geomessage element as UTF-8, or null if the datagram was not
+         * recognized and must be sent as it is.
+         */
+        private byte[] fragment;
+        /**
+         * The datagram exactly as its sender wrote it, if it held only this
+         * geomessage; otherwise, null.
+         */
+        private byte[] datagram;
+
+        Outbound(String type, boolean remove, String coalesceKey,
+                long queuedMillis, byte[] fragment, byte[] datagram) {
+            this.type = type;
+            this.remove = remove;
+            this.coalesceKey = coalesceKey;
+            this.queuedMillis = queuedMillis;
+            this.fragment = fragment;
+            this.datagram = datagram;
+        }
+
+    }
+
+    private final Object lock = new Object();
+    private final Object threadLock = new Object();
+    private final ArrayList<ArrayDeque<Outbound>> queues = new ArrayList<ArrayDeque<Outbound>>();
+    private final HashMap<String, Outbound> pendingUpdates = new HashMap<String, Outbound>();
+    private final Map<String, Priority> typePriorities = new HashMap<String, Priority>();
+    /**
+     * Types whose waiting UPDATE is superseded by any newer UPDATE of the type,
+     * whatever its ID. Not changed after construction.
+     */
+    private final Set<String> coalesceByTypeOnly = new HashSet<String>();
+    private final Map<String, Long> rateCapMillis = new HashMap<String, Long>();
+    private final Map<String, Long> nextAllowedMillis = new HashMap<String, Long>();
+    private final AtomicLong queuedCount = new AtomicLong(0);
+    private final AtomicLong coalescedCount = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong sentMessageCount = new AtomicLong(0);
+    private final AtomicLong sentDatagramCount = new AtomicLong(0);
+
+    private volatile int maxDatagramBytes = DEFAULT_MAX_DATAGRAM_BYTES;
+    private volatile long batchWindowMillis = DEFAULT_BATCH_WINDOW_MILLIS;
+    private volatile boolean packed = false;
+    private volatile boolean binary = false;
+    private int pendingCount = 0;
+    private Thread sendThread = null;
+
+    /**
+     * Creates a controller with the default priorities and rate caps: chem lights
+     * and spot reports are HIGH priority, vehicle status reports are LOW priority
+     * and are sent at most once a second, and position reports are sent at most
+     * four times a second. Other types are NORMAL priority with no rate cap. A
+     * waiting vehicle status report is replaced by a newer one whatever its ID.
+     * @param port the UDP port.
+     * @param senderUsername the username that identifies this sender.
+     */
+    public ScheduledMessageController(int port, String senderUsername) {
+        super(port, senderUsername);
+        for (int i = 0; i < Priority.values().length; i++) {
+            queues.add(new ArrayDeque<Outbound>());
+        }
+        typePriorities.put(ChemLightController.REPORT_TYPE, Priority.HIGH);
+        typePriorities.put(SpotReportController.REPORT_TYPE, Priority.HIGH);
+        typePriorities.put(VehicleStatusController.REPORT_TYPE, Priority.LOW);
+        rateCapMillis.put(VehicleStatusController.REPORT_TYPE, 1000L);
+        rateCapMillis.put(POSITION_REPORT_TYPE, 250L);
+        coalesceByTypeOnly.add(VehicleStatusController.REPORT_TYPE);
+    }
+
+    /**
+     * Queues a datagram of one or more geomessages to be sent on the scheduler
+     * thread, and returns without waiting for it to be sent. A datagram that is not
+     * a &lt;geomessages&gt; document is sent unchanged, at NORMAL priority.
+     * @param bytes the datagram.
+     * @throws IOException never; the declaration matches the overridden method.
+     */
+    @Override
+    public void sendMessage(byte[] bytes) throws IOException {
+        long now = System.currentTimeMillis();
+        List<Outbound> outbound = split(bytes, now);
+        synchronized (lock) {
+            for (Outbound message : outbound) {
+                queue(message);
+            }
+            lock.notifyAll();
+        }
+        startSending();
+    }
+
+    /**
+     * Sets a message type's priority. REMOVE messages are always HIGH priority.
+     * @param messageType the message type.
+     * @param priority the priority.
+     */
+    public void setPriority(String messageType, Priority priority) {
+        synchronized (lock) {
+            typePriorities.put(messageType, priority);
+        }
+    }
+
+    /**
+     * Sets a message type's rate cap. REMOVE messages are never held back by a cap.
+     * @param messageType the message type.
+     * @param minIntervalMillis the minimum time between two sends of the type, in
+     *                          milliseconds, or 0 for no cap.
+     */
+    public void setRateCap(String messageType, long minIntervalMillis) {
+        synchronized (lock) {
+            if (0 < minIntervalMillis) {
+                rateCapMillis.put(messageType, minIntervalMillis);
+            } else {
+                rateCapMillis.remove(messageType);
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Sets the maximum size of a datagram that packs several geomessages. A single
+     * geomessage that is larger is still sent, in a datagram of its own.
+     * @param maxDatagramBytes the maximum datagram size, in bytes.
+     */
+    public void setMaxDatagramBytes(int maxDatagramBytes) {
+        this.maxDatagramBytes = maxDatagramBytes;
+    }
+
+    /**
+     * Sets how long a NORMAL or LOW priority geomessage waits for others to share
+     * its datagram. HIGH priority geomessages never wait.
+     * @param batchWindowMillis the batch window, in milliseconds.
+     */
+    public void setBatchWindowMillis(long batchWindowMillis) {
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    /**
+     * Turns packed mode on or off. In packed mode, datagrams of geomessages are
+     * compressed with PackedGeomessageCodec before they are sent.
+     * @param packed true to send packed datagrams, or false to send plain XML.
+     */
+    public void setPacked(boolean packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * Tells whether packed mode is on.
+     * @return true if datagrams are sent packed.
+     */
+    public boolean isPacked() {
+        return packed;
+    }
+
+    /**
+     * Turns binary mode on or off. In binary mode, datagrams of geomessages are
+     * encoded with BinaryGeomessageCodec before they are sent.
+     * @param binary true to send binary datagrams, or false to send XML, packed or
+     *               not.
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Tells whether binary mode is on.
+     * @return true if datagrams are sent binary.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Starts the scheduler thread. sendMessage calls this method, so there is
+     * usually no need to call it. Calling it when the thread is already running
+     * has no effect.
+     */
+    public void startSending() {
+        synchronized (threadLock) {
+            if (null != sendThread) {
+                return;
+            }
+            sendThread = new Thread("Outbound messages") {
+
+                @Override
+                public void run() {
+                    try {
+                        sendLoop();
+                    } catch (InterruptedException ie) {
+                        //Stop sending
+                    }
+                }
+            };
+            sendThread.setDaemon(true);
+            sendThread.start();
+        }
+    }
+
+    /**
+     * Stops the scheduler thread. Geomessages still waiting are sent when the
+     * thread is started again.
+     */
+    public void stopSending() {
+        synchronized (threadLock) {
+            if (null != sendThread) {
+                sendThread.interrupt();
+                sendThread = null;
+            }
+        }
+    }
+
+    private void sendLoop() throws InterruptedException {
+        ArrayList<Outbound> batch = new ArrayList<Outbound>();
+        ByteArrayOutputStream datagram = new ByteArrayOutputStream(DEFAULT_MAX_DATAGRAM_BYTES);
+        while (!Thread.currentThread().isInterrupted()) {
+            synchronized (lock) {
+                long waitMillis;
+                while (0 != (waitMillis = collectBatch(batch, System.currentTimeMillis()))) {
+                    lock.wait(Math.max(waitMillis, 0));
+                }
+            }
+            send(batch, 0, batch.size(), datagram);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Sends part of a batch as one datagram, or as two if it is packed or binary and
+     * does not shrink enough to fit.
+     */
+    private void send(List<Outbound> batch, int from, int to, ByteArrayOutputStream datagram) {
+        Outbound first = batch.get(from);
+        byte[] bytes;
+        if (null == first.fragment) {
+            //An unrecognized datagram is sent unchanged
+            bytes = first.datagram;
+        } else if (1 == to - from && null != first.datagram && !packed && !binary) {
+            bytes = first.datagram;
+        } else {
+            datagram.reset();
+            datagram.write(DATAGRAM_START, 0, DATAGRAM_START.length);
+            for (int i = from; i < to; i++) {
+                byte[] fragment = batch.get(i).fragment;
+                datagram.write(fragment, 0, fragment.length);
+            }
+            datagram.write(DATAGRAM_END, 0, DATAGRAM_END.length);
+            bytes = datagram.toByteArray();
+            boolean shrunk = false;
+            if (binary) {
+                try {
+                    bytes = BinaryGeomessageCodec.encode(GeomessageXmlReader.readProperties(new String(bytes, UTF_8)));
+                    shrunk = true;
+                } catch (XMLStreamException xse) {
+                    logger.log(Level.WARNING, "Couldn't encode geomessages as binary; sending XML", xse);
+                }
+            } else if (packed) {
+                bytes = PackedGeomessageCodec.pack(bytes);
+                shrunk = true;
+            }
+            if (shrunk && bytes.length > maxDatagramBytes && 1 < to - from) {
+                int middle = (from + to) / 2;
+                send(batch, from, middle, datagram);
+                send(batch, middle, to, datagram);
+                return;
+            }
+        }
+        try {
+            super.sendMessage(bytes);
+            sentMessageCount.addAndGet(to - from);
+            sentDatagramCount.incrementAndGet();
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Couldn't send " + (to - from) + " geomessage(s)", ex);
+        } catch (RuntimeException re) {
+            logger.log(Level.SEVERE, "Couldn't send " + (to - from) + " geomessage(s)", re);
+        }
+    }
+
+    /**
+     * Moves the geomessages that should be sent now into the batch. Must be called
+     * while holding the lock.
+     * @return 0 if the batch has geomessages to send; otherwise, the number of
+     *         milliseconds until one is ready, or -1 if none are waiting.
+     */
+    private long collectBatch(List<Outbound> batch, long now) {
+        long window = batchWindowMillis;
+        long earliest = Long.MAX_VALUE;
+        boolean ready = false;
+        for (ArrayDeque<Outbound> queue : queues) {
+            for (Outbound message : queue) {
+                long readyMillis = Math.max(
+                        Priority.HIGH == message.priority ? 0 : message.queuedMillis + window,
+                        getNextAllowedMillis(message));
+                if (readyMillis <= now) {
+                    ready = true;
+                    break;
+                }
+                earliest = Math.min(earliest, readyMillis);
+            }
+            if (ready) {
+                break;
+            }
+        }
+        if (!ready) {
+            return Long.MAX_VALUE == earliest ? -1 : Math.max(1, earliest - now);
+        }
+
+        //Something is ready, so fill the datagram with whatever the rate caps allow
+        int maxBytes = packed || binary ? maxDatagramBytes * PACKED_SIZE_FACTOR : maxDatagramBytes;
+        int size = DATAGRAM_START.length + DATAGRAM_END.length;
+        for (ArrayDeque<Outbound> queue : queues) {
+            Iterator<Outbound> iter = queue.iterator();
+            while (iter.hasNext()) {
+                Outbound message = iter.next();
+                if (getNextAllowedMillis(message) > now) {
+                    continue;
+                }
+                if (null == message.fragment) {
+                    //An unrecognized datagram goes alone
+                    if (batch.isEmpty()) {
+                        take(iter, message, batch, now);
+                        return 0;
+                    }
+                    continue;
+                }
+                if (!batch.isEmpty() && size + message.fragment.length > maxBytes) {
+                    continue;
+                }
+                size += message.fragment.length;
+                take(iter, message, batch, now);
+            }
+        }
+        return 0;
+    }
+
+    private void take(Iterator<Outbound> iter, Outbound message, List<Outbound> batch, long now) {
+        iter.remove();
+        pendingCount--;
+        if (null != message.coalesceKey && pendingUpdates.get(message.coalesceKey) == message) {
+            pendingUpdates.remove(message.coalesceKey);
+        }
+        if (!message.remove && null != message.type) {
+            Long cap = rateCapMillis.get(message.type);
+            if (null != cap) {
+                nextAllowedMillis.put(message.type, now + cap);
+            }
+        }
+        batch.add(message);
+    }
+
+    private long getNextAllowedMillis(Outbound message) {
+        if (message.remove || null == message.type) {
+            return 0;
+        }
+        Long next = nextAllowedMillis.get(message.type);
+        return null == next ? 0 : next;
+    }
+
+    /**
+     * Queues a geomessage, coalescing it with a waiting UPDATE for the same type and
+     * ID. If the queue is full, the oldest waiting geomessage of the lowest priority
+     * is dropped to make room, unless the new geomessage's priority is lower still.
+     * Must be called while holding the lock.
+     */
+    private void queue(Outbound message) {
+        queuedCount.incrementAndGet();
+        Priority priority = message.remove ? Priority.HIGH : typePriorities.get(message.type);
+        message.priority = null == priority ? Priority.NORMAL : priority;
+        if (null != message.coalesceKey) {
+            Outbound pending = pendingUpdates.get(message.coalesceKey);
+            if (null != pending) {
+                if (message.remove) {
+                    //The REMOVE supersedes the UPDATE, which need not be sent at all
+                    queues.get(pending.priority.ordinal()).remove(pending);
+                    pendingUpdates.remove(message.coalesceKey);
+                    pendingCount--;
+                    coalescedCount.incrementAndGet();
+                } else {
+                    //Keep the UPDATE's place in line, with the latest contents
+                    pending.fragment = message.fragment;
+                    pending.datagram = message.datagram;
+                    coalescedCount.incrementAndGet();
+                    return;
+                }
+            }
+        }
+        if (pendingCount >= DEFAULT_CAPACITY && !evictForPriority(message.priority)) {
+            droppedCount.incrementAndGet();
+            logger.log(Level.WARNING, "Outbound queue full; dropped a {0} geomessage", message.type);
+            return;
+        }
+        queues.get(message.priority.ordinal()).addLast(message);
+        pendingCount++;
+        if (null != message.coalesceKey && !message.remove) {
+            pendingUpdates.put(message.coalesceKey, message);
+        }
+    }
+
+    /**
+     * Drops the oldest waiting geomessage whose priority is the lowest waiting and
+     * is no higher than the given priority. Must be called while holding the lock.
+     * @return true if a geomessage was dropped.
+     */
+    private boolean evictForPriority(Priority priority) {
+        for (int i = queues.size() - 1; i >= priority.ordinal(); i--) {
+            Outbound evicted = queues.get(i).pollFirst();
+            if (null != evicted) {
+                pendingCount--;
+                if (null != evicted.coalesceKey && pendingUpdates.get(evicted.coalesceKey) == evicted) {
+                    pendingUpdates.remove(evicted.coalesceKey);
+                }
+                droppedCount.incrementAndGet();
+                logger.log(Level.WARNING, "Outbound queue full; dropped a waiting {0} geomessage", evicted.type);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits a datagram into its geomessage elements. Priorities are set later, in
+     * queue, while holding the lock.
+     */
+    private List<Outbound> split(byte[] bytes, long now) {
+        ArrayList<Outbound> messages = new ArrayList<Outbound>(1);
+        String text = new String(bytes, getCharset(bytes));
+        int start = 0;
+        while (0 <= (start = indexOfElement(text, "geomessage", start))) {
+            String endTag = "</geomessage>";
+            int end = text.indexOf(endTag, start);
+            if (0 > end) {
+                break;
+            }
+            end += endTag.length();
+            String element = text.substring(start, end);
+            String type = getElementText(element, Geomessage.TYPE_FIELD_NAME);
+            String id = getElementText(element, Geomessage.ID_FIELD_NAME);
+            String action = getElementText(element, Geomessage.ACTION_FIELD_NAME);
+            boolean remove = "remove".equalsIgnoreCase(action);
+            boolean update = null == action || "update".equalsIgnoreCase(action);
+            String coalesceKey = null;
+            if (update && coalesceByTypeOnly.contains(type)) {
+                coalesceKey = type;
+            } else if ((update || remove) && null != type && null != id) {
+                coalesceKey = type + '\u0000' + id;
+            }
+            messages.add(new Outbound(type, remove, coalesceKey, now, element.getBytes(UTF_8), null));
+            start = end;
+        }
+        if (1 == messages.size()) {
+            //Send a lone geomessage exactly as its sender wrote it, unless it is packed with others
+            Outbound message = messages.get(0);
+            messages.set(0, new Outbound(message.type, message.remove,
+                    message.coalesceKey, now, message.fragment, bytes));
+        } else if (messages.isEmpty()) {
+            messages.add(new Outbound(null, false, null, now, null, bytes));
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the charset named in the XML declaration, if it is UTF-8, or else the
+     * platform charset, which is what String.getBytes() uses.
+     */
+    private static Charset getCharset(byte[] bytes) {
+        int declarationLength = 0;
+        while (declarationLength < bytes.length && declarationLength < 100 && '>' != bytes[declarationLength]) {
+            declarationLength++;
+        }
+        String declaration = new String(bytes, 0, declarationLength, UTF_8).toUpperCase();
+        return declaration.startsWith("<?XML") && (declaration.contains("\"UTF-8\"") || declaration.contains("'UTF-8'"))
+                ? UTF_8 : Charset.defaultCharset();
+    }
+
+    private static int indexOfElement(String text, String name, int fromIndex) {
+        String startTag = "<" + name;
+        int index = fromIndex;
+        while (0 <= (index = text.indexOf(startTag, index))) {
+            int after = index + startTag.length();
+            if (after < text.length()) {
+                char c = text.charAt(after);
+                if ('>' == c || '/' == c || Character.isWhitespace(c)) {
+                    return index;
+                }
+            }
+            index = after;
+        }
+        return -1;
+    }
+
+    private static String getElementText(String element, String name) {
+        int start = indexOfElement(element, name, 0);
+        if (0 > start) {
+            return null;
+        }
+        start = element.indexOf('>', start);
+        if (0 > start || '/' == element.charAt(start - 1)) {
+            return null;
+        }
+        int end = element.indexOf("</" + name, start);
+        return 0 > end ? null : element.substring(start + 1, end).trim();
+    }
+
+    /**
+     * Returns the number of geomessages waiting to be sent.
+     * @return the number of geomessages waiting to be sent.
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    /**
+     * Returns the number of geomessages passed to sendMessage.
+     * @return the number of geomessages passed to sendMessage.
+     */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * Returns the number of waiting UPDATE geomessages that were replaced by a later
+     * UPDATE or dropped because of a REMOVE.
+     * @return the number of coalesced geomessages.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of geomessages dropped because the queue was full.
+     * @return the number of dropped geomessages.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of geomessages sent.
+     * @return the number of geomessages sent.
+     */
+    public long getSentMessageCount() {
+        return sentMessageCount.get();
+    }
+
+    /**
+     * Returns the number of datagrams sent.
+     * @return the number of datagrams sent.
+     */
+    public long getSentDatagramCount() {
+        return sentDatagramCount.get();
+    }
+
+}
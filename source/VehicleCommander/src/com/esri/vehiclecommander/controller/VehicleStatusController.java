@@ -15,136 +15,183 @@
  ******************************************************************************/
 package com.esri.vehiclecommander.controller;
 
-import com.esri.core.geometry.Point;
 import com.esri.core.symbol.advanced.MessageHelper;
-import com.esri.militaryapps.controller.LocationListener;
 import com.esri.militaryapps.controller.MessageController;
-import com.esri.militaryapps.model.Location;
-import com.esri.militaryapps.model.LocationProvider;
+import com.esri.vehiclecommander.model.LocationSnapshot;
+import com.esri.vehiclecommander.util.GeomessageEncoder;
+import com.esri.vehiclecommander.util.GeomessageTemplate;
 import com.esri.vehiclecommander.util.Utilities;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.util.Date;
-import java.util.UUID;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.swing.Timer;
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 
 /**
  * A controller that manages vehicle status, including sending vehicle status reports.
  */
-public class VehicleStatusController implements LocationListener {
+public class VehicleStatusController {
+
+    /**
+     * The message type of vehicle status reports.
+     */
+    public static final String REPORT_TYPE = "sysmsg";
+
+    /**
+     * The time between reports, in milliseconds, if the configured interval is not
+     * positive.
+     */
+    private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The vehicle status report for geomessage version 1.0, which names its system
+     * message element sys_msg.
+     */
+    private static final GeomessageTemplate STATUS_REPORT_1_0 = createStatusReportTemplate("sys_msg");
+
+    /**
+     * The vehicle status report for later geomessage versions, which name their
+     * system message element system_msgs.
+     */
+    private static final GeomessageTemplate STATUS_REPORT = createStatusReportTemplate("system_msgs");
     
     private final AppConfigController appConfig;
-    private final Timer timer;
+    private final ScheduledExecutorService executor;
+
+    private final LocationBus locationBus;
 
     private MessageController messageController;
-    private final Point currentPoint = new Point();
     
     /**
      * Instantiates the controller and starts sending vehicle status updates, assuming
-     * the app config's GPSController is providing location information.
+     * the location bus is receiving location information.
      * @param appConfig the application configuration.
      * @param messageController the MessageController.
+     * @param locationBus the bus from which the latest location is read for each report.
      */
-    public VehicleStatusController(AppConfigController appConfig, MessageController messageController) {
+    public VehicleStatusController(AppConfigController appConfig, MessageController messageController, LocationBus locationBus) {
         this.appConfig = appConfig;
         this.messageController = messageController;
-        appConfig.getLocationController().addListener(this);
-        timer = new Timer(appConfig.getVehicleStatusMessageInterval(), new ActionListener() {
+        this.locationBus = locationBus;
+        //Reports are sent off the event dispatch thread, and the interval is read
+        //again before each report in case it has changed
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
 
-            public void actionPerformed(ActionEvent e) {
-                timer.setDelay(VehicleStatusController.this.appConfig.getVehicleStatusMessageInterval());
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Vehicle status");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
                 try {
                     sendVehicleStatusReport();
-                } catch (XMLStreamException ex) {
-                    Logger.getLogger(VehicleStatusController.class.getName()).log(Level.SEVERE, null, ex);
                 } catch (IOException ex) {
                     Logger.getLogger(VehicleStatusController.class.getName()).log(Level.SEVERE, null, ex);
+                } catch (RuntimeException re) {
+                    Logger.getLogger(VehicleStatusController.class.getName()).log(Level.SEVERE, null, re);
+                }
+                if (!executor.isShutdown()) {
+                    executor.schedule(this, getIntervalMillis(), TimeUnit.MILLISECONDS);
                 }
             }
-        });
-        timer.start();
+        }, getIntervalMillis(), TimeUnit.MILLISECONDS);
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        timer.stop();
+    private long getIntervalMillis() {
+        int interval = appConfig.getVehicleStatusMessageInterval();
+        return 0 < interval ? interval : DEFAULT_INTERVAL_MILLIS;
     }
-    
-    private void sendVehicleStatusReport() throws XMLStreamException, IOException {
-        boolean sendMessage = false;
-        double x = 0;
-        double y = 0;
-        synchronized (currentPoint) {
-            if (null != currentPoint && !currentPoint.isEmpty()) {
-                sendMessage = true;
-                x = currentPoint.getX();
-                y = currentPoint.getY();
-            }
-        }
-        if (sendMessage) {
-            StringWriter xmlStringWriter = new StringWriter();
-            XMLStreamWriter xmlStreamWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(xmlStringWriter);
-            xmlStreamWriter.writeStartDocument();
-            xmlStreamWriter.writeStartElement("geomessages");
-            xmlStreamWriter.writeStartElement("geomessage");
-            xmlStreamWriter.writeAttribute("v", Utilities.GEOMESSAGE_VERSION);
 
-            Utilities.writeTextElement(xmlStreamWriter,
-                    MessageHelper.MESSAGE_2525C_TYPE_PROPERTY_NAME, "sysmsg");
-            Utilities.writeTextElement(xmlStreamWriter,
-                    MessageHelper.MESSAGE_ACTION_PROPERTY_NAME, "UPDATE");
-            Utilities.writeTextElement(xmlStreamWriter,
-                    MessageHelper.MESSAGE_ID_PROPERTY_NAME, UUID.randomUUID().toString());
-            Utilities.writeTextElement(xmlStreamWriter,
-                    MessageHelper.MESSAGE_WKID_PROPERTY_NAME, Integer.toString(Utilities.WGS84.getID()));
-            Utilities.writeTextElement(xmlStreamWriter,
-                    MessageHelper.MESSAGE_2525C_CONTROL_POINTS_PROPERTY_NAME,
-                    x + "," + y);
-            Utilities.writeTextElement(xmlStreamWriter, "uniquedesignation", appConfig.getUsername());
-            Utilities.writeTextElement(xmlStreamWriter, "type", appConfig.getVehicleType());
-            String dateString = Utilities.DATE_FORMAT_GEOMESSAGE.format(new Date());
-            Utilities.writeTextElement(xmlStreamWriter, "datetimevalid", dateString);
-            Utilities.writeTextElement(xmlStreamWriter, "fuel_state", "100");
-            Utilities.writeTextElement(xmlStreamWriter, 
-                    "1.0".equals(appConfig.getGeomessageVersion()) ? "sys_msg" : "system_msgs",
-                    "Operational");
-            for (int i = 1; i <= 4; i++) {
-                /**
-                 * Status coded values:
-                 * 1 = Operational
-                 * 2 = Advisory
-                 * 3 = Critical
-                 * 4 = Inoperable
-                 */
-                Utilities.writeTextElement(xmlStreamWriter, "sys_status_" + i, "1");
-            }
+    /**
+     * Stops sending vehicle status reports. A stopped controller cannot be
+     * started again.
+     */
+    public void stop() {
+        executor.shutdownNow();
+    }
 
-            xmlStreamWriter.writeEndElement(); // geomessage
-            xmlStreamWriter.writeEndElement(); // geomessages
-            xmlStreamWriter.writeEndDocument();
-            xmlStreamWriter.flush();
-            String messageText = xmlStringWriter.toString();
-            messageController.sendMessage(messageText.getBytes());
+    private static GeomessageTemplate createStatusReportTemplate(String systemMessageElementName) {
+        GeomessageTemplate.Builder builder = new GeomessageTemplate.Builder()
+                .constant(MessageHelper.MESSAGE_2525C_TYPE_PROPERTY_NAME, REPORT_TYPE)
+                .constant(MessageHelper.MESSAGE_ACTION_PROPERTY_NAME, "UPDATE")
+                .variable(MessageHelper.MESSAGE_ID_PROPERTY_NAME)
+                .constant(MessageHelper.MESSAGE_WKID_PROPERTY_NAME, Integer.toString(Utilities.WGS84.getID()))
+                .variable(MessageHelper.MESSAGE_2525C_CONTROL_POINTS_PROPERTY_NAME)
+                .variable("uniquedesignation")
+                .variable("type")
+                .variable("datetimevalid")
+                .constant("fuel_state", "100")
+                .constant(systemMessageElementName, "Operational");
+        for (int i = 1; i <= 4; i++) {
+            /**
+             * Status coded values:
+             * 1 = Operational
+             * 2 = Advisory
+             * 3 = Critical
+             * 4 = Inoperable
+             */
+            builder.constant("sys_status_" + i, "1");
         }
+        return builder.build();
     }
-
-    public void onLocationChanged(Location location) {
+    
+    private void sendVehicleStatusReport() throws IOException {
+        LocationSnapshot location = locationBus.getLatest();
         if (null != location) {
-            synchronized (currentPoint) {
-                currentPoint.setXY(location.getLongitude(), location.getLatitude());
-            }
+            ByteBuffer report = encodeVehicleStatusReport(location.getLongitude(), location.getLatitude(),
+                    appConfig.getUsername(), appConfig.getVehicleType(), appConfig.getGeomessageVersion());
+            //MessageController takes an array, so this copy is the one allocation per report
+            byte[] messageBytes = new byte[report.remaining()];
+            report.get(messageBytes);
+            messageController.sendMessage(messageBytes);
         }
     }
 
-    public void onStateChanged(LocationProvider.LocationProviderState state) {
-        
+    /**
+     * Encodes a vehicle status report as UTF-8 XML with the calling thread's
+     * GeomessageEncoder. The returned buffer belongs to that encoder and is
+     * overwritten by the next message the thread encodes.
+     * @param x the vehicle's longitude.
+     * @param y the vehicle's latitude.
+     * @param username the vehicle's unique designation.
+     * @param vehicleType the vehicle type.
+     * @param geomessageVersion the Geomessage version in use.
+     * @return the encoded vehicle status report.
+     */
+    public static ByteBuffer encodeVehicleStatusReport(double x, double y, String username,
+            String vehicleType, String geomessageVersion) {
+        return GeomessageEncoder.forCurrentThread()
+                .begin("1.0".equals(geomessageVersion) ? STATUS_REPORT_1_0 : STATUS_REPORT)
+                .randomId()
+                .point(x, y)
+                .value(username)
+                .value(vehicleType)
+                .timestamp(System.currentTimeMillis())
+                .finish();
     }
     
+    /**
+     * Creates the XML for a vehicle status report.
+     * @param x the vehicle's longitude.
+     * @param y the vehicle's latitude.
+     * @param username the vehicle's unique designation.
+     * @param vehicleType the vehicle type.
+     * @param geomessageVersion the Geomessage version in use.
+     * @return the XML for a vehicle status report.
+     */
+    public static String createVehicleStatusReport(double x, double y, String username,
+            String vehicleType, String geomessageVersion) {
+        ByteBuffer report = encodeVehicleStatusReport(x, y, username, vehicleType, geomessageVersion);
+        return new String(report.array(), report.arrayOffset(), report.limit(), Charset.forName("UTF-8"));
+    }
+
 }
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+import com.esri.militaryapps.model.Geomessage;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the geomessages in a geomessages XML document, such as a datagram that
+ * MessageController did not parse itself. Each child element of a geomessage
+ * becomes a property.
+ */
+public class GeomessageXmlReader {
+
+    private static final XMLInputFactory INPUT_FACTORY;
+    static {
+        INPUT_FACTORY = XMLInputFactory.newInstance();
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private GeomessageXmlReader() {
+    }
+
+    /**
+     * Reads the geomessages in a geomessages XML document.
+     * @param xml the XML document.
+     * @return the geomessages, in document order.
+     * @throws XMLStreamException if the XML is malformed.
+     */
+    public static List<Geomessage> read(String xml) throws XMLStreamException {
+        List<Map<String, String>> properties = readProperties(xml);
+        ArrayList<Geomessage> geomessages = new ArrayList<Geomessage>(properties.size());
+        for (Map<String, String> geomessageProperties : properties) {
+            geomessages.add(createGeomessage(geomessageProperties));
+        }
+        return geomessages;
+    }
+
+    /**
+     * Reads the properties of the geomessages in a geomessages XML document.
+     * @param xml the XML document.
+     * @return a map of property names to values for each geomessage, in document
+     *         order.
+     * @throws XMLStreamException if the XML is malformed.
+     */
+    public static List<Map<String, String>> readProperties(String xml) throws XMLStreamException {
+        ArrayList<Map<String, String>> geomessages = new ArrayList<Map<String, String>>();
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(xml));
+        try {
+            StringBuilder text = new StringBuilder();
+            Map<String, String> geomessage = null;
+            String propertyName = null;
+            int depth = 0;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        if (2 == depth) {
+                            //<geomessage>
+                            geomessage = new LinkedHashMap<String, String>();
+                        } else if (3 == depth && null != geomessage) {
+                            propertyName = reader.getLocalName();
+                            text.setLength(0);
+                        }
+                        break;
+
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (null != propertyName) {
+                            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (3 == depth && null != propertyName) {
+                            geomessage.put(propertyName, text.toString());
+                            propertyName = null;
+                        } else if (2 == depth && null != geomessage) {
+                            geomessages.add(geomessage);
+                            geomessage = null;
+                        }
+                        depth--;
+                        break;
+
+                    default:
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return geomessages;
+    }
+
+    /**
+     * Creates a Geomessage from its properties. The _id property, if any, becomes
+     * the ID.
+     * @param properties the properties.
+     * @return a new Geomessage.
+     */
+    public static Geomessage createGeomessage(Map<String, String> properties) {
+        Geomessage geomessage = new Geomessage();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (Geomessage.ID_FIELD_NAME.equals(property.getKey())) {
+                geomessage.setId(property.getValue());
+            }
+            geomessage.setProperty(property.getKey(), property.getValue());
+        }
+        return geomessage;
+    }
+
+}
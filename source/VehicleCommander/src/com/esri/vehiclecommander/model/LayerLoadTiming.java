@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+/**
+ * How long one layer from a map configuration took to load.
+ */
+public class LayerLoadTiming {
+
+    private final String layerName;
+    private final String layerType;
+    private final long loadMillis;
+    private final boolean loaded;
+
+    /**
+     * Creates a LayerLoadTiming.
+     * @param layerName the layer name from the map configuration.
+     * @param layerType the layer type from the map configuration.
+     * @param loadMillis the time taken to create the layer, in milliseconds.
+     * @param loaded true if the layer was created, or false if it failed.
+     */
+    public LayerLoadTiming(String layerName, String layerType, long loadMillis, boolean loaded) {
+        this.layerName = layerName;
+        this.layerType = layerType;
+        this.loadMillis = loadMillis;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Returns the layer name from the map configuration.
+     * @return the layer name from the map configuration.
+     */
+    public String getLayerName() {
+        return layerName;
+    }
+
+    /**
+     * Returns the layer type from the map configuration.
+     * @return the layer type from the map configuration.
+     */
+    public String getLayerType() {
+        return layerType;
+    }
+
+    /**
+     * Returns the time taken to create the layer, in milliseconds.
+     * @return the time taken to create the layer, in milliseconds.
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * Returns true if the layer was created, or false if it failed.
+     * @return true if the layer was created, or false if it failed.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public String toString() {
+        return layerName + " (" + layerType + "): " + loadMillis + " ms" + (loaded ? "" : ", failed");
+    }
+
+}
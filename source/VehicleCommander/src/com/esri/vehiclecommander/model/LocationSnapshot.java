@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+import com.esri.militaryapps.model.Location;
+
+/**
+ * An immutable view of one location fix, projected and formatted once so that
+ * every subscriber of the LocationBus can share it. The map coordinates and the
+ * MGRS string are absent if they could not be computed, for example before the
+ * map has a spatial reference.
+ */
+public final class LocationSnapshot {
+
+    private final long sequence;
+    private final Location location;
+    private final double longitude;
+    private final double latitude;
+    private final double heading;
+    private final double mapX;
+    private final double mapY;
+    private final SpatialReference mapSpatialReference;
+    private final String mgrs;
+
+    /**
+     * Creates a snapshot.
+     * @param sequence the number of this fix, counting from 1.
+     * @param location the location fix.
+     * @param mapX the fix's X coordinate in the map's spatial reference.
+     * @param mapY the fix's Y coordinate in the map's spatial reference.
+     * @param mapSpatialReference the map's spatial reference, or null if the fix
+     *                            has no map coordinates.
+     * @param mgrs the fix as an MGRS string, or null if it could not be computed.
+     */
+    public LocationSnapshot(long sequence, Location location, double mapX, double mapY,
+            SpatialReference mapSpatialReference, String mgrs) {
+        this.sequence = sequence;
+        this.location = location;
+        this.longitude = location.getLongitude();
+        this.latitude = location.getLatitude();
+        this.heading = location.getHeading();
+        this.mapX = mapX;
+        this.mapY = mapY;
+        this.mapSpatialReference = mapSpatialReference;
+        this.mgrs = mgrs;
+    }
+
+    /**
+     * Returns the number of this fix. A greater number means a later fix.
+     * @return the number of this fix.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the location fix from which this snapshot was made.
+     * @return the location fix.
+     */
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the fix's longitude, in WGS 1984 degrees.
+     * @return the longitude.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Returns the fix's latitude, in WGS 1984 degrees.
+     * @return the latitude.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Returns the fix's heading, in degrees.
+     * @return the heading.
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * Indicates whether this snapshot has map coordinates.
+     * @return true if this snapshot has map coordinates.
+     */
+    public boolean hasMapPoint() {
+        return null != mapSpatialReference;
+    }
+
+    /**
+     * Returns the fix's X coordinate in the map's spatial reference.
+     * @return the map X coordinate, or NaN if this snapshot has no map coordinates.
+     */
+    public double getMapX() {
+        return mapX;
+    }
+
+    /**
+     * Returns the fix's Y coordinate in the map's spatial reference.
+     * @return the map Y coordinate, or NaN if this snapshot has no map coordinates.
+     */
+    public double getMapY() {
+        return mapY;
+    }
+
+    /**
+     * Returns the spatial reference of the map coordinates.
+     * @return the map's spatial reference, or null if this snapshot has no map
+     *         coordinates.
+     */
+    public SpatialReference getMapSpatialReference() {
+        return mapSpatialReference;
+    }
+
+    /**
+     * Returns a new Point at the fix's map coordinates. The caller may modify it.
+     * @return the fix in map coordinates, or null if this snapshot has no map
+     *         coordinates.
+     */
+    public Point getMapPoint() {
+        return hasMapPoint() ? new Point(mapX, mapY) : null;
+    }
+
+    /**
+     * Returns a new Point at the fix's longitude and latitude. The caller may
+     * modify it.
+     * @return the fix in WGS 1984.
+     */
+    public Point getLonLatPoint() {
+        return new Point(longitude, latitude);
+    }
+
+    /**
+     * Returns the fix as an MGRS string for display. It comes from
+     * CachedMgrsConverter's approximate instance, so the last digit may be off by one.
+     * @return the MGRS string, or null if it could not be computed.
+     */
+    public String getMgrs() {
+        return mgrs;
+    }
+
+}
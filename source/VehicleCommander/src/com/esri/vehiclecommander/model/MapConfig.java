@@ -26,6 +26,8 @@ public class MapConfig {
 
     private List<BasemapLayer> layers = new ArrayList<BasemapLayer>();
     private final List<Map<String, String>> toolbarItems;
+    private List<LayerLoadTiming> layerLoadTimings = new ArrayList<LayerLoadTiming>();
+    private long layerLoadMillis = 0;
     
     /**
      * Instantiates a MapConfig with an empty list of toolbar items.
@@ -67,4 +69,38 @@ public class MapConfig {
         return toolbarItems;
     }
 
+    /**
+     * Returns how long each layer took to load, in map configuration order.
+     * @return how long each layer took to load.
+     */
+    public List<LayerLoadTiming> getLayerLoadTimings() {
+        return layerLoadTimings;
+    }
+
+    /**
+     * Sets how long each layer took to load.
+     * @param layerLoadTimings how long each layer took to load.
+     */
+    public void setLayerLoadTimings(List<LayerLoadTiming> layerLoadTimings) {
+        this.layerLoadTimings = layerLoadTimings;
+    }
+
+    /**
+     * Returns the total time taken to load all the layers, in milliseconds. Since
+     * layers load concurrently, this is close to the slowest layer's time rather
+     * than the sum of all the layers' times.
+     * @return the total time taken to load all the layers, in milliseconds.
+     */
+    public long getLayerLoadMillis() {
+        return layerLoadMillis;
+    }
+
+    /**
+     * Sets the total time taken to load all the layers.
+     * @param layerLoadMillis the total time taken to load all the layers, in milliseconds.
+     */
+    public void setLayerLoadMillis(long layerLoadMillis) {
+        this.layerLoadMillis = layerLoadMillis;
+    }
+
 }
@@ -34,6 +34,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.xml.parsers.ParserConfigurationException;
@@ -48,15 +56,50 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 public class MapConfigReader {
     
-    private static class MapConfigHandler extends DefaultHandler {
+    /**
+     * The maximum number of layers created at the same time.
+     */
+    public static final int MAX_LAYER_LOADER_THREADS = 4;
+
+    /**
+     * A layer to be created, as read from the map configuration.
+     */
+    private static class LayerPlanEntry {
+
+        private final String type;
+        private final String name;
+        private final boolean visible;
+        private final boolean basemap;
+        private final String thumbnail;
+        private final String datasetPath;
+
+        LayerPlanEntry(String type, String name, boolean visible, boolean basemap, String thumbnail, String datasetPath) {
+            this.type = type;
+            this.name = name;
+            this.visible = visible;
+            this.basemap = basemap;
+            this.thumbnail = thumbnail;
+            this.datasetPath = datasetPath;
+        }
+
+    }
 
-        private final MapController mapController;
-        private final AppConfigController appConfig;
-        private boolean addedLayersToMap = false;
-        private final Object addedLayersToMapLock = new Object();
+    /**
+     * The layers loaded from the map configuration. Guarded by its own lock,
+     * because a local feature service replaces its dummy layer from another thread.
+     */
+    private static class LoadedLayers {
+
+        private final List<Layer> nonBasemapLayers = new ArrayList<Layer>();
+        private final BasemapLayerList basemapLayers = new BasemapLayerList();
+        private boolean addedToMap = false;
 
-        private List<Layer> nonBasemapLayers = new ArrayList<Layer>();
-        private BasemapLayerList basemapLayers = new BasemapLayerList();
+    }
+    
+    private static class MapConfigHandler extends DefaultHandler {
+
+        private final List<LayerPlanEntry> layerPlan = new ArrayList<LayerPlanEntry>();
+        private final StringBuilder datasetPath = new StringBuilder();
         private Double x = null;
         private Double y = null;
         private Double scale = null;
@@ -99,9 +142,7 @@ public class MapConfigReader {
         private boolean currentLayerBasemap = false;
         private String currentLayerThumbnail = null;
 
-        public MapConfigHandler(MapController mapController, AppConfigController appConfig) {
-            this.mapController = mapController;
-            this.appConfig = appConfig;
+        public MapConfigHandler() {
         }
 
         @Override
@@ -119,6 +160,7 @@ public class MapConfigReader {
                 currentLayerThumbnail = attributes.getValue("thumbnail");
             } else if (("datasetpath".equalsIgnoreCase(qName) || "url".equalsIgnoreCase(qName)) && readingLayer) {
                 readingDatasetpath = true;
+                datasetPath.setLength(0);
             } else if ("initialextent".equalsIgnoreCase(qName) && readingMapconfig) {
                 readingInitialextent = true;
             } else if ("anchor".equalsIgnoreCase(qName) && readingInitialextent) {
@@ -165,87 +207,8 @@ public class MapConfigReader {
         public void characters(char[] ch, int start, int length) throws SAXException {
             String string = new String(ch, start, length);            
             if (readingDatasetpath) {
-            	
-            	if (!(new File(string).exists())) 
-            	{
-            		if (!string.contains("http")) // Web Address
-            		{
-            			System.out.println("ERROR: Dataset File or path does not exist: " + string);
-                		currentLayerType = "INVALID_DATASET_PATH";
-            		}
-            	}
-            	
-                Layer layer = null;
-                if ("TiledCacheLayer".equals(currentLayerType)) {
-                    layer = new ArcGISLocalTiledLayer(string);
-                } else if ("TiledMapServiceLayer".equals(currentLayerType)) {
-                    layer = new ArcGISTiledMapServiceLayer(string);
-                } else if ("LocalDynamicMapLayer".equals(currentLayerType)) {
-                    /**
-                     * Open it as a feature layer so we can get attachments, but
-                     * add the map layer to the map.
-                     */
-                    final boolean isBasemapLayer = currentLayerBasemap;
-                    final String layerName = currentLayerName;
-                    
-                    //Dummy layer for TOC
-                    final GraphicsLayer dummyLayer = new GraphicsLayer();
-                    dummyLayer.setName("Loading...");
-                    layer = dummyLayer;
-                    
-                    //The feature service that will provide the real map layer and a feature layer
-                    final LocalFeatureService featureService = new LocalFeatureService(string);
-                    featureService.addLocalServiceStartCompleteListener(new LocalServiceStartCompleteListener() {
-                        
-                        private final boolean layerIsVisible = currentLayerVisible;
-
-                        public void localServiceStartComplete(LocalServiceStartCompleteEvent e) {
-                            ArcGISDynamicMapServiceLayer mapLayer = new ArcGISDynamicMapServiceLayer(featureService.getUrlMapService());
-                            mapLayer.setVisible(layerIsVisible);
-                            mapLayer.setName(layerName);
-                            for (LayerDetails featureLayerDetails : featureService.getFeatureLayers()) {
-                                ArcGISFeatureLayer featureLayer = new ArcGISFeatureLayer(featureLayerDetails.getUrl());
-                                featureLayer.initializeAsync();
-                                mapController.saveFeatureLayer(mapLayer, featureLayerDetails.getId(), featureLayer);
-                            }
-                            synchronized (addedLayersToMapLock) {
-                                List<Layer> layerList = isBasemapLayer ? basemapLayers.getLayers() : nonBasemapLayers;
-                                layerList.add(layerList.indexOf(dummyLayer), mapLayer);
-                                layerList.remove(dummyLayer);
-                                if (addedLayersToMap) {
-                                    int layerIndex = mapController.removeLayer(dummyLayer);
-                                    if (-1 < layerIndex) {
-                                        mapController.addLayer(layerIndex, mapLayer, !isBasemapLayer);
-                                    } else {
-                                        mapController.addLayer(mapLayer, !isBasemapLayer);
-                                    }
-                                }
-                            }
-                        }
-                        
-                    });
-                    featureService.startAsync();
-                    
-                } else if ("DynamicMapServiceLayer".equals(currentLayerType)) {
-                    layer = new ArcGISDynamicMapServiceLayer(string);
-                } else if ("Mil2525CMessageLayer".equals(currentLayerType)) {
-                    try {
-                        layer = new Mil2525CMessageLayer(string, currentLayerName, mapController, appConfig);
-                    } catch (IOException ex) {
-                        Logger.getLogger(MapConfigReader.class.getName()).log(Level.SEVERE, null, ex);
-                    } catch (ParserConfigurationException ex) {
-                        Logger.getLogger(MapConfigReader.class.getName()).log(Level.SEVERE, null, ex);
-                    }
-                }
-                if (null != layer && null != currentLayerName) {
-                    layer.setName(currentLayerName);
-                    layer.setVisible(currentLayerVisible);
-                    if (currentLayerBasemap) {
-                        basemapLayers.add(new BasemapLayer(layer, currentLayerThumbnail));
-                    } else {
-                        nonBasemapLayers.add(layer);
-                    }
-                }
+                //The parser may deliver a long path in more than one call
+                datasetPath.append(ch, start, length);
             } else if (readingX) {
                 try {
                     x = Double.parseDouble(string);
@@ -303,6 +266,18 @@ public class MapConfigReader {
                 readingLayer = false;
             } else if (("datasetpath".equalsIgnoreCase(qName) || "url".equalsIgnoreCase(qName)) && readingLayer) {
                 readingDatasetpath = false;
+                String path = datasetPath.toString();
+                String layerType = currentLayerType;
+                if (!(new File(path).exists())) 
+                {
+                    if (!path.contains("http")) // Web Address
+                    {
+                        System.out.println("ERROR: Dataset File or path does not exist: " + path);
+                        layerType = "INVALID_DATASET_PATH";
+                    }
+                }
+                layerPlan.add(new LayerPlanEntry(layerType, currentLayerName, currentLayerVisible,
+                        currentLayerBasemap, currentLayerThumbnail, path));
             } else if ("initialextent".equalsIgnoreCase(qName) && readingMapconfig) {
                 readingInitialextent = false;
             } else if ("anchor".equalsIgnoreCase(qName) && readingInitialextent) {
@@ -355,22 +330,12 @@ public class MapConfigReader {
             MapController mapController,
             AppConfigController appConfig,
             ViewshedController viewshedController) throws IOException, ParserConfigurationException, SAXException {
-        MapConfigHandler handler = new MapConfigHandler(mapController, appConfig);
+        MapConfigHandler handler = new MapConfigHandler();
         SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
         parser.parse(mapConfigFile, handler);
 
         MapConfig mapConfig = new MapConfig(handler.toolbarItems);
-
-        synchronized (handler.addedLayersToMapLock) {
-            //Add layers to map
-            mapController.addLayers(handler.basemapLayers.getLayers(), false);
-            mapController.addLayers(handler.nonBasemapLayers, true);
-
-            //Record the layers in the MapConfig object
-            mapConfig.setBasemapLayers(handler.basemapLayers);
-            
-            handler.addedLayersToMap = true;
-        }
+        loadLayers(handler.layerPlan, mapController, appConfig, mapConfig);
 
         if (null != handler.x && null != handler.y && null != handler.scale) {
             mapController.zoomToScale(handler.scale, handler.x, handler.y);
@@ -395,5 +360,193 @@ public class MapConfigReader {
 
         return mapConfig;
     }
+
+    /**
+     * Creates the planned layers concurrently, then adds them to the map in the
+     * order in which they appear in the map configuration. The loader threads only
+     * construct layers; anything that registers a layer with a controller happens
+     * on the calling thread. A local dynamic map layer starts its feature service
+     * asynchronously and holds its place with a dummy layer until the service is
+     * ready.
+     */
+    private static void loadLayers(
+            List<LayerPlanEntry> layerPlan,
+            final MapController mapController,
+            final AppConfigController appConfig,
+            MapConfig mapConfig) {
+        final Logger logger = Logger.getLogger(MapConfigReader.class.getName());
+        long start = System.nanoTime();
+        final LoadedLayers loadedLayers = new LoadedLayers();
+        List<Future<Layer>> futures = new ArrayList<Future<Layer>>(layerPlan.size());
+        final long[] loadNanos = new long[layerPlan.size()];
+        if (!layerPlan.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(layerPlan.size(), MAX_LAYER_LOADER_THREADS),
+                    new ThreadFactory() {
+
+                        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "Layer loader " + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            try {
+                for (int i = 0; i < layerPlan.size(); i++) {
+                    final LayerPlanEntry entry = layerPlan.get(i);
+                    final int index = i;
+                    if ("LocalDynamicMapLayer".equals(entry.type)) {
+                        futures.add(null);
+                        continue;
+                    }
+                    futures.add(executor.submit(new Callable<Layer>() {
+
+                        @Override
+                        public Layer call() throws Exception {
+                            long layerStart = System.nanoTime();
+                            try {
+                                return createLayer(entry, mapController, appConfig);
+                            } finally {
+                                loadNanos[index] = System.nanoTime() - layerStart;
+                            }
+                        }
+                    }));
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        //Hold the lock until the layers are on the map, so that a local feature
+        //service that starts early waits to replace its dummy layer.
+        synchronized (loadedLayers) {
+            List<LayerLoadTiming> timings = new ArrayList<LayerLoadTiming>(layerPlan.size());
+            for (int i = 0; i < layerPlan.size(); i++) {
+                LayerPlanEntry entry = layerPlan.get(i);
+                Layer layer = null;
+                if (null == futures.get(i)) {
+                    long layerStart = System.nanoTime();
+                    layer = startLocalDynamicMapLayer(entry, mapController, loadedLayers);
+                    loadNanos[i] = System.nanoTime() - layerStart;
+                } else {
+                    try {
+                        layer = futures.get(i).get();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        logger.log(Level.WARNING, "Interrupted while loading layer " + entry.name, ex);
+                    } catch (ExecutionException ex) {
+                        logger.log(Level.SEVERE, "Could not load layer " + entry.name, ex.getCause());
+                    }
+                }
+                //Reading loadNanos after get() is safe because the task has completed
+                LayerLoadTiming timing = new LayerLoadTiming(entry.name, entry.type,
+                        TimeUnit.NANOSECONDS.toMillis(loadNanos[i]), null != layer);
+                timings.add(timing);
+                logger.log(Level.INFO, "Loaded layer {0}", timing);
+                if (null != layer && null != entry.name) {
+                    layer.setName(entry.name);
+                    layer.setVisible(entry.visible);
+                    if (layer instanceof Mil2525CMessageLayer) {
+                        ((Mil2525CMessageLayer) layer).addListeners();
+                    }
+                    if (entry.basemap) {
+                        loadedLayers.basemapLayers.add(new BasemapLayer(layer, entry.thumbnail));
+                    } else {
+                        loadedLayers.nonBasemapLayers.add(layer);
+                    }
+                }
+            }
+
+            //Add layers to map
+            mapController.addLayers(loadedLayers.basemapLayers.getLayers(), false);
+            mapController.addLayers(loadedLayers.nonBasemapLayers, true);
+            loadedLayers.addedToMap = true;
+
+            //Record the layers in the MapConfig object
+            mapConfig.setBasemapLayers(loadedLayers.basemapLayers);
+            mapConfig.setLayerLoadTimings(timings);
+        }
+        mapConfig.setLayerLoadMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.log(Level.INFO, "Loaded {0} layers in {1} ms", new Object[] { layerPlan.size(), mapConfig.getLayerLoadMillis() });
+    }
+
+    /**
+     * Creates one layer. Runs on a layer loader thread, so it only constructs the
+     * layer and does not register it with any controller.
+     * @return the layer, or null if the layer type is not recognized.
+     */
+    private static Layer createLayer(LayerPlanEntry entry, MapController mapController, AppConfigController appConfig)
+            throws IOException, ParserConfigurationException, SAXException {
+        if ("TiledCacheLayer".equals(entry.type)) {
+            return new ArcGISLocalTiledLayer(entry.datasetPath);
+        } else if ("TiledMapServiceLayer".equals(entry.type)) {
+            return new ArcGISTiledMapServiceLayer(entry.datasetPath);
+        } else if ("DynamicMapServiceLayer".equals(entry.type)) {
+            return new ArcGISDynamicMapServiceLayer(entry.datasetPath);
+        } else if ("Mil2525CMessageLayer".equals(entry.type)) {
+            return new Mil2525CMessageLayer(entry.datasetPath, entry.name, mapController, appConfig);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Starts a local feature service without waiting for it and returns a dummy
+     * layer for the TOC. When the service is ready, its map layer replaces the
+     * dummy layer.
+     */
+    private static Layer startLocalDynamicMapLayer(
+            LayerPlanEntry entry,
+            final MapController mapController,
+            final LoadedLayers loadedLayers) {
+        /**
+         * Open it as a feature layer so we can get attachments, but
+         * add the map layer to the map.
+         */
+        final boolean isBasemapLayer = entry.basemap;
+        final boolean layerIsVisible = entry.visible;
+        final String layerName = entry.name;
+
+        //Dummy layer for TOC
+        final GraphicsLayer dummyLayer = new GraphicsLayer();
+        dummyLayer.setName("Loading...");
+
+        //The feature service that will provide the real map layer and a feature layer
+        final LocalFeatureService featureService = new LocalFeatureService(entry.datasetPath);
+        featureService.addLocalServiceStartCompleteListener(new LocalServiceStartCompleteListener() {
+
+            public void localServiceStartComplete(LocalServiceStartCompleteEvent e) {
+                ArcGISDynamicMapServiceLayer mapLayer = new ArcGISDynamicMapServiceLayer(featureService.getUrlMapService());
+                mapLayer.setVisible(layerIsVisible);
+                mapLayer.setName(layerName);
+                for (LayerDetails featureLayerDetails : featureService.getFeatureLayers()) {
+                    ArcGISFeatureLayer featureLayer = new ArcGISFeatureLayer(featureLayerDetails.getUrl());
+                    featureLayer.initializeAsync();
+                    mapController.saveFeatureLayer(mapLayer, featureLayerDetails.getId(), featureLayer);
+                }
+                synchronized (loadedLayers) {
+                    List<Layer> layerList = isBasemapLayer ? loadedLayers.basemapLayers.getLayers() : loadedLayers.nonBasemapLayers;
+                    int listIndex = layerList.indexOf(dummyLayer);
+                    if (-1 < listIndex) {
+                        layerList.add(listIndex, mapLayer);
+                        layerList.remove(dummyLayer);
+                    }
+                    if (loadedLayers.addedToMap) {
+                        int layerIndex = mapController.removeLayer(dummyLayer);
+                        if (-1 < layerIndex) {
+                            mapController.addLayer(layerIndex, mapLayer, !isBasemapLayer);
+                        } else {
+                            mapController.addLayer(mapLayer, !isBasemapLayer);
+                        }
+                    }
+                }
+            }
+
+        });
+        featureService.startAsync();
+        return dummyLayer;
+    }
     
 }
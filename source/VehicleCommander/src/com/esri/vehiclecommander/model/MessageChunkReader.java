@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+import com.esri.core.symbol.advanced.Message;
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * A source of MIL-STD-2525C messages that is read a chunk at a time.
+ */
+public interface MessageChunkReader extends Closeable {
+
+    /**
+     * Reads up to maxCount messages and adds them to a list.
+     * @param messages the list to which messages are added.
+     * @param maxCount the maximum number of messages to read.
+     * @return the number of messages read. Zero means that there are no more messages.
+     * @throws Exception if the messages cannot be read.
+     */
+    public int read(List<Message> messages, int maxCount) throws Exception;
+
+    /**
+     * Returns the number of messages read so far.
+     * @return the number of messages read so far.
+     */
+    public long getMessageCount();
+
+    /**
+     * Returns an estimate of how much of the source has been read, from 0 to 1.
+     * @return the fraction of the source that has been read.
+     */
+    public double getProgress();
+
+    /**
+     * Closes the source.
+     */
+    @Override
+    public void close();
+
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+/**
+ * A listener for the progress of a Mil2525CMessageLayer as it loads messages
+ * from its XML file.
+ */
+public interface MessageLayerLoadListener {
+
+    /**
+     * Called after each chunk of messages has been added to the layer.
+     * @param layer the layer.
+     * @param messagesLoaded the number of messages read from the file so far.
+     * @param fractionComplete an estimate of how much of the file has been read,
+     *                         from 0 to 1.
+     */
+    public void loadProgress(Mil2525CMessageLayer layer, long messagesLoaded, double fractionComplete);
+
+    /**
+     * Called when the layer has finished loading messages, whether or not it
+     * read the whole file.
+     * @param layer the layer.
+     * @param messagesLoaded the number of messages read from the file.
+     * @param badMessages the number of messages that could not be displayed.
+     */
+    public void loadComplete(Mil2525CMessageLayer layer, long messagesLoaded, long badMessages);
+
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONObject;
+
+/**
+ * An in-memory index of the message type definitions (messagetypes/*.json) in a
+ * MIL-STD-2525C symbol dictionary, keyed by message type. The index is built once
+ * and then rebuilt only when the directory changes, so that looking up a message
+ * type's layer name does not require reading and parsing the JSON files.
+ */
+public class MessageTypeRegistry {
+
+    private static final Logger logger = Logger.getLogger(MessageTypeRegistry.class.getName());
+
+    private final File messageTypesDir;
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private final Object watchLock = new Object();
+
+    private volatile Map<String, String> typeToLayerName = Collections.emptyMap();
+    private WatchService watchService = null;
+    private Thread watchThread = null;
+
+    /**
+     * Creates a new MessageTypeRegistry and reads the message type definitions in
+     * the specified directory.
+     * @param messageTypesDir the messagetypes directory of a symbol dictionary.
+     */
+    public MessageTypeRegistry(File messageTypesDir) {
+        this.messageTypesDir = messageTypesDir;
+        reload();
+    }
+
+    /**
+     * Rereads all the message type definitions in the directory and replaces the
+     * index. Lookups made while this method runs use the previous index.
+     */
+    public final void reload() {
+        HashMap<String, String> newIndex = new HashMap<String, String>();
+        File[] files = messageTypesDir.listFiles(new FilenameFilter() {
+
+            @Override
+            public boolean accept(File dir, String filename) {
+                return null != filename && filename.toLowerCase().endsWith(".json");
+            }
+        });
+        if (null != files) {
+            for (File file : files) {
+                BufferedReader in = null;
+                try {
+                    in = new BufferedReader(new FileReader(file));
+                    StringBuilder sb = new StringBuilder();
+                    String line = null;
+                    while (null != (line = in.readLine())) {
+                        sb.append(line);
+                    }
+                    JSONObject obj = new JSONObject(sb.toString());
+                    String type = obj.getString("type");
+                    //Keep the first definition of a type, as the directory scan did
+                    if (!newIndex.containsKey(type)) {
+                        newIndex.put(type, obj.getString("layerName"));
+                    }
+                } catch (Throwable t) {
+                    logger.log(Level.SEVERE, "Could not read and parse " + file.getAbsolutePath(), t);
+                } finally {
+                    if (null != in) {
+                        try {
+                            in.close();
+                        } catch (IOException e) {
+                            logger.log(Level.SEVERE, "Could not close file", e);
+                        }
+                    }
+                }
+            }
+        } else {
+            logger.log(Level.WARNING, "Message types directory {0} could not be read", messageTypesDir.getAbsolutePath());
+        }
+        typeToLayerName = Collections.unmodifiableMap(newIndex);
+    }
+
+    /**
+     * Returns the name of the layer for messages of the specified type.
+     * @param messageType the message type.
+     * @return the layer name for the message type, or null if no message type
+     *         definition matches.
+     */
+    public String getLayerName(String messageType) {
+        if (null == messageType) {
+            return null;
+        }
+        String layerName = typeToLayerName.get(messageType);
+        if (null == layerName) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return layerName;
+    }
+
+    /**
+     * Returns the number of message types currently indexed.
+     * @return the number of message types currently indexed.
+     */
+    public int size() {
+        return typeToLayerName.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a layer name.
+     * @return the number of lookups that found a layer name.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find a layer name.
+     * @return the number of lookups that did not find a layer name.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Starts watching the directory on a daemon thread and reloads the index
+     * whenever a file is created, modified, or deleted. Calling this method when
+     * the registry is already watching has no effect.
+     */
+    public void startWatching() {
+        synchronized (watchLock) {
+            if (null != watchThread) {
+                return;
+            }
+            final WatchService service;
+            try {
+                service = FileSystems.getDefault().newWatchService();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not create a watch service", e);
+                return;
+            }
+            try {
+                messageTypesDir.toPath().register(service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Could not watch " + messageTypesDir.getAbsolutePath() + " for changes", e);
+                try {
+                    service.close();
+                } catch (IOException ioe) {
+                    logger.log(Level.FINE, "Could not close watch service", ioe);
+                }
+                return;
+            }
+            watchService = service;
+            watchThread = new Thread("MessageTypeRegistry watcher") {
+
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            WatchKey key = service.take();
+                            //Let a burst of events (e.g. a deployment) settle before rereading
+                            Thread.sleep(250);
+                            key.pollEvents();
+                            reload();
+                            if (!key.reset()) {
+                                break;
+                            }
+                        }
+                    } catch (InterruptedException ie) {
+                        //Stop watching
+                    } catch (ClosedWatchServiceException cwse) {
+                        //Stop watching
+                    }
+                }
+            };
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+    }
+
+    /**
+     * Stops watching the directory for changes.
+     */
+    public void stopWatching() {
+        synchronized (watchLock) {
+            if (null != watchService) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Could not close watch service", e);
+                }
+                watchService = null;
+            }
+            watchThread = null;
+        }
+    }
+
+    /**
+     * Returns the directory this registry indexes.
+     * @return the directory this registry indexes.
+     */
+    public File getMessageTypesDirectory() {
+        return messageTypesDir;
+    }
+
+}
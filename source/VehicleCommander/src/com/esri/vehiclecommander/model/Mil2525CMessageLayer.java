@@ -28,19 +28,35 @@ import com.esri.vehiclecommander.controller.AppConfigListener;
 import com.esri.vehiclecommander.controller.MapController;
 import com.esri.vehiclecommander.controller.MapControllerListenerAdapter;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.xml.parsers.ParserConfigurationException;
 import org.xml.sax.SAXException;
 
 /**
- * A layer that displays MIL-STD-2525C messages from an XML string.
+ * A layer that displays MIL-STD-2525C messages from an XML file. The messages are
+ * streamed from the file in chunks after the map is ready. Call addListeners
+ * after constructing the layer.
  */
 public class Mil2525CMessageLayer extends MessageGroupLayer {
 
+    /**
+     * The number of messages read from the file and processed at a time.
+     */
+    public static final int LOAD_CHUNK_SIZE = 500;
+
     private final AppConfigController appConfig;
+    private MapController mapController;
+    private File xmlMessageFile;
+    private MessageProcessor processor;
+    private final List<MessageLayerLoadListener> loadListeners = new CopyOnWriteArrayList<MessageLayerLoadListener>();
+    private final AtomicBoolean loadStarted = new AtomicBoolean(false);
 
     /**
      * Constructs a Mil2525CMessageLayer, assuming that the ArcGIS Runtime deployment
@@ -81,6 +97,25 @@ public class Mil2525CMessageLayer extends MessageGroupLayer {
     }
 
     private void init(String xmlMessageFilename, String name, MapController mapController, String symbolDictionaryPath) throws ParserConfigurationException, SAXException, IOException {
+        this.mapController = mapController;
+        this.setName(name);
+        xmlMessageFile = new File(xmlMessageFilename);
+        if (!xmlMessageFile.canRead()) {
+            throw new FileNotFoundException("Cannot read message file " + xmlMessageFile.getAbsolutePath());
+        }
+        processor = null == symbolDictionaryPath ?
+            new MessageProcessor(DictionaryType.Mil2525C, this, 1.0) :
+            new MessageProcessor(DictionaryType.Mil2525C, this, symbolDictionaryPath);
+    }
+
+    /**
+     * Registers this layer with the application configuration and the MapController,
+     * so that it follows the message label setting and loads its messages when the
+     * map is ready, or right away if the map is already ready. The constructor may
+     * run on any thread, but call this method on the thread that adds the layer to
+     * the map. The messages are loaded only once.
+     */
+    public void addListeners() {
         appConfig.addListener(new AppConfigListener() {
 
             public void decoratedChanged(boolean isDecorated) {
@@ -91,38 +126,167 @@ public class Mil2525CMessageLayer extends MessageGroupLayer {
                 toggleLabels(showMessageLabels);
             }
         });
-        
-        this.setName(name);
-        final MessageProcessor processor = null == symbolDictionaryPath ?
-            new MessageProcessor(DictionaryType.Mil2525C, this, 1.0) :
-            new MessageProcessor(DictionaryType.Mil2525C, this, symbolDictionaryPath);
-        Mil2525CMessageParser parser = new Mil2525CMessageParser();
-        parser.parseMessages(new File(xmlMessageFilename));
-        final List<Message> messages = parser.getMessages();
         mapController.addListener(new MapControllerListenerAdapter() {
 
             @Override
             public void mapReady() {
-                synchronized (messages) {
-                    for (Message message : messages) {
+                startLoading();
+            }
+        });
+        if (mapController.isMapReady()) {
+            startLoading();
+        }
+    }
+
+    private void startLoading() {
+        if (!loadStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread loaderThread = new Thread("Load " + xmlMessageFile.getName()) {
+
+            @Override
+            public void run() {
+                loadMessages(xmlMessageFile, processor);
+            }
+        };
+        loaderThread.setDaemon(true);
+        loaderThread.start();
+    }
+
+    /**
+     * Streams the messages from the file to the processor a chunk at a time, so
+     * that the first symbols appear right away and only one chunk of messages is
+     * in memory at once. The messages come from the file's binary snapshot if it is
+     * current. Otherwise they come from the XML, and a new snapshot is written.
+     */
+    private void loadMessages(File xmlMessageFile, MessageProcessor processor) {
+        final Logger logger = Logger.getLogger(getClass().getName());
+        long start = System.currentTimeMillis();
+        long badMessages = 0;
+        long messagesLoaded = 0;
+        MessageChunkReader reader = null;
+        Mil2525CMessageSnapshotWriter snapshotWriter = null;
+        try {
+            reader = Mil2525CMessageSnapshot.open(xmlMessageFile);
+            boolean readingSnapshot = null != reader;
+            if (readingSnapshot) {
+                logger.log(Level.FINE, "Reading snapshot of {0}", xmlMessageFile.getName());
+            } else {
+                reader = new Mil2525CMessageStreamReader(xmlMessageFile);
+                snapshotWriter = createSnapshotWriter(xmlMessageFile);
+            }
+            ArrayList<Message> chunk = new ArrayList<Message>(LOAD_CHUNK_SIZE);
+            while (true) {
+                try {
+                    if (0 >= reader.read(chunk, LOAD_CHUNK_SIZE)) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    if (!readingSnapshot) {
+                        throw e;
+                    }
+                    //Start over from the XML. Messages already processed from the
+                    //snapshot are processed again, which updates them in place.
+                    logger.log(Level.WARNING, "Could not read snapshot of " + xmlMessageFile.getAbsolutePath()
+                            + "; reading the XML file instead", e);
+                    readingSnapshot = false;
+                    chunk.clear();
+                    reader.close();
+                    reader = null;
+                    Mil2525CMessageSnapshot.delete(xmlMessageFile);
+                    reader = new Mil2525CMessageStreamReader(xmlMessageFile);
+                    snapshotWriter = createSnapshotWriter(xmlMessageFile);
+                    badMessages = 0;
+                    continue;
+                }
+                for (Message message : chunk) {
+                    if (null != snapshotWriter) {
                         try {
-                            //Any other problem simply throws a RuntimeException, but a missing
-                            //message ID crashes the JVM. Therefore, we test for that case and
-                            //throw our own RuntimeException.
-                            if (null == message.getID()) {
-                                throw new RuntimeException("Message ID is null");
-                            } else {
-                                processor.processMessage(message);
-                            }
-                        } catch (RuntimeException re) {
-                            Logger.getLogger(getClass().getName()).log(Level.WARNING, "Bad message in layer\n\tMessage: " + message + "\n\tError: " + re.getMessage());
+                            snapshotWriter.write(message);
+                        } catch (IOException e) {
+                            logger.log(Level.WARNING, "Could not write snapshot of " + xmlMessageFile.getAbsolutePath(), e);
+                            snapshotWriter.abort();
+                            snapshotWriter = null;
                         }
                     }
-                    //Now that all the sublayers are created, turn labels on or off.
-                    toggleLabels(appConfig.isShowMessageLabels());
+                    if (!processFileMessage(message, processor)) {
+                        badMessages++;
+                    }
+                }
+                chunk.clear();
+                messagesLoaded = reader.getMessageCount();
+                //A chunk may have created new sublayers, so turn their labels on or off.
+                toggleLabels(appConfig.isShowMessageLabels());
+                for (MessageLayerLoadListener listener : loadListeners) {
+                    listener.loadProgress(this, messagesLoaded, reader.getProgress());
                 }
             }
-        });
+            if (null != snapshotWriter) {
+                try {
+                    snapshotWriter.commit();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Could not write snapshot of " + xmlMessageFile.getAbsolutePath(), e);
+                }
+                snapshotWriter = null;
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Could not read messages from " + xmlMessageFile.getAbsolutePath(), e);
+        } finally {
+            if (null != snapshotWriter) {
+                snapshotWriter.abort();
+            }
+            if (null != reader) {
+                reader.close();
+            }
+        }
+        logger.log(Level.INFO, "Loaded {0} messages ({1} bad) from {2} in {3} ms",
+                new Object[] { messagesLoaded, badMessages, xmlMessageFile.getName(), System.currentTimeMillis() - start });
+        for (MessageLayerLoadListener listener : loadListeners) {
+            listener.loadComplete(this, messagesLoaded, badMessages);
+        }
+    }
+
+    private static Mil2525CMessageSnapshotWriter createSnapshotWriter(File xmlMessageFile) {
+        try {
+            return new Mil2525CMessageSnapshotWriter(xmlMessageFile);
+        } catch (IOException e) {
+            Logger.getLogger(Mil2525CMessageLayer.class.getName()).log(Level.INFO,
+                    "Could not create a snapshot of " + xmlMessageFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private boolean processFileMessage(Message message, MessageProcessor processor) {
+        try {
+            //Any other problem simply throws a RuntimeException, but a missing
+            //message ID crashes the JVM. Therefore, we test for that case and
+            //throw our own RuntimeException.
+            if (null == message.getID()) {
+                throw new RuntimeException("Message ID is null");
+            } else {
+                processor.processMessage(message);
+                return true;
+            }
+        } catch (RuntimeException re) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING, "Bad message in layer\n\tMessage: " + message + "\n\tError: " + re.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Adds a listener for the progress of loading messages from this layer's file.
+     * @param listener the listener.
+     */
+    public void addLoadListener(MessageLayerLoadListener listener) {
+        loadListeners.add(listener);
+    }
+
+    /**
+     * Removes a load listener.
+     * @param listener the listener.
+     */
+    public void removeLoadListener(MessageLayerLoadListener listener) {
+        loadListeners.remove(listener);
     }
     
     private void toggleLabels(boolean showLabels) {
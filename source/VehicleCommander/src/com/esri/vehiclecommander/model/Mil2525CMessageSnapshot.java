@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+import com.esri.core.symbol.advanced.Message;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A binary snapshot of the messages parsed from a geomessages XML file, stored
+ * next to the XML file with the extension ".snapshot". A snapshot is memory-mapped
+ * and read far faster than the XML can be parsed. It is used only if it matches
+ * the XML file's size and either its modification time or its checksum. Its
+ * header is checked before the payload is mapped, and the payload's own checksum
+ * is verified only when the modification time does not match, so that opening a
+ * current snapshot does not read the whole file. A snapshot that cannot be read
+ * or is not in the current format is deleted so that it can be written again.<br/>
+ * <br/>
+ * Format (big-endian):
+ * <ul>
+ *   <li>Header: int magic, int version, long source length, long source modification
+ *       time, long source CRC32, int message count, long payload CRC32</li>
+ *   <li>Payload, for each message: string ID, int property count, then for each
+ *       property a key reference and a string value</li>
+ *   <li>A string is an int byte count (-1 for null) followed by UTF-8 bytes. A key
+ *       reference is the index of a key already written, or -1 followed by a new
+ *       key string.</li>
+ * </ul>
+ * Use Mil2525CMessageSnapshotWriter to write a snapshot.
+ */
+public class Mil2525CMessageSnapshot implements MessageChunkReader {
+
+    /**
+     * The extension added to the XML file's name to name its snapshot.
+     */
+    public static final String EXTENSION = ".snapshot";
+
+    static final int MAGIC = 0x56434D53; //"VCMS"
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 8 + 4 + 8;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Logger logger = Logger.getLogger(Mil2525CMessageSnapshot.class.getName());
+
+    private final MappedByteBuffer buffer;
+    private final int messageTotal;
+    private final ArrayList<String> keys = new ArrayList<String>();
+    private byte[] stringBytes = new byte[256];
+    private long messageCount = 0;
+
+    private Mil2525CMessageSnapshot(MappedByteBuffer buffer, int messageTotal) {
+        this.buffer = buffer;
+        this.messageTotal = messageTotal;
+    }
+
+    /**
+     * Returns the snapshot file for an XML file.
+     * @param xmlFile the XML file.
+     * @return the snapshot file, which may or may not exist.
+     */
+    public static File getSnapshotFile(File xmlFile) {
+        return new File(xmlFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Opens the snapshot of an XML file, if there is a current one.
+     * @param xmlFile the XML file.
+     * @return the snapshot, positioned at the first message, or null if there is
+     *         no snapshot or if the snapshot does not match the XML file.
+     */
+    public static Mil2525CMessageSnapshot open(File xmlFile) {
+        File snapshotFile = getSnapshotFile(xmlFile);
+        if (!snapshotFile.isFile()) {
+            return null;
+        }
+        boolean unusable = false;
+        try {
+            RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+            try {
+                FileChannel channel = file.getChannel();
+                if (HEADER_LENGTH > channel.size() || Integer.MAX_VALUE < channel.size()) {
+                    logger.log(Level.INFO, "Ignoring snapshot {0} because of its size", snapshotFile.getAbsolutePath());
+                    unusable = true;
+                    return null;
+                }
+                //Check the header before mapping anything. An outdated snapshot that
+                //stayed mapped could not be replaced on Windows until it was garbage
+                //collected.
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                while (header.hasRemaining()) {
+                    if (0 > channel.read(header, header.position())) {
+                        throw new BufferUnderflowException();
+                    }
+                }
+                header.flip();
+                if (MAGIC != header.getInt() || VERSION != header.getInt()) {
+                    logger.log(Level.INFO, "Ignoring snapshot {0} because its format is not current", snapshotFile.getAbsolutePath());
+                    unusable = true;
+                    return null;
+                }
+                long sourceLength = header.getLong();
+                long sourceLastModified = header.getLong();
+                long sourceCrc = header.getLong();
+                int messageTotal = header.getInt();
+                long payloadCrc = header.getLong();
+                if (sourceLength != xmlFile.length()) {
+                    return null;
+                }
+                boolean sourceUnchanged = sourceLastModified == xmlFile.lastModified();
+                if (!sourceUnchanged && sourceCrc != checksum(xmlFile)) {
+                    return null;
+                }
+                //The mapping remains valid after the channel is closed.
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_LENGTH, channel.size() - HEADER_LENGTH);
+                //A snapshot written for this very file is trusted. One that matches
+                //only by the source's checksum may be left over from a copy, so its
+                //payload is checked too.
+                if (!sourceUnchanged && payloadCrc != checksum(buffer)) {
+                    logger.log(Level.WARNING, "Ignoring corrupt snapshot {0}", snapshotFile.getAbsolutePath());
+                    unusable = true;
+                    return null;
+                }
+                return new Mil2525CMessageSnapshot(buffer, messageTotal);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read snapshot " + snapshotFile.getAbsolutePath(), e);
+            unusable = true;
+            return null;
+        } catch (BufferUnderflowException e) {
+            logger.log(Level.WARNING, "Ignoring truncated snapshot {0}", snapshotFile.getAbsolutePath());
+            unusable = true;
+            return null;
+        } finally {
+            if (unusable) {
+                delete(xmlFile);
+            }
+        }
+    }
+
+    /**
+     * Deletes the snapshot of an XML file, if there is one.
+     * @param xmlFile the XML file.
+     * @return true if there is no longer a snapshot of the XML file.
+     */
+    public static boolean delete(File xmlFile) {
+        File snapshotFile = getSnapshotFile(xmlFile);
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            //On Windows, a snapshot cannot be deleted while it is still mapped.
+            logger.log(Level.INFO, "Could not delete snapshot {0}", snapshotFile.getAbsolutePath());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the CRC32 of a file.
+     */
+    static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[1 << 16];
+            int count;
+            while (0 <= (count = in.read(bytes))) {
+                crc.update(bytes, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Computes the CRC32 of a buffer's remaining bytes without moving its position.
+     */
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        byte[] bytes = new byte[1 << 16];
+        while (payload.hasRemaining()) {
+            int count = Math.min(bytes.length, payload.remaining());
+            payload.get(bytes, 0, count);
+            crc.update(bytes, 0, count);
+        }
+        return crc.getValue();
+    }
+
+    @Override
+    public int read(List<Message> messages, int maxCount) throws IOException {
+        int count = 0;
+        try {
+            while (count < maxCount && messageCount < messageTotal) {
+                Message message = new Message();
+                String id = readString();
+                int propertyCount = buffer.getInt();
+                for (int i = 0; i < propertyCount; i++) {
+                    int keyIndex = buffer.getInt();
+                    String key;
+                    if (0 > keyIndex) {
+                        key = readString();
+                        keys.add(key);
+                    } else {
+                        key = keys.get(keyIndex);
+                    }
+                    message.setProperty(key, readString());
+                }
+                if (null != id) {
+                    message.setID(id);
+                }
+                messages.add(message);
+                messageCount++;
+                count++;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot is truncated after " + messageCount + " messages", e);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot is corrupt after " + messageCount + " messages", e);
+        }
+        return count;
+    }
+
+    private String readString() {
+        int length = buffer.getInt();
+        if (0 > length) {
+            return null;
+        }
+        if (stringBytes.length < length) {
+            stringBytes = new byte[Math.max(length, 2 * stringBytes.length)];
+        }
+        buffer.get(stringBytes, 0, length);
+        return new String(stringBytes, 0, length, UTF8);
+    }
+
+    @Override
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    @Override
+    public double getProgress() {
+        return 0 == messageTotal ? 1 : (double) messageCount / messageTotal;
+    }
+
+    @Override
+    public void close() {
+        //Nothing to close; the mapping is released when it is garbage collected.
+    }
+
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+import com.esri.core.symbol.advanced.Message;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes a Mil2525CMessageSnapshot of an XML file's messages as they are parsed.
+ * The snapshot is written to a temporary file and moved into place by commit, so
+ * a partial snapshot is never used. See Mil2525CMessageSnapshot for the format.
+ */
+public class Mil2525CMessageSnapshotWriter {
+
+    private static final Logger logger = Logger.getLogger(Mil2525CMessageSnapshotWriter.class.getName());
+
+    private final File xmlFile;
+    private final long sourceLength;
+    private final long sourceLastModified;
+    private final File tempFile;
+    private final CRC32 payloadCrc = new CRC32();
+    private final DataOutputStream out;
+    private final HashMap<String, Integer> keyIndexes = new HashMap<String, Integer>();
+    private int messageCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Starts a snapshot of an XML file.
+     * @param xmlFile the XML file whose messages will be written.
+     * @throws IOException if the snapshot cannot be created, for example because
+     *         the XML file's directory is read-only.
+     */
+    public Mil2525CMessageSnapshotWriter(File xmlFile) throws IOException {
+        this.xmlFile = xmlFile;
+        sourceLength = xmlFile.length();
+        sourceLastModified = xmlFile.lastModified();
+        File snapshotFile = Mil2525CMessageSnapshot.getSnapshotFile(xmlFile);
+        tempFile = File.createTempFile(snapshotFile.getName(), ".tmp", snapshotFile.getAbsoluteFile().getParentFile());
+        FileOutputStream fileOut = new FileOutputStream(tempFile);
+        //Leave room for the header, which is written by commit.
+        fileOut.write(new byte[Mil2525CMessageSnapshot.HEADER_LENGTH]);
+        out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, payloadCrc), 1 << 16));
+    }
+
+    /**
+     * Adds a message to the snapshot.
+     * @param message the message.
+     * @throws IOException if the message cannot be written.
+     */
+    public void write(Message message) throws IOException {
+        Map<String, Object> properties = message.getProperties();
+        writeString(message.getID());
+        out.writeInt(properties.size());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            Integer keyIndex = keyIndexes.get(property.getKey());
+            if (null == keyIndex) {
+                keyIndexes.put(property.getKey(), keyIndexes.size());
+                out.writeInt(-1);
+                writeString(property.getKey());
+            } else {
+                out.writeInt(keyIndex);
+            }
+            writeString(null == property.getValue() ? null : property.getValue().toString());
+        }
+        messageCount++;
+    }
+
+    private void writeString(String string) throws IOException {
+        if (null == string) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = string.getBytes(Mil2525CMessageSnapshot.UTF8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Finishes the snapshot and moves it into place, replacing any previous
+     * snapshot. If the XML file changed while the snapshot was being written,
+     * the snapshot is discarded.
+     * @throws IOException if the snapshot cannot be finished.
+     */
+    public void commit() throws IOException {
+        out.close();
+        closed = true;
+        if (sourceLength != xmlFile.length() || sourceLastModified != xmlFile.lastModified()) {
+            logger.log(Level.INFO, "{0} changed while its snapshot was written; discarding snapshot", xmlFile.getAbsolutePath());
+            deleteTempFile();
+            return;
+        }
+        try {
+            RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+            try {
+                file.writeInt(Mil2525CMessageSnapshot.MAGIC);
+                file.writeInt(Mil2525CMessageSnapshot.VERSION);
+                file.writeLong(sourceLength);
+                file.writeLong(sourceLastModified);
+                file.writeLong(Mil2525CMessageSnapshot.checksum(xmlFile));
+                file.writeInt(messageCount);
+                file.writeLong(payloadCrc.getValue());
+            } finally {
+                file.close();
+            }
+            Files.move(tempFile.toPath(), Mil2525CMessageSnapshot.getSnapshotFile(xmlFile).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteTempFile();
+            throw e;
+        }
+    }
+
+    /**
+     * Discards the snapshot, leaving any previous snapshot in place.
+     */
+    public void abort() {
+        if (!closed) {
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Could not close snapshot", e);
+            }
+        }
+        deleteTempFile();
+    }
+
+    private void deleteTempFile() {
+        if (tempFile.exists() && !tempFile.delete()) {
+            tempFile.deleteOnExit();
+        }
+    }
+
+}
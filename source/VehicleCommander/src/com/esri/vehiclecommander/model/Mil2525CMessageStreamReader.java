@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.model;
+
+import com.esri.core.symbol.advanced.Message;
+import com.esri.core.symbol.advanced.MessageHelper;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads MIL-STD-2525C messages from a geomessages XML file a chunk at a time,
+ * using StAX. Unlike Mil2525CMessageParser, which builds a list of every message
+ * in the file, this reader holds only the messages of the current chunk, so memory
+ * use does not grow with the size of the file.<br/>
+ * <br/>
+ * A Mil2525CMessageStreamReader is not thread-safe.
+ */
+public class Mil2525CMessageStreamReader implements MessageChunkReader {
+
+    private static final Logger logger = Logger.getLogger(Mil2525CMessageStreamReader.class.getName());
+
+    private static final XMLInputFactory INPUT_FACTORY;
+    static {
+        INPUT_FACTORY = XMLInputFactory.newInstance();
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Counts the bytes the XML parser has taken from the file, for progress.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private volatile long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (0 <= b) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (0 < n) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+    }
+
+    private final long fileLength;
+    private final CountingInputStream in;
+    private final XMLStreamReader reader;
+    private final StringBuilder text = new StringBuilder();
+    private int depth = 0;
+    private long messageCount = 0;
+    private boolean done = false;
+
+    /**
+     * Opens a geomessages XML file for reading.
+     * @param file the XML file.
+     * @throws IOException if the file cannot be opened.
+     * @throws XMLStreamException if the file cannot be parsed as XML.
+     */
+    public Mil2525CMessageStreamReader(File file) throws IOException, XMLStreamException {
+        fileLength = file.length();
+        in = new CountingInputStream(new FileInputStream(file));
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new BufferedInputStream(in, 1 << 16));
+        } catch (XMLStreamException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads up to maxCount messages and adds them to a list.
+     * @param messages the list to which messages are added.
+     * @param maxCount the maximum number of messages to read.
+     * @return the number of messages read. Zero means that the end of the file
+     *         has been reached.
+     * @throws XMLStreamException if the XML is malformed.
+     */
+    @Override
+    public int read(List<Message> messages, int maxCount) throws XMLStreamException {
+        int count = 0;
+        Message message = null;
+        String propertyName = null;
+        while (count < maxCount && reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    if (2 == depth) {
+                        //<geomessage>
+                        message = new Message();
+                    } else if (3 == depth && null != message) {
+                        propertyName = reader.getLocalName();
+                        text.setLength(0);
+                    }
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    if (null != propertyName) {
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    if (3 == depth && null != propertyName) {
+                        String value = text.toString();
+                        if (MessageHelper.MESSAGE_ID_PROPERTY_NAME.equals(propertyName)) {
+                            message.setID(value);
+                        }
+                        message.setProperty(propertyName, value);
+                        propertyName = null;
+                    } else if (2 == depth && null != message) {
+                        messages.add(message);
+                        message = null;
+                        count++;
+                    }
+                    depth--;
+                    break;
+
+                default:
+            }
+        }
+        if (!reader.hasNext()) {
+            done = true;
+        }
+        messageCount += count;
+        return count;
+    }
+
+    /**
+     * Returns true if the whole file has been read.
+     * @return true if the whole file has been read.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns the number of messages read so far.
+     * @return the number of messages read so far.
+     */
+    @Override
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Returns an estimate of how much of the file has been read, from 0 to 1.
+     * @return the fraction of the file that has been read.
+     */
+    @Override
+    public double getProgress() {
+        if (done || 0 >= fileLength) {
+            return 1;
+        }
+        return Math.min(1, (double) in.count / fileLength);
+    }
+
+    /**
+     * Closes the file.
+     */
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            logger.log(Level.FINE, "Could not close XML reader", e);
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not close file", e);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * Base64 text for the packed and binary wire formats, which must survive being
+ * decoded as a String. Java 7 has no public Base64 API.
+ */
+final class Base64Codec {
+
+    private static final char[] DIGITS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] VALUES = new int[128];
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = -1;
+        }
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = i;
+        }
+    }
+
+    private Base64Codec() {
+    }
+
+    /**
+     * Encodes bytes as ASCII Base64 after an ASCII prefix.
+     * @param prefix the prefix.
+     * @param bytes the array holding the bytes to encode.
+     * @param length the number of bytes to encode, starting at index 0.
+     * @return the prefix and the Base64 text, as ASCII bytes.
+     */
+    static byte[] encode(String prefix, byte[] bytes, int length) {
+        byte[] encoded = new byte[prefix.length() + (length + 2) / 3 * 4];
+        int out = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            encoded[out++] = (byte) prefix.charAt(i);
+        }
+        for (int i = 0; i < length; i += 3) {
+            int b0 = bytes[i] & 0xff;
+            int b1 = i + 1 < length ? bytes[i + 1] & 0xff : 0;
+            int b2 = i + 2 < length ? bytes[i + 2] & 0xff : 0;
+            encoded[out++] = (byte) DIGITS[b0 >> 2];
+            encoded[out++] = (byte) DIGITS[((b0 & 0x3) << 4) | (b1 >> 4)];
+            encoded[out++] = i + 1 < length ? (byte) DIGITS[((b1 & 0xf) << 2) | (b2 >> 6)] : (byte) '=';
+            encoded[out++] = i + 2 < length ? (byte) DIGITS[b2 & 0x3f] : (byte) '=';
+        }
+        return encoded;
+    }
+
+    /**
+     * Tells whether text starts with a prefix.
+     * @param text the text, or null.
+     * @param prefix the prefix.
+     * @return true if the text starts with the prefix.
+     */
+    static boolean hasPrefix(CharSequence text, String prefix) {
+        if (null == text || text.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes Base64 text. Trailing whitespace is ignored.
+     * @param text the text.
+     * @param start the index at which the Base64 text starts.
+     * @return the decoded bytes.
+     * @throws DataFormatException if the text is not valid Base64.
+     */
+    static byte[] decode(CharSequence text, int start) throws DataFormatException {
+        int end = text.length();
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (0 != (end - start) % 4) {
+            throw new DataFormatException("Datagram has a bad length");
+        }
+        int padding = 0;
+        if (end > start && '=' == text.charAt(end - 1)) {
+            padding++;
+            if ('=' == text.charAt(end - 2)) {
+                padding++;
+            }
+        }
+        byte[] bytes = new byte[(end - start) / 4 * 3 - padding];
+        int out = 0;
+        for (int i = start; i < end; i += 4) {
+            int quad = 0;
+            for (int j = 0; j < 4; j++) {
+                char c = text.charAt(i + j);
+                int value;
+                if ('=' == c && i + 4 == end && j >= 4 - padding) {
+                    value = 0;
+                } else if (c >= VALUES.length || 0 > (value = VALUES[c])) {
+                    throw new DataFormatException("Datagram has a bad character at index " + (i + j));
+                }
+                quad = (quad << 6) | value;
+            }
+            bytes[out++] = (byte) (quad >> 16);
+            if (out < bytes.length) {
+                bytes[out++] = (byte) (quad >> 8);
+            }
+            if (out < bytes.length) {
+                bytes[out++] = (byte) quad;
+            }
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,703 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * Encodes geomessages in a compact binary form, for feeds whose rate makes XML
+ * parsing the bottleneck. A binary datagram is the ASCII prefix "GMB1:" followed by
+ * the Base64 encoding of:
+ * <ul>
+ *   <li>the number of geomessages, as a varint, and for each geomessage</li>
+ *   <li>the number of properties, as a varint, and for each property</li>
+ *   <li>a varint holding the property key's index in a table of common keys, or 0
+ *       followed by the key itself, shifted left four bits and combined with the
+ *       value's type, and</li>
+ *   <li>the value, encoded according to its type. Integers are zigzag varints.
+ *       Decimals and control points are fixed-point varints, each with its own
+ *       number of decimal places. SICs are packed six bits per character. UUIDs are
+ *       16 bytes and timestamps are seconds. Common values are table indices.
+ *       Anything else is UTF-8 text.</li>
+ * </ul>
+ * A value is only given a compact type if it decodes to exactly the same text, so
+ * the codec is lossless for properties; the geomessage element's v attribute is not
+ * carried.<br/>
+ * <br/>
+ * Like packed datagrams, binary datagrams are Base64 text so that they survive
+ * being decoded as a String, and a receiver tells them from XML with isBinary.
+ * The key and value tables are part of the wire format. Changing them requires a
+ * new prefix. This class is thread-safe.
+ */
+public final class BinaryGeomessageCodec {
+
+    /**
+     * The prefix that marks a binary datagram.
+     */
+    public static final String PREFIX = "GMB1:";
+
+    /**
+     * The geomessage version that selects binary datagrams for outgoing messages.
+     * Binary datagrams otherwise carry the same properties as version 1.1.
+     */
+    public static final String GEOMESSAGE_VERSION = "1.1-binary";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int TYPE_TEXT = 0;
+    private static final int TYPE_COMMON = 1;
+    private static final int TYPE_INTEGER = 2;
+    private static final int TYPE_DECIMAL = 3;
+    private static final int TYPE_POINTS = 4;
+    private static final int TYPE_SIC = 5;
+    private static final int TYPE_UUID = 6;
+    private static final int TYPE_BRACED_UUID = 7;
+    private static final int TYPE_TIMESTAMP = 8;
+    private static final int TYPE_BITS = 4;
+
+    private static final String[] KEYS = new String[] {
+        "_type", "_action", "_id", "_wkid", "_control_points", "sic", "uniquedesignation", "type",
+        "datetimevalid", "fuel_state", "sys_msg", "system_msgs", "sys_status_1", "sys_status_2",
+        "sys_status_3", "sys_status_4", "status911", "_status911", "color", "size", "activity",
+        "location", "unit", "equipment", "timeobserved"
+    };
+
+    private static final String[] VALUES = new String[] {
+        "", "UPDATE", "REMOVE", "SELECT", "UN-SELECT", "update", "remove",
+        "position_report", "sysmsg", "chemlight", "spotrep", "trackrep", "Operational"
+    };
+
+    private static final Map<String, Integer> KEY_INDICES = indexOf(KEYS);
+    private static final Map<String, Integer> VALUE_INDICES = indexOf(VALUES);
+
+    /**
+     * The characters that may appear in a packed SIC, in the order of their six-bit
+     * codes.
+     */
+    private static final String SIC_CHARACTERS = "-*ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final int SIC_LENGTH = 15;
+    private static final int SIC_BYTES = (SIC_LENGTH * 6 + 7) / 8;
+
+    /**
+     * Decimals with more digits than this could overflow a varint once they are
+     * shifted and zigzagged.
+     */
+    private static final int MAX_DECIMAL_DIGITS = 17;
+    private static final int MAX_DECIMAL_PLACES = 15;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<ByteWriter> WRITERS = new ThreadLocal<ByteWriter>() {
+
+        @Override
+        protected ByteWriter initialValue() {
+            return new ByteWriter();
+        }
+    };
+
+    private static Map<String, Integer> indexOf(String[] strings) {
+        HashMap<String, Integer> indices = new HashMap<String, Integer>(strings.length * 2);
+        for (int i = 0; i < strings.length; i++) {
+            indices.put(strings[i], i);
+        }
+        return indices;
+    }
+
+    private BinaryGeomessageCodec() {
+    }
+
+    /**
+     * Encodes geomessages as a binary datagram.
+     * @param geomessages the geomessages, each a map of property names to values.
+     *                    Null values are not encoded.
+     * @return the binary datagram, as ASCII bytes.
+     */
+    public static byte[] encode(List<? extends Map<String, String>> geomessages) {
+        ByteWriter out = WRITERS.get();
+        out.reset();
+        out.writeVarint(geomessages.size());
+        for (Map<String, String> geomessage : geomessages) {
+            int count = 0;
+            for (String value : geomessage.values()) {
+                if (null != value) {
+                    count++;
+                }
+            }
+            out.writeVarint(count);
+            for (Map.Entry<String, String> property : geomessage.entrySet()) {
+                if (null != property.getValue()) {
+                    writeProperty(out, property.getKey(), property.getValue());
+                }
+            }
+        }
+        return Base64Codec.encode(PREFIX, out.bytes, out.length);
+    }
+
+    /**
+     * Tells whether a received datagram is binary.
+     * @param datagram the datagram.
+     * @return true if the datagram starts with the binary prefix.
+     */
+    public static boolean isBinary(CharSequence datagram) {
+        return Base64Codec.hasPrefix(datagram, PREFIX);
+    }
+
+    /**
+     * Decodes a binary datagram.
+     * @param datagram the binary datagram.
+     * @return the geomessages, each a map of property names to values in the order
+     *         in which they were encoded.
+     * @throws DataFormatException if the datagram is not a valid binary datagram.
+     */
+    public static List<Map<String, String>> decode(CharSequence datagram) throws DataFormatException {
+        if (!isBinary(datagram)) {
+            throw new DataFormatException("Not a binary datagram");
+        }
+        ByteReader in = new ByteReader(Base64Codec.decode(datagram, PREFIX.length()));
+        int geomessageCount = in.readCount();
+        ArrayList<Map<String, String>> geomessages = new ArrayList<Map<String, String>>(geomessageCount);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < geomessageCount; i++) {
+            int propertyCount = in.readCount();
+            LinkedHashMap<String, String> geomessage = new LinkedHashMap<String, String>(propertyCount * 2);
+            for (int j = 0; j < propertyCount; j++) {
+                long header = in.readVarint();
+                long keyIndex = header >>> TYPE_BITS;
+                String key;
+                if (0 == keyIndex) {
+                    key = in.readText();
+                } else if (keyIndex <= KEYS.length) {
+                    key = KEYS[(int) keyIndex - 1];
+                } else {
+                    throw new DataFormatException("Unknown key " + keyIndex);
+                }
+                geomessage.put(key, readValue(in, (int) (header & ((1 << TYPE_BITS) - 1)), sb));
+            }
+            geomessages.add(geomessage);
+        }
+        if (in.position != in.bytes.length) {
+            throw new DataFormatException("Binary datagram has trailing bytes");
+        }
+        return geomessages;
+    }
+
+    private static void writeProperty(ByteWriter out, String key, String value) {
+        Integer keyIndex = KEY_INDICES.get(key);
+        long keyCode = null == keyIndex ? 0 : keyIndex + 1;
+        int mark = out.length;
+        Integer valueIndex = VALUE_INDICES.get(value);
+        if (null != valueIndex) {
+            writeHeader(out, keyCode, key, TYPE_COMMON);
+            out.writeVarint(valueIndex);
+            return;
+        }
+        if (isInteger(value)) {
+            writeHeader(out, keyCode, key, TYPE_INTEGER);
+            out.writeVarint(zigzag(Long.parseLong(value)));
+            return;
+        }
+        if (writeHeader(out, keyCode, key, TYPE_DECIMAL) && writeDecimal(out, value, 0, value.length())) {
+            return;
+        }
+        out.length = mark;
+        if (0 <= value.indexOf(',') && writeHeader(out, keyCode, key, TYPE_POINTS) && writePoints(out, value)) {
+            return;
+        }
+        out.length = mark;
+        if (SIC_LENGTH == value.length() && isSic(value)) {
+            writeHeader(out, keyCode, key, TYPE_SIC);
+            writeSic(out, value);
+            return;
+        }
+        if (36 == value.length() && isUuid(value, 0)) {
+            writeHeader(out, keyCode, key, TYPE_UUID);
+            writeUuid(out, value, 0);
+            return;
+        }
+        if (38 == value.length() && '{' == value.charAt(0) && '}' == value.charAt(37) && isUuid(value, 1)) {
+            writeHeader(out, keyCode, key, TYPE_BRACED_UUID);
+            writeUuid(out, value, 1);
+            return;
+        }
+        if (19 == value.length() && writeHeader(out, keyCode, key, TYPE_TIMESTAMP) && writeTimestamp(out, value)) {
+            return;
+        }
+        out.length = mark;
+        writeHeader(out, keyCode, key, TYPE_TEXT);
+        out.writeText(value);
+    }
+
+    /**
+     * Writes a property header. Returns true so that it can start a chain of
+     * conditions.
+     */
+    private static boolean writeHeader(ByteWriter out, long keyCode, String key, int type) {
+        out.writeVarint((keyCode << TYPE_BITS) | type);
+        if (0 == keyCode) {
+            out.writeText(key);
+        }
+        return true;
+    }
+
+    private static String readValue(ByteReader in, int type, StringBuilder sb) throws DataFormatException {
+        switch (type) {
+            case TYPE_TEXT:
+                return in.readText();
+
+            case TYPE_COMMON:
+                long index = in.readVarint();
+                if (0 > index || index >= VALUES.length) {
+                    throw new DataFormatException("Unknown value " + index);
+                }
+                return VALUES[(int) index];
+
+            case TYPE_INTEGER:
+                return Long.toString(unzigzag(in.readVarint()));
+
+            case TYPE_DECIMAL:
+                sb.setLength(0);
+                appendDecimal(sb, in.readVarint());
+                return sb.toString();
+
+            case TYPE_POINTS:
+                int pointCount = in.readCount();
+                sb.setLength(0);
+                for (int i = 0; i < pointCount; i++) {
+                    if (0 < i) {
+                        sb.append(';');
+                    }
+                    appendDecimal(sb, in.readVarint());
+                    sb.append(',');
+                    appendDecimal(sb, in.readVarint());
+                }
+                return sb.toString();
+
+            case TYPE_SIC:
+                return readSic(in);
+
+            case TYPE_UUID:
+                sb.setLength(0);
+                appendUuid(sb, in);
+                return sb.toString();
+
+            case TYPE_BRACED_UUID:
+                sb.setLength(0);
+                sb.append('{');
+                appendUuid(sb, in);
+                return sb.append('}').toString();
+
+            case TYPE_TIMESTAMP:
+                sb.setLength(0);
+                appendTimestamp(sb, unzigzag(in.readVarint()));
+                return sb.toString();
+
+            default:
+                throw new DataFormatException("Unknown value type " + type);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Tells whether a value is an integer written the way Long.toString writes it.
+     */
+    private static boolean isInteger(String value) {
+        int start = 0 < value.length() && '-' == value.charAt(0) ? 1 : 0;
+        int digits = value.length() - start;
+        if (0 == digits || 18 < digits || ('0' == value.charAt(start) && (1 < digits || 1 == start))) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ('0' > c || '9' < c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a decimal as a fixed-point varint: the zigzagged digits, shifted left
+     * four bits and combined with the number of decimal places. Returns false if
+     * the text is not a plain decimal that would decode to the same text.
+     */
+    private static boolean writeDecimal(ByteWriter out, String value, int start, int end) {
+        boolean negative = start < end && '-' == value.charAt(start);
+        int i = negative ? start + 1 : start;
+        int integerStart = i;
+        long mantissa = 0;
+        int digits = 0;
+        int places = -1;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if ('.' == c && 0 > places && i > integerStart) {
+                places = 0;
+            } else if ('0' <= c && '9' >= c) {
+                if (MAX_DECIMAL_DIGITS == digits) {
+                    return false;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (0 <= places) {
+                    places++;
+                }
+            } else {
+                return false;
+            }
+        }
+        //Only numbers like 12.5, 0.25 and -3.0 decode to the same text
+        if (0 >= places || MAX_DECIMAL_PLACES < places
+                || ('0' == value.charAt(integerStart) && '.' != value.charAt(integerStart + 1))
+                || (negative && 0 == mantissa)) {
+            return false;
+        }
+        out.writeVarint((zigzag(negative ? -mantissa : mantissa) << 4) | places);
+        return true;
+    }
+
+    private static void appendDecimal(StringBuilder sb, long encoded) throws DataFormatException {
+        int places = (int) (encoded & 0xf);
+        long mantissa = unzigzag(encoded >>> 4);
+        if (0 == places) {
+            throw new DataFormatException("Decimal has no decimal places");
+        }
+        if (0 > mantissa) {
+            sb.append('-');
+            mantissa = -mantissa;
+        }
+        int start = sb.length();
+        sb.append(mantissa);
+        while (sb.length() - start <= places) {
+            sb.insert(start, '0');
+        }
+        sb.insert(sb.length() - places, '.');
+    }
+
+    /**
+     * Writes control points in the form x,y;x,y as a count followed by fixed-point
+     * coordinates. Returns false if any coordinate is not a plain decimal.
+     */
+    private static boolean writePoints(ByteWriter out, String value) {
+        int pointCount = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (';' == value.charAt(i)) {
+                pointCount++;
+            }
+        }
+        out.writeVarint(pointCount);
+        int start = 0;
+        for (int p = 0; p < pointCount; p++) {
+            int end = value.indexOf(';', start);
+            if (0 > end) {
+                end = value.length();
+            }
+            int comma = value.indexOf(',', start);
+            if (0 > comma || comma > end
+                    || !writeDecimal(out, value, start, comma)
+                    || !writeDecimal(out, value, comma + 1, end)) {
+                return false;
+            }
+            start = end + 1;
+        }
+        return true;
+    }
+
+    private static boolean isSic(String value) {
+        for (int i = 0; i < SIC_LENGTH; i++) {
+            if (0 > SIC_CHARACTERS.indexOf(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeSic(ByteWriter out, String value) {
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < SIC_LENGTH; i++) {
+            bits = (bits << 6) | SIC_CHARACTERS.indexOf(value.charAt(i));
+            bitCount += 6;
+            while (8 <= bitCount) {
+                bitCount -= 8;
+                out.write(bits >> bitCount);
+            }
+        }
+        if (0 < bitCount) {
+            out.write(bits << (8 - bitCount));
+        }
+    }
+
+    private static String readSic(ByteReader in) throws DataFormatException {
+        char[] sic = new char[SIC_LENGTH];
+        int bits = 0;
+        int bitCount = 0;
+        int i = 0;
+        for (int b = 0; b < SIC_BYTES; b++) {
+            bits = ((bits << 8) | in.read()) & 0xffff;
+            bitCount += 8;
+            while (6 <= bitCount && i < SIC_LENGTH) {
+                bitCount -= 6;
+                int code = (bits >> bitCount) & 0x3f;
+                if (code >= SIC_CHARACTERS.length()) {
+                    throw new DataFormatException("Bad SIC character code " + code);
+                }
+                sic[i++] = SIC_CHARACTERS.charAt(code);
+            }
+        }
+        return new String(sic);
+    }
+
+    /**
+     * Tells whether the 36 characters at an offset are a UUID in lowercase
+     * canonical form.
+     */
+    private static boolean isUuid(String value, int offset) {
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(offset + i);
+            if (8 == i || 13 == i || 18 == i || 23 == i) {
+                if ('-' != c) {
+                    return false;
+                }
+            } else if (('0' > c || '9' < c) && ('a' > c || 'f' < c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeUuid(ByteWriter out, String value, int offset) {
+        int half = -1;
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(offset + i);
+            if ('-' == c) {
+                continue;
+            }
+            int nibble = '9' >= c ? c - '0' : c - 'a' + 10;
+            if (0 > half) {
+                half = nibble;
+            } else {
+                out.write((half << 4) | nibble);
+                half = -1;
+            }
+        }
+    }
+
+    private static void appendUuid(StringBuilder sb, ByteReader in) throws DataFormatException {
+        for (int i = 0; i < 16; i++) {
+            if (4 == i || 6 == i || 8 == i || 10 == i) {
+                sb.append('-');
+            }
+            int b = in.read();
+            sb.append(HEX_DIGITS[b >> 4]).append(HEX_DIGITS[b & 0xf]);
+        }
+    }
+
+    /**
+     * Writes a timestamp in the form yyyy-MM-dd HH:mm:ss as seconds since 1970,
+     * treating it as UTC so that it decodes to the same text in any time zone.
+     * Returns false if the text is not a valid timestamp in that form.
+     */
+    private static boolean writeTimestamp(ByteWriter out, String value) {
+        for (int i = 0; i < 19; i++) {
+            char c = value.charAt(i);
+            char expected = 4 == i || 7 == i ? '-' : 10 == i ? ' ' : 13 == i || 16 == i ? ':' : 0;
+            if (0 == expected ? '0' > c || '9' < c : expected != c) {
+                return false;
+            }
+        }
+        int year = parseDigits(value, 0, 4);
+        int month = parseDigits(value, 5, 7);
+        int day = parseDigits(value, 8, 10);
+        int hour = parseDigits(value, 11, 13);
+        int minute = parseDigits(value, 14, 16);
+        int second = parseDigits(value, 17, 19);
+        if (1 > month || 12 < month || 1 > day || daysInMonth(year, month) < day
+                || 23 < hour || 59 < minute || 59 < second) {
+            return false;
+        }
+        long seconds = ((daysFromCivil(year, month, day) * 24 + hour) * 60 + minute) * 60 + second;
+        out.writeVarint(zigzag(seconds));
+        return true;
+    }
+
+    private static void appendTimestamp(StringBuilder sb, long seconds) throws DataFormatException {
+        long days = floorDiv(seconds, 86400);
+        int secondOfDay = (int) (seconds - days * 86400);
+        //Civil from days, after Howard Hinnant's algorithm
+        long z = days + 719468;
+        long era = floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (0 > year || 9999 < year) {
+            throw new DataFormatException("Timestamp out of range");
+        }
+        appendDigits(sb, (int) year, 4).append('-');
+        appendDigits(sb, month, 2).append('-');
+        appendDigits(sb, day, 2).append(' ');
+        appendDigits(sb, secondOfDay / 3600, 2).append(':');
+        appendDigits(sb, secondOfDay / 60 % 60, 2).append(':');
+        appendDigits(sb, secondOfDay % 60, 2);
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long quotient = x / y;
+        return 0 != x % y && (0 > x) != (0 > y) ? quotient - 1 : quotient;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (2 == month) {
+            return (0 == year % 4 && 0 != year % 100) || 0 == year % 400 ? 29 : 28;
+        }
+        return 4 == month || 6 == month || 9 == month || 11 == month ? 30 : 31;
+    }
+
+    private static int parseDigits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static StringBuilder appendDigits(StringBuilder sb, int value, int width) {
+        int start = sb.length();
+        sb.append(value);
+        while (sb.length() - start < width) {
+            sb.insert(start, '0');
+        }
+        return sb;
+    }
+
+    /**
+     * A growable byte array, kept per thread so that encoding allocates only the
+     * datagram.
+     */
+    private static final class ByteWriter {
+
+        private byte[] bytes = new byte[1024];
+        private int length = 0;
+
+        void reset() {
+            length = 0;
+        }
+
+        void write(int b) {
+            if (length == bytes.length) {
+                byte[] newBytes = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, newBytes, 0, length);
+                bytes = newBytes;
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        /**
+         * Writes an unsigned varint: seven bits per byte, low bits first, with the
+         * high bit set on every byte but the last.
+         */
+        void writeVarint(long value) {
+            while (0 != (value & ~0x7fL)) {
+                write((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeText(String text) {
+            byte[] utf8 = text.getBytes(UTF_8);
+            writeVarint(utf8.length);
+            for (byte b : utf8) {
+                write(b);
+            }
+        }
+
+    }
+
+    private static final class ByteReader {
+
+        private final byte[] bytes;
+        private int position = 0;
+
+        ByteReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int read() throws DataFormatException {
+            if (position == bytes.length) {
+                throw new DataFormatException("Binary datagram is truncated");
+            }
+            return bytes[position++] & 0xff;
+        }
+
+        long readVarint() throws DataFormatException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7f) << shift;
+                if (0 == (b & 0x80)) {
+                    return value;
+                }
+            }
+            throw new DataFormatException("Varint is too long");
+        }
+
+        /**
+         * Reads a count, which can be no more than the number of bytes left, since
+         * every counted item takes at least one byte.
+         */
+        int readCount() throws DataFormatException {
+            long count = readVarint();
+            if (0 > count || count > bytes.length - position) {
+                throw new DataFormatException("Bad count " + count);
+            }
+            return (int) count;
+        }
+
+        String readText() throws DataFormatException {
+            int length = readCount();
+            String text = new String(bytes, position, length, UTF_8);
+            position += length;
+            return text;
+        }
+
+    }
+
+}
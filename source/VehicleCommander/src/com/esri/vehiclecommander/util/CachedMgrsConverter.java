@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import com.esri.core.geometry.AngularUnit;
+import com.esri.core.geometry.CoordinateConversion;
+import com.esri.core.geometry.LinearUnit;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+import com.esri.core.geometry.Unit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts between points and MGRS strings through CoordinateConversion, caching
+ * recent results so that converting the same or nearly the same location again,
+ * as happens for a stationary or slow vehicle, costs only a map lookup.<br/>
+ * <br/>
+ * MGRS strings are cached by their normalized text, which gives exact results.
+ * Caching points is approximate and must be turned on when the converter is
+ * created; getInstance() does not cache points. A point is cached by cell: the
+ * coordinates are quantized to a grid in the point's spatial reference whose
+ * spacing is one tenth of the resolution of the requested precision (about 0.1
+ * meters for 5-digit precision), and the MGRS string is computed for the center of
+ * the cell. Any point in the cell gets the same string. Because the cells are not
+ * aligned with the UTM grid, a point near a digit boundary may have its easting
+ * or northing off by one in the last digit (one meter at 5-digit precision). That
+ * is fine for displaying a moving position but not for storing or sending
+ * coordinates. Both caches evict the least recently used entry when full.<br/>
+ * <br/>
+ * This class is thread-safe.
+ */
+public class CachedMgrsConverter {
+
+    /**
+     * The default number of entries in each cache.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The precision used when none is specified: 5 digits each of easting and
+     * northing, for 1-meter resolution.
+     */
+    public static final int DEFAULT_PRECISION = 5;
+
+    private static final double METERS_PER_DEGREE = 111319.49079327357;
+
+    /**
+     * The number of grid cells per unit of MGRS resolution, in each dimension.
+     */
+    private static final double CELLS_PER_RESOLUTION = 10.0;
+
+    private static final CachedMgrsConverter INSTANCE = new CachedMgrsConverter(DEFAULT_CAPACITY, false);
+    private static final CachedMgrsConverter APPROXIMATE_INSTANCE = new CachedMgrsConverter(DEFAULT_CAPACITY, true);
+
+    /**
+     * Identifies a grid cell at a given precision in a spatial reference.
+     */
+    private static final class CellKey {
+
+        private final int wkid;
+        private final int precision;
+        private final long column;
+        private final long row;
+
+        CellKey(int wkid, int precision, long column, long row) {
+            this.wkid = wkid;
+            this.precision = precision;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CellKey)) {
+                return false;
+            }
+            CellKey other = (CellKey) obj;
+            return wkid == other.wkid && precision == other.precision
+                    && column == other.column && row == other.row;
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = 31 * (31 * (31L * wkid + precision) + column) + row;
+            return (int) (hash ^ (hash >>> 32));
+        }
+
+    }
+
+    /**
+     * A bounded map that evicts its least recently accessed entry.
+     */
+    private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+        private final int capacity;
+
+        LruMap(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+
+    }
+
+    private final boolean cachePoints;
+    private final LruMap<CellKey, String> pointToMgrsCache;
+    private final LruMap<String, double[]> mgrsToPointCache;
+    private final Map<Integer, Double> unitsPerMeter = new ConcurrentHashMap<Integer, Double>();
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /**
+     * Returns the application's shared converter, which returns exact results.
+     * @return the application's shared converter.
+     */
+    public static CachedMgrsConverter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the application's shared converter that also caches points. Its MGRS
+     * strings may be off by one in the last digit.
+     * @return the application's shared converter that also caches points.
+     */
+    public static CachedMgrsConverter getApproximateInstance() {
+        return APPROXIMATE_INSTANCE;
+    }
+
+    /**
+     * Creates a converter that does not cache points.
+     * @param capacity the number of entries in each cache.
+     */
+    public CachedMgrsConverter(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Creates a converter.
+     * @param capacity the number of entries in each cache.
+     * @param cachePoints true to cache points by cell, so that pointToMgrs may be
+     *                    off by one in the last digit.
+     */
+    public CachedMgrsConverter(int capacity, boolean cachePoints) {
+        this.cachePoints = cachePoints;
+        pointToMgrsCache = new LruMap<CellKey, String>(capacity);
+        mgrsToPointCache = new LruMap<String, double[]>(capacity);
+    }
+
+    /**
+     * Converts a point to an MGRS string with 5-digit precision.
+     * @param pt the point.
+     * @param sr the point's spatial reference.
+     * @return the MGRS string, or null if the point cannot be converted.
+     */
+    public String pointToMgrs(Point pt, SpatialReference sr) {
+        return pointToMgrs(pt.getX(), pt.getY(), sr, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Converts a point to an MGRS string.
+     * @param x the point's X coordinate.
+     * @param y the point's Y coordinate.
+     * @param sr the point's spatial reference.
+     * @param precision the number of digits each of easting and northing, from 0 to 5.
+     * @return the MGRS string, or null if the point cannot be converted.
+     */
+    public String pointToMgrs(double x, double y, SpatialReference sr, int precision) {
+        int wkid = null == sr ? 0 : sr.getID();
+        if (!cachePoints || 0 >= wkid || Double.isNaN(x) || Double.isNaN(y)) {
+            //Not cacheable; a spatial reference without a WKID has no simple key
+            missCount.incrementAndGet();
+            return convert(x, y, sr, precision);
+        }
+        double cellSize = getUnitsPerMeter(wkid, sr) * Math.pow(10, 5 - precision) / CELLS_PER_RESOLUTION;
+        long column = (long) Math.floor(x / cellSize);
+        long row = (long) Math.floor(y / cellSize);
+        CellKey key = new CellKey(wkid, precision, column, row);
+        String mgrs;
+        synchronized (pointToMgrsCache) {
+            mgrs = pointToMgrsCache.get(key);
+        }
+        if (null != mgrs) {
+            hitCount.incrementAndGet();
+            return mgrs;
+        }
+        missCount.incrementAndGet();
+        mgrs = convert((column + 0.5) * cellSize, (row + 0.5) * cellSize, sr, precision);
+        if (null != mgrs) {
+            synchronized (pointToMgrsCache) {
+                pointToMgrsCache.put(key, mgrs);
+            }
+        }
+        return mgrs;
+    }
+
+    private static String convert(double x, double y, SpatialReference sr, int precision) {
+        return CoordinateConversion.pointToMgrs(new Point(x, y), sr,
+                CoordinateConversion.MGRSConversionMode.AUTO, precision, false, false);
+    }
+
+    /**
+     * Returns the number of the spatial reference's units in a meter on the ground,
+     * or for a geographic spatial reference, in a meter along the equator.
+     */
+    private double getUnitsPerMeter(int wkid, SpatialReference sr) {
+        Double units = unitsPerMeter.get(wkid);
+        if (null == units) {
+            Unit unit = sr.getUnit();
+            if (unit instanceof AngularUnit) {
+                units = Unit.convertUnits(1.0 / METERS_PER_DEGREE,
+                        Utilities.getAngularUnit(AngularUnit.Code.DEGREE), unit);
+            } else if (unit instanceof LinearUnit) {
+                units = Unit.convertUnits(1.0, new LinearUnit(LinearUnit.Code.METER), unit);
+            } else {
+                units = 1.0;
+            }
+            unitsPerMeter.put(wkid, units);
+        }
+        return units;
+    }
+
+    /**
+     * Converts an MGRS string to a point.
+     * @param mgrs the MGRS string.
+     * @param sr the spatial reference of the returned point.
+     * @return a new point, or null if the string cannot be converted.
+     */
+    public Point mgrsToPoint(String mgrs, SpatialReference sr) {
+        int wkid = null == sr ? 0 : sr.getID();
+        if (null == mgrs || 0 >= wkid) {
+            missCount.incrementAndGet();
+            return null == mgrs ? null : CoordinateConversion.mgrsToPoint(mgrs, sr, CoordinateConversion.MGRSConversionMode.AUTO);
+        }
+        MgrsParser parser = MgrsParser.forCurrentThread();
+        if (!parser.parse(mgrs)) {
+            //Not cacheable; let CoordinateConversion decide what to make of it
+            missCount.incrementAndGet();
+            return CoordinateConversion.mgrsToPoint(mgrs, sr, CoordinateConversion.MGRSConversionMode.AUTO);
+        }
+        //Key by the normalized string, so that "37S FU 1234" and "37sfu1234" share an entry
+        String normalizedMgrs = parser.toString();
+        String key = wkid + ":" + normalizedMgrs;
+        double[] coords;
+        synchronized (mgrsToPointCache) {
+            coords = mgrsToPointCache.get(key);
+        }
+        if (null != coords) {
+            hitCount.incrementAndGet();
+            return new Point(coords[0], coords[1]);
+        }
+        missCount.incrementAndGet();
+        Point pt = CoordinateConversion.mgrsToPoint(normalizedMgrs, sr, CoordinateConversion.MGRSConversionMode.AUTO);
+        if (null != pt) {
+            synchronized (mgrsToPointCache) {
+                mgrsToPointCache.put(key, new double[] { pt.getX(), pt.getY() });
+            }
+        }
+        return pt;
+    }
+
+    /**
+     * Empties both caches. The hit and miss counts are not reset.
+     */
+    public void clear() {
+        synchronized (pointToMgrsCache) {
+            pointToMgrsCache.clear();
+        }
+        synchronized (mgrsToPointCache) {
+            mgrsToPointCache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of conversions answered from a cache.
+     * @return the number of conversions answered from a cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of conversions that called CoordinateConversion.
+     * @return the number of conversions that called CoordinateConversion.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the fraction of conversions answered from a cache.
+     * @return the fraction of conversions answered from a cache, from 0 to 1.
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return 0 == total ? 0 : (double) hits / total;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.util.Date;
+
+/**
+ * A thread-safe timestamp format with one-second resolution that remembers the
+ * string for the most recent second it formatted. Callers that format the current
+ * time many times a second, such as the clock label and outbound messages, get the
+ * same String instance back without any formatting or allocation.<br/>
+ * <br/>
+ * Subclasses must be immutable apart from this cache.
+ */
+public abstract class CachedTimestampFormat {
+
+    /**
+     * The most recently formatted second and its string. Replaced as a unit so
+     * that readers never see a second paired with another second's string.
+     */
+    private static final class Entry {
+
+        private final long second;
+        private final String text;
+
+        Entry(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+
+    }
+
+    private static final long MILLISECONDS_IN_DAY = 24L * 60 * 60 * 1000;
+
+    private volatile Entry cache = new Entry(Long.MIN_VALUE, null);
+
+    /**
+     * Appends a formatted time to a StringBuilder. Implementations must depend only
+     * on the second containing millis, not on the milliseconds within it.
+     * @param sb the StringBuilder.
+     * @param millis the time, in milliseconds since the epoch.
+     * @return sb.
+     */
+    public abstract StringBuilder appendTo(StringBuilder sb, long millis);
+
+    /**
+     * Formats a time.
+     * @param millis the time, in milliseconds since the epoch.
+     * @return the formatted time.
+     */
+    public String format(long millis) {
+        long second = floorDiv(millis, 1000);
+        Entry entry = cache;
+        if (entry.second != second) {
+            entry = new Entry(second, appendTo(new StringBuilder(24), millis).toString());
+            cache = entry;
+        }
+        return entry.text;
+    }
+
+    /**
+     * Formats a date.
+     * @param date the date.
+     * @return the formatted date.
+     */
+    public String format(Date date) {
+        return format(date.getTime());
+    }
+
+    /**
+     * Formats the current time.
+     * @return the formatted current time.
+     */
+    public String formatNow() {
+        return format(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the civil date for a local time, packed as year * 10000 + month * 100
+     * + day (proleptic Gregorian calendar), so that no object is allocated.
+     * @param localMillis milliseconds since 1970-01-01T00:00 in the local time zone.
+     * @return the packed date.
+     */
+    protected static long getPackedDate(long localMillis) {
+        long z = floorDiv(localMillis, MILLISECONDS_IN_DAY) + 719468;
+        long era = floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * Returns the second of the day for a local time, from 0 to 86399.
+     * @param localMillis milliseconds since 1970-01-01T00:00 in the local time zone.
+     * @return the second of the day.
+     */
+    protected static int getSecondOfDay(long localMillis) {
+        return (int) ((localMillis - floorDiv(localMillis, MILLISECONDS_IN_DAY) * MILLISECONDS_IN_DAY) / 1000);
+    }
+
+    /**
+     * Appends a number from 0 to 99 as two digits.
+     */
+    protected static void appendTwoDigits(StringBuilder sb, int value) {
+        sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+
+}
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+/**
+ * Parses a geomessage _control_points string ("x1,y1;x2,y2;...") directly into a
+ * reusable array of doubles, without creating tokens, substrings, or boxed values.
+ * A point whose X or Y cannot be parsed is skipped, and the first such problem is
+ * recorded so that it can be reported.<br/>
+ * <br/>
+ * A ControlPointParser is not thread-safe. Use forCurrentThread() to get an
+ * instance that belongs to the calling thread.
+ */
+public class ControlPointParser {
+
+    private static final ThreadLocal<ControlPointParser> PARSERS = new ThreadLocal<ControlPointParser>() {
+
+        @Override
+        protected ControlPointParser initialValue() {
+            return new ControlPointParser();
+        }
+    };
+
+    /**
+     * Exact powers of ten that a double can represent.
+     */
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    /**
+     * The largest mantissa that a double represents exactly (2^53).
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private double[] coordinates = new double[16];
+    private int pointCount = 0;
+    private String errorMessage = null;
+    private int errorIndex = -1;
+    private boolean coordinateFailed = false;
+
+    /**
+     * Returns the ControlPointParser that belongs to the calling thread. Its buffer
+     * is reused by every parse on that thread.
+     * @return the ControlPointParser that belongs to the calling thread.
+     */
+    public static ControlPointParser forCurrentThread() {
+        return PARSERS.get();
+    }
+
+    /**
+     * Parses a control points string. Points are separated by semicolons, and the
+     * coordinates of a point are separated by commas. Coordinates after the first
+     * two in a point are ignored. Empty points are skipped.
+     * @param controlPoints the control points string. If null, no points are parsed.
+     * @return the number of points parsed.
+     */
+    public int parse(CharSequence controlPoints) {
+        pointCount = 0;
+        errorMessage = null;
+        errorIndex = -1;
+        if (null == controlPoints) {
+            return 0;
+        }
+        final int length = controlPoints.length();
+        int pointStart = 0;
+        while (pointStart < length) {
+            int pointEnd = indexOf(controlPoints, ';', pointStart, length);
+            parsePoint(controlPoints, pointStart, pointEnd);
+            pointStart = pointEnd + 1;
+        }
+        return pointCount;
+    }
+
+    private void parsePoint(CharSequence text, int start, int end) {
+        start = skipWhitespace(text, start, end);
+        if (start == end) {
+            //Empty point, as in "1,2;;3,4" or a trailing semicolon
+            return;
+        }
+        int comma = indexOf(text, ',', start, end);
+        if (comma == end) {
+            recordError("Point has no Y coordinate", start);
+            return;
+        }
+        int yEnd = indexOf(text, ',', comma + 1, end);
+        coordinateFailed = false;
+        double x = parseDouble(text, start, comma);
+        double y = coordinateFailed ? Double.NaN : parseDouble(text, comma + 1, yEnd);
+        if (coordinateFailed) {
+            return;
+        }
+        int offset = 2 * pointCount;
+        if (offset + 2 > coordinates.length) {
+            double[] larger = new double[coordinates.length * 2];
+            System.arraycopy(coordinates, 0, larger, 0, offset);
+            coordinates = larger;
+        }
+        coordinates[offset] = x;
+        coordinates[offset + 1] = y;
+        pointCount++;
+    }
+
+    /**
+     * Parses a decimal number from text[start, end). Leading and trailing whitespace
+     * is ignored. Returns NaN and records an error if the text is not a number.
+     */
+    private double parseDouble(CharSequence text, int start, int end) {
+        start = skipWhitespace(text, start, end);
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            recordError("Empty coordinate", start);
+            return Double.NaN;
+        }
+        int i = start;
+        boolean negative = false;
+        char c = text.charAt(i);
+        if ('-' == c || '+' == c) {
+            negative = '-' == c;
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimalExponent = 0;
+        boolean sawDigit = false;
+        boolean sawPoint = false;
+        for (; i < end; i++) {
+            c = text.charAt(i);
+            if ('0' <= c && c <= '9') {
+                sawDigit = true;
+                if (0 < digits || '0' != c) {
+                    if (18 <= digits) {
+                        return parseDoubleSlowly(text, start, end);
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                }
+                if (sawPoint) {
+                    decimalExponent--;
+                }
+            } else if ('.' == c && !sawPoint) {
+                sawPoint = true;
+            } else {
+                //Exponent, "NaN", "Infinity", or garbage
+                return parseDoubleSlowly(text, start, end);
+            }
+        }
+        if (!sawDigit) {
+            recordError("Coordinate has no digits", start);
+            return Double.NaN;
+        }
+        if (MAX_EXACT_MANTISSA < mantissa || POWERS_OF_TEN.length <= -decimalExponent) {
+            return parseDoubleSlowly(text, start, end);
+        }
+        double value = (double) mantissa;
+        if (0 > decimalExponent) {
+            value /= POWERS_OF_TEN[-decimalExponent];
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Handles the rare numbers that the fast path cannot parse exactly.
+     */
+    private double parseDoubleSlowly(CharSequence text, int start, int end) {
+        try {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        } catch (NumberFormatException nfe) {
+            recordError("Coordinate is not a number: '" + text.subSequence(start, end) + "'", start);
+            return Double.NaN;
+        }
+    }
+
+    private void recordError(String message, int index) {
+        coordinateFailed = true;
+        if (null == errorMessage) {
+            errorMessage = message;
+            errorIndex = index;
+        }
+    }
+
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (c == text.charAt(i)) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int skipWhitespace(CharSequence text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Returns the number of points parsed by the last call to parse.
+     * @return the number of points parsed by the last call to parse.
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Returns the X coordinate of a parsed point.
+     * @param index the point index, from 0 to getPointCount() - 1.
+     * @return the X coordinate of the point.
+     */
+    public double getX(int index) {
+        return coordinates[2 * index];
+    }
+
+    /**
+     * Returns the Y coordinate of a parsed point.
+     * @param index the point index, from 0 to getPointCount() - 1.
+     * @return the Y coordinate of the point.
+     */
+    public double getY(int index) {
+        return coordinates[2 * index + 1];
+    }
+
+    /**
+     * Returns the parser's coordinate buffer, in which the parsed points are stored
+     * as x0, y0, x1, y1, and so on. Only the first 2 * getPointCount() values are
+     * meaningful. The buffer is reused by the next call to parse, so copy any values
+     * you need to keep.
+     * @return the parser's coordinate buffer.
+     */
+    public double[] getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * Returns true if the last call to parse skipped a malformed point.
+     * @return true if the last call to parse skipped a malformed point.
+     */
+    public boolean hasError() {
+        return null != errorMessage;
+    }
+
+    /**
+     * Returns a description of the first malformed point found by the last call
+     * to parse, or null if there was none.
+     * @return a description of the first malformed point, or null.
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Returns the character index of the first malformed point found by the last
+     * call to parse, or -1 if there was none.
+     * @return the character index of the first malformed point, or -1.
+     */
+    public int getErrorIndex() {
+        return errorIndex;
+    }
+
+}
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+/**
+ * Computes distances and bearings between longitude/latitude points on the WGS 1984
+ * ellipsoid, in pure Java with no geometry objects.<br/>
+ * <br/>
+ * Points less than FAST_PATH_MAX_METERS apart, and not so close to a pole that
+ * their meridians converge noticeably, use a fast path that treats the ellipsoid
+ * as locally flat, using its radii of curvature at the mid-latitude, with a
+ * correction to the bearing for the convergence of the meridians. The fast path
+ * is within 2 millimeters and 0.001 degrees of the full solution. Farther points use
+ * Vincenty's inverse formula, which is accurate to well under a millimeter. For
+ * nearly antipodal points, where Vincenty's iteration does not converge, the
+ * spherical (haversine) solution is used instead; its distance is within 0.6% of
+ * the ellipsoidal distance.
+ */
+public final class Geodesic {
+
+    /**
+     * The WGS 1984 semi-major axis, in meters.
+     */
+    public static final double SEMI_MAJOR_AXIS = 6378137.0;
+
+    /**
+     * The WGS 1984 flattening.
+     */
+    public static final double FLATTENING = 1 / 298.257223563;
+
+    /**
+     * The WGS 1984 mean radius, in meters, used by the spherical methods.
+     */
+    public static final double MEAN_RADIUS = 6371008.8;
+
+    /**
+     * Points closer together than this, in meters, use the fast path.
+     */
+    public static final double FAST_PATH_MAX_METERS = 10000.0;
+
+    /**
+     * The fast path is used only when the meridians of the two points converge by
+     * less than this many radians, because the error grows with the square of
+     * the convergence.
+     */
+    private static final double FAST_PATH_MAX_CONVERGENCE = 0.001;
+
+    private static final double SEMI_MINOR_AXIS = SEMI_MAJOR_AXIS * (1 - FLATTENING);
+    private static final double ECCENTRICITY_SQUARED = FLATTENING * (2 - FLATTENING);
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180.0;
+    private static final double RADIANS_TO_DEGREES = 180.0 / Math.PI;
+    private static final int MAX_ITERATIONS = 200;
+    private static final double CONVERGENCE = 1e-12;
+
+    private Geodesic() {
+    }
+
+    /**
+     * Returns the distance between two points along the ellipsoid.
+     * @param fromLon the longitude of the first point, in degrees.
+     * @param fromLat the latitude of the first point, in degrees.
+     * @param toLon the longitude of the second point, in degrees.
+     * @param toLat the latitude of the second point, in degrees.
+     * @return the distance in meters.
+     */
+    public static double distanceMeters(double fromLon, double fromLat, double toLon, double toLat) {
+        double[] result = new double[2];
+        inverse(fromLon, fromLat, toLon, toLat, result);
+        return result[0];
+    }
+
+    /**
+     * Returns the compass bearing at the first point of the shortest path to the
+     * second point.
+     * @param fromLon the longitude of the first point, in degrees.
+     * @param fromLat the latitude of the first point, in degrees.
+     * @param toLon the longitude of the second point, in degrees.
+     * @param toLat the latitude of the second point, in degrees.
+     * @return the initial bearing, in degrees from 0 (inclusive) to 360 (exclusive).
+     */
+    public static double initialBearingDegrees(double fromLon, double fromLat, double toLon, double toLat) {
+        double[] result = new double[2];
+        inverse(fromLon, fromLat, toLon, toLat, result);
+        return result[1];
+    }
+
+    /**
+     * Computes the distance and initial bearing from one point to another along the
+     * ellipsoid.
+     * @param fromLon the longitude of the first point, in degrees.
+     * @param fromLat the latitude of the first point, in degrees.
+     * @param toLon the longitude of the second point, in degrees.
+     * @param toLat the latitude of the second point, in degrees.
+     * @param result an array of at least two elements, which receives the distance
+     *        in meters and the initial bearing in degrees from 0 to 360.
+     */
+    public static void inverse(double fromLon, double fromLat, double toLon, double toLat, double[] result) {
+        double phi1 = fromLat * DEGREES_TO_RADIANS;
+        double phi2 = toLat * DEGREES_TO_RADIANS;
+        double deltaLambda = normalizeRadians((toLon - fromLon) * DEGREES_TO_RADIANS);
+        double deltaPhi = phi2 - phi1;
+        //Longitude differences near 180 are never short, so check latitude first
+        if (Math.abs(deltaPhi) < FAST_PATH_MAX_METERS / SEMI_MINOR_AXIS
+                && Math.abs(deltaLambda * Math.sin(phi1)) < FAST_PATH_MAX_CONVERGENCE
+                && Math.abs(deltaLambda) * Math.cos(phi1) < 2 * FAST_PATH_MAX_METERS / SEMI_MAJOR_AXIS) {
+            localInverse(phi1, deltaPhi, deltaLambda, result);
+            if (FAST_PATH_MAX_METERS > result[0]) {
+                return;
+            }
+        }
+        if (!vincentyInverse(phi1, phi2, deltaLambda, result)) {
+            sphericalInverse(phi1, phi2, deltaLambda, result);
+        }
+    }
+
+    /**
+     * Treats the ellipsoid as flat around the mid-latitude, scaled by the meridional
+     * and prime vertical radii of curvature there.
+     */
+    private static void localInverse(double phi1, double deltaPhi, double deltaLambda, double[] result) {
+        double phiMid = phi1 + deltaPhi / 2;
+        double sinMid = Math.sin(phiMid);
+        double cosMid = Math.cos(phiMid);
+        double w = 1 - ECCENTRICITY_SQUARED * sinMid * sinMid;
+        double primeVerticalRadius = SEMI_MAJOR_AXIS / Math.sqrt(w);
+        double meridionalRadius = primeVerticalRadius * (1 - ECCENTRICITY_SQUARED) / w;
+        double north = meridionalRadius * deltaPhi;
+        double east = primeVerticalRadius * cosMid * deltaLambda;
+        result[0] = Math.sqrt(north * north + east * east);
+        //The path's bearing at its midpoint, less half the convergence of the meridians
+        double bearing = Math.atan2(east, north) - deltaLambda * sinMid / 2;
+        result[1] = toBearingDegrees(bearing);
+    }
+
+    /**
+     * Vincenty's inverse formula. Returns false if it fails to converge.
+     */
+    private static boolean vincentyInverse(double phi1, double phi2, double deltaLambda, double[] result) {
+        double u1 = Math.atan((1 - FLATTENING) * Math.tan(phi1));
+        double u2 = Math.atan((1 - FLATTENING) * Math.tan(phi2));
+        double sinU1 = Math.sin(u1);
+        double cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU2 = Math.cos(u2);
+        double lambda = deltaLambda;
+        double sinLambda;
+        double cosLambda;
+        double sinSigma;
+        double cosSigma;
+        double sigma;
+        double cosSquaredAlpha;
+        double cos2SigmaM;
+        int iterations = 0;
+        double previousLambda;
+        do {
+            sinLambda = Math.sin(lambda);
+            cosLambda = Math.cos(lambda);
+            double a = cosU2 * sinLambda;
+            double b = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(a * a + b * b);
+            if (0 == sinSigma) {
+                //Coincident points
+                result[0] = 0;
+                result[1] = 0;
+                return true;
+            }
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSquaredAlpha = 1 - sinAlpha * sinAlpha;
+            //On the equator, cosSquaredAlpha is 0 and cos2SigmaM is irrelevant
+            cos2SigmaM = 0 == cosSquaredAlpha ? 0 : cosSigma - 2 * sinU1 * sinU2 / cosSquaredAlpha;
+            double c = FLATTENING / 16 * cosSquaredAlpha * (4 + FLATTENING * (4 - 3 * cosSquaredAlpha));
+            previousLambda = lambda;
+            lambda = deltaLambda + (1 - c) * FLATTENING * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+            if (MAX_ITERATIONS < ++iterations || Math.PI < Math.abs(lambda)) {
+                return false;
+            }
+        } while (CONVERGENCE < Math.abs(lambda - previousLambda));
+
+        double uSquared = cosSquaredAlpha * (SEMI_MAJOR_AXIS * SEMI_MAJOR_AXIS - SEMI_MINOR_AXIS * SEMI_MINOR_AXIS)
+                / (SEMI_MINOR_AXIS * SEMI_MINOR_AXIS);
+        double a = 1 + uSquared / 16384 * (4096 + uSquared * (-768 + uSquared * (320 - 175 * uSquared)));
+        double b = uSquared / 1024 * (256 + uSquared * (-128 + uSquared * (74 - 47 * uSquared)));
+        double deltaSigma = b * sinSigma * (cos2SigmaM + b / 4 * (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)
+                - b / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+        result[0] = SEMI_MINOR_AXIS * a * (sigma - deltaSigma);
+        result[1] = toBearingDegrees(Math.atan2(cosU2 * sinLambda, cosU1 * sinU2 - sinU1 * cosU2 * cosLambda));
+        return true;
+    }
+
+    private static void sphericalInverse(double phi1, double phi2, double deltaLambda, double[] result) {
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfDeltaLambda = Math.sin(deltaLambda / 2);
+        double h = sinHalfDeltaPhi * sinHalfDeltaPhi
+                + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        result[0] = 2 * MEAN_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+        result[1] = toBearingDegrees(Math.atan2(Math.sin(deltaLambda) * Math.cos(phi2),
+                Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(deltaLambda)));
+    }
+
+    /**
+     * Returns the great circle distance between two points on a sphere with the
+     * mean radius of the WGS 1984 ellipsoid. This is within 0.6% of the ellipsoidal
+     * distance.
+     * @param fromLon the longitude of the first point, in degrees.
+     * @param fromLat the latitude of the first point, in degrees.
+     * @param toLon the longitude of the second point, in degrees.
+     * @param toLat the latitude of the second point, in degrees.
+     * @return the distance in meters.
+     */
+    public static double sphericalDistanceMeters(double fromLon, double fromLat, double toLon, double toLat) {
+        double[] result = new double[2];
+        sphericalInverse(fromLat * DEGREES_TO_RADIANS, toLat * DEGREES_TO_RADIANS,
+                normalizeRadians((toLon - fromLon) * DEGREES_TO_RADIANS), result);
+        return result[0];
+    }
+
+    private static double normalizeRadians(double radians) {
+        while (Math.PI < radians) {
+            radians -= 2 * Math.PI;
+        }
+        while (-Math.PI > radians) {
+            radians += 2 * Math.PI;
+        }
+        return radians;
+    }
+
+    private static double toBearingDegrees(double radians) {
+        double degrees = radians * RADIANS_TO_DEGREES;
+        if (0 > degrees) {
+            degrees += 360;
+        }
+        return 360 <= degrees ? degrees - 360 : degrees;
+    }
+
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+/**
+ * The immutable, thread-safe format for geomessage datetimevalid timestamps:
+ * yyyy-MM-dd HH:mm:ss in UTC.
+ */
+public final class GeomessageDateFormat extends CachedTimestampFormat {
+
+    /**
+     * The application's geomessage timestamp format.
+     */
+    public static final GeomessageDateFormat INSTANCE = new GeomessageDateFormat();
+
+    private GeomessageDateFormat() {
+    }
+
+    @Override
+    public StringBuilder appendTo(StringBuilder sb, long millis) {
+        long date = getPackedDate(millis);
+        int secondOfDay = getSecondOfDay(millis);
+        long year = date / 10000;
+        if (0 <= year && 10000 > year) {
+            int y = (int) year;
+            appendTwoDigits(sb, y / 100);
+            appendTwoDigits(sb, y % 100);
+        } else {
+            sb.append(year);
+        }
+        sb.append('-');
+        appendTwoDigits(sb, (int) (date / 100 % 100));
+        sb.append('-');
+        appendTwoDigits(sb, (int) (date % 100));
+        sb.append(' ');
+        appendTwoDigits(sb, secondOfDay / 3600);
+        sb.append(':');
+        appendTwoDigits(sb, secondOfDay / 60 % 60);
+        sb.append(':');
+        appendTwoDigits(sb, secondOfDay % 60);
+        return sb;
+    }
+
+}
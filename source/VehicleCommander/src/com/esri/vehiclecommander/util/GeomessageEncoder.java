@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes outbound geomessages from a GeomessageTemplate directly into a reusable
+ * UTF-8 byte buffer. Only the template's variable elements are encoded for each
+ * message; everything else is copied from the template's precompiled bytes. After
+ * the first few messages, encoding a message allocates nothing but the text of
+ * any floating-point values.<br/>
+ * <br/>
+ * To encode a message, call begin, then one value method for each of the template's
+ * variable elements in order, then finish:<br/>
+ * <br/>
+ * <code>
+ * ByteBuffer message = GeomessageEncoder.forCurrentThread().begin(template)<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.randomId()<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.point(x, y)<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.finish();
+ * </code><br/>
+ * <br/>
+ * A GeomessageEncoder is not thread-safe. Use forCurrentThread() to get the
+ * instance that belongs to the calling thread.
+ */
+public class GeomessageEncoder {
+
+    private static final ThreadLocal<GeomessageEncoder> ENCODERS = new ThreadLocal<GeomessageEncoder>() {
+
+        @Override
+        protected GeomessageEncoder initialValue() {
+            return new GeomessageEncoder();
+        }
+    };
+
+    /**
+     * The most bytes one char can take in the output, which is the length of
+     * the entity "&amp;amp;".
+     */
+    private static final int MAX_BYTES_PER_CHAR = 5;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder numberText = new StringBuilder(32);
+    private byte[] bytes = new byte[1024];
+    private ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int length = 0;
+    private GeomessageTemplate template = null;
+    private int nextSlot = 0;
+
+    /**
+     * Returns the GeomessageEncoder that belongs to the calling thread.
+     * @return the GeomessageEncoder that belongs to the calling thread.
+     */
+    public static GeomessageEncoder forCurrentThread() {
+        return ENCODERS.get();
+    }
+
+    /**
+     * Starts a message. Any message that was started and not finished is discarded.
+     * @param template the template for the message.
+     * @return this encoder.
+     */
+    public GeomessageEncoder begin(GeomessageTemplate template) {
+        this.template = template;
+        nextSlot = 0;
+        length = 0;
+        ensureCapacity(template.getLiteralLength());
+        return this;
+    }
+
+    /**
+     * Fills in the next variable element with text. The characters &amp;, &lt;
+     * and &gt; are escaped.
+     * @param value the element value. If null, the element is empty.
+     * @return this encoder.
+     */
+    public GeomessageEncoder value(CharSequence value) {
+        startSlot();
+        if (null != value) {
+            writeEscaped(value);
+        }
+        return this;
+    }
+
+    /**
+     * Fills in the next variable element with an integer.
+     * @param value the element value.
+     * @return this encoder.
+     */
+    public GeomessageEncoder value(long value) {
+        startSlot();
+        numberText.setLength(0);
+        numberText.append(value);
+        writeEscaped(numberText);
+        return this;
+    }
+
+    /**
+     * Fills in the next variable element with a number, formatted as
+     * Double.toString formats it.
+     * @param value the element value.
+     * @return this encoder.
+     */
+    public GeomessageEncoder value(double value) {
+        startSlot();
+        numberText.setLength(0);
+        numberText.append(value);
+        writeEscaped(numberText);
+        return this;
+    }
+
+    /**
+     * Fills in the next variable element with a control point, "x,y".
+     * @param x the point's X coordinate.
+     * @param y the point's Y coordinate.
+     * @return this encoder.
+     */
+    public GeomessageEncoder point(double x, double y) {
+        startSlot();
+        numberText.setLength(0);
+        numberText.append(x).append(',').append(y);
+        writeEscaped(numberText);
+        return this;
+    }
+
+    /**
+     * Fills in the next variable element with a geomessage timestamp, in the form
+     * of GeomessageDateFormat.
+     * @param millis the time, in milliseconds since the epoch.
+     * @return this encoder.
+     */
+    public GeomessageEncoder timestamp(long millis) {
+        return value(GeomessageDateFormat.INSTANCE.format(millis));
+    }
+
+    /**
+     * Fills in the next variable element with a new random message ID, in the form
+     * of UUID.toString. The ID is a version 4 UUID drawn from ThreadLocalRandom
+     * rather than from a SecureRandom, which is unique enough for message IDs and
+     * does not contend across threads.
+     * @return this encoder.
+     */
+    public GeomessageEncoder randomId() {
+        startSlot();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificant = (random.nextLong() & ~0xf000L) | 0x4000L;
+        long leastSignificant = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        writeHex(mostSignificant >>> 32, 8);
+        bytes[length++] = '-';
+        writeHex(mostSignificant >>> 16, 4);
+        bytes[length++] = '-';
+        writeHex(mostSignificant, 4);
+        bytes[length++] = '-';
+        writeHex(leastSignificant >>> 48, 4);
+        bytes[length++] = '-';
+        writeHex(leastSignificant, 12);
+        return this;
+    }
+
+    /**
+     * Finishes the message. The returned buffer belongs to this encoder and is
+     * overwritten by the next message, so send or copy it before calling begin
+     * again.
+     * @return a buffer whose position is 0 and whose limit is the end of the
+     *         message.
+     * @throws IllegalStateException if not every variable element was filled in.
+     */
+    public ByteBuffer finish() {
+        if (null == template) {
+            throw new IllegalStateException("No message has been started");
+        }
+        if (nextSlot < template.getSlotCount()) {
+            throw new IllegalStateException("No value for element " + template.getSlotName(nextSlot));
+        }
+        writeSegment(template.getSegment(nextSlot));
+        template = null;
+        buffer.clear();
+        buffer.limit(length);
+        return buffer;
+    }
+
+    private void startSlot() {
+        if (null == template) {
+            throw new IllegalStateException("No message has been started");
+        }
+        if (nextSlot >= template.getSlotCount()) {
+            throw new IllegalStateException("The template has only " + template.getSlotCount() + " variable elements");
+        }
+        writeSegment(template.getSegment(nextSlot++));
+        //Room for a random ID, which is written without further checks
+        ensureCapacity(36);
+    }
+
+    private void writeSegment(byte[] segment) {
+        ensureCapacity(segment.length);
+        System.arraycopy(segment, 0, bytes, length, segment.length);
+        length += segment.length;
+    }
+
+    private void writeHex(long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            bytes[length + i] = (byte) HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+        length += digits;
+    }
+
+    private void writeEscaped(CharSequence value) {
+        int count = value.length();
+        ensureCapacity(count * MAX_BYTES_PER_CHAR);
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '&':
+                        writeAscii("&amp;");
+                        break;
+                    case '<':
+                        writeAscii("&lt;");
+                        break;
+                    case '>':
+                        writeAscii("&gt;");
+                        break;
+                    default:
+                        bytes[length++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xc0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[length++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                //An unpaired surrogate cannot be encoded
+                bytes[length++] = '?';
+            } else {
+                bytes[length++] = (byte) (0xe0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private void writeAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            bytes[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void ensureCapacity(int additional) {
+        if (bytes.length - length < additional) {
+            byte[] grown = new byte[Math.max(bytes.length * 2, length + additional)];
+            System.arraycopy(bytes, 0, grown, 0, length);
+            bytes = grown;
+            buffer = ByteBuffer.wrap(bytes);
+        }
+    }
+
+    /**
+     * Escapes text for a template, as value(CharSequence) escapes it.
+     * @param text the text.
+     * @param to the StringBuilder to which the escaped text is appended.
+     * @param attribute true if the text is an attribute value, in which case
+     *                  double quotes are escaped too.
+     */
+    static void escape(CharSequence text, StringBuilder to, boolean attribute) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    to.append("&amp;");
+                    break;
+                case '<':
+                    to.append("&lt;");
+                    break;
+                case '>':
+                    to.append("&gt;");
+                    break;
+                case '"':
+                    to.append(attribute ? "&quot;" : "\"");
+                    break;
+                default:
+                    to.append(c);
+            }
+        }
+    }
+
+}
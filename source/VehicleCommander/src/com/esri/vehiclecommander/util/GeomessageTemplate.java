@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A precompiled outbound geomessage. The elements whose values never change are
+ * escaped and encoded as UTF-8 once, when the template is built, and the elements
+ * whose values change from message to message are left as slots that a
+ * GeomessageEncoder fills in order.<br/>
+ * <br/>
+ * A template is immutable and can be shared by any number of threads. Build one
+ * with a Builder, usually once per report type:<br/>
+ * <br/>
+ * <code>
+ * GeomessageTemplate template = new GeomessageTemplate.Builder()<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.constant("_type", "sysmsg")<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.variable("_id")<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.build();
+ * </code>
+ */
+public final class GeomessageTemplate {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Builds a GeomessageTemplate. The elements appear in the message in the order
+     * in which they are added.
+     */
+    public static class Builder {
+
+        private final String geomessageVersion;
+        private final StringBuilder literal = new StringBuilder();
+        private final List<byte[]> segments = new ArrayList<byte[]>();
+        private final List<String> slotNames = new ArrayList<String>();
+
+        /**
+         * Creates a Builder for a message with the geomessage version in
+         * Utilities.GEOMESSAGE_VERSION.
+         */
+        public Builder() {
+            this(Utilities.GEOMESSAGE_VERSION);
+        }
+
+        /**
+         * Creates a Builder.
+         * @param geomessageVersion the value of the geomessage element's v attribute.
+         */
+        public Builder(String geomessageVersion) {
+            this.geomessageVersion = geomessageVersion;
+            literal.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><geomessages><geomessage v=\"");
+            GeomessageEncoder.escape(geomessageVersion, literal, true);
+            literal.append("\">");
+        }
+
+        /**
+         * Adds an element whose value is the same in every message.
+         * @param name the element name.
+         * @param value the element value.
+         * @return this Builder.
+         */
+        public Builder constant(String name, String value) {
+            literal.append('<').append(name).append('>');
+            GeomessageEncoder.escape(value, literal, false);
+            literal.append("</").append(name).append('>');
+            return this;
+        }
+
+        /**
+         * Adds an element whose value is filled in for each message.
+         * @param name the element name.
+         * @return this Builder.
+         */
+        public Builder variable(String name) {
+            literal.append('<').append(name).append('>');
+            segments.add(literal.toString().getBytes(UTF_8));
+            literal.setLength(0);
+            literal.append("</").append(name).append('>');
+            slotNames.add(name);
+            return this;
+        }
+
+        /**
+         * Creates the template.
+         * @return the template.
+         */
+        public GeomessageTemplate build() {
+            ArrayList<byte[]> allSegments = new ArrayList<byte[]>(segments);
+            allSegments.add((literal.toString() + "</geomessage></geomessages>").getBytes(UTF_8));
+            return new GeomessageTemplate(geomessageVersion,
+                    allSegments.toArray(new byte[allSegments.size()][]),
+                    slotNames.toArray(new String[slotNames.size()]));
+        }
+
+    }
+
+    private final String geomessageVersion;
+    private final byte[][] segments;
+    private final String[] slotNames;
+    private final int literalLength;
+
+    private GeomessageTemplate(String geomessageVersion, byte[][] segments, String[] slotNames) {
+        this.geomessageVersion = geomessageVersion;
+        this.segments = segments;
+        this.slotNames = slotNames;
+        int length = 0;
+        for (byte[] segment : segments) {
+            length += segment.length;
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Returns the geomessage version written in messages from this template.
+     * @return the geomessage version.
+     */
+    public String getGeomessageVersion() {
+        return geomessageVersion;
+    }
+
+    /**
+     * Returns the number of variable elements, each of which must be filled in
+     * for each message.
+     * @return the number of variable elements.
+     */
+    public int getSlotCount() {
+        return slotNames.length;
+    }
+
+    /**
+     * Returns the name of a variable element.
+     * @param slot the index of the variable element.
+     * @return the element name.
+     */
+    public String getSlotName(int slot) {
+        return slotNames[slot];
+    }
+
+    byte[] getSegment(int index) {
+        return segments[index];
+    }
+
+    int getLiteralLength() {
+        return literalLength;
+    }
+
+}
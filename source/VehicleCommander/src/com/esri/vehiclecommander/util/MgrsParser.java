@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+/**
+ * Validates and normalizes MGRS strings in one pass, without regular expressions
+ * or intermediate strings, and makes the parts of the MGRS string available: the
+ * grid zone, the 100,000-meter square, and the easting and northing digits.<br/>
+ * <br/>
+ * Parsing follows the rules of Utilities.convertToValidMgrs: characters other than
+ * ASCII letters and digits are ignored; letters are uppercased; digits before a
+ * polar zone (A, B, Y, or Z) are dropped; a non-polar grid zone number must have
+ * one or two digits and be no more than 60; the 100,000-meter square must have
+ * exactly two letters; and there must be an even number of easting/northing digits.
+ * A string with no grid zone can take its grid zone from a reference MGRS string.<br/>
+ * <br/>
+ * An MgrsParser is not thread-safe. Use forCurrentThread() to get an instance that
+ * belongs to the calling thread.
+ */
+public class MgrsParser {
+
+    private static final ThreadLocal<MgrsParser> PARSERS = new ThreadLocal<MgrsParser>() {
+
+        @Override
+        protected MgrsParser initialValue() {
+            return new MgrsParser();
+        }
+    };
+
+    /**
+     * The most digits of easting or northing whose value fits in a long.
+     */
+    private static final int MAX_VALUE_DIGITS = 18;
+
+    private final char[] zoneDigits = new char[2];
+    private int zoneDigitCount = 0;
+    private char band = 0;
+    private char squareColumn = 0;
+    private char squareRow = 0;
+    private char[] digits = new char[16];
+    private int digitCount = 0;
+    private boolean valid = false;
+    private boolean missingGridZone = false;
+    private boolean gridZoneFromReference = false;
+    private String errorMessage = null;
+
+    /**
+     * Returns the MgrsParser that belongs to the calling thread.
+     * @return the MgrsParser that belongs to the calling thread.
+     */
+    public static MgrsParser forCurrentThread() {
+        return PARSERS.get();
+    }
+
+    /**
+     * Parses an MGRS string that should include a grid zone.
+     * @param mgrs the MGRS string. If null, the parse fails.
+     * @return true if the string is valid.
+     */
+    public boolean parse(CharSequence mgrs) {
+        return parse(mgrs, null);
+    }
+
+    /**
+     * Parses an MGRS string, taking a missing grid zone from a reference MGRS string.
+     * @param mgrs the MGRS string. If null, the parse fails.
+     * @param referenceMgrs an MGRS string whose grid zone is used if mgrs has two
+     *        letters and no grid zone. The grid zone is the reference string's first
+     *        letter and up to two digits before it. May be null.
+     * @return true if the string is valid.
+     */
+    public boolean parse(CharSequence mgrs, CharSequence referenceMgrs) {
+        valid = false;
+        missingGridZone = false;
+        gridZoneFromReference = false;
+        errorMessage = null;
+        zoneDigitCount = 0;
+        band = 0;
+        squareColumn = 0;
+        squareRow = 0;
+        digitCount = 0;
+        if (null == mgrs) {
+            return fail("MGRS string is null");
+        }
+
+        /**
+         * Tokenize into <leading digits><letters><trailing digits>. Only the last two
+         * leading digits and the last three letters are kept, but the counts are
+         * exact, so that any string that doesn't fit the pattern is rejected below.
+         */
+        int leadingDigitCount = 0;
+        char leading0 = 0;
+        char leading1 = 0;
+        int letterCount = 0;
+        char letter0 = 0;
+        char letter1 = 0;
+        char letter2 = 0;
+        final int length = mgrs.length();
+        for (int i = 0; i < length; i++) {
+            char c = mgrs.charAt(i);
+            if ('a' <= c && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            if ('0' <= c && c <= '9') {
+                if (0 == letterCount) {
+                    leading0 = leading1;
+                    leading1 = c;
+                    leadingDigitCount++;
+                } else {
+                    if (digitCount == digits.length) {
+                        char[] larger = new char[digits.length * 2];
+                        System.arraycopy(digits, 0, larger, 0, digitCount);
+                        digits = larger;
+                    }
+                    digits[digitCount++] = c;
+                }
+            } else if ('A' <= c && c <= 'Z') {
+                if (0 < digitCount) {
+                    return fail("Letters after easting/northing digits");
+                }
+                letter0 = letter1;
+                letter1 = letter2;
+                letter2 = c;
+                letterCount++;
+            }
+            //Ignore anything else
+        }
+        if (0 == letterCount) {
+            //There are no letters; nothing we can do
+            return fail("MGRS string has no letters");
+        }
+
+        if (2 == letterCount && 0 == leadingDigitCount) {
+            //No grid zone identifier; take it from the reference
+            missingGridZone = true;
+            if (null != referenceMgrs) {
+                int refLength = referenceMgrs.length();
+                int refDigits = 0;
+                while (refDigits < 2 && refDigits < refLength && isDigit(referenceMgrs.charAt(refDigits))) {
+                    refDigits++;
+                }
+                if (refDigits < refLength && isUpperCaseLetter(referenceMgrs.charAt(refDigits))) {
+                    leadingDigitCount = refDigits;
+                    leading0 = 2 == refDigits ? referenceMgrs.charAt(0) : 0;
+                    leading1 = 0 < refDigits ? referenceMgrs.charAt(refDigits - 1) : 0;
+                    letter0 = referenceMgrs.charAt(refDigits);
+                    letterCount = 3;
+                    gridZoneFromReference = true;
+                    missingGridZone = false;
+                }
+            }
+        }
+
+        if (isPolarBand(letter0) || 0 == leadingDigitCount) {
+            //Polar, with any leading digits dropped
+            if (3 != letterCount || !isPolarBand(letter0)) {
+                return fail("Expected a polar zone (A, B, Y, or Z) and two letters");
+            }
+        } else {
+            if (2 < leadingDigitCount || 3 != letterCount || 'C' > letter0 || 'X' < letter0) {
+                return fail("Expected a 1-2 digit zone number, a zone letter C-X, and two letters");
+            }
+            int zoneNumber = 2 == leadingDigitCount ? 10 * (leading0 - '0') + (leading1 - '0') : leading1 - '0';
+            if (60 < zoneNumber) {
+                return fail("Grid zone number is greater than 60");
+            }
+            if (2 == leadingDigitCount) {
+                zoneDigits[0] = leading0;
+                zoneDigits[1] = leading1;
+            } else {
+                zoneDigits[0] = leading1;
+            }
+            zoneDigitCount = leadingDigitCount;
+        }
+        if (1 == digitCount % 2) {
+            return fail("Odd number of easting/northing digits");
+        }
+        band = letter0;
+        squareColumn = letter1;
+        squareRow = letter2;
+        valid = true;
+        return true;
+    }
+
+    private boolean fail(String message) {
+        errorMessage = message;
+        zoneDigitCount = 0;
+        band = 0;
+        squareColumn = 0;
+        squareRow = 0;
+        digitCount = 0;
+        return false;
+    }
+
+    private static boolean isDigit(char c) {
+        return '0' <= c && c <= '9';
+    }
+
+    private static boolean isUpperCaseLetter(char c) {
+        return 'A' <= c && c <= 'Z';
+    }
+
+    private static boolean isPolarBand(char c) {
+        return 'A' == c || 'B' == c || 'Y' == c || 'Z' == c;
+    }
+
+    /**
+     * Returns true if the last call to parse succeeded.
+     * @return true if the last call to parse succeeded.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Returns true if the last parse failed only because the string had no grid
+     * zone and no usable reference was given. Parsing again with a reference may
+     * succeed.
+     * @return true if the string needs a grid zone from a reference.
+     */
+    public boolean isMissingGridZone() {
+        return missingGridZone;
+    }
+
+    /**
+     * Returns true if the last parse took the grid zone from the reference MGRS string.
+     * @return true if the grid zone came from the reference MGRS string.
+     */
+    public boolean isGridZoneFromReference() {
+        return gridZoneFromReference;
+    }
+
+    /**
+     * Returns true if the last parsed MGRS string is in a polar zone (A, B, Y, or Z).
+     * @return true if the last parsed MGRS string is in a polar zone.
+     */
+    public boolean isPolar() {
+        return valid && isPolarBand(band);
+    }
+
+    /**
+     * Returns the grid zone number, or -1 for a polar zone or a failed parse.
+     * @return the grid zone number, or -1.
+     */
+    public int getZoneNumber() {
+        if (0 == zoneDigitCount) {
+            return -1;
+        } else if (1 == zoneDigitCount) {
+            return zoneDigits[0] - '0';
+        } else {
+            return 10 * (zoneDigits[0] - '0') + (zoneDigits[1] - '0');
+        }
+    }
+
+    /**
+     * Returns the latitude band letter (or the polar zone letter).
+     * @return the latitude band letter, or 0 if the parse failed.
+     */
+    public char getBand() {
+        return band;
+    }
+
+    /**
+     * Returns the column letter of the 100,000-meter square.
+     * @return the column letter, or 0 if the parse failed.
+     */
+    public char getSquareColumn() {
+        return squareColumn;
+    }
+
+    /**
+     * Returns the row letter of the 100,000-meter square.
+     * @return the row letter, or 0 if the parse failed.
+     */
+    public char getSquareRow() {
+        return squareRow;
+    }
+
+    /**
+     * Returns the number of easting digits, which is the same as the number of
+     * northing digits. 5 means 1-meter precision, 4 means 10-meter precision, and so on.
+     * @return the number of easting digits.
+     */
+    public int getPrecision() {
+        return digitCount / 2;
+    }
+
+    /**
+     * Returns the easting digits as a number. For example, 12345 for 37SFU1234567890.
+     * @return the easting digits as a number, or -1 if there are more than 18 digits.
+     */
+    public long getEasting() {
+        return digitsValue(0, digitCount / 2);
+    }
+
+    /**
+     * Returns the northing digits as a number. For example, 67890 for 37SFU1234567890.
+     * @return the northing digits as a number, or -1 if there are more than 18 digits.
+     */
+    public long getNorthing() {
+        return digitsValue(digitCount / 2, digitCount);
+    }
+
+    private long digitsValue(int start, int end) {
+        if (MAX_VALUE_DIGITS < end - start) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (digits[i] - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Returns a description of why the last parse failed, or null if it succeeded.
+     * @return a description of why the last parse failed, or null.
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Appends the normalized MGRS string from the last successful parse: uppercase,
+     * with no spaces or punctuation, with the grid zone number as written, and with
+     * any digits before a polar zone removed.
+     * @param sb the StringBuilder.
+     * @return sb.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        if (valid) {
+            sb.append(zoneDigits, 0, zoneDigitCount)
+                    .append(band).append(squareColumn).append(squareRow)
+                    .append(digits, 0, digitCount);
+        }
+        return sb;
+    }
+
+    /**
+     * Returns the normalized MGRS string from the last successful parse.
+     * @return the normalized MGRS string, or null if the last parse failed.
+     * @see #appendTo(java.lang.StringBuilder)
+     */
+    @Override
+    public String toString() {
+        return valid ? appendTo(new StringBuilder(zoneDigitCount + 3 + digitCount)).toString() : null;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.text.DateFormatSymbols;
+import java.util.TimeZone;
+
+/**
+ * An immutable, thread-safe formatter for military date-time groups (DTGs) in the
+ * form ddHHmmssZ MMM yy, where Z is the military time zone letter. An instance is
+ * fixed to one time zone; use TimeZoneTracker to get the formatter for the
+ * current local time zone.
+ */
+public final class MilitaryDateFormat extends CachedTimestampFormat {
+
+    /**
+     * The formatter for Zulu (UTC) time.
+     */
+    public static final MilitaryDateFormat ZULU = new MilitaryDateFormat(TimeZone.getTimeZone("UTC"));
+
+    private static final int MILLISECONDS_IN_HOUR = 60 * 60 * 1000;
+
+    private final TimeZone timeZone;
+    private final char zoneLetter;
+    private final String[] shortMonths;
+
+    /**
+     * Creates a formatter for a time zone. The zone letter is chosen from the
+     * zone's offset at the time of creation.
+     * @param timeZone the time zone. The formatter keeps its own copy.
+     */
+    public MilitaryDateFormat(TimeZone timeZone) {
+        this.timeZone = (TimeZone) timeZone.clone();
+        this.zoneLetter = getMilitaryTimeZoneCharacter(this.timeZone, System.currentTimeMillis());
+        this.shortMonths = DateFormatSymbols.getInstance().getShortMonths().clone();
+    }
+
+    /**
+     * Returns the military time zone letter for a time zone at a given time. Zones
+     * that are not a whole number of hours from UTC, or are more than 12 hours from
+     * UTC, get 'J' (local time).
+     * @param tz the time zone.
+     * @param millis the time, since which the offset may change with daylight saving.
+     * @return the military time zone letter.
+     */
+    public static char getMilitaryTimeZoneCharacter(TimeZone tz, long millis) {
+        int offset = tz.getOffset(millis);
+        //If it's not a whole number of hours, just return 'J'
+        int offsetHours = offset / MILLISECONDS_IN_HOUR;
+        if (0 != offset % MILLISECONDS_IN_HOUR || 12 < offsetHours || -12 > offsetHours) {
+            return 'J';
+        } else {
+            if (0 == offsetHours) {
+                return 'Z';
+            } else if (0 < offsetHours) {
+                char c = (char) ('A' + offsetHours - 1);
+                if ('J' <= c) {
+                    c += 1;
+                }
+                return c;
+            } else {
+                return (char) ('N' - offsetHours - 1);
+            }
+        }
+    }
+
+    /**
+     * Appends a DTG to a StringBuilder.
+     * @param sb the StringBuilder.
+     * @param millis the time, in milliseconds since the epoch.
+     * @return sb.
+     */
+    @Override
+    public StringBuilder appendTo(StringBuilder sb, long millis) {
+        long local = millis + timeZone.getOffset(millis);
+        long date = getPackedDate(local);
+        int secondOfDay = getSecondOfDay(local);
+        appendTwoDigits(sb, (int) (date % 100));
+        appendTwoDigits(sb, secondOfDay / 3600);
+        appendTwoDigits(sb, secondOfDay / 60 % 60);
+        appendTwoDigits(sb, secondOfDay % 60);
+        sb.append(zoneLetter).append(' ').append(shortMonths[(int) (date / 100 % 100) - 1]).append(' ');
+        appendTwoDigits(sb, (int) (((date / 10000 % 100) + 100) % 100));
+        return sb;
+    }
+
+    /**
+     * Returns the military time zone letter used by this formatter.
+     * @return the military time zone letter used by this formatter.
+     */
+    public char getZoneLetter() {
+        return zoneLetter;
+    }
+
+    /**
+     * Returns a copy of this formatter's time zone.
+     * @return a copy of this formatter's time zone.
+     */
+    public TimeZone getTimeZone() {
+        return (TimeZone) timeZone.clone();
+    }
+
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Packs geomessage datagrams for narrow links. A packed datagram is the ASCII
+ * prefix "GMZ1:" followed by the Base64 encoding of the raw DEFLATE compression of
+ * the datagram's UTF-8 XML, with a preset dictionary of the geomessage vocabulary.
+ * The dictionary lets even a single short geomessage compress well, because its
+ * tags are already "seen" before the first byte.<br/>
+ * <br/>
+ * Packed datagrams are Base64 text so that they survive being decoded as a String
+ * in any charset before they reach MessageController's listeners. A receiver
+ * tells packed datagrams from plain XML with isPacked, so plain and packed
+ * senders can share a port.<br/>
+ * <br/>
+ * The dictionary is part of the wire format. Changing it requires a new prefix.
+ * This class is thread-safe.
+ */
+public final class PackedGeomessageCodec {
+
+    /**
+     * The prefix that marks a packed datagram.
+     */
+    public static final String PREFIX = "GMZ1:";
+
+    /**
+     * The most bytes of XML that unpack returns. A UDP datagram is at most 64 KB,
+     * and a real geomessage datagram inflates to a few times its size, so anything
+     * larger is treated as malformed rather than inflated into memory.
+     */
+    public static final int MAX_UNPACKED_BYTES = 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The preset dictionary. DEFLATE finds matches near the end of the dictionary
+     * most cheaply, so the most common strings come last.
+     */
+    private static final byte[] DICTIONARY = (
+            "<_status911>0</_status911><status911>1</status911>"
+            + "<sys_status_1>1</sys_status_1><sys_status_2>1</sys_status_2>"
+            + "<sys_status_3>1</sys_status_3><sys_status_4>1</sys_status_4>"
+            + "<fuel_state>100</fuel_state><sys_msg>Operational</sys_msg><system_msgs>Operational</system_msgs>"
+            + "<_type>sysmsg</_type><_type>chemlight</_type><color>1</color><_type>spotrep</_type>"
+            + "<_action>REMOVE</_action><_action>SELECT</_action><_action>UN-SELECT</_action>"
+            + "<size></size><activity></activity><location></location><unit></unit><equipment></equipment>"
+            + "<timeobserved></timeobserved><uniquedesignation></uniquedesignation><type></type>"
+            + "<sic>SFGPUCI----K---</sic><_wkid>3857</_wkid><_wkid>4326</_wkid>"
+            + "<datetimevalid>2015-01-01 00:00:00</datetimevalid><_type>position_report</_type>"
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\"?><geomessages><geomessage v=\"1.0\">"
+            + "<_action>UPDATE</_action><_id>-0000-4000-8000-</_id><_control_points>,</_control_points>"
+            + "</geomessage><geomessage v=\"1.0\">").getBytes(UTF_8);
+
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>() {
+
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_COMPRESSION, true);
+        }
+    };
+
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    private PackedGeomessageCodec() {
+    }
+
+    /**
+     * Packs a datagram.
+     * @param xml the datagram, which should be UTF-8 XML.
+     * @return the packed datagram, as ASCII bytes.
+     */
+    public static byte[] pack(byte[] xml) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(xml);
+        deflater.finish();
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream(xml.length / 2 + 16);
+        byte[] chunk = new byte[512];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(chunk);
+            deflated.write(chunk, 0, count);
+        }
+        return Base64Codec.encode(PREFIX, deflated.toByteArray(), deflated.size());
+    }
+
+    /**
+     * Tells whether a received datagram is packed.
+     * @param datagram the datagram.
+     * @return true if the datagram starts with the packed prefix.
+     */
+    public static boolean isPacked(CharSequence datagram) {
+        return Base64Codec.hasPrefix(datagram, PREFIX);
+    }
+
+    /**
+     * Unpacks a packed datagram.
+     * @param datagram the packed datagram.
+     * @return the datagram's XML.
+     * @throws DataFormatException if the datagram is not a valid packed datagram, or
+     *         if it unpacks to more than MAX_UNPACKED_BYTES.
+     */
+    public static String unpack(CharSequence datagram) throws DataFormatException {
+        if (!isPacked(datagram)) {
+            throw new DataFormatException("Not a packed datagram");
+        }
+        byte[] compressed = Base64Codec.decode(datagram, PREFIX.length());
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setDictionary(DICTIONARY);
+        inflater.setInput(compressed);
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream(Math.min(compressed.length * 4, MAX_UNPACKED_BYTES));
+        byte[] chunk = new byte[1024];
+        while (!inflater.finished()) {
+            int count = inflater.inflate(chunk);
+            if (0 == count && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("Packed datagram is truncated");
+            }
+            if (inflated.size() + count > MAX_UNPACKED_BYTES) {
+                throw new DataFormatException("Packed datagram unpacks to more than " + MAX_UNPACKED_BYTES + " bytes");
+            }
+            inflated.write(chunk, 0, count);
+        }
+        try {
+            return inflated.toString(UTF_8.name());
+        } catch (java.io.UnsupportedEncodingException e) {
+            //UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.MultiPoint;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+
+/**
+ * Projects points between spatial references, reusing one SpatialReference per
+ * WKID (see Utilities.getSpatialReference). Projections between WGS 1984 and Web
+ * Mercator are computed analytically by WebMercator; other projections go to
+ * GeometryEngine. The array methods project many points with no per-point objects
+ * in the analytic case and one GeometryEngine call otherwise, for bulk ingest and
+ * route rendering.
+ */
+public final class ProjectionService {
+
+    private ProjectionService() {
+    }
+
+    /**
+     * Projects a point.
+     * @param x the X coordinate.
+     * @param y the Y coordinate.
+     * @param fromWkid the WKID of the point's spatial reference.
+     * @param toWkid the WKID of the spatial reference to project to.
+     * @return a new two-element array containing the projected X and Y.
+     */
+    public static double[] project(double x, double y, int fromWkid, int toWkid) {
+        double[] coords = new double[] { x, y };
+        project(coords, 1, fromWkid, toWkid);
+        return coords;
+    }
+
+    /**
+     * Projects a point.
+     * @param x the X coordinate.
+     * @param y the Y coordinate.
+     * @param fromWkid the WKID of the point's spatial reference.
+     * @param to the spatial reference to project to.
+     * @return the projected point.
+     */
+    public static Point projectPoint(double x, double y, int fromWkid, SpatialReference to) {
+        if (null == to || fromWkid == to.getID()) {
+            return new Point(x, y);
+        }
+        if (WebMercator.canProject(fromWkid, to.getID())) {
+            return WebMercator.WGS84_WKID == fromWkid
+                    ? new Point(WebMercator.toX(x), WebMercator.toY(y))
+                    : new Point(WebMercator.toLongitude(x), WebMercator.toLatitude(y));
+        }
+        return (Point) GeometryEngine.project(new Point(x, y), Utilities.getSpatialReference(fromWkid), to);
+    }
+
+    /**
+     * Projects a point.
+     * @param pt the point.
+     * @param from the point's spatial reference.
+     * @param to the spatial reference to project to.
+     * @return a new projected point.
+     */
+    public static Point projectPoint(Point pt, SpatialReference from, SpatialReference to) {
+        if (null == from || null == to) {
+            return new Point(pt.getX(), pt.getY());
+        }
+        int fromWkid = from.getID();
+        int toWkid = to.getID();
+        if (0 < fromWkid && (fromWkid == toWkid || WebMercator.canProject(fromWkid, toWkid))) {
+            return projectPoint(pt.getX(), pt.getY(), fromWkid, to);
+        }
+        return (Point) GeometryEngine.project(pt, from, to);
+    }
+
+    /**
+     * Projects an array of points in place.
+     * @param coords the points, as x0, y0, x1, y1, and so on. The projected
+     *        coordinates replace the original coordinates.
+     * @param pointCount the number of points, which may be less than coords.length / 2.
+     * @param fromWkid the WKID of the points' spatial reference.
+     * @param toWkid the WKID of the spatial reference to project to.
+     */
+    public static void project(double[] coords, int pointCount, int fromWkid, int toWkid) {
+        if (fromWkid == toWkid || 0 == pointCount) {
+            return;
+        }
+        if (WebMercator.canProject(fromWkid, toWkid)) {
+            projectWebMercator(coords, pointCount, fromWkid);
+        } else {
+            projectWithEngine(coords, pointCount, Utilities.getSpatialReference(fromWkid), Utilities.getSpatialReference(toWkid));
+        }
+    }
+
+    /**
+     * Projects an array of points in place.
+     * @param coords the points, as x0, y0, x1, y1, and so on. The projected
+     *        coordinates replace the original coordinates.
+     * @param pointCount the number of points, which may be less than coords.length / 2.
+     * @param fromWkid the WKID of the points' spatial reference.
+     * @param to the spatial reference to project to.
+     */
+    public static void project(double[] coords, int pointCount, int fromWkid, SpatialReference to) {
+        if (null == to || fromWkid == to.getID() || 0 == pointCount) {
+            return;
+        }
+        if (WebMercator.canProject(fromWkid, to.getID())) {
+            projectWebMercator(coords, pointCount, fromWkid);
+        } else {
+            projectWithEngine(coords, pointCount, Utilities.getSpatialReference(fromWkid), to);
+        }
+    }
+
+    /**
+     * Projects an array of points in place.
+     * @param coords the points, as x0, y0, x1, y1, and so on. The projected
+     *        coordinates replace the original coordinates.
+     * @param pointCount the number of points, which may be less than coords.length / 2.
+     * @param from the points' spatial reference.
+     * @param to the spatial reference to project to.
+     */
+    public static void project(double[] coords, int pointCount, SpatialReference from, SpatialReference to) {
+        if (0 == pointCount || null == from || null == to) {
+            return;
+        }
+        int fromWkid = from.getID();
+        int toWkid = to.getID();
+        if (0 < fromWkid && fromWkid == toWkid) {
+            return;
+        }
+        if (WebMercator.canProject(fromWkid, toWkid)) {
+            projectWebMercator(coords, pointCount, fromWkid);
+        } else {
+            projectWithEngine(coords, pointCount, from, to);
+        }
+    }
+
+    /**
+     * Projects points held in separate X and Y arrays in place.
+     * @param xs the X coordinates, replaced by the projected X coordinates.
+     * @param ys the Y coordinates, replaced by the projected Y coordinates.
+     * @param pointCount the number of points.
+     * @param from the points' spatial reference.
+     * @param to the spatial reference to project to.
+     */
+    public static void project(double[] xs, double[] ys, int pointCount, SpatialReference from, SpatialReference to) {
+        if (0 == pointCount || null == from || null == to) {
+            return;
+        }
+        int fromWkid = from.getID();
+        int toWkid = to.getID();
+        if (0 < fromWkid && fromWkid == toWkid) {
+            return;
+        }
+        if (WebMercator.canProject(fromWkid, toWkid)) {
+            if (WebMercator.WGS84_WKID == fromWkid) {
+                WebMercator.fromLonLat(xs, ys, pointCount);
+            } else {
+                WebMercator.toLonLat(xs, ys, pointCount);
+            }
+        } else {
+            double[] coords = new double[2 * pointCount];
+            for (int i = 0; i < pointCount; i++) {
+                coords[2 * i] = xs[i];
+                coords[2 * i + 1] = ys[i];
+            }
+            projectWithEngine(coords, pointCount, from, to);
+            for (int i = 0; i < pointCount; i++) {
+                xs[i] = coords[2 * i];
+                ys[i] = coords[2 * i + 1];
+            }
+        }
+    }
+
+    private static void projectWebMercator(double[] coords, int pointCount, int fromWkid) {
+        if (WebMercator.WGS84_WKID == fromWkid) {
+            WebMercator.fromLonLat(coords, pointCount);
+        } else {
+            WebMercator.toLonLat(coords, pointCount);
+        }
+    }
+
+    private static void projectWithEngine(double[] coords, int pointCount, SpatialReference from, SpatialReference to) {
+        if (1 == pointCount) {
+            Point pt = (Point) GeometryEngine.project(new Point(coords[0], coords[1]), from, to);
+            coords[0] = pt.getX();
+            coords[1] = pt.getY();
+            return;
+        }
+        MultiPoint multiPoint = new MultiPoint();
+        for (int i = 0; i < pointCount; i++) {
+            multiPoint.add(coords[2 * i], coords[2 * i + 1]);
+        }
+        MultiPoint projected = (MultiPoint) GeometryEngine.project(multiPoint, from, to);
+        for (int i = 0; i < pointCount; i++) {
+            Point pt = projected.getPoint(i);
+            coords[2 * i] = pt.getX();
+            coords[2 * i + 1] = pt.getY();
+        }
+    }
+
+}
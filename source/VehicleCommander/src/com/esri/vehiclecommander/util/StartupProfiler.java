@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Records how long each phase of application startup takes and how much memory
+ * it allocates, then writes the timeline as JSON and prints a summary. Phases are
+ * consecutive: starting a phase ends the previous one.<br/>
+ * <br/>
+ * Allocation is measured for the thread that runs each phase, using the
+ * com.sun.management extension of ThreadMXBean when the JVM provides it. Work done
+ * by other threads during a phase is included in its wall time but not its
+ * allocation.
+ */
+public class StartupProfiler {
+
+    /**
+     * The file to which the timeline is written by default.
+     */
+    public static final String DEFAULT_TIMELINE_FILENAME = "startup-profile.json";
+
+    private static final Logger logger = Logger.getLogger(StartupProfiler.class.getName());
+
+    private static final StartupProfiler INSTANCE = new StartupProfiler();
+
+    /**
+     * One completed phase.
+     */
+    private static class Phase {
+
+        private final String name;
+        private final String threadName;
+        private final long startNanos;
+        private final long durationNanos;
+        private final long allocatedBytes;
+        private final long heapUsedBytes;
+
+        Phase(String name, String threadName, long startNanos, long durationNanos, long allocatedBytes, long heapUsedBytes) {
+            this.name = name;
+            this.threadName = threadName;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.heapUsedBytes = heapUsedBytes;
+        }
+
+    }
+
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final long originNanos = System.nanoTime();
+    private final long originMillis = System.currentTimeMillis();
+    private final List<Phase> phases = new ArrayList<Phase>();
+
+    private String currentPhase = null;
+    private Thread currentThread = null;
+    private long currentStartNanos = 0;
+    private long currentStartAllocatedBytes = -1;
+    private boolean finished = false;
+    private boolean exitWhenFinished = false;
+    private File timelineFile = new File(DEFAULT_TIMELINE_FILENAME);
+
+    private StartupProfiler() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean bean = null;
+        try {
+            if (threadBean instanceof com.sun.management.ThreadMXBean) {
+                bean = (com.sun.management.ThreadMXBean) threadBean;
+                if (bean.isThreadAllocatedMemorySupported()) {
+                    bean.setThreadAllocatedMemoryEnabled(true);
+                } else {
+                    bean = null;
+                }
+            }
+        } catch (Throwable t) {
+            //Not a HotSpot-based JVM, or the operation is not permitted
+            bean = null;
+        }
+        allocationBean = bean;
+    }
+
+    /**
+     * Returns the application's startup profiler.
+     * @return the application's startup profiler.
+     */
+    public static StartupProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ends the current phase, if any, and starts a new one on the calling thread.
+     * Has no effect after finish has been called.
+     * @param name the phase name.
+     */
+    public synchronized void startPhase(String name) {
+        if (finished) {
+            return;
+        }
+        endPhase();
+        currentPhase = name;
+        currentThread = Thread.currentThread();
+        currentStartAllocatedBytes = getAllocatedBytes(currentThread);
+        currentStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if any.
+     */
+    public synchronized void endPhase() {
+        if (null == currentPhase) {
+            return;
+        }
+        long now = System.nanoTime();
+        long allocated = -1;
+        if (0 <= currentStartAllocatedBytes) {
+            long endAllocatedBytes = getAllocatedBytes(currentThread);
+            if (0 <= endAllocatedBytes) {
+                allocated = endAllocatedBytes - currentStartAllocatedBytes;
+            }
+        }
+        phases.add(new Phase(currentPhase, currentThread.getName(), currentStartNanos, now - currentStartNanos,
+                allocated, memoryBean.getHeapMemoryUsage().getUsed()));
+        currentPhase = null;
+        currentThread = null;
+    }
+
+    private long getAllocatedBytes(Thread thread) {
+        if (null == allocationBean) {
+            return -1;
+        }
+        try {
+            return allocationBean.getThreadAllocatedBytes(thread.getId());
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    /**
+     * Ends the current phase, writes the timeline to the timeline file, and prints
+     * a summary to the console. If exitWhenFinished is set, the application then
+     * exits. Calls after the first have no effect.
+     */
+    public void finish() {
+        File file;
+        boolean exit;
+        String summary;
+        JSONObject timeline;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            endPhase();
+            finished = true;
+            file = timelineFile;
+            exit = exitWhenFinished;
+            summary = getSummary();
+            timeline = toJson();
+        }
+        System.out.print(summary);
+        if (null != file) {
+            Writer out = null;
+            try {
+                out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                out.write(timeline.toString(2));
+                System.out.println("Startup timeline written to " + file.getAbsolutePath());
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Could not write startup timeline to " + file.getAbsolutePath(), e);
+            } finally {
+                if (null != out) {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        logger.log(Level.FINE, "Could not close startup timeline", e);
+                    }
+                }
+            }
+        }
+        if (exit) {
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Returns the timeline as JSON.
+     */
+    private JSONObject toJson() {
+        JSONObject timeline = new JSONObject();
+        try {
+            timeline.put("startTime", originMillis);
+            timeline.put("jvmStartTime", jvmStartMillis);
+            timeline.put("jvmStartToProfilerMillis", originMillis - jvmStartMillis);
+            timeline.put("totalMillis", getTotalMillis());
+            timeline.put("allocationMeasured", null != allocationBean);
+            JSONArray phaseArray = new JSONArray();
+            for (Phase phase : phases) {
+                JSONObject phaseObject = new JSONObject();
+                phaseObject.put("name", phase.name);
+                phaseObject.put("thread", phase.threadName);
+                phaseObject.put("startMillis", nanosToMillis(phase.startNanos - originNanos));
+                phaseObject.put("durationMillis", nanosToMillis(phase.durationNanos));
+                if (0 <= phase.allocatedBytes) {
+                    phaseObject.put("allocatedBytes", phase.allocatedBytes);
+                }
+                phaseObject.put("heapUsedBytes", phase.heapUsedBytes);
+                phaseArray.put(phaseObject);
+            }
+            timeline.put("phases", phaseArray);
+        } catch (JSONException e) {
+            //Keys are never null and values are never non-finite
+            logger.log(Level.WARNING, "Could not build startup timeline", e);
+        }
+        return timeline;
+    }
+
+    private String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Startup: %.0f ms (%d ms from JVM start)%n",
+                getTotalMillis(), System.currentTimeMillis() - jvmStartMillis));
+        for (Phase phase : phases) {
+            sb.append(String.format("  %-36s %8.1f ms", phase.name, nanosToMillis(phase.durationNanos)));
+            if (0 <= phase.allocatedBytes) {
+                sb.append(String.format(" %9.1f MB allocated", phase.allocatedBytes / (1024.0 * 1024.0)));
+            }
+            sb.append(String.format("%n"));
+        }
+        return sb.toString();
+    }
+
+    private double getTotalMillis() {
+        if (phases.isEmpty()) {
+            return 0;
+        }
+        Phase last = phases.get(phases.size() - 1);
+        return nanosToMillis(last.startNanos + last.durationNanos - originNanos);
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    /**
+     * Sets whether finish exits the application. Used for startup profiling runs.
+     * @param exitWhenFinished true if finish should exit the application.
+     */
+    public synchronized void setExitWhenFinished(boolean exitWhenFinished) {
+        this.exitWhenFinished = exitWhenFinished;
+    }
+
+    /**
+     * Sets the file to which finish writes the timeline.
+     * @param timelineFile the timeline file, or null to write no file.
+     */
+    public synchronized void setTimelineFile(File timelineFile) {
+        this.timelineFile = timelineFile;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the operating system's time zone and publishes an immutable
+ * MilitaryDateFormat for it. The OS time zone is checked on a background thread
+ * every few seconds, or right away when checkNow() is called, instead of on the
+ * event dispatch thread.
+ */
+public class TimeZoneTracker {
+
+    /**
+     * How often the OS time zone is checked, in milliseconds.
+     */
+    public static final long CHECK_INTERVAL_MILLIS = 5000;
+
+    private static final Logger logger = Logger.getLogger(TimeZoneTracker.class.getName());
+
+    private static final TimeZoneTracker INSTANCE = new TimeZoneTracker();
+
+    private final ScheduledExecutorService executor;
+    private volatile MilitaryDateFormat localFormat;
+    private String zoneKey;
+
+    private TimeZoneTracker() {
+        TimeZone tz = readOsTimeZone();
+        zoneKey = getZoneKey(tz, System.currentTimeMillis());
+        localFormat = new MilitaryDateFormat(tz);
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Time zone tracker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    check();
+                } catch (RuntimeException re) {
+                    logger.log(Level.WARNING, "Could not check the time zone", re);
+                }
+            }
+        }, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the application's time zone tracker, which starts tracking the first
+     * time this method is called.
+     * @return the application's time zone tracker.
+     */
+    public static TimeZoneTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the formatter for the current local time zone. The formatter is
+     * immutable and may be used on any thread.
+     * @return the formatter for the current local time zone.
+     */
+    public MilitaryDateFormat getLocalFormat() {
+        return localFormat;
+    }
+
+    /**
+     * Checks the OS time zone on the tracker's thread as soon as possible, for
+     * example when the application regains focus.
+     */
+    public void checkNow() {
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                check();
+            }
+        });
+    }
+
+    private void check() {
+        TimeZone tz = readOsTimeZone();
+        String newKey = getZoneKey(tz, System.currentTimeMillis());
+        if (!newKey.equals(zoneKey)) {
+            zoneKey = newKey;
+            MilitaryDateFormat newFormat = new MilitaryDateFormat(tz);
+            localFormat = newFormat;
+            Utilities.updateMilitaryLocalFormat(newFormat);
+            logger.log(Level.INFO, "Local time zone is now {0} ({1})", new Object[] { tz.getID(), newFormat.getZoneLetter() });
+        }
+    }
+
+    private static TimeZone readOsTimeZone() {
+        //Force re-read of OS time zone
+        synchronized (TimeZone.class) {
+            System.getProperties().remove("user.timezone");
+            TimeZone.setDefault(null);
+            return TimeZone.getDefault();
+        }
+    }
+
+    /**
+     * Identifies a zone and its current offset, which changes with daylight saving
+     * and so can change the zone letter.
+     */
+    private static String getZoneKey(TimeZone tz, long millis) {
+        return tz.getID() + " " + tz.getOffset(millis);
+    }
+
+}
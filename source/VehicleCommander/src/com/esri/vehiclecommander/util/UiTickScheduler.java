@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.Timer;
+
+/**
+ * A single Swing timer that drives all of the application's periodic UI updates.
+ * Subscribers are called on the event dispatch thread and report whether they
+ * changed anything. While something is changing, the scheduler ticks at 24 Hz;
+ * once nothing has changed for a while, it drops to a low idle rate until a
+ * subscriber reports a change again or wake() is called.
+ */
+public class UiTickScheduler {
+
+    /**
+     * A periodic UI update.
+     */
+    public interface Subscriber {
+
+        /**
+         * Called on the event dispatch thread on each tick, or less often if the
+         * subscriber was added with a minimum interval.
+         * @param nowMillis the current time, from System.currentTimeMillis().
+         * @return true if the subscriber changed something that may keep changing,
+         *         such as an animation, which keeps the scheduler at its active rate.
+         */
+        boolean tick(long nowMillis);
+
+    }
+
+    /**
+     * A subscriber that samples a cheap input on each tick and does its real work
+     * only when the input differs from the last input it applied.
+     * @param <T> the input type, compared with equals.
+     */
+    public static abstract class DirtyCheckedSubscriber<T> implements Subscriber {
+
+        private final boolean changesKeepActive;
+        private boolean applied = false;
+        private T lastInput = null;
+
+        /**
+         * Creates a subscriber whose changes keep the scheduler at its active rate.
+         */
+        public DirtyCheckedSubscriber() {
+            this(true);
+        }
+
+        /**
+         * Creates a subscriber.
+         * @param changesKeepActive true if a change to the input keeps the scheduler
+         *                          at its active rate, or false for inputs such as
+         *                          the time of day that change regularly anyway.
+         */
+        public DirtyCheckedSubscriber(boolean changesKeepActive) {
+            this.changesKeepActive = changesKeepActive;
+        }
+
+        /**
+         * Returns the current input. This should be cheap.
+         * @param nowMillis the current time.
+         * @return the current input.
+         */
+        protected abstract T sample(long nowMillis);
+
+        /**
+         * Updates the UI for a changed input.
+         * @param input the new input.
+         */
+        protected abstract void apply(T input);
+
+        @Override
+        public final boolean tick(long nowMillis) {
+            T input = sample(nowMillis);
+            if (applied && (null == input ? null == lastInput : input.equals(lastInput))) {
+                return false;
+            }
+            apply(input);
+            lastInput = input;
+            applied = true;
+            return changesKeepActive;
+        }
+
+    }
+
+    /**
+     * The tick interval while something is changing.
+     */
+    public static final int ACTIVE_DELAY_MILLIS = 1000 / 24;
+
+    /**
+     * The tick interval while nothing is changing.
+     */
+    public static final int IDLE_DELAY_MILLIS = 250;
+
+    /**
+     * How long nothing must change before the scheduler drops to the idle rate.
+     */
+    public static final long IDLE_AFTER_MILLIS = 1000;
+
+    private static final UiTickScheduler INSTANCE = new UiTickScheduler();
+
+    private static class Entry {
+
+        private final Subscriber subscriber;
+        private final long minIntervalMillis;
+        private long lastTickMillis = Long.MIN_VALUE / 2;
+
+        Entry(Subscriber subscriber, long minIntervalMillis) {
+            this.subscriber = subscriber;
+            this.minIntervalMillis = minIntervalMillis;
+        }
+
+    }
+
+    private final CopyOnWriteArrayList<Entry> entries = new CopyOnWriteArrayList<Entry>();
+    private final Timer timer;
+    private volatile long lastChangeMillis = System.currentTimeMillis();
+
+    private UiTickScheduler() {
+        timer = new Timer(ACTIVE_DELAY_MILLIS, new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                runTick();
+            }
+        });
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Returns the application's UI tick scheduler.
+     * @return the application's UI tick scheduler.
+     */
+    public static UiTickScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds a subscriber that is called on every tick.
+     * @param subscriber the subscriber.
+     */
+    public void subscribe(Subscriber subscriber) {
+        subscribe(subscriber, 0);
+    }
+
+    /**
+     * Adds a subscriber that is called no more often than the specified interval.
+     * @param subscriber the subscriber.
+     * @param minIntervalMillis the minimum time between calls to the subscriber.
+     */
+    public void subscribe(Subscriber subscriber, long minIntervalMillis) {
+        entries.add(new Entry(subscriber, minIntervalMillis));
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+        wake();
+    }
+
+    /**
+     * Removes a subscriber.
+     * @param subscriber the subscriber.
+     */
+    public void unsubscribe(Subscriber subscriber) {
+        for (Entry entry : entries) {
+            if (entry.subscriber == subscriber) {
+                entries.remove(entry);
+            }
+        }
+        if (entries.isEmpty()) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the scheduler to its active rate right away, for example when the
+     * user starts an action that will change the display on every tick.
+     */
+    public void wake() {
+        lastChangeMillis = System.currentTimeMillis();
+        if (ACTIVE_DELAY_MILLIS != timer.getDelay()) {
+            timer.setDelay(ACTIVE_DELAY_MILLIS);
+            timer.restart();
+        }
+    }
+
+    private void runTick() {
+        long now = System.currentTimeMillis();
+        boolean changed = false;
+        for (Entry entry : entries) {
+            if (now - entry.lastTickMillis >= entry.minIntervalMillis) {
+                entry.lastTickMillis = now;
+                changed |= entry.subscriber.tick(now);
+            }
+        }
+        if (changed) {
+            lastChangeMillis = now;
+            if (ACTIVE_DELAY_MILLIS != timer.getDelay()) {
+                timer.setDelay(ACTIVE_DELAY_MILLIS);
+            }
+        } else if (now - lastChangeMillis > IDLE_AFTER_MILLIS && IDLE_DELAY_MILLIS != timer.getDelay()) {
+            timer.setDelay(IDLE_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Returns the current tick interval, in milliseconds.
+     * @return the current tick interval, in milliseconds.
+     */
+    public int getCurrentDelayMillis() {
+        return timer.getDelay();
+    }
+
+}
@@ -16,7 +16,6 @@
 package com.esri.vehiclecommander.util;
 
 import com.esri.core.geometry.AngularUnit;
-import com.esri.core.geometry.CoordinateConversion;
 import com.esri.core.geometry.Point;
 import com.esri.core.geometry.SpatialReference;
 import java.awt.Color;
@@ -24,8 +23,6 @@ import java.awt.Dimension;
 import java.awt.Frame;
 import java.awt.Graphics2D;
 import java.awt.Toolkit;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
@@ -36,11 +33,9 @@ import java.net.URLClassLoader;
 import java.text.SimpleDateFormat;
 import java.util.HashMap;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
-import javax.swing.Timer;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
@@ -65,7 +60,9 @@ public class Utilities extends com.esri.militaryapps.util.Utilities {
 
     /**
      * A DateFormat object for datetimevalid timestamps.
+     * @deprecated SimpleDateFormat is not thread-safe. Use GeomessageDateFormat.INSTANCE.
      */
+    @Deprecated
     public static final SimpleDateFormat DATE_FORMAT_GEOMESSAGE =
             new SimpleDateFormat("yyyy-MM-dd' 'HH:mm:ss");
     static {
@@ -74,53 +71,34 @@ public class Utilities extends com.esri.militaryapps.util.Utilities {
 
     /**
      * A DateFormat object for military date/time in Zulu time.
+     * @deprecated SimpleDateFormat is not thread-safe. Use MilitaryDateFormat.ZULU.
      */
+    @Deprecated
     public static final SimpleDateFormat DATE_FORMAT_MILITARY_ZULU =
             new SimpleDateFormat("ddHHmmss'Z 'MMM' 'yy");
     static {
         DATE_FORMAT_MILITARY_ZULU.setTimeZone(TimeZone.getTimeZone("UTC"));
     }
-    
+
     /**
-     * A DateFormat object for military date/time in local time.
+     * A DateFormat object for military date/time in local time. TimeZoneTracker
+     * keeps its time zone and zone letter current; synchronize on it while using it.
+     * @deprecated SimpleDateFormat is not thread-safe. Use
+     *             TimeZoneTracker.getInstance().getLocalFormat().
      */
-    public static final SimpleDateFormat DATE_FORMAT_MILITARY_LOCAL =
-            new SimpleDateFormat("ddHHmmss'J 'MMM' 'yy");
+    @Deprecated
+    public static final SimpleDateFormat DATE_FORMAT_MILITARY_LOCAL = new SimpleDateFormat();
     static {
-        //Check system time zone and adjust local format accordingly
-        new Timer(1000 / 24, new ActionListener() {
-
-            public void actionPerformed(ActionEvent e) {
-                //Force re-read of OS time zone
-                System.getProperties().remove("user.timezone");
-                TimeZone.setDefault(null);
-                
-                //Adjust local format
-                TimeZone tz = TimeZone.getDefault();
-                DATE_FORMAT_MILITARY_LOCAL.setTimeZone(tz);
-                DATE_FORMAT_MILITARY_LOCAL.applyPattern("ddHHmmss'" + getMilitaryTimeZoneCharacter(tz) + " 'MMM' 'yy");
-            }
-        }).start();
+        updateMilitaryLocalFormat(TimeZoneTracker.getInstance().getLocalFormat());
     }
-    private static final int MILLISECONDS_IN_HOUR = 60 * 60 * 1000;
-    private static char getMilitaryTimeZoneCharacter(TimeZone tz) {
-        int offset = tz.getOffset(System.currentTimeMillis());
-        //If it's not a whole number of hours, just return 'J'
-        int offsetHours = offset / MILLISECONDS_IN_HOUR;
-        if (0 != offset % MILLISECONDS_IN_HOUR || 12 < offsetHours || -12 > offsetHours) {
-            return 'J';
-        } else {
-            if (0 == offsetHours) {
-                return 'Z';
-            } else if (0 < offsetHours) {
-                char c = (char) ('A' + offsetHours - 1);
-                if ('J' <= c) {
-                    c += 1;
-                }
-                return c;
-            } else {
-                return (char) ('N' - offsetHours - 1);
-            }
+
+    /**
+     * Points DATE_FORMAT_MILITARY_LOCAL at a new local time zone.
+     */
+    static void updateMilitaryLocalFormat(MilitaryDateFormat localFormat) {
+        synchronized (DATE_FORMAT_MILITARY_LOCAL) {
+            DATE_FORMAT_MILITARY_LOCAL.applyPattern("ddHHmmss'" + localFormat.getZoneLetter() + " 'MMM' 'yy");
+            DATE_FORMAT_MILITARY_LOCAL.setTimeZone(localFormat.getTimeZone());
         }
     }
 
@@ -148,6 +126,9 @@ public class Utilities extends com.esri.militaryapps.util.Utilities {
     private static final HashMap<Integer, AngularUnit> ANGULAR_UNITS =
             new HashMap<Integer, AngularUnit>();
 
+    private static final ConcurrentHashMap<Integer, SpatialReference> SPATIAL_REFERENCES =
+            new ConcurrentHashMap<Integer, SpatialReference>();
+
     /**
      * Private constructor because Utilities is not meant to be instantiated.
      */
@@ -197,6 +178,19 @@ public class Utilities extends com.esri.militaryapps.util.Utilities {
         return Utilities.calculateBearingDegrees(fromLocationLatLon.getX(), fromLocationLatLon.getY(), toLocationLatLon.getX(), toLocationLatLon.getY());
     }
 
+    /**
+     * Calculates the compass bearing from one point to another along the WGS 1984
+     * ellipsoid and returns the result in degrees. See Geodesic for accuracy.
+     * @param fromLon the longitude from which the bearing is to be calculated.
+     * @param fromLat the latitude from which the bearing is to be calculated.
+     * @param toLon the longitude to which the bearing is to be calculated.
+     * @param toLat the latitude to which the bearing is to be calculated.
+     * @return the compass bearing from one point to another, in degrees.
+     */
+    public static double calculateBearingDegrees(double fromLon, double fromLat, double toLon, double toLat) {
+        return Geodesic.initialBearingDegrees(fromLon, fromLat, toLon, toLat);
+    }
+
     /**
      * Normalizes an angle in degrees to fall between specified minimum and maximum
      * values.
@@ -277,6 +271,22 @@ public class Utilities extends com.esri.militaryapps.util.Utilities {
         return unit;
     }
     
+    /**
+     * Returns an instance of a SpatialReference object for the specified WKID.
+     * This method means you don't have to recreate equivalent SpatialReference
+     * objects, which is costly.
+     * @param wkid the spatial reference WKID.
+     * @return an instance of a SpatialReference object for the specified WKID.
+     */
+    public static SpatialReference getSpatialReference(int wkid) {
+        SpatialReference sr = SPATIAL_REFERENCES.get(wkid);
+        if (null == sr) {
+            sr = SpatialReference.create(wkid);
+            SPATIAL_REFERENCES.putIfAbsent(wkid, sr);
+        }
+        return sr;
+    }
+    
     /**
      * Converts the string to a best-guess valid MGRS string, if possible.<br/>
      * <br/>
@@ -295,6 +305,10 @@ public class Utilities extends com.esri.militaryapps.util.Utilities {
      *     <li>Odd number of easting/northing digits (correction: add a zero to
      *         the end of the northing)</li>
      * </ul>
+     * The string is parsed by MgrsParser, which also provides the parts of the
+     * MGRS string, and the reference location is converted to MGRS only if the
+     * string has no grid zone identifier.<br/>
+     * <br/>
      * TODO this method might go away when fromMilitaryGrid handles bad strings gracefully.
      * @param mgrs the MGRS string.
      * @param referenceLocation a reference location for calculating a missing grid
@@ -307,81 +321,30 @@ public class Utilities extends com.esri.militaryapps.util.Utilities {
      *         or null if the string is known to be invalid and cannot be converted.
      */
     public static String convertToValidMgrs(String mgrs, Point referenceLocation, SpatialReference referenceSR) {
-        if (null == mgrs) {
-            return null;
+        MgrsParser parser = MgrsParser.forCurrentThread();
+        if (!parser.parse(mgrs) && parser.isMissingGridZone() && null != referenceLocation && null != referenceSR) {
+            //Only convert the reference location when it's needed
+            String referenceMgrs = CachedMgrsConverter.getInstance().pointToMgrs(referenceLocation, referenceSR);
+            parser.parse(mgrs, referenceMgrs);
         }
-        
-        //Remove non-alphanumeric
-        mgrs = mgrs.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+        return parser.toString();
+    }
 
-        //Check for MGRS without grid zone identifier and add it if necessary
-        Matcher gzlessMatcher = Pattern.compile("[A-Z]{2}[0-9]*").matcher(mgrs);
-        if (null != referenceLocation && null != referenceSR && gzlessMatcher.matches()) {
-            String referenceMgrs = CoordinateConversion.pointToMgrs(referenceLocation,
-                    referenceSR, CoordinateConversion.MGRSConversionMode.AUTO, 5,
-                    false, false);
-            if (null != referenceMgrs) {
-                Matcher gzMatcher = Pattern.compile("[0-9]{0,2}[A-Z]").matcher(referenceMgrs);
-                if (gzMatcher.find() && 0 == gzMatcher.start()) {
-                    mgrs = referenceMgrs.substring(0, gzMatcher.end()) + mgrs;
-                }
-            }
-        }
-        
-        /**
-         * A good MGRS string looks like this:
-         * <grid zone ID><2 letters><even number of digits>
-         * A grid zone ID looks like this:
-         * <1-2 digits><letter C-X>
-         * or
-         * <letter A, B, Y, or Z>
-         * That means every MGRS string looks like this:
-         * <0-2 digits><3 letters><even number of digits>
-         */
-        Pattern pattern = Pattern.compile("[A-Z]+");
-        Matcher matcher = pattern.matcher(mgrs);
-        if (!matcher.find()) {
-            //There are no letters; nothing we can do
-            return null;
-        }
-        Matcher polarMatcher = Pattern.compile("[ABYZ][A-Z]{2}[0-9]*").matcher(mgrs);
-        if (0 == matcher.start()) {
-            //This string starts with letters; make sure it's polar
-            if (!polarMatcher.matches()) {
-                return null;
-            }
-        } else {
-            //If the first letter is A, B, Y, or Z, omit the leading digits
-            char firstLetter = mgrs.charAt(matcher.start());
-            if ('A' == firstLetter || 'B' == firstLetter || 'Y' == firstLetter || 'Z' == firstLetter) {
-                mgrs = mgrs.substring(matcher.start());
-                if (!polarMatcher.matches()) {
-                    return null;
-                }
-            } else {
-                Matcher nonPolarMatcher = Pattern.compile("[0-9]{1,2}[C-X][A-Z]{2}[0-9]*").matcher(mgrs);
-                if (!nonPolarMatcher.matches()) {
-                    return null;
-                }
-                //This string starts with numbers; see what they are
-                int gridZoneNumber = Integer.parseInt(mgrs.substring(0, matcher.start()));
-                if (0 > gridZoneNumber || 60 < gridZoneNumber) {
-                    return null;
-                }
-            }
-        }
-        
-        //Last thing: return null if there's an odd number of easting/northing digits
-        Matcher threeLetters = Pattern.compile("[A-Z]{3}").matcher(mgrs);
-        threeLetters.find();
-        if (threeLetters.end() < mgrs.length()) {
-            String eastingNorthing = mgrs.substring(threeLetters.end());
-            if (1 == eastingNorthing.length() % 2) {
-                return null;
-            }
-        }
-        
-        return mgrs;
+    /**
+     * Converts the string to a best-guess valid MGRS string, if possible, taking a
+     * missing grid zone identifier from a reference MGRS string.
+     * @param mgrs the MGRS string.
+     * @param referenceMgrs an MGRS string whose grid zone identifier will be
+     *        prepended to mgrs if mgrs does not include a grid zone identifier.
+     *        This parameter can be null if mgrs contains a grid zone identifier.
+     * @return the string itself; a best guess at a valid equivalent of the string;
+     *         or null if the string is known to be invalid and cannot be converted.
+     * @see #convertToValidMgrs(java.lang.String, com.esri.core.geometry.Point, com.esri.core.geometry.SpatialReference)
+     */
+    public static String convertToValidMgrs(String mgrs, String referenceMgrs) {
+        MgrsParser parser = MgrsParser.forCurrentThread();
+        parser.parse(mgrs, referenceMgrs);
+        return parser.toString();
     }
     
     /**
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util;
+
+/**
+ * Converts between WGS 1984 longitude/latitude and Web Mercator (auxiliary sphere)
+ * analytically, on arrays of primitive coordinates, without creating geometry
+ * objects or calling the geometry engine.
+ */
+public final class WebMercator {
+
+    /**
+     * The WKID of WGS 1984.
+     */
+    public static final int WGS84_WKID = 4326;
+
+    /**
+     * The radius of the Web Mercator sphere, in meters.
+     */
+    public static final double RADIUS = 6378137.0;
+
+    /**
+     * The latitude beyond which Web Mercator is undefined in practice. Latitudes
+     * closer to the poles are clamped to this value.
+     */
+    public static final double MAX_LATITUDE = 85.0511287798066;
+
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180.0;
+    private static final double RADIANS_TO_DEGREES = 180.0 / Math.PI;
+
+    private WebMercator() {
+    }
+
+    /**
+     * Returns true if the WKID is one of the Web Mercator auxiliary sphere WKIDs
+     * (3857, 102100, 102113, or 900913).
+     * @param wkid the WKID.
+     * @return true if the WKID is Web Mercator.
+     */
+    public static boolean isWebMercator(int wkid) {
+        return 3857 == wkid || 102100 == wkid || 102113 == wkid || 900913 == wkid;
+    }
+
+    /**
+     * Returns true if projecting between the two WKIDs can be done by this class.
+     * @param fromWkid the source WKID.
+     * @param toWkid the destination WKID.
+     * @return true if one WKID is WGS 1984 and the other is Web Mercator.
+     */
+    public static boolean canProject(int fromWkid, int toWkid) {
+        return (WGS84_WKID == fromWkid && isWebMercator(toWkid))
+                || (isWebMercator(fromWkid) && WGS84_WKID == toWkid);
+    }
+
+    /**
+     * Converts a longitude to a Web Mercator X.
+     * @param longitude the longitude, in degrees.
+     * @return the Web Mercator X, in meters.
+     */
+    public static double toX(double longitude) {
+        return RADIUS * longitude * DEGREES_TO_RADIANS;
+    }
+
+    /**
+     * Converts a latitude to a Web Mercator Y.
+     * @param latitude the latitude, in degrees, clamped to +/- MAX_LATITUDE.
+     * @return the Web Mercator Y, in meters.
+     */
+    public static double toY(double latitude) {
+        if (MAX_LATITUDE < latitude) {
+            latitude = MAX_LATITUDE;
+        } else if (-MAX_LATITUDE > latitude) {
+            latitude = -MAX_LATITUDE;
+        }
+        double sin = Math.sin(latitude * DEGREES_TO_RADIANS);
+        return 0.5 * RADIUS * Math.log((1.0 + sin) / (1.0 - sin));
+    }
+
+    /**
+     * Converts a Web Mercator X to a longitude.
+     * @param x the Web Mercator X, in meters.
+     * @return the longitude, in degrees.
+     */
+    public static double toLongitude(double x) {
+        return x / RADIUS * RADIANS_TO_DEGREES;
+    }
+
+    /**
+     * Converts a Web Mercator Y to a latitude.
+     * @param y the Web Mercator Y, in meters.
+     * @return the latitude, in degrees.
+     */
+    public static double toLatitude(double y) {
+        return Math.atan(Math.sinh(y / RADIUS)) * RADIANS_TO_DEGREES;
+    }
+
+    /**
+     * Converts points from longitude/latitude to Web Mercator in place.
+     * @param coords the points, as lon0, lat0, lon1, lat1, and so on.
+     * @param pointCount the number of points.
+     */
+    public static void fromLonLat(double[] coords, int pointCount) {
+        for (int i = 0; i < 2 * pointCount; i += 2) {
+            coords[i] = toX(coords[i]);
+            coords[i + 1] = toY(coords[i + 1]);
+        }
+    }
+
+    /**
+     * Converts points from Web Mercator to longitude/latitude in place.
+     * @param coords the points, as x0, y0, x1, y1, and so on.
+     * @param pointCount the number of points.
+     */
+    public static void toLonLat(double[] coords, int pointCount) {
+        for (int i = 0; i < 2 * pointCount; i += 2) {
+            coords[i] = toLongitude(coords[i]);
+            coords[i + 1] = toLatitude(coords[i + 1]);
+        }
+    }
+
+    /**
+     * Converts points from longitude/latitude to Web Mercator in place.
+     * @param xs the longitudes, replaced by Web Mercator X values.
+     * @param ys the latitudes, replaced by Web Mercator Y values.
+     * @param pointCount the number of points.
+     */
+    public static void fromLonLat(double[] xs, double[] ys, int pointCount) {
+        for (int i = 0; i < pointCount; i++) {
+            xs[i] = toX(xs[i]);
+            ys[i] = toY(ys[i]);
+        }
+    }
+
+    /**
+     * Converts points from Web Mercator to longitude/latitude in place.
+     * @param xs the Web Mercator X values, replaced by longitudes.
+     * @param ys the Web Mercator Y values, replaced by latitudes.
+     * @param pointCount the number of points.
+     */
+    public static void toLonLat(double[] xs, double[] ys, int pointCount) {
+        for (int i = 0; i < pointCount; i++) {
+            xs[i] = toLongitude(xs[i]);
+            ys[i] = toLatitude(ys[i]);
+        }
+    }
+
+}
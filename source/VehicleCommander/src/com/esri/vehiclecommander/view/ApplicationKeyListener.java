@@ -17,13 +17,11 @@ package com.esri.vehiclecommander.view;
 
 import com.esri.militaryapps.model.NavigationMode;
 import com.esri.vehiclecommander.controller.MapController;
+import com.esri.vehiclecommander.util.UiTickScheduler;
 import com.esri.vehiclecommander.util.Utilities;
 import java.awt.Frame;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import javax.swing.Timer;
 
 /**
  * A KeyListener for application-wide key events. This could be added to the application
@@ -33,7 +31,7 @@ public class ApplicationKeyListener extends KeyAdapter {
 
     private final Frame frame;
     private final MapController mapController;
-    private Timer rotateTimer = null;
+    private UiTickScheduler.Subscriber rotateSubscriber = null;
 
     /**
      * Constructor that takes the application frame as a parameter.
@@ -60,7 +58,10 @@ public class ApplicationKeyListener extends KeyAdapter {
             Utilities.closeApplication(frame);
         } else if (KeyEvent.VK_V == e.getKeyCode() || KeyEvent.VK_B == e.getKeyCode()) {
             //Cancel rotation
-            rotateTimer.stop();
+            if (null != rotateSubscriber) {
+                UiTickScheduler.getInstance().unsubscribe(rotateSubscriber);
+                rotateSubscriber = null;
+            }
         } else if (KeyEvent.VK_N == e.getKeyCode()) {
             mapController.setRotation(0);
             mapController.getLocationController().setNavigationMode(NavigationMode.NORTH_UP);
@@ -78,15 +79,16 @@ public class ApplicationKeyListener extends KeyAdapter {
     public void keyPressed(final KeyEvent e) {
         if (KeyEvent.VK_V == e.getKeyCode() || KeyEvent.VK_B == e.getKeyCode()) {
             mapController.getLocationController().setNavigationMode(NavigationMode.NORTH_UP);
-            if (null == rotateTimer || !rotateTimer.isRunning()) {
+            if (null == rotateSubscriber) {
                 //Start rotation
-                rotateTimer = new Timer(1000 / 24, new ActionListener() {
-                    public void actionPerformed(ActionEvent ae) {
+                rotateSubscriber = new UiTickScheduler.Subscriber() {
+                    public boolean tick(long nowMillis) {
                         double rotation = (KeyEvent.VK_V == e.getKeyCode() ? -360 : 360) / 12;
                         mapController.rotate(rotation);
+                        return true;
                     }
-                });
-                rotateTimer.start();
+                };
+                UiTickScheduler.getInstance().subscribe(rotateSubscriber);
             }
         }
     }
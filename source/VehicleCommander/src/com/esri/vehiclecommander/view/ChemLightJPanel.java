@@ -191,15 +191,11 @@ public class ChemLightJPanel extends RoundedJPanel {
         }
     }
     
-    private void chemLightColorChangeClicked(final int rgbColor) {
-        new Thread() {
-            @Override
-            public void run() {
-                Point pt = (Point) chemLight.getGeometry();
-                chemLightController.sendChemLight(pt.getX(), pt.getY(), chemLightSR.getID(),
-                        rgbColor, (String) chemLight.getAttributeValue(Geomessage.ID_FIELD_NAME));
-            }
-        }.start();
+    private void chemLightColorChangeClicked(int rgbColor) {
+        //The message controller queues the message and sends it on its own thread
+        Point pt = (Point) chemLight.getGeometry();
+        chemLightController.sendChemLight(pt.getX(), pt.getY(), chemLightSR.getID(),
+                rgbColor, (String) chemLight.getAttributeValue(Geomessage.ID_FIELD_NAME));
         hideComponentToHide();
     }
     
@@ -220,12 +216,7 @@ public class ChemLightJPanel extends RoundedJPanel {
     }//GEN-LAST:event_jButton_chemlight_blueActionPerformed
 
     private void jButton_chemlight_removeActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton_chemlight_removeActionPerformed
-        new Thread() {
-            @Override
-            public void run() {
-                chemLightController.removeChemLight((String) chemLight.getAttributeValue(Geomessage.ID_FIELD_NAME));
-            }
-        }.start();
+        chemLightController.removeChemLight((String) chemLight.getAttributeValue(Geomessage.ID_FIELD_NAME));
         hideComponentToHide();
     }//GEN-LAST:event_jButton_chemlight_removeActionPerformed
 
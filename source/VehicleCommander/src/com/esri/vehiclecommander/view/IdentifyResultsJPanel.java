@@ -18,7 +18,7 @@ package com.esri.vehiclecommander.view;
 import com.esri.toolkit.utilities.BrowserLauncher;
 import com.esri.core.geometry.Envelope;
 import com.esri.core.geometry.Geometry;
-import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.LinearUnit;
 import com.esri.core.geometry.Point;
 import com.esri.core.geometry.Polygon;
 import com.esri.core.geometry.Polyline;
@@ -34,11 +34,11 @@ import com.esri.core.symbol.Symbol;
 import com.esri.map.ArcGISFeatureLayer;
 import com.esri.map.GraphicsLayer;
 import com.esri.map.Layer;
-import com.esri.militaryapps.controller.LocationListener;
-import com.esri.militaryapps.model.Location;
-import com.esri.militaryapps.model.LocationProvider;
 import com.esri.vehiclecommander.controller.MapController;
 import com.esri.vehiclecommander.model.IdentifiedItem;
+import com.esri.vehiclecommander.model.LocationSnapshot;
+import com.esri.vehiclecommander.util.Geodesic;
+import com.esri.vehiclecommander.util.ProjectionService;
 import com.esri.vehiclecommander.util.Utilities;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -63,9 +63,10 @@ import javax.swing.JLabel;
 /**
  * A panel for displaying identify results.
  */
-public class IdentifyResultsJPanel extends RoundedJPanel implements LocationListener {
+public class IdentifyResultsJPanel extends RoundedJPanel {
 
     private static final long serialVersionUID = 253026308130677536L;
+    private static final LinearUnit METERS = new LinearUnit(LinearUnit.Code.METER);
     private IdentifiedItem[] results = null;
     private Map<IdentifiedItem, Layer> resultToLayer = null;
     private int currentIndex = 0;
@@ -76,8 +77,6 @@ public class IdentifyResultsJPanel extends RoundedJPanel implements LocationList
     private final SimpleFillSymbol fillSymbol;
     private final SimpleMarkerSymbol markerSymbol;
     private final Symbol identifyPointSymbol;
-    private Point gpsLocationLatLon = null;
-    private final Object gpsLocationLatLonLock = new Object();
     private Point identifyPoint = null;
     private int identifyPointGraphicUid = -1;
     private int identifyFeatureGraphicUid = -1;
@@ -308,24 +307,22 @@ public class IdentifyResultsJPanel extends RoundedJPanel implements LocationList
         }
         
         //Show distance and bearing from GPS location if available
-        synchronized (gpsLocationLatLonLock) {
-            boolean showedDistanceAndBearing = false;
-            if (null != gpsLocationLatLon) {
-                //Show them
-                Point destinationMap = (geom instanceof Point) ? ((Point) geom) : identifyPoint;
-                Point gpsLocationMap = (Point) GeometryEngine.project(gpsLocationLatLon, Utilities.WGS84, mapController.getSpatialReference());
-                double distance = Math.sqrt(Math.pow(destinationMap.getX() - gpsLocationMap.getX(), 2.0) + Math.pow(destinationMap.getY() - gpsLocationMap.getY(), 2.0));
-                Point destinationLatLon = (Point) GeometryEngine.project(destinationMap, mapController.getSpatialReference(), Utilities.WGS84);
-                double bearing = Utilities.calculateBearingDegrees(gpsLocationLatLon, destinationLatLon);
-
-                jLabel_distance.setText("Distance: " + Math.round(distance) + " " + mapController.getSpatialReference().getUnit().getAbbreviation());
-                jLabel_bearing.setText("Bearing: " + Math.round(bearing) + "\u00B0");
-                showedDistanceAndBearing = true;
-            }
-            if (!showedDistanceAndBearing) {
-                jLabel_distance.setText("");
-                jLabel_bearing.setText("");
-            }
+        LocationSnapshot gpsLocation = mapController.getLocationBus().getLatest();
+        if (null != gpsLocation) {
+            Point destinationMap = (geom instanceof Point) ? ((Point) geom) : identifyPoint;
+            Point destinationLatLon = ProjectionService.projectPoint(destinationMap, mapController.getSpatialReference(), Utilities.WGS84);
+            //Measure on the ellipsoid; a planar map distance is distorted away from the equator
+            double[] distanceAndBearing = new double[2];
+            Geodesic.inverse(gpsLocation.getLongitude(), gpsLocation.getLatitude(),
+                    destinationLatLon.getX(), destinationLatLon.getY(), distanceAndBearing);
+            double distance = distanceAndBearing[0];
+            double bearing = distanceAndBearing[1];
+
+            jLabel_distance.setText("Distance: " + Math.round(distance) + " " + METERS.getAbbreviation());
+            jLabel_bearing.setText("Bearing: " + Math.round(bearing) + "\u00B0");
+        } else {
+            jLabel_distance.setText("");
+            jLabel_bearing.setText("");
         }
     }
     
@@ -455,16 +452,6 @@ public class IdentifyResultsJPanel extends RoundedJPanel implements LocationList
         }
     }
 
-    /**
-     * Called when the GPSProvider has a GPS fix available.
-     * @param latLonPoint the GPS fix point.
-     */
-    public void handleGPSFix(Point latLonPoint) {
-        synchronized (gpsLocationLatLonLock) {
-            gpsLocationLatLon = latLonPoint;
-        }
-    }
-
     private void jButton_closeActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton_closeActionPerformed
         setVisible(false);
         graphicsLayer.removeAll();
@@ -498,18 +485,4 @@ public class IdentifyResultsJPanel extends RoundedJPanel implements LocationList
     private javax.swing.JSeparator jSeparator1;
     // End of variables declaration//GEN-END:variables
 
-    /**
-     * Called when GPS position changes.
-     * @param newPosition the new position.
-     */
-    public void onLocationChanged(Location location){
-        if (null != location) {
-            handleGPSFix(new Point(location.getLongitude(), location.getLatitude()));
-        }
-    }
-
-    public void onStateChanged(LocationProvider.LocationProviderState state) {
-        
-    }
-
 }
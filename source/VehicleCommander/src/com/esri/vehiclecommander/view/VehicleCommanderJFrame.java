@@ -16,18 +16,14 @@
 package com.esri.vehiclecommander.view;
 
 import com.esri.core.geometry.AngularUnit;
-import com.esri.core.geometry.GeometryEngine;
 import com.esri.core.geometry.Point;
 import com.esri.core.geometry.SpatialReference;
 import com.esri.map.Layer;
 import com.esri.map.MapOverlay;
 import com.esri.militaryapps.controller.ChemLightController;
 import com.esri.militaryapps.controller.LocationController;
-import com.esri.militaryapps.controller.LocationListener;
 import com.esri.militaryapps.controller.MessageController;
 import com.esri.militaryapps.controller.PositionReportController;
-import com.esri.militaryapps.model.Location;
-import com.esri.militaryapps.model.LocationProvider;
 import com.esri.militaryapps.model.NavigationMode;
 import com.esri.runtime.ArcGISRuntime;
 import com.esri.vehiclecommander.controller.AdvancedSymbolController;
@@ -35,13 +31,22 @@ import com.esri.vehiclecommander.controller.AppConfigController;
 import com.esri.vehiclecommander.controller.AppConfigListener;
 import com.esri.vehiclecommander.controller.GPAdapter;
 import com.esri.vehiclecommander.controller.IdentifyListener;
+import com.esri.vehiclecommander.controller.LocationBus;
 import com.esri.vehiclecommander.controller.MapController;
+import com.esri.vehiclecommander.controller.MapControllerListenerAdapter;
 import com.esri.vehiclecommander.controller.RouteController;
+import com.esri.vehiclecommander.controller.ScheduledMessageController;
 import com.esri.vehiclecommander.controller.VehicleStatusController;
 import com.esri.vehiclecommander.controller.ViewshedController;
 import com.esri.vehiclecommander.model.IdentifiedItem;
+import com.esri.vehiclecommander.model.LocationSnapshot;
 import com.esri.vehiclecommander.model.MapConfig;
 import com.esri.vehiclecommander.model.MapConfigReader;
+import com.esri.vehiclecommander.util.BinaryGeomessageCodec;
+import com.esri.vehiclecommander.util.MilitaryDateFormat;
+import com.esri.vehiclecommander.util.StartupProfiler;
+import com.esri.vehiclecommander.util.TimeZoneTracker;
+import com.esri.vehiclecommander.util.UiTickScheduler;
 import com.esri.vehiclecommander.util.Utilities;
 
 import java.awt.Color;
@@ -53,11 +58,11 @@ import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.Rectangle;
 import java.awt.Toolkit;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -66,9 +71,7 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.text.DateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -82,7 +85,6 @@ import javax.swing.JLayeredPane;
 import javax.swing.JOptionPane;
 import javax.swing.JToggleButton;
 import javax.swing.SwingUtilities;
-import javax.swing.Timer;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.xml.sax.SAXException;
@@ -175,7 +177,6 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
     private String clientId;
     private AdvancedSymbolController symbolController;
     private final MapOverlay stopFollowMeOverlay;
-    private final Timer updateTimeDisplayTimer;
 
     /**
      * Creates a new VehicleCommanderJFrame, which in turn creates and opens the application
@@ -204,6 +205,8 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
      */
     @SuppressWarnings("LeakingThisInConstructor")
     public VehicleCommanderJFrame(String mapConfigFilename, String licenseString, String extsString, String clientId) {
+        final StartupProfiler profiler = StartupProfiler.getInstance();
+        profiler.startPhase("License");
         if (null == mapConfigFilename || !new File(mapConfigFilename).exists()) {
             mapConfigFilename = "./mapconfig.xml";
         }
@@ -220,11 +223,14 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
             ArcGISRuntime.License.setLicense(this.licenseString, this.extsStrings);
         }
         
+        profiler.startPhase("ArcGIS Runtime initialize");
         ArcGISRuntime.initialize();
 
+        profiler.startPhase("App configuration");
         appConfigController = new AppConfigController();
         appConfigController.addListener(this);
         
+        profiler.startPhase("initComponents");
         initComponents();
         
         getLayeredPane().add(floatingPanel);
@@ -232,20 +238,40 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
         addToolbarButton((ToolbarToggleButton) jToggleButton_viewshed);
         addToolbarButton((ToolbarToggleButton) jToggleButton_route);
 
-        messageController = new MessageController(appConfigController.getPort(), appConfigController.getUsername());
+        profiler.startPhase("Map and messaging controllers");
+        ScheduledMessageController scheduledMessageController = new ScheduledMessageController(appConfigController.getPort(), appConfigController.getUsername());
+        scheduledMessageController.setPacked(appConfigController.isPackMessages());
+        scheduledMessageController.setBinary(BinaryGeomessageCodec.GEOMESSAGE_VERSION.equals(appConfigController.getGeomessageVersion()));
+        messageController = scheduledMessageController;
         appConfigController.setMessageController(messageController);
 
         chemLightController = new ChemLightController(messageController, appConfigController.getUsername());
 
         mapController = new MapController(map, this, appConfigController, chemLightController);
+        mapController.addListener(new MapControllerListenerAdapter() {
 
-        new Timer(1000 / 24, new ActionListener() {
+            @Override
+            public void mapReady() {
+                profiler.finish();
+            }
+        });
+        //Started here rather than in MapController's constructor, so that its thread never sees a partly constructed MapController
+        mapController.getLocationBus().start();
 
-            public void actionPerformed(ActionEvent e) {
-                ((RotatableImagePanel) rotatableImagePanel_northArrow).setRotation(Math.toRadians(mapController.getRotation()));
+        UiTickScheduler.getInstance().subscribe(new UiTickScheduler.DirtyCheckedSubscriber<Double>() {
+
+            @Override
+            protected Double sample(long nowMillis) {
+                return mapController.getRotation();
             }
-        }).start();
 
+            @Override
+            protected void apply(Double rotation) {
+                ((RotatableImagePanel) rotatableImagePanel_northArrow).setRotation(Math.toRadians(rotation));
+            }
+        });
+
+        profiler.startPhase("Window and panels");
         //Window location and size
         Preferences prefs = Preferences.userNodeForPackage(getClass());
         int windowState = prefs.getInt(KEY_FRAME_EXTENDED_STATE, -1) & (Frame.ICONIFIED ^ 0xffffffff);
@@ -323,8 +349,10 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
             }     
         });
         
+        profiler.startPhase("Map configuration");
         resetMapConfig();
         
+        profiler.startPhase("Extensions");
         //Set up extensions
         List<Map<String, String>> toolbarItems = mapConfig.getToolbarItems();
         for (Map<String, String> item : toolbarItems) {
@@ -367,6 +395,7 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
             }
         }
  
+        profiler.startPhase("Location controller");
         LocationController locationController = null;
         try {
             locationController = mapController.getLocationController();
@@ -375,28 +404,16 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
             if (0 < speedMultiplier) {
                 locationController.setSpeedMultiplier(speedMultiplier);
             }
-            locationController.addListener(identifyPanel);
             if (locationController instanceof com.esri.vehiclecommander.controller.LocationController) {
                 appConfigController.setLocationController((com.esri.vehiclecommander.controller.LocationController) locationController);
             }
-            locationController.addListener(new LocationListener() {
-
-                public void onLocationChanged(Location location) {
-                    if (null != location) {
-                        updatePosition(GeometryEngine.project(location.getLongitude(), location.getLatitude(), mapController.getSpatialReference()), location.getHeading());
-                    }
-                }
-
-                public void onStateChanged(LocationProvider.LocationProviderState state) {
-
-                }
-            });
             locationController.start();
         } catch (Throwable t) {
             Logger.getLogger(VehicleCommanderJFrame.class.getName()).log(Level.SEVERE, null, t);
             Utilities.showGPSErrorMessage(t.getMessage());
         }
         
+        profiler.startPhase("Messaging start");
         messageController.addListener(symbolController);
         messageController.startReceiving();
         
@@ -410,8 +427,9 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
         positionReportController.setPeriod(appConfigController.getPositionMessageInterval());
         positionReportController.setEnabled(true);
         
-        vehicleStatusController = new VehicleStatusController(appConfigController, messageController);
+        vehicleStatusController = new VehicleStatusController(appConfigController, messageController, mapController.getLocationBus());
 
+        profiler.startPhase("Menus, tools and timers");
         //Key listener for application-wide key events
         ApplicationKeyListener keyListener = new ApplicationKeyListener(this, mapController);
         addKeyListener(keyListener);
@@ -451,16 +469,51 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
         };
         map.addMapOverlay(stopFollowMeOverlay);
         
-        updateTimeDisplayTimer = new Timer(1000 / 24, new ActionListener() {
+        //The displayed position changes only when a new fix arrives, or when the MGRS preference changes
+        final LocationBus locationBus = mapController.getLocationBus();
+        UiTickScheduler.getInstance().subscribe(new UiTickScheduler.DirtyCheckedSubscriber<Long>() {
+
+            @Override
+            protected Long sample(long nowMillis) {
+                LocationSnapshot latest = locationBus.getLatest();
+                return 2 * (null == latest ? 0 : latest.getSequence()) + (appConfigController.isShowMgrs() ? 1 : 0);
+            }
+
+            @Override
+            protected void apply(Long input) {
+                LocationSnapshot latest = locationBus.getLatest();
+                if (null != latest) {
+                    updatePosition(latest);
+                }
+            }
+        });
+
+        //The displayed time changes only once a second, or when the time zone preference changes
+        UiTickScheduler.getInstance().subscribe(new UiTickScheduler.DirtyCheckedSubscriber<Long>(false) {
+
+            @Override
+            protected Long sample(long nowMillis) {
+                return 2 * (nowMillis / 1000) + (appConfigController.isShowLocalTimeZone() ? 1 : 0);
+            }
 
-            public void actionPerformed(ActionEvent e) {
-                DateFormat dateFormat = appConfigController.isShowLocalTimeZone() ?
-                        Utilities.DATE_FORMAT_MILITARY_LOCAL :
-                        Utilities.DATE_FORMAT_MILITARY_ZULU;
-                jLabel_time.setText(dateFormat.format(new Date()));
+            @Override
+            protected void apply(Long input) {
+                MilitaryDateFormat dateFormat = appConfigController.isShowLocalTimeZone() ?
+                        TimeZoneTracker.getInstance().getLocalFormat() :
+                        MilitaryDateFormat.ZULU;
+                jLabel_time.setText(dateFormat.format(System.currentTimeMillis()));
+            }
+        });
+
+        //The OS time zone may have changed while the window was in the background
+        addWindowFocusListener(new WindowAdapter() {
+
+            @Override
+            public void windowGainedFocus(WindowEvent e) {
+                TimeZoneTracker.getInstance().checkNow();
             }
         });
-        updateTimeDisplayTimer.start();
+        profiler.startPhase("Show window and wait for map");
     }
 
     /**
@@ -1348,6 +1401,7 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
     }//GEN-LAST:event_mapComponentResized
 
     private void formWindowClosing(java.awt.event.WindowEvent evt) {//GEN-FIRST:event_formWindowClosing
+        vehicleStatusController.stop();
         map.dispose();
         
         //Store window location and size
@@ -1403,6 +1457,34 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
         } else {
             jLabel_location.setText("N/A");
         }
+        updateHeading(headingDegrees);
+    }
+
+    /**
+     * Updates the position panel with a location fix from the location bus. The
+     * fix's MGRS string and coordinates are used as they are, without projecting
+     * the fix again.
+     * @param snapshot the location fix to display.
+     */
+    public void updatePosition(LocationSnapshot snapshot) {
+        if (null == snapshot) {
+            updatePosition(null, null);
+            return;
+        }
+        if (appConfigController.isShowMgrs()) {
+            if (null != snapshot.getMgrs()) {
+                jLabel_location.setText(snapshot.getMgrs());
+            } else {
+                //Don't leave the previous fix's MGRS string showing
+                jLabel_location.setText("N/A");
+            }
+        } else {
+            jLabel_location.setText(String.format("%06f", snapshot.getLatitude()) + " " + String.format("%05f", snapshot.getLongitude()));
+        }
+        updateHeading(snapshot.getHeading());
+    }
+
+    private void updateHeading(Double headingDegrees) {
         if (null != headingDegrees) {
             AngularUnit destUnit = Utilities.getAngularUnit(appConfigController.getHeadingUnits());
             AngularUnit degreesUnit = Utilities.getAngularUnit(AngularUnit.Code.DEGREE);
@@ -1463,9 +1545,12 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
      *     <li>-license &lt;license string or file&gt;</li>
      *     <li>-exts <extensions license filename> OR <extension license string 1>;<ext license 2>;...;<ext license n></li>
      *     <li>-clientid &lt;client ID or file&gt;</li>
+     *     <li>-profile-startup (exit after the map is ready, once the startup
+     *         timeline has been written)</li>
      * </ul>
      */
     public static void main(String args[]) {
+        StartupProfiler.getInstance().startPhase("Command line");
         String mapConfig = null;
         String license = null;
         String exts = null;
@@ -1479,6 +1564,8 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
                 exts = readFileIntoStringOrReturnString(args[++i]);                
             } else if ("-clientid".equalsIgnoreCase(args[i]) && i < (args.length - 1)) {
                 clientId = readFileIntoStringOrReturnString(args[++i]);
+            } else if ("-profile-startup".equalsIgnoreCase(args[i])) {
+                StartupProfiler.getInstance().setExitWhenFinished(true);
             }
         }
         final String finalMapConfig = mapConfig;
@@ -1499,7 +1586,8 @@ public class VehicleCommanderJFrame extends javax.swing.JFrame
         System.out.println("Usage: java -jar " + jarName + "\n"
                 + "\t-mapconfig \"<map config XML filename>\" (optional)\n"
                 + "\t-license \"<ArcGIS Runtime license string or filename>\" (optional)\n"
-                + "\t-exts \"<extensions license filename>\" OR \"<extension license string 1>;<ext license 2>;...;<ext license n>\" (optional)");
+                + "\t-exts \"<extensions license filename>\" OR \"<extension license string 1>;<ext license 2>;...;<ext license n>\" (optional)\n"
+                + "\t-profile-startup (optional; exits once the map is ready and the startup timeline is written)");
         System.out.println("Starting Vehicle Commander with these parameters:");
         System.out.println("\tMap configuration XML file: " + (null == finalMapConfig ? "<default>" : finalMapConfig));
         System.out.println("\tArcGIS license string or file: " + (null == finalLicense ? "<default>" : finalLicense));
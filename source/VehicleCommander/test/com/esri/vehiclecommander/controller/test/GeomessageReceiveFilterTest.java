@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller.test;
+
+import com.esri.militaryapps.model.Geomessage;
+import com.esri.vehiclecommander.controller.GeomessageReceiveFilter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * GeomessageReceiveFilter unit tests.
+ */
+public class GeomessageReceiveFilterTest {
+
+    private static final long DUPLICATE_WINDOW_MILLIS = 5000;
+    private static final long MAX_AGE_MILLIS = 60000;
+
+    private GeomessageReceiveFilter filter;
+
+    private static Geomessage geomessage(String id, String action, String timestamp) {
+        Geomessage geomessage = new Geomessage();
+        geomessage.setId(id);
+        geomessage.setProperty(Geomessage.TYPE_FIELD_NAME, "trackrep");
+        if (null != action) {
+            geomessage.setProperty(Geomessage.ACTION_FIELD_NAME, action);
+        }
+        if (null != timestamp) {
+            geomessage.setProperty("datetimevalid", timestamp);
+        }
+        return geomessage;
+    }
+
+    private static Geomessage update(String id, String timestamp) {
+        return geomessage(id, "UPDATE", timestamp);
+    }
+
+    @Before
+    public void setUp() {
+        filter = new GeomessageReceiveFilter(100, DUPLICATE_WINDOW_MILLIS, MAX_AGE_MILLIS);
+    }
+
+    @Test
+    public void testDuplicate() {
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:09"), 1000));
+        Assert.assertFalse(filter.accept(update("a", "2014-07-04 13:05:09"), 2000));
+        Assert.assertEquals(1, filter.getDuplicateCount());
+        //Another ID is not a duplicate
+        Assert.assertTrue(filter.accept(update("b", "2014-07-04 13:05:09"), 2000));
+        //Nor is the same geomessage once the window has passed
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:09"), 1000 + DUPLICATE_WINDOW_MILLIS));
+        Assert.assertEquals(3, filter.getAcceptedCount());
+    }
+
+    @Test
+    public void testStaleTimestamp() {
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:09"), 1000));
+        Assert.assertFalse(filter.accept(update("a", "2014-07-04 13:05:08"), 2000));
+        Assert.assertEquals(1, filter.getStaleCount());
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:10"), 3000));
+        //Ordering is forgotten after the maximum age
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:00"), 3000 + MAX_AGE_MILLIS));
+    }
+
+    /**
+     * Timestamps that don't sort as text never make an update stale.
+     */
+    @Test
+    public void testUnsortableTimestamp() {
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:09"), 1000));
+        Assert.assertTrue(filter.accept(update("a", "4 Jul 2014 13:05"), 2000));
+        Assert.assertTrue(filter.accept(update("a", null), 3000));
+    }
+
+    @Test
+    public void testRemoveThenReadd() {
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:09"), 1000));
+        Assert.assertTrue(filter.accept(geomessage("a", "REMOVE", null), 2000));
+        //The sender started the symbol over, with an earlier timestamp
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:00:00"), 3000));
+        Assert.assertEquals(0, filter.getStaleCount());
+    }
+
+    /**
+     * SELECT and UN-SELECT are applied, and do not reset the ordering of updates.
+     */
+    @Test
+    public void testSelectPassthrough() {
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:09"), 1000));
+        Assert.assertTrue(filter.accept(geomessage("a", "SELECT", null), 2000));
+        Assert.assertFalse(filter.accept(update("a", "2014-07-04 13:05:08"), 3000));
+        Assert.assertTrue(filter.accept(geomessage("a", "UN-SELECT", null), 4000));
+        Assert.assertFalse(filter.accept(update("a", "2014-07-04 13:05:08"), 5000));
+        Assert.assertTrue(filter.accept(geomessage("a", "SELECT", null), 6000));
+        Assert.assertEquals(2, filter.getStaleCount());
+        Assert.assertTrue(filter.accept(update("a", "2014-07-04 13:05:10"), 7000));
+    }
+
+    @Test
+    public void testNullId() {
+        Assert.assertTrue(filter.accept(update(null, "2014-07-04 13:05:09"), 1000));
+        Assert.assertTrue(filter.accept(update(null, "2014-07-04 13:05:09"), 1000));
+        Assert.assertEquals(0, filter.size());
+    }
+
+    @Test
+    public void testCapacityAndExpire() {
+        GeomessageReceiveFilter small = new GeomessageReceiveFilter(2, DUPLICATE_WINDOW_MILLIS, MAX_AGE_MILLIS);
+        small.accept(update("a", null), 1000);
+        small.accept(update("b", null), 1000);
+        small.accept(update("c", null), 2000);
+        Assert.assertEquals(2, small.size());
+        //"a" was evicted, so it is no longer a duplicate
+        Assert.assertTrue(small.accept(update("a", null), 2000));
+        small.expire(2000 + MAX_AGE_MILLIS);
+        Assert.assertEquals(0, small.size());
+    }
+
+}
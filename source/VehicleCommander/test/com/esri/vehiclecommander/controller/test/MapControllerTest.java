@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2013-2014 Esri
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.controller.test;
+
+import com.esri.client.local.LocalServer;
+import com.esri.map.ArcGISFeatureLayer;
+import com.esri.map.JMap;
+import com.esri.vehiclecommander.controller.AppConfigController;
+import com.esri.vehiclecommander.controller.MapController;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * MapController unit tests.
+ */
+public class MapControllerTest {
+
+    private MapController mapController;
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        LocalServer.getInstance().shutdown();
+    }
+
+    @Before
+    public void setUp() {
+        mapController = new MapController(new JMap(), null, new AppConfigController(), null);
+    }
+
+    /**
+     * An identify result may have no layer. Asking for its feature layer must
+     * return null rather than throw.
+     */
+    @Test
+    public void testGetFeatureLayerWithNullLayer() {
+        Assert.assertNull(mapController.getFeatureLayer(null, 0));
+    }
+
+    /**
+     * Saving a feature layer for a null layer is ignored.
+     */
+    @Test
+    public void testSaveFeatureLayerWithNullLayer() {
+        mapController.saveFeatureLayer(null, 0, new ArcGISFeatureLayer("http://localhost/FeatureServer/0"));
+        Assert.assertNull(mapController.getFeatureLayer(null, 0));
+    }
+
+}
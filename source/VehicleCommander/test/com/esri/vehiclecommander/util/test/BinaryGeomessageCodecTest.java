@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util.test;
+
+import com.esri.vehiclecommander.util.BinaryGeomessageCodec;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * BinaryGeomessageCodec unit tests.
+ */
+public class BinaryGeomessageCodecTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static Map<String, String> positionReport() {
+        LinkedHashMap<String, String> geomessage = new LinkedHashMap<String, String>();
+        geomessage.put("_type", "position_report");
+        geomessage.put("_action", "UPDATE");
+        geomessage.put("_id", "4a6b3c1e-8f2d-4e5a-9b7c-0d1e2f3a4b5c");
+        geomessage.put("_wkid", "4326");
+        geomessage.put("sic", "SFGPUCI----K---");
+        geomessage.put("_control_points", "44.123456,34.654321");
+        geomessage.put("uniquedesignation", "Vehicle 1");
+        geomessage.put("type", "HMMWV");
+        geomessage.put("datetimevalid", "2015-01-01 12:34:56");
+        return geomessage;
+    }
+
+    private static List<Map<String, String>> roundTrip(List<Map<String, String>> geomessages) throws DataFormatException {
+        return BinaryGeomessageCodec.decode(new String(BinaryGeomessageCodec.encode(geomessages), ASCII));
+    }
+
+    private static void assertRoundTrip(String value) throws DataFormatException {
+        Map<String, String> geomessage = Collections.singletonMap("x", value);
+        Assert.assertEquals(value, roundTrip(Collections.singletonList(geomessage)).get(0).get("x"));
+    }
+
+    @Test
+    public void testRoundTrip() throws DataFormatException {
+        List<Map<String, String>> geomessages = new ArrayList<Map<String, String>>();
+        geomessages.add(positionReport());
+        LinkedHashMap<String, String> other = new LinkedHashMap<String, String>();
+        other.put("_id", "{4a6b3c1e-8f2d-4e5a-9b7c-0d1e2f3a4b5c}");
+        other.put("_control_points", "5123456.789012345,3912345.5;5123457.0,-3912346.25");
+        other.put("custom \u00e9", "\u4e2d \ud83d\ude00 &amp;");
+        geomessages.add(other);
+        List<Map<String, String>> decoded = roundTrip(geomessages);
+        Assert.assertEquals(geomessages, decoded);
+        Assert.assertEquals(new ArrayList<String>(positionReport().keySet()),
+                new ArrayList<String>(decoded.get(0).keySet()));
+        Assert.assertEquals(Collections.emptyList(), roundTrip(new ArrayList<Map<String, String>>()));
+    }
+
+    /**
+     * Values that look like compact types but would not decode to the same text
+     * must still round-trip.
+     */
+    @Test
+    public void testNearMisses() throws DataFormatException {
+        for (String value : Arrays.asList("0", "-0", "007", "-12", "9223372036854775807", "1.0", "-0.0", "0.5",
+                ".5", "5.", "00.5", "1e5", "1.00000000000000001", "1,2", "1,2;", "1,2,3", ",", ";",
+                "SFGPUCI----K--", "sfgpuci----k---", "SFGPUCI----K--?",
+                "4A6B3C1E-8F2D-4E5A-9B7C-0D1E2F3A4B5C", "{4a6b3c1e-8f2d-4e5a-9b7c-0d1e2f3a4b5c",
+                "2015-02-29 00:00:00", "2016-02-29 23:59:59", "1969-12-31 23:59:59", "0000-01-01 00:00:00",
+                "2015-01-01T12:34:56", "2015-13-01 00:00:00", "", "UPDATE")) {
+            assertRoundTrip(value);
+        }
+    }
+
+    @Test
+    public void testRandomRoundTrips() throws DataFormatException {
+        Random random = new Random(20150101L);
+        String alphabet = "0123456789.,;-{}abcdef ABCKPU*:";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.setLength(0);
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertRoundTrip(sb.toString());
+            assertRoundTrip(Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(12))));
+        }
+    }
+
+    /**
+     * A lone position report is less than half the size of its XML properties,
+     * Base64 included.
+     */
+    @Test
+    public void testSize() {
+        byte[] binary = BinaryGeomessageCodec.encode(Collections.singletonList(positionReport()));
+        int xmlLength = 0;
+        for (Map.Entry<String, String> property : positionReport().entrySet()) {
+            xmlLength += 2 * property.getKey().length() + 5 + property.getValue().length();
+        }
+        Assert.assertTrue(binary.length + " bytes encoded from " + xmlLength, binary.length * 2 < xmlLength);
+    }
+
+    @Test
+    public void testIsBinary() {
+        Assert.assertTrue(BinaryGeomessageCodec.isBinary(new String(
+                BinaryGeomessageCodec.encode(new ArrayList<Map<String, String>>()), ASCII)));
+        Assert.assertFalse(BinaryGeomessageCodec.isBinary("<geomessages/>"));
+        Assert.assertFalse(BinaryGeomessageCodec.isBinary(null));
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testTruncated() throws DataFormatException {
+        String binary = new String(BinaryGeomessageCodec.encode(Collections.singletonList(positionReport())), ASCII);
+        BinaryGeomessageCodec.decode(binary.substring(0, BinaryGeomessageCodec.PREFIX.length() + 40));
+    }
+
+}
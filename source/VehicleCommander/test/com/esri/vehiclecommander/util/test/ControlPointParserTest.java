@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util.test;
+
+import com.esri.vehiclecommander.util.ControlPointParser;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * ControlPointParser unit tests.
+ */
+public class ControlPointParserTest {
+
+    private static void assertBitIdentical(String coordinate, double parsed) {
+        Assert.assertEquals(coordinate, Double.doubleToRawLongBits(Double.parseDouble(coordinate)),
+                Double.doubleToRawLongBits(parsed));
+    }
+
+    private static void assertParsesLikeDouble(ControlPointParser parser, String x, String y) {
+        Assert.assertEquals(1, parser.parse(x + "," + y));
+        Assert.assertFalse(parser.hasError());
+        assertBitIdentical(x, parser.getX(0));
+        assertBitIdentical(y, parser.getY(0));
+    }
+
+    @Test
+    public void testParse() {
+        ControlPointParser parser = new ControlPointParser();
+        Assert.assertEquals(3, parser.parse(" 1.5 , -2 ;;3,4,99;5e3,0.25;"));
+        Assert.assertFalse(parser.hasError());
+        Assert.assertEquals(1.5, parser.getX(0), 0);
+        Assert.assertEquals(-2, parser.getY(0), 0);
+        Assert.assertEquals(3, parser.getX(1), 0);
+        Assert.assertEquals(4, parser.getY(1), 0);
+        Assert.assertEquals(5000, parser.getX(2), 0);
+        Assert.assertEquals(0.25, parser.getY(2), 0);
+        Assert.assertEquals(0, parser.parse(null));
+        Assert.assertEquals(0, parser.parse(""));
+    }
+
+    /**
+     * Every coordinate must parse to exactly the double that Double.parseDouble
+     * returns, whether it takes the fast path or the slow one.
+     */
+    @Test
+    public void testBitIdenticalToParseDouble() {
+        ControlPointParser parser = new ControlPointParser();
+        String[] edgeCases = new String[] {
+            "0", "-0", "-0.0", "+1", "0.1", "0.3", "1.7976931348623157E308", "4.9E-324",
+            "9007199254740993", "9007199254740992.5", "123456789012345678901234567890",
+            "0.00000000000000000000001", "1e22", "1e23", "3.14159265358979323846",
+            "000012.500", "5123456.789012345", "-3912345.0000001", "NaN", "-Infinity"
+        };
+        for (String coordinate : edgeCases) {
+            assertParsesLikeDouble(parser, coordinate, coordinate);
+        }
+        Random random = new Random(20150101L);
+        for (int i = 0; i < 100000; i++) {
+            double value = random.nextGaussian() * Math.pow(10, random.nextInt(16) - 4);
+            assertParsesLikeDouble(parser, Double.toString(value),
+                    new BigDecimal(value).setScale(random.nextInt(20), RoundingMode.HALF_EVEN).toPlainString());
+        }
+    }
+
+    @Test
+    public void testErrorIndex() {
+        ControlPointParser parser = new ControlPointParser();
+        //Bad points are skipped, and the first one is reported
+        Assert.assertEquals(3, parser.parse("1,2;3,x;5,6;7;8,9"));
+        Assert.assertTrue(parser.hasError());
+        Assert.assertEquals(6, parser.getErrorIndex());
+        Assert.assertEquals(1, parser.getX(0), 0);
+        Assert.assertEquals(5, parser.getX(1), 0);
+        Assert.assertEquals(8, parser.getX(2), 0);
+
+        Assert.assertEquals(1, parser.parse("1,2; 7"));
+        Assert.assertEquals(5, parser.getErrorIndex());
+
+        Assert.assertEquals(0, parser.parse("1, "));
+        Assert.assertEquals(3, parser.getErrorIndex());
+
+        Assert.assertEquals(1, parser.parse("1,2"));
+        Assert.assertFalse(parser.hasError());
+        Assert.assertEquals(-1, parser.getErrorIndex());
+        Assert.assertNull(parser.getErrorMessage());
+    }
+
+}
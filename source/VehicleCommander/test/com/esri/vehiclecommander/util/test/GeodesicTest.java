@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util.test;
+
+import com.esri.vehiclecommander.util.Geodesic;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Geodesic unit tests.
+ */
+public class GeodesicTest {
+
+    private static final double DISTANCE_TOLERANCE_METERS = 0.002;
+    private static final double BEARING_TOLERANCE_DEGREES = 0.001;
+
+    private static void assertInverse(double fromLon, double fromLat, double toLon, double toLat,
+            double expectedMeters, double expectedBearing) {
+        double[] result = new double[2];
+        Geodesic.inverse(fromLon, fromLat, toLon, toLat, result);
+        Assert.assertEquals(expectedMeters, result[0], DISTANCE_TOLERANCE_METERS);
+        Assert.assertEquals(expectedBearing, result[1], BEARING_TOLERANCE_DEGREES);
+    }
+
+    /**
+     * Vincenty's own example, from Flinders Peak to Buninyong.
+     */
+    @Test
+    public void testLongDistance() {
+        assertInverse(144.42486788888889, -37.95103341666667, 143.92649552777778, -37.65282113888889,
+                54972.271, 306.868159);
+    }
+
+    @Test
+    public void testEquator() {
+        assertInverse(0, 0, 90, 0, 10018754.171, 90);
+        assertInverse(0, 0, -1, 0, 111319.491, 270);
+    }
+
+    @Test
+    public void testMeridian() {
+        assertInverse(10, 0, 10, 90, 10001965.729, 0);
+        assertInverse(10, 45, 10, 44, 111122.008, 180);
+    }
+
+    /**
+     * Short distances, which use the fast path, against Vincenty's formula.
+     */
+    @Test
+    public void testShortDistance() {
+        assertInverse(-77.0365, 38.8977, -77.0090, 38.8899, 2538.0608, 109.939413);
+        assertInverse(44.0, 33.0, 44.05, 33.02, 5171.9209, 64.590379);
+        assertInverse(10, 60, 10.001, 60, 55.8000, 89.999567);
+    }
+
+    @Test
+    public void testAcrossAntimeridian() {
+        assertInverse(179.99, 0, -179.99, 0, 2226.390, 90);
+    }
+
+    @Test
+    public void testCoincidentPoints() {
+        assertInverse(44.0, 33.0, 44.0, 33.0, 0, 0);
+    }
+
+    /**
+     * Nearly antipodal points fall back to a sphere, which is within 0.6%.
+     */
+    @Test
+    public void testNearlyAntipodal() {
+        double[] result = new double[2];
+        Geodesic.inverse(0, 0, 179.5, 0.5, result);
+        Assert.assertEquals(19936288.579, result[0], 19936288.579 * 0.006);
+    }
+
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util.test;
+
+import com.esri.vehiclecommander.util.GeomessageDateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * GeomessageDateFormat unit tests, which compare it with SimpleDateFormat.
+ */
+public class GeomessageDateFormatTest {
+
+    private static final SimpleDateFormat EXPECTED = new SimpleDateFormat("yyyy-MM-dd' 'HH:mm:ss");
+    static {
+        EXPECTED.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    private static void assertSameAsSimpleDateFormat(long millis) {
+        Assert.assertEquals("At " + millis, EXPECTED.format(new Date(millis)), GeomessageDateFormat.INSTANCE.format(millis));
+    }
+
+    @Test
+    public void testKnownTimes() {
+        Assert.assertEquals("1970-01-01 00:00:00", GeomessageDateFormat.INSTANCE.format(0));
+        Assert.assertEquals("1969-12-31 23:59:59", GeomessageDateFormat.INSTANCE.format(-1));
+        Assert.assertEquals("2014-07-04 13:05:09", GeomessageDateFormat.INSTANCE.format(1404479109999L));
+    }
+
+    /**
+     * The format is always UTC, whatever the default time zone.
+     */
+    @Test
+    public void testIgnoresDefaultTimeZone() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            Assert.assertEquals("2014-03-09 07:00:00", GeomessageDateFormat.INSTANCE.format(1394348400000L));
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+            Assert.assertEquals("2014-10-26 01:00:00", GeomessageDateFormat.INSTANCE.format(1414285200000L));
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    /**
+     * Times within a second, and on either side of day, month and year boundaries,
+     * including before 1970 and leap days.
+     */
+    @Test
+    public void testBoundaries() {
+        long[] times = {
+            0, -1, -999, -1000, -1001, 999, 1000,
+            946684799999L, 946684800000L, //end of 1999
+            951782399999L, 951782400000L, 951868800000L, //2000-02-28, 2000-02-29, 2000-03-01
+            4107542399999L, 4107542400000L, //2100-02-28 and 2100-03-01
+            -2208988800000L, //1900-01-01
+            253402300799999L //9999-12-31 23:59:59.999
+        };
+        for (long time : times) {
+            assertSameAsSimpleDateFormat(time);
+        }
+    }
+
+    @Test
+    public void testRandomTimes() {
+        Random random = new Random(12);
+        long min = -2208988800000L; //1900
+        long max = 7258118400000L; //2200
+        for (int i = 0; i < 20000; i++) {
+            assertSameAsSimpleDateFormat(min + (long) (random.nextDouble() * (max - min)));
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util.test;
+
+import com.esri.vehiclecommander.util.MgrsParser;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * MgrsParser unit tests.
+ */
+public class MgrsParserTest {
+
+    private MgrsParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new MgrsParser();
+    }
+
+    @Test
+    public void testNonPolar() {
+        Assert.assertTrue(parser.parse("37SFU1234567890"));
+        Assert.assertEquals("37SFU1234567890", parser.toString());
+        Assert.assertFalse(parser.isPolar());
+        Assert.assertEquals(37, parser.getZoneNumber());
+        Assert.assertEquals('S', parser.getBand());
+        Assert.assertEquals('F', parser.getSquareColumn());
+        Assert.assertEquals('U', parser.getSquareRow());
+        Assert.assertEquals(5, parser.getPrecision());
+        Assert.assertEquals(12345, parser.getEasting());
+        Assert.assertEquals(67890, parser.getNorthing());
+        Assert.assertNull(parser.getErrorMessage());
+    }
+
+    @Test
+    public void testNormalizesCaseAndSeparators() {
+        Assert.assertTrue(parser.parse(" 4qfj 1234-5678 "));
+        Assert.assertEquals("4QFJ12345678", parser.toString());
+        Assert.assertEquals(4, parser.getZoneNumber());
+        Assert.assertEquals(4, parser.getPrecision());
+    }
+
+    @Test
+    public void testZoneNumberKeptAsWritten() {
+        Assert.assertTrue(parser.parse("04QFJ12"));
+        Assert.assertEquals("04QFJ12", parser.toString());
+        Assert.assertEquals(4, parser.getZoneNumber());
+    }
+
+    @Test
+    public void testNoDigits() {
+        Assert.assertTrue(parser.parse("37SFU"));
+        Assert.assertEquals("37SFU", parser.toString());
+        Assert.assertEquals(0, parser.getPrecision());
+        Assert.assertEquals(0, parser.getEasting());
+    }
+
+    @Test
+    public void testPolar() {
+        Assert.assertTrue(parser.parse("ZAH1234"));
+        Assert.assertTrue(parser.isPolar());
+        Assert.assertEquals(-1, parser.getZoneNumber());
+        Assert.assertEquals('Z', parser.getBand());
+        Assert.assertEquals("ZAH1234", parser.toString());
+    }
+
+    @Test
+    public void testDigitsBeforePolarZoneDropped() {
+        Assert.assertTrue(parser.parse("123YZH1234"));
+        Assert.assertEquals("YZH1234", parser.toString());
+    }
+
+    /**
+     * The regular expression rules matched the polar pattern against the string
+     * before the leading digits were removed, so they rejected digits before a
+     * polar zone even though they meant to drop them. MgrsParser drops them.
+     */
+    @Test
+    public void testDigitsBeforePolarZoneNoLongerRejected() {
+        Assert.assertNull(convertWithRegex("123YZH1234", null));
+        Assert.assertNull(convertWithRegex("1 a-bc", null));
+        Assert.assertTrue(parser.parse("123YZH1234"));
+        Assert.assertEquals("YZH1234", parser.toString());
+        Assert.assertTrue(parser.parse("1 a-bc"));
+        Assert.assertEquals("ABC", parser.toString());
+        Assert.assertFalse(parser.parse("12YZ1234"));
+        Assert.assertFalse(parser.parse("12YZH123"));
+    }
+
+    @Test
+    public void testInvalid() {
+        String[] invalid = new String[] {
+            null, "", "12345", "61SFU1234", "123SFU1234", "37SF1234", "37SFUV1234",
+            "37SFU123", "37SFU12A34", "SFU1234", "37AF1234"
+        };
+        for (String mgrs : invalid) {
+            Assert.assertFalse(String.valueOf(mgrs), parser.parse(mgrs));
+        }
+        Assert.assertFalse(parser.parse("37SFU123"));
+        Assert.assertNull(parser.toString());
+        Assert.assertNotNull(parser.getErrorMessage());
+    }
+
+    @Test
+    public void testMissingGridZone() {
+        Assert.assertFalse(parser.parse("FU1234"));
+        Assert.assertTrue(parser.isMissingGridZone());
+        Assert.assertTrue(parser.parse("FU1234", "37SGU0000000000"));
+        Assert.assertTrue(parser.isGridZoneFromReference());
+        Assert.assertEquals("37SFU1234", parser.toString());
+        Assert.assertTrue(parser.parse("ah12", "ZAH1234"));
+        Assert.assertEquals("ZAH12", parser.toString());
+        Assert.assertFalse(parser.parse("FU1234", "123SGU"));
+        Assert.assertTrue(parser.isMissingGridZone());
+        Assert.assertTrue(parser.parse("37SFU1234", "4QFJ"));
+        Assert.assertFalse(parser.isGridZoneFromReference());
+        Assert.assertEquals("37SFU1234", parser.toString());
+    }
+
+    @Test
+    public void testLongDigits() {
+        Assert.assertTrue(parser.parse("37SFU" + repeat('1', 20) + repeat('2', 20)));
+        Assert.assertEquals(20, parser.getPrecision());
+        Assert.assertEquals(-1, parser.getEasting());
+        Assert.assertEquals("37SFU" + repeat('1', 20) + repeat('2', 20), parser.toString());
+    }
+
+    /**
+     * Compares the parser with the regular expression rules it replaces, on random
+     * strings made of the characters that matter.
+     */
+    @Test
+    public void testMatchesRegexRules() {
+        Random random = new Random(20150601);
+        String alphabet = "0123456789ABCSXYZabsz -";
+        String[] references = new String[] { null, "37SGU1234", "ZAH", "4Q", "123SGU" };
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String mgrs = sb.toString();
+            String reference = references[random.nextInt(references.length)];
+            parser.parse(mgrs, reference);
+            String expected = convertWithRegex(mgrs, reference);
+            if (null == expected && parser.isPolar() && startsWithDigit(mgrs)) {
+                //See testDigitsBeforePolarZoneNoLongerRejected
+                expected = convertWithRegex(parser.toString(), null);
+            }
+            Assert.assertEquals(mgrs + " with reference " + reference,
+                    expected, parser.toString());
+        }
+    }
+
+    private static boolean startsWithDigit(String mgrs) {
+        for (int i = 0; i < mgrs.length(); i++) {
+            char c = mgrs.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                return Character.isDigit(c);
+            }
+        }
+        return false;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The regular expression rules that Utilities.convertToValidMgrs used before
+     * MgrsParser, with the reference given as an MGRS string. Like the original,
+     * it checks the polar pattern against the string as it was before any leading
+     * digits were removed.
+     */
+    private static String convertWithRegex(String mgrs, String referenceMgrs) {
+        mgrs = mgrs.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+        if (null != referenceMgrs && mgrs.matches("[A-Z]{2}[0-9]*")) {
+            Matcher gzMatcher = Pattern.compile("[0-9]{0,2}[A-Z]").matcher(referenceMgrs);
+            if (gzMatcher.find() && 0 == gzMatcher.start()) {
+                mgrs = referenceMgrs.substring(0, gzMatcher.end()) + mgrs;
+            }
+        }
+        Matcher matcher = Pattern.compile("[A-Z]+").matcher(mgrs);
+        if (!matcher.find()) {
+            return null;
+        }
+        Matcher polarMatcher = Pattern.compile("[ABYZ][A-Z]{2}[0-9]*").matcher(mgrs);
+        if (0 == matcher.start()) {
+            if (!polarMatcher.matches()) {
+                return null;
+            }
+        } else {
+            char firstLetter = mgrs.charAt(matcher.start());
+            if ('A' == firstLetter || 'B' == firstLetter || 'Y' == firstLetter || 'Z' == firstLetter) {
+                mgrs = mgrs.substring(matcher.start());
+                if (!polarMatcher.matches()) {
+                    return null;
+                }
+            } else {
+                if (!mgrs.matches("[0-9]{1,2}[C-X][A-Z]{2}[0-9]*")) {
+                    return null;
+                }
+                int gridZoneNumber = Integer.parseInt(mgrs.substring(0, matcher.start()));
+                if (0 > gridZoneNumber || 60 < gridZoneNumber) {
+                    return null;
+                }
+            }
+        }
+        Matcher threeLetters = Pattern.compile("[A-Z]{3}").matcher(mgrs);
+        threeLetters.find();
+        if (threeLetters.end() < mgrs.length() && 1 == (mgrs.length() - threeLetters.end()) % 2) {
+            return null;
+        }
+        return mgrs;
+    }
+
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util.test;
+
+import com.esri.vehiclecommander.util.MilitaryDateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * MilitaryDateFormat unit tests, which compare it with SimpleDateFormat.
+ */
+public class MilitaryDateFormatTest {
+
+    private static final String[] TIME_ZONES = {
+        "UTC", "America/New_York", "America/Los_Angeles", "Europe/London", "Europe/Berlin",
+        "Asia/Baghdad", "Asia/Kolkata", "Australia/Lord_Howe", "Pacific/Kiritimati"
+    };
+
+    /**
+     * Checks a MilitaryDateFormat against a SimpleDateFormat with the same time zone
+     * and zone letter.
+     */
+    private static void assertSameAsSimpleDateFormat(MilitaryDateFormat format, long millis) {
+        SimpleDateFormat expected = new SimpleDateFormat("ddHHmmss'" + format.getZoneLetter() + " 'MMM' 'yy");
+        expected.setTimeZone(format.getTimeZone());
+        Assert.assertEquals("At " + millis + " in " + format.getTimeZone().getID(),
+                expected.format(new Date(millis)), format.format(millis));
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute, int second, int millisecond) {
+        SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        parser.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return parser.parse(String.format("%04d-%02d-%02d %02d:%02d:%02d.%03d",
+                    year, month, day, hour, minute, second, millisecond)).getTime();
+        } catch (java.text.ParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Test
+    public void testZulu() {
+        Assert.assertEquals('Z', MilitaryDateFormat.ZULU.getZoneLetter());
+        Assert.assertEquals("04130509Z", MilitaryDateFormat.ZULU.format(utc(2014, 7, 4, 13, 5, 9, 0)).substring(0, 9));
+        Assert.assertTrue(MilitaryDateFormat.ZULU.format(utc(2014, 7, 4, 13, 5, 9, 0)).endsWith(" 14"));
+        assertSameAsSimpleDateFormat(MilitaryDateFormat.ZULU, 0);
+    }
+
+    @Test
+    public void testZoneLetters() {
+        long millis = utc(2014, 1, 15, 0, 0, 0, 0);
+        Assert.assertEquals('Z', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("UTC"), millis));
+        Assert.assertEquals('A', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("Europe/Berlin"), millis));
+        Assert.assertEquals('C', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("Asia/Baghdad"), millis));
+        Assert.assertEquals('R', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("America/New_York"), millis));
+        Assert.assertEquals('J', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("Asia/Kolkata"), millis));
+        Assert.assertEquals('J', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("Pacific/Kiritimati"), millis));
+        //GMT+10 skips J and is K
+        Assert.assertEquals('K', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("Etc/GMT-10"), millis));
+        Assert.assertEquals('M', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("Etc/GMT-12"), millis));
+        Assert.assertEquals('Y', MilitaryDateFormat.getMilitaryTimeZoneCharacter(TimeZone.getTimeZone("Etc/GMT+12"), millis));
+    }
+
+    /**
+     * The times on either side of daylight saving changes. The zone letter is
+     * fixed when the formatter is created, but the time follows the zone's offset.
+     */
+    @Test
+    public void testDaylightSavingChanges() {
+        long[] changes = {
+            utc(2014, 3, 9, 7, 0, 0, 0), utc(2014, 11, 2, 6, 0, 0, 0), //America/New_York
+            utc(2014, 3, 30, 1, 0, 0, 0), utc(2014, 10, 26, 1, 0, 0, 0), //Europe/London and Europe/Berlin
+            utc(2014, 4, 5, 15, 0, 0, 0), utc(2014, 10, 4, 15, 30, 0, 0) //Australia/Lord_Howe
+        };
+        for (String id : TIME_ZONES) {
+            MilitaryDateFormat format = new MilitaryDateFormat(TimeZone.getTimeZone(id));
+            for (long change : changes) {
+                assertSameAsSimpleDateFormat(format, change - 1001);
+                assertSameAsSimpleDateFormat(format, change - 1);
+                assertSameAsSimpleDateFormat(format, change);
+                assertSameAsSimpleDateFormat(format, change + 999);
+            }
+        }
+    }
+
+    /**
+     * Times within a second, and on either side of day, month and year boundaries,
+     * including before 1970.
+     */
+    @Test
+    public void testBoundaries() {
+        long[] times = {
+            0, -1, -999, -1000, -1001, 999, 1000,
+            utc(1999, 12, 31, 23, 59, 59, 999), utc(2000, 1, 1, 0, 0, 0, 0),
+            utc(2000, 2, 28, 23, 59, 59, 999), utc(2000, 2, 29, 12, 0, 0, 0), utc(2000, 3, 1, 0, 0, 0, 0),
+            utc(2100, 2, 28, 23, 59, 59, 999), utc(2100, 3, 1, 0, 0, 0, 0),
+            utc(1969, 12, 31, 23, 59, 59, 999), utc(1900, 1, 1, 0, 0, 0, 0)
+        };
+        for (String id : TIME_ZONES) {
+            MilitaryDateFormat format = new MilitaryDateFormat(TimeZone.getTimeZone(id));
+            for (long time : times) {
+                assertSameAsSimpleDateFormat(format, time);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomTimes() {
+        Random random = new Random(12);
+        long min = utc(1900, 1, 1, 0, 0, 0, 0);
+        long max = utc(2200, 1, 1, 0, 0, 0, 0);
+        for (String id : TIME_ZONES) {
+            MilitaryDateFormat format = new MilitaryDateFormat(TimeZone.getTimeZone(id));
+            for (int i = 0; i < 2000; i++) {
+                assertSameAsSimpleDateFormat(format, min + (long) (random.nextDouble() * (max - min)));
+            }
+        }
+    }
+
+    /**
+     * Formatting the same second twice returns the cached string, which must not
+     * depend on the milliseconds.
+     */
+    @Test
+    public void testCachedSecond() {
+        MilitaryDateFormat format = new MilitaryDateFormat(TimeZone.getTimeZone("America/New_York"));
+        long second = utc(2014, 7, 4, 13, 5, 9, 0);
+        String text = format.format(second + 999);
+        Assert.assertSame(text, format.format(second));
+        Assert.assertEquals(text, format.format(new Date(second + 500)));
+        assertSameAsSimpleDateFormat(format, second + 1000);
+    }
+
+}
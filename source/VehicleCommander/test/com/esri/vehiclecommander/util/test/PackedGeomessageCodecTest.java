@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util.test;
+
+import com.esri.vehiclecommander.util.PackedGeomessageCodec;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * PackedGeomessageCodec unit tests.
+ */
+public class PackedGeomessageCodecTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final String POSITION_REPORT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><geomessages>"
+            + "<geomessage v=\"1.0\"><_type>position_report</_type><_action>UPDATE</_action>"
+            + "<_id>4a6b3c1e-8f2d-4e5a-9b7c-0d1e2f3a4b5c</_id><_wkid>4326</_wkid>"
+            + "<sic>SFGPUCI----K---</sic><_control_points>44.123456,34.654321</_control_points>"
+            + "<uniquedesignation>Vehicle 1</uniquedesignation><type>HMMWV</type>"
+            + "<datetimevalid>2015-01-01 12:34:56</datetimevalid></geomessage></geomessages>";
+
+    private static String roundTrip(String xml) throws DataFormatException {
+        byte[] packed = PackedGeomessageCodec.pack(xml.getBytes(UTF_8));
+        return PackedGeomessageCodec.unpack(new String(packed, ASCII));
+    }
+
+    @Test
+    public void testRoundTrip() throws DataFormatException {
+        Assert.assertEquals(POSITION_REPORT, roundTrip(POSITION_REPORT));
+        Assert.assertEquals("", roundTrip(""));
+        String nonAscii = "<geomessages><geomessage><x>\u00e9 \u4e2d \ud83d\ude00 &amp;</x></geomessage></geomessages>";
+        Assert.assertEquals(nonAscii, roundTrip(nonAscii));
+    }
+
+    @Test
+    public void testRandomRoundTrips() throws DataFormatException {
+        Random random = new Random(20150101L);
+        for (int i = 0; i < 1000; i++) {
+            byte[] bytes = new byte[random.nextInt(300)];
+            random.nextBytes(bytes);
+            String text = new String(bytes, UTF_8);
+            Assert.assertEquals(text, roundTrip(text));
+        }
+    }
+
+    /**
+     * Thanks to the dictionary, even a lone position report packs to less than half
+     * its size, Base64 included.
+     */
+    @Test
+    public void testCompression() {
+        byte[] xml = POSITION_REPORT.getBytes(UTF_8);
+        byte[] packed = PackedGeomessageCodec.pack(xml);
+        Assert.assertTrue(packed.length + " bytes packed from " + xml.length, packed.length * 2 < xml.length);
+    }
+
+    @Test
+    public void testIsPacked() {
+        Assert.assertTrue(PackedGeomessageCodec.isPacked(new String(PackedGeomessageCodec.pack(new byte[0]), ASCII)));
+        Assert.assertFalse(PackedGeomessageCodec.isPacked(POSITION_REPORT));
+        Assert.assertFalse(PackedGeomessageCodec.isPacked("GMZ"));
+        Assert.assertFalse(PackedGeomessageCodec.isPacked(null));
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testBadCharacter() throws DataFormatException {
+        PackedGeomessageCodec.unpack(PackedGeomessageCodec.PREFIX + "AA!A");
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testTruncated() throws DataFormatException {
+        String packed = new String(PackedGeomessageCodec.pack(POSITION_REPORT.getBytes(UTF_8)), ASCII);
+        PackedGeomessageCodec.unpack(packed.substring(0, PackedGeomessageCodec.PREFIX.length() + 40));
+    }
+
+    /**
+     * A few kilobytes that inflate to more than the limit are rejected instead of
+     * being inflated into memory.
+     */
+    @Test(expected = DataFormatException.class)
+    public void testTooLarge() throws DataFormatException {
+        byte[] spaces = new byte[PackedGeomessageCodec.MAX_UNPACKED_BYTES + 1];
+        Arrays.fill(spaces, (byte) ' ');
+        byte[] packed = PackedGeomessageCodec.pack(spaces);
+        Assert.assertTrue(packed.length < 10000);
+        PackedGeomessageCodec.unpack(new String(packed, ASCII));
+    }
+
+    @Test
+    public void testLargestAllowed() throws DataFormatException {
+        StringBuilder sb = new StringBuilder(PackedGeomessageCodec.MAX_UNPACKED_BYTES);
+        while (sb.length() < PackedGeomessageCodec.MAX_UNPACKED_BYTES) {
+            sb.append(' ');
+        }
+        Assert.assertEquals(sb.toString(), roundTrip(sb.toString()));
+    }
+
+}
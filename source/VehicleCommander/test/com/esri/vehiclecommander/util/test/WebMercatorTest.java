@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2012-2015 Esri
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ ******************************************************************************/
+package com.esri.vehiclecommander.util.test;
+
+import com.esri.vehiclecommander.util.WebMercator;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * WebMercator unit tests.
+ */
+public class WebMercatorTest {
+
+    private static final double METERS_TOLERANCE = 0.001;
+    private static final double DEGREES_TOLERANCE = 1e-9;
+
+    /**
+     * The half-width of the Web Mercator world, in meters.
+     */
+    private static final double HALF_WORLD = 20037508.342789244;
+
+    /**
+     * { longitude, latitude, x, y }, with x and y in EPSG:3857.
+     */
+    private static final double[][] KNOWN_POINTS = {
+        { 0, 0, 0, 0 },
+        { -0.1278, 51.5074, -14226.6309, 6711542.4756 }, //London
+        { -77.0365, 38.8977, -8575663.9525, 4707028.5508 }, //Washington
+        { 151.2093, -33.8688, 16832542.2792, -4011198.6473 }, //Sydney
+        { 44.3661, 33.3152, 4938811.6605, 3937216.6158 } //Baghdad
+    };
+
+    @Test
+    public void testToXY() {
+        for (double[] point : KNOWN_POINTS) {
+            Assert.assertEquals(point[2], WebMercator.toX(point[0]), METERS_TOLERANCE);
+            Assert.assertEquals(point[3], WebMercator.toY(point[1]), METERS_TOLERANCE);
+        }
+        Assert.assertEquals(HALF_WORLD, WebMercator.toX(180), METERS_TOLERANCE);
+        Assert.assertEquals(-HALF_WORLD, WebMercator.toX(-180), METERS_TOLERANCE);
+    }
+
+    @Test
+    public void testToLonLat() {
+        for (double[] point : KNOWN_POINTS) {
+            Assert.assertEquals(point[0], WebMercator.toLongitude(point[2]), 1e-8);
+            Assert.assertEquals(point[1], WebMercator.toLatitude(point[3]), 1e-8);
+        }
+        Assert.assertEquals(180, WebMercator.toLongitude(HALF_WORLD), DEGREES_TOLERANCE);
+        Assert.assertEquals(WebMercator.MAX_LATITUDE, WebMercator.toLatitude(HALF_WORLD), DEGREES_TOLERANCE);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        for (double lat = -85; lat <= 85; lat += 0.5) {
+            Assert.assertEquals(lat, WebMercator.toLatitude(WebMercator.toY(lat)), DEGREES_TOLERANCE);
+        }
+        for (double lon = -180; lon <= 180; lon += 0.5) {
+            Assert.assertEquals(lon, WebMercator.toLongitude(WebMercator.toX(lon)), DEGREES_TOLERANCE);
+        }
+    }
+
+    /**
+     * Latitudes beyond +/-85.0511 degrees are clamped to the edge of the square
+     * Web Mercator world.
+     */
+    @Test
+    public void testClampsLatitude() {
+        Assert.assertEquals(HALF_WORLD, WebMercator.toY(WebMercator.MAX_LATITUDE), METERS_TOLERANCE);
+        Assert.assertEquals(-HALF_WORLD, WebMercator.toY(-WebMercator.MAX_LATITUDE), METERS_TOLERANCE);
+        Assert.assertEquals(HALF_WORLD, WebMercator.toY(85.06), METERS_TOLERANCE);
+        Assert.assertEquals(HALF_WORLD, WebMercator.toY(90), METERS_TOLERANCE);
+        Assert.assertEquals(-HALF_WORLD, WebMercator.toY(-90), METERS_TOLERANCE);
+        Assert.assertFalse(Double.isInfinite(WebMercator.toY(90)));
+        Assert.assertTrue(HALF_WORLD > WebMercator.toY(85.05));
+    }
+
+    @Test
+    public void testArrays() {
+        double[] coords = new double[2 * KNOWN_POINTS.length];
+        double[] xs = new double[KNOWN_POINTS.length];
+        double[] ys = new double[KNOWN_POINTS.length];
+        for (int i = 0; i < KNOWN_POINTS.length; i++) {
+            coords[2 * i] = xs[i] = KNOWN_POINTS[i][0];
+            coords[2 * i + 1] = ys[i] = KNOWN_POINTS[i][1];
+        }
+        WebMercator.fromLonLat(coords, KNOWN_POINTS.length);
+        WebMercator.fromLonLat(xs, ys, KNOWN_POINTS.length);
+        for (int i = 0; i < KNOWN_POINTS.length; i++) {
+            Assert.assertEquals(KNOWN_POINTS[i][2], coords[2 * i], METERS_TOLERANCE);
+            Assert.assertEquals(KNOWN_POINTS[i][3], coords[2 * i + 1], METERS_TOLERANCE);
+            Assert.assertEquals(KNOWN_POINTS[i][2], xs[i], METERS_TOLERANCE);
+            Assert.assertEquals(KNOWN_POINTS[i][3], ys[i], METERS_TOLERANCE);
+        }
+        WebMercator.toLonLat(coords, KNOWN_POINTS.length);
+        WebMercator.toLonLat(xs, ys, KNOWN_POINTS.length);
+        for (int i = 0; i < KNOWN_POINTS.length; i++) {
+            Assert.assertEquals(KNOWN_POINTS[i][0], coords[2 * i], 1e-8);
+            Assert.assertEquals(KNOWN_POINTS[i][1], coords[2 * i + 1], 1e-8);
+            Assert.assertEquals(KNOWN_POINTS[i][0], xs[i], 1e-8);
+            Assert.assertEquals(KNOWN_POINTS[i][1], ys[i], 1e-8);
+        }
+    }
+
+    @Test
+    public void testIsWebMercator() {
+        Assert.assertTrue(WebMercator.isWebMercator(3857));
+        Assert.assertTrue(WebMercator.isWebMercator(102100));
+        Assert.assertTrue(WebMercator.isWebMercator(102113));
+        Assert.assertTrue(WebMercator.isWebMercator(900913));
+        Assert.assertFalse(WebMercator.isWebMercator(WebMercator.WGS84_WKID));
+        Assert.assertFalse(WebMercator.isWebMercator(3395));
+        Assert.assertFalse(WebMercator.isWebMercator(0));
+    }
+
+    @Test
+    public void testCanProject() {
+        Assert.assertTrue(WebMercator.canProject(WebMercator.WGS84_WKID, 3857));
+        Assert.assertTrue(WebMercator.canProject(102100, WebMercator.WGS84_WKID));
+        Assert.assertFalse(WebMercator.canProject(3857, 102100));
+        Assert.assertFalse(WebMercator.canProject(WebMercator.WGS84_WKID, WebMercator.WGS84_WKID));
+        Assert.assertFalse(WebMercator.canProject(WebMercator.WGS84_WKID, 32638));
+    }
+
+}